@@ -0,0 +1,93 @@
+package bookkeep.analytics;
+
+import java.time.Duration;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import bookkeep.models.Book;
+import bookkeep.models.collections.BookStorage;
+
+/**
+ * Computes LibraryReports over a BookStorage on a ForkJoinPool. The library's
+ * spliterator is split in halves until the pieces are small enough to be
+ * worth a task of their own, every leaf fills its own report and the partial
+ * reports are merged on the way back up.
+ *
+ * The books must not be modified while a report is running.
+ */
+public class LibraryAnalytics {
+
+	/**
+	 * Leaves smaller than this are not split any further, however many workers
+	 * there are
+	 */
+	static final int MIN_LEAF_SIZE = 1024;
+
+	/**
+	 * Aim for several leaves per worker so an uneven split does not leave
+	 * workers idle
+	 */
+	private static final int LEAVES_PER_WORKER = 8;
+
+	private final ForkJoinPool pool;
+
+	public LibraryAnalytics() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public LibraryAnalytics(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * The report computed in parallel on this analytics' pool
+	 */
+	public LibraryReport report(BookStorage storage) {
+		long start = System.nanoTime();
+		Spliterator<Book> books = storage.spliterator();
+		int parallelism = pool.getParallelism();
+		long leafSize = Math.max(MIN_LEAF_SIZE, books.estimateSize() / ((long) parallelism * LEAVES_PER_WORKER));
+		LibraryReport report = pool.invoke(new ReportTask(books, leafSize));
+		report.setTiming(Duration.ofNanos(System.nanoTime() - start), parallelism);
+		return report;
+	}
+
+	/**
+	 * The same report computed on the calling thread, the baseline the parallel
+	 * path is measured against
+	 */
+	public static LibraryReport reportSequential(BookStorage storage) {
+		long start = System.nanoTime();
+		LibraryReport report = new LibraryReport();
+		storage.spliterator().forEachRemaining(report::accept);
+		report.setTiming(Duration.ofNanos(System.nanoTime() - start), 1);
+		return report;
+	}
+
+	private static final class ReportTask extends RecursiveTask<LibraryReport> {
+		private final Spliterator<Book> books;
+		private final long leafSize;
+
+		private ReportTask(Spliterator<Book> books, long leafSize) {
+			this.books = books;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected LibraryReport compute() {
+			if (books.estimateSize() > leafSize) {
+				Spliterator<Book> prefix = books.trySplit();
+				if (prefix != null) {
+					ReportTask left = new ReportTask(prefix, leafSize);
+					left.fork();
+					LibraryReport right = new ReportTask(books, leafSize).compute();
+					return left.join().merge(right);
+				}
+			}
+			LibraryReport report = new LibraryReport();
+			books.forEachRemaining(report::accept);
+			return report;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package bookkeep.analytics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.history.BookSnapshot;
+
+/**
+ * Batch report over a library: the distribution of reading durations of
+ * finished books, totals per author and page counts per publication decade.
+ *
+ * A report is a mergeable accumulator: each worker fills its own with accept
+ * and the partial reports are combined with merge, so no state is shared
+ * while the books are visited.
+ */
+public final class LibraryReport {
+
+	/**
+	 * Upper bounds in days of the reading duration buckets, the last bucket
+	 * holds everything from a year up
+	 */
+	public static final long[] DURATION_BUCKET_DAYS = { 1, 7, 30, 90, 365 };
+
+	private long bookCount;
+	private long finishedCount;
+	private long totalReadingSeconds;
+	private final long[] durationBuckets = new long[DURATION_BUCKET_DAYS.length + 1];
+	private final Map<String, AuthorTotals> authors = new HashMap<>();
+	private final SortedMap<Integer, Long> pagesPerDecade = new TreeMap<>();
+	private Duration elapsed = Duration.ZERO;
+	private int parallelism = 1;
+
+	/**
+	 * Books, pages and finished books of one author
+	 */
+	public static final class AuthorTotals {
+		private long books;
+		private long pages;
+		private long finished;
+
+		public long getBooks() {
+			return books;
+		}
+
+		public long getPages() {
+			return pages;
+		}
+
+		public long getFinished() {
+			return finished;
+		}
+
+		private void merge(AuthorTotals other) {
+			books += other.books;
+			pages += other.pages;
+			finished += other.finished;
+		}
+	}
+
+	/* ============================== Accumulating ============================== */
+
+	void accept(Book book) {
+		bookCount++;
+		AuthorTotals author = authors.computeIfAbsent(book.getAuthorName(), name -> new AuthorTotals());
+		author.books++;
+		author.pages += book.getPageCount();
+		pagesPerDecade.merge(Math.floorDiv(book.getPublicationYear(), 10) * 10, (long) book.getPageCount(),
+				Long::sum);
+
+		if (book instanceof OwnedBook owned && BookSnapshot.FINISHED.equals(owned.getStateName())) {
+			Duration duration = owned.getReadingDuration();
+			finishedCount++;
+			totalReadingSeconds += duration.getSeconds();
+			durationBuckets[durationBucket(duration.toDays())]++;
+			author.finished++;
+		}
+	}
+
+	/**
+	 * Adds the other report's totals into this one
+	 */
+	LibraryReport merge(LibraryReport other) {
+		bookCount += other.bookCount;
+		finishedCount += other.finishedCount;
+		totalReadingSeconds += other.totalReadingSeconds;
+		for (int i = 0; i < durationBuckets.length; i++) {
+			durationBuckets[i] += other.durationBuckets[i];
+		}
+		other.authors.forEach((name, totals) -> authors.computeIfAbsent(name, n -> new AuthorTotals()).merge(totals));
+		other.pagesPerDecade.forEach((decade, pages) -> pagesPerDecade.merge(decade, pages, Long::sum));
+		return this;
+	}
+
+	void setTiming(Duration elapsed, int parallelism) {
+		this.elapsed = elapsed;
+		this.parallelism = parallelism;
+	}
+
+	private static int durationBucket(long days) {
+		for (int i = 0; i < DURATION_BUCKET_DAYS.length; i++) {
+			if (days < DURATION_BUCKET_DAYS[i]) {
+				return i;
+			}
+		}
+		return DURATION_BUCKET_DAYS.length;
+	}
+
+	/* ================================ Results ================================= */
+
+	public long getBookCount() {
+		return bookCount;
+	}
+
+	public long getFinishedCount() {
+		return finishedCount;
+	}
+
+	public Duration getAverageReadingDuration() {
+		return finishedCount == 0 ? Duration.ZERO : Duration.ofSeconds(totalReadingSeconds / finishedCount);
+	}
+
+	/**
+	 * Number of finished books per duration bucket, see DURATION_BUCKET_DAYS
+	 */
+	public long[] getDurationHistogram() {
+		return durationBuckets.clone();
+	}
+
+	public Map<String, AuthorTotals> getAuthorTotals() {
+		return Collections.unmodifiableMap(authors);
+	}
+
+	public AuthorTotals getAuthorTotals(String authorName) {
+		return authors.getOrDefault(authorName, new AuthorTotals());
+	}
+
+	/**
+	 * Total page count per decade of publication, keyed by the decade's first
+	 * year
+	 */
+	public SortedMap<Integer, Long> getPagesPerDecade() {
+		return Collections.unmodifiableSortedMap(pagesPerDecade);
+	}
+
+	/**
+	 * Wall clock time the report took to compute
+	 */
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Number of worker threads the report was computed with
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public String toString() {
+		return "LibraryReport{books=" + bookCount + ", finished=" + finishedCount + ", authors=" + authors.size()
+				+ ", elapsed=" + elapsed + ", parallelism=" + parallelism + "}";
+	}
+}
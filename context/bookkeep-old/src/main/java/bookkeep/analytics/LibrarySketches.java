@@ -0,0 +1,214 @@
+package bookkeep.analytics;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import bookkeep.analytics.sketch.CountMinSketch;
+import bookkeep.analytics.sketch.HyperLogLog;
+import bookkeep.analytics.sketch.KllSketch;
+import bookkeep.enums.EventType;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookHistory;
+
+/**
+ * Approximate analytics in fixed memory, fed by the same changes as the other
+ * LibraryListeners:
+ * <ul>
+ * <li>distinct authors in the library, and distinct authors and genres read
+ * per year (HyperLogLog)</li>
+ * <li>percentiles of reading duration and page count (KLL)</li>
+ * <li>the most quoted books (count-min plus a small list of candidates)</li>
+ * </ul>
+ *
+ * The sketches only grow: removing a book does not take it back out. They are
+ * serializable and mergeable, so sketches built per shelf or per year can be
+ * kept and combined later.
+ */
+public class LibrarySketches implements LibraryListener, Serializable {
+
+	static final int TOP_QUOTED_CANDIDATES = 32;
+	private static final double QUOTE_EPSILON = 0.001;
+	private static final double QUOTE_DELTA = 0.01;
+
+	private final ZoneId zone;
+	private final HyperLogLog authors = new HyperLogLog();
+	private final Map<Integer, HyperLogLog> authorsReadPerYear = new HashMap<>();
+	private final Map<Integer, HyperLogLog> genresReadPerYear = new HashMap<>();
+	private final KllSketch readingHours = new KllSketch();
+	private final KllSketch pageCounts = new KllSketch();
+	private final CountMinSketch quotes = new CountMinSketch(QUOTE_EPSILON, QUOTE_DELTA);
+	private final Map<UUID, Long> topQuoted = new HashMap<>();
+
+	public LibrarySketches() {
+		this(ZoneId.systemDefault());
+	}
+
+	public LibrarySketches(ZoneId zone) {
+		this.zone = zone;
+	}
+
+	/**
+	 * Sketches over a fixed set of books, such as one shelf
+	 */
+	public static LibrarySketches of(Collection<Book> books) {
+		LibrarySketches sketches = new LibrarySketches();
+		books.forEach(sketches::bookAdded);
+		return sketches;
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookAdded(Book book) {
+		authors.add(book.getAuthorName());
+		pageCounts.update(book.getPageCount());
+		if (!(book instanceof OwnedBook)) {
+			return;
+		}
+		BookHistory history = book.getHistory();
+		if (history.getFinishedReading() != null) {
+			finished(book, history);
+		}
+		int quoteCount = history.getQuotes().size();
+		for (int i = 0; i < quoteCount; i++) {
+			quoted(book.getUUID());
+		}
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		if (event.getType() == EventType.FINISHED_READING) {
+			finished(book, book.getHistory());
+		} else if (event.getType() == EventType.QUOTE) {
+			quoted(book.getUUID());
+		}
+	}
+
+	/* ================================ Queries ================================= */
+
+	public long getDistinctAuthors() {
+		return authors.estimate();
+	}
+
+	/**
+	 * Distinct authors of the books finished in the given year
+	 */
+	public long getDistinctAuthorsRead(int year) {
+		HyperLogLog sketch = authorsReadPerYear.get(year);
+		return sketch == null ? 0 : sketch.estimate();
+	}
+
+	/**
+	 * Distinct genres of the books finished in the given year
+	 */
+	public long getDistinctGenresRead(int year) {
+		HyperLogLog sketch = genresReadPerYear.get(year);
+		return sketch == null ? 0 : sketch.estimate();
+	}
+
+	/**
+	 * Reading duration of finished books at the given quantile, e.g. 0.9 for the
+	 * 90th percentile
+	 */
+	public Duration getReadingDurationQuantile(double q) {
+		double hours = readingHours.getQuantile(q);
+		return Double.isNaN(hours) ? Duration.ZERO : Duration.ofSeconds(Math.round(hours * 3600));
+	}
+
+	public double getPageCountQuantile(double q) {
+		return pageCounts.getQuantile(q);
+	}
+
+	public long getQuoteCount(UUID bookId) {
+		return quotes.estimate(bookId);
+	}
+
+	/**
+	 * Ids of the most quoted books, most quoted first
+	 */
+	public List<UUID> getMostQuoted(int limit) {
+		List<UUID> ids = new ArrayList<>(topQuoted.keySet());
+		ids.sort((a, b) -> Long.compare(topQuoted.get(b), topQuoted.get(a)));
+		return ids.subList(0, Math.min(limit, ids.size()));
+	}
+
+	/**
+	 * Adds the other sketches into these, as if this had seen both libraries
+	 */
+	public void merge(LibrarySketches other) {
+		authors.merge(other.authors);
+		other.authorsReadPerYear.forEach((year, sketch) -> sketchForYear(authorsReadPerYear, year).merge(sketch));
+		other.genresReadPerYear.forEach((year, sketch) -> sketchForYear(genresReadPerYear, year).merge(sketch));
+		readingHours.merge(other.readingHours);
+		pageCounts.merge(other.pageCounts);
+		quotes.merge(other.quotes);
+		for (UUID candidate : other.topQuoted.keySet()) {
+			offerCandidate(candidate);
+		}
+		for (UUID candidate : new ArrayList<>(topQuoted.keySet())) {
+			topQuoted.put(candidate, quotes.estimate(candidate));
+		}
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void finished(Book book, BookHistory history) {
+		BookEvent started = history.getStartedReading();
+		BookEvent finished = history.getFinishedReading();
+		int year = LocalDate.ofInstant(finished.getTimestamp(), zone).getYear();
+		sketchForYear(authorsReadPerYear, year).add(book.getAuthorName());
+		sketchForYear(genresReadPerYear, year).add(book.getGenre() == null ? null : book.getGenre().name());
+		if (started != null) {
+			Duration duration = Duration.between(started.getTimestamp(), finished.getTimestamp());
+			readingHours.update(duration.getSeconds() / 3600.0);
+		}
+	}
+
+	private void quoted(UUID bookId) {
+		quotes.add(bookId);
+		offerCandidate(bookId);
+	}
+
+	/**
+	 * Keeps the candidates with the highest estimates. Replacing the smallest is
+	 * a scan, which is cheap for a list this short.
+	 */
+	private void offerCandidate(UUID bookId) {
+		long estimate = quotes.estimate(bookId);
+		if (topQuoted.containsKey(bookId) || topQuoted.size() < TOP_QUOTED_CANDIDATES) {
+			topQuoted.put(bookId, estimate);
+			return;
+		}
+		UUID smallest = null;
+		for (Map.Entry<UUID, Long> entry : topQuoted.entrySet()) {
+			if (smallest == null || entry.getValue() < topQuoted.get(smallest)) {
+				smallest = entry.getKey();
+			}
+		}
+		if (estimate > topQuoted.get(smallest)) {
+			topQuoted.remove(smallest);
+			topQuoted.put(bookId, estimate);
+		}
+	}
+
+	private static HyperLogLog sketchForYear(Map<Integer, HyperLogLog> sketches, int year) {
+		return sketches.computeIfAbsent(year, y -> new HyperLogLog());
+	}
+
+	@Override
+	public String toString() {
+		return "LibrarySketches{distinctAuthors=" + getDistinctAuthors() + ", finished=" + readingHours.getCount()
+				+ ", quotes=" + quotes.getTotalCount() + "}";
+	}
+}
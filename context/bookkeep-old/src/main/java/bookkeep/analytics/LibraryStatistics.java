@@ -0,0 +1,293 @@
+package bookkeep.analytics;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import bookkeep.enums.EventType;
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookHistory;
+import bookkeep.models.history.BookSnapshot;
+
+/**
+ * Library wide statistics kept up to date from the changes a BookStorage
+ * reports: books added and removed, state transitions, page updates, reviews
+ * and genre edits. Every change adjusts a few counters in O(1), so the
+ * dashboard queries never have to look at the books.
+ *
+ * Per book only the values a later change has to take back out of the
+ * totals are remembered: its genre, state, page and rating.
+ */
+public class LibraryStatistics implements LibraryListener {
+
+	private static final int MAX_RATING = 5;
+	private static final int NO_RATING = -1;
+
+	private final ZoneId zone;
+	private final Map<UUID, Tracked> books = new HashMap<>();
+
+	private int ownedCount;
+	private int wishlistCount;
+	private int notStartedCount;
+	private int inProgressCount;
+	private int finishedCount;
+	private long pagesRead;
+	private final int[] genreCounts = new int[Genre.values().length];
+	private final SortedMap<Integer, Integer> finishedPerYear = new TreeMap<>();
+	private final int[] ratingCounts = new int[MAX_RATING + 1];
+	private long ratingSum;
+	private int ratingCount;
+
+	/**
+	 * What has been counted for one book
+	 */
+	private static final class Tracked {
+		private final boolean owned;
+		private Genre genre;
+		private String stateName;
+		private int page;
+		private int rating = NO_RATING;
+		private int finishedYear;
+
+		private Tracked(boolean owned) {
+			this.owned = owned;
+		}
+	}
+
+	public LibraryStatistics() {
+		this(ZoneId.systemDefault());
+	}
+
+	/**
+	 * @param zone the time zone a book's finishing time is assigned to a year in
+	 */
+	public LibraryStatistics(ZoneId zone) {
+		this.zone = zone;
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookAdded(Book book) {
+		if (books.containsKey(book.getUUID())) {
+			return;
+		}
+		Tracked tracked = new Tracked(book instanceof OwnedBook);
+		books.put(book.getUUID(), tracked);
+		setGenre(tracked, book.getGenre());
+		if (!tracked.owned) {
+			wishlistCount++;
+			return;
+		}
+
+		ownedCount++;
+		BookHistory history = book.getHistory();
+		setState(tracked, book.getStateName(), history.getFinishedReading());
+		setPage(tracked, book.getPageNumber());
+		if (history.hasReview()) {
+			setRating(tracked, history.getReview().getRating());
+		}
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		Tracked tracked = books.remove(book.getUUID());
+		if (tracked == null) {
+			return;
+		}
+		setGenre(tracked, null);
+		if (!tracked.owned) {
+			wishlistCount--;
+			return;
+		}
+
+		ownedCount--;
+		setState(tracked, null, null);
+		setPage(tracked, 0);
+		setRating(tracked, NO_RATING);
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		Tracked tracked = books.get(book.getUUID());
+		if (tracked == null) {
+			return;
+		}
+		// Wishlist books count towards the genres too, so their edits are followed
+		if (event.getType() == EventType.METADATA_CHANGE && "genre".equals(event.getAttribute())) {
+			setGenre(tracked, book.getGenre());
+			return;
+		}
+		if (!tracked.owned) {
+			return;
+		}
+		switch (event.getType()) {
+			case STARTED_READING -> setState(tracked, BookSnapshot.IN_PROGRESS, null);
+			case FINISHED_READING -> setState(tracked, BookSnapshot.FINISHED, event);
+			case PAGE_UPDATE -> setPage(tracked, event.getPageNumber());
+			case REVIEW -> setRating(tracked, event.getRating());
+			default -> {
+				// Notes and other edits do not change any statistic
+			}
+		}
+	}
+
+	/* ================================ Queries ================================= */
+
+	public int getBookCount() {
+		return ownedCount + wishlistCount;
+	}
+
+	public int getOwnedCount() {
+		return ownedCount;
+	}
+
+	public int getWishlistCount() {
+		return wishlistCount;
+	}
+
+	/**
+	 * Number of owned books in the state with the given name, such as
+	 * BookSnapshot.FINISHED
+	 */
+	public int getCountInState(String stateName) {
+		return switch (stateName) {
+			case BookSnapshot.NOT_STARTED -> notStartedCount;
+			case BookSnapshot.IN_PROGRESS -> inProgressCount;
+			case BookSnapshot.FINISHED -> finishedCount;
+			default -> 0;
+		};
+	}
+
+	public int getFinishedInYear(int year) {
+		return finishedPerYear.getOrDefault(year, 0);
+	}
+
+	/**
+	 * Books finished per year, in year order, leaving out years without any
+	 */
+	public SortedMap<Integer, Integer> getFinishedPerYear() {
+		return Collections.unmodifiableSortedMap(finishedPerYear);
+	}
+
+	/**
+	 * Sum of the current page of every owned book
+	 */
+	public long getPagesRead() {
+		return pagesRead;
+	}
+
+	public int getGenreCount(Genre genre) {
+		return genreCounts[genre.ordinal()];
+	}
+
+	/**
+	 * Number of books per genre, leaving out genres without any
+	 */
+	public Map<Genre, Integer> getGenreDistribution() {
+		Map<Genre, Integer> distribution = new EnumMap<>(Genre.class);
+		for (Genre genre : Genre.values()) {
+			if (genreCounts[genre.ordinal()] > 0) {
+				distribution.put(genre, genreCounts[genre.ordinal()]);
+			}
+		}
+		return distribution;
+	}
+
+	public int getReviewCount() {
+		return ratingCount;
+	}
+
+	/**
+	 * Average rating over the reviewed books, 0 when nothing is reviewed
+	 */
+	public double getAverageRating() {
+		return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+	}
+
+	/**
+	 * Number of reviewed books per rating, indexed by the rating
+	 */
+	public int[] getRatingHistogram() {
+		return ratingCounts.clone();
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void setGenre(Tracked tracked, Genre genre) {
+		if (tracked.genre != null) {
+			genreCounts[tracked.genre.ordinal()]--;
+		}
+		tracked.genre = genre;
+		if (genre != null) {
+			genreCounts[genre.ordinal()]++;
+		}
+	}
+
+	/**
+	 * Moves a book between the state counters, and into the year it was
+	 * finished in when given the finishing event
+	 */
+	private void setState(Tracked tracked, String stateName, BookEvent finishedReading) {
+		if (tracked.stateName != null) {
+			adjustState(tracked.stateName, -1);
+			if (tracked.stateName.equals(BookSnapshot.FINISHED)) {
+				finishedPerYear.merge(tracked.finishedYear, -1, Integer::sum);
+				finishedPerYear.remove(tracked.finishedYear, 0);
+			}
+		}
+		tracked.stateName = stateName;
+		if (stateName != null) {
+			adjustState(stateName, 1);
+			if (stateName.equals(BookSnapshot.FINISHED)) {
+				tracked.finishedYear = finishedReading == null ? LocalDate.now(zone).getYear()
+						: LocalDate.ofInstant(finishedReading.getTimestamp(), zone).getYear();
+				finishedPerYear.merge(tracked.finishedYear, 1, Integer::sum);
+			}
+		}
+	}
+
+	private void adjustState(String stateName, int delta) {
+		switch (stateName) {
+			case BookSnapshot.NOT_STARTED -> notStartedCount += delta;
+			case BookSnapshot.IN_PROGRESS -> inProgressCount += delta;
+			case BookSnapshot.FINISHED -> finishedCount += delta;
+			default -> throw new IllegalArgumentException("Unknown state " + stateName);
+		}
+	}
+
+	private void setPage(Tracked tracked, int page) {
+		pagesRead += page - tracked.page;
+		tracked.page = page;
+	}
+
+	private void setRating(Tracked tracked, int rating) {
+		if (tracked.rating != NO_RATING) {
+			ratingCounts[tracked.rating]--;
+			ratingSum -= tracked.rating;
+			ratingCount--;
+		}
+		tracked.rating = rating;
+		if (rating != NO_RATING) {
+			ratingCounts[rating]++;
+			ratingSum += rating;
+			ratingCount++;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "LibraryStatistics{books=" + getBookCount() + ", finished=" + finishedCount + ", pagesRead="
+				+ pagesRead + ", averageRating=" + getAverageRating() + "}";
+	}
+}
@@ -0,0 +1,336 @@
+package bookkeep.analytics;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import bookkeep.enums.EventType;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookHistory;
+
+/**
+ * Daily reading activity, one short per day of the year counting the page
+ * updates and notes made that day, plus the number of books finished per
+ * year. It is filled as events are recorded, so the streak and goal widgets
+ * never have to look at a history.
+ *
+ * Each event is put on the local date it happened on in the zone that is
+ * current when it is recorded. Changing the zone (when travelling, say) only
+ * affects events recorded afterwards: days already filled keep the date they
+ * had where the reading took place.
+ *
+ * What each book of a library added is remembered as packed day ordinals,
+ * so removing the book takes exactly that back out again.
+ */
+public class ReadingCalendar implements LibraryListener, Serializable {
+
+	private final Map<Integer, short[]> activityPerYear = new HashMap<>();
+	private final Map<Integer, Integer> finishedPerYear = new HashMap<>();
+	private final Map<UUID, Contribution> contributions = new HashMap<>();
+	private ZoneId zone;
+	private int longestStreak;
+	private transient Clock clock;
+
+	public ReadingCalendar() {
+		this(Clock.systemDefaultZone());
+	}
+
+	/**
+	 * @param clock gives today's date and the zone events are bucketed in
+	 */
+	public ReadingCalendar(Clock clock) {
+		this.clock = clock;
+		this.zone = clock.getZone();
+	}
+
+	/* ============================== Recording ============================== */
+
+	/**
+	 * Changes the zone later events are put on a date in, and the zone "today"
+	 * is taken in
+	 */
+	public void setZone(ZoneId zone) {
+		this.zone = zone;
+		this.clock = clock().withZone(zone);
+	}
+
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	public void recordActivity(Instant timestamp) {
+		addActivity(timestamp);
+	}
+
+	public void recordFinished(Instant timestamp) {
+		addFinished(timestamp);
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	/**
+	 * Fills in the activity a book already has, for books that were read before
+	 * the calendar was attached
+	 */
+	@Override
+	public void bookAdded(Book book) {
+		if (!(book instanceof OwnedBook ownedBook)) {
+			return;
+		}
+		BookHistory history = book.getHistory();
+		for (BookEvent event : history.getListOfEvents()) {
+			recordActivity(book, event.getTimestamp());
+		}
+		if (history.getStartedReading() != null) {
+			recordActivity(book, history.getStartedReading().getTimestamp());
+		}
+		if (history.getFinishedReading() != null) {
+			recordActivity(book, history.getFinishedReading().getTimestamp());
+			recordFinished(book, history.getFinishedReading().getTimestamp());
+		}
+		ownedBook.getProgress().forEach((second, page) -> recordActivity(book, Instant.ofEpochSecond(second)));
+	}
+
+	/**
+	 * Takes back the activity and the finish the book added, so a book that is
+	 * removed and added again is not counted twice
+	 */
+	@Override
+	public void bookRemoved(Book book) {
+		Contribution contribution = contributions.remove(book.getUUID());
+		if (contribution == null) {
+			return;
+		}
+		for (int i = 0; i < contribution.dayCount; i++) {
+			LocalDate day = contribution.dayAt(i);
+			short[] days = activityPerYear.get(day.getYear());
+			int index = day.getDayOfYear() - 1;
+			days[index] = (short) Math.max(0, days[index] - contribution.countAt(i));
+		}
+		for (int i = 0; i < contribution.finishedCount; i++) {
+			finishedPerYear.computeIfPresent(contribution.finishedYears[i],
+					(year, finished) -> finished > 1 ? finished - 1 : null);
+		}
+		longestStreak = longestStreakOverall();
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		if (event.getType() == EventType.METADATA_CHANGE) {
+			return;
+		}
+		recordActivity(book, event.getTimestamp());
+		if (event.getType() == EventType.FINISHED_READING) {
+			recordFinished(book, event.getTimestamp());
+		}
+	}
+
+	/* ================================ Queries ================================= */
+
+	public boolean isActive(LocalDate day) {
+		short[] days = activityPerYear.get(day.getYear());
+		return days != null && days[day.getDayOfYear() - 1] > 0;
+	}
+
+	/**
+	 * Page updates and notes made on the given day
+	 */
+	public int getActivity(LocalDate day) {
+		short[] days = activityPerYear.get(day.getYear());
+		return days == null ? 0 : days[day.getDayOfYear() - 1];
+	}
+
+	/**
+	 * Consecutive active days up to today. A streak is not broken until a whole
+	 * day passes without reading, so if nothing has happened yet today the
+	 * streak up to yesterday counts.
+	 */
+	public int getCurrentStreak() {
+		LocalDate today = LocalDate.now(clock());
+		if (isActive(today)) {
+			return streakEndingOn(today);
+		}
+		return streakEndingOn(today.minusDays(1));
+	}
+
+	public int getLongestStreak() {
+		return longestStreak;
+	}
+
+	public int getFinishedInYear(int year) {
+		return finishedPerYear.getOrDefault(year, 0);
+	}
+
+	/**
+	 * Books that will be finished this year if the pace so far is kept up
+	 */
+	public int getProjectedFinishedThisYear() {
+		LocalDate today = LocalDate.now(clock());
+		int finished = getFinishedInYear(today.getYear());
+		return (int) Math.round((double) finished * today.lengthOfYear() / today.getDayOfYear());
+	}
+
+	/**
+	 * Whether the books finished so far this year are at least the share of the
+	 * goal that matches the share of the year gone by
+	 */
+	public boolean isOnPace(int goal) {
+		LocalDate today = LocalDate.now(clock());
+		return getFinishedInYear(today.getYear()) * (long) today.lengthOfYear() >= (long) goal
+				* today.getDayOfYear();
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void recordActivity(Book book, Instant timestamp) {
+		contributionOf(book).addDay(addActivity(timestamp));
+	}
+
+	private void recordFinished(Book book, Instant timestamp) {
+		contributionOf(book).addFinished(addFinished(timestamp));
+	}
+
+	private Contribution contributionOf(Book book) {
+		return contributions.computeIfAbsent(book.getUUID(), id -> new Contribution());
+	}
+
+	private LocalDate addActivity(Instant timestamp) {
+		LocalDate day = LocalDate.ofInstant(timestamp, zone);
+		short[] days = activityPerYear.computeIfAbsent(day.getYear(), year -> new short[366]);
+		int index = day.getDayOfYear() - 1;
+		boolean firstOfDay = days[index] == 0;
+		if (days[index] < Short.MAX_VALUE) {
+			days[index]++;
+		}
+		if (firstOfDay) {
+			longestStreak = Math.max(longestStreak, streakThrough(day));
+		}
+		return day;
+	}
+
+	private int addFinished(Instant timestamp) {
+		int year = LocalDate.ofInstant(timestamp, zone).getYear();
+		finishedPerYear.merge(year, 1, Integer::sum);
+		return year;
+	}
+
+	private Clock clock() {
+		if (clock == null) {
+			clock = Clock.system(zone);
+		}
+		return clock;
+	}
+
+	/**
+	 * Longest run of active days, counted over the whole calendar after days
+	 * were taken away
+	 */
+	private int longestStreakOverall() {
+		int longest = 0;
+		int run = 0;
+		LocalDate previous = null;
+		for (int year : new TreeSet<>(activityPerYear.keySet())) {
+			short[] days = activityPerYear.get(year);
+			for (int index = 0; index < Year.of(year).length(); index++) {
+				if (days[index] == 0) {
+					continue;
+				}
+				LocalDate day = Year.of(year).atDay(index + 1);
+				run = previous != null && previous.plusDays(1).equals(day) ? run + 1 : 1;
+				longest = Math.max(longest, run);
+				previous = day;
+			}
+		}
+		return longest;
+	}
+
+	private int streakEndingOn(LocalDate day) {
+		int streak = 0;
+		while (isActive(day)) {
+			streak++;
+			day = day.minusDays(1);
+		}
+		return streak;
+	}
+
+	/**
+	 * Length of the run of active days that the given day is part of
+	 */
+	private int streakThrough(LocalDate day) {
+		LocalDate end = day;
+		while (isActive(end.plusDays(1))) {
+			end = end.plusDays(1);
+		}
+		LocalDate start = day;
+		while (isActive(start.minusDays(1))) {
+			start = start.minusDays(1);
+		}
+		return (int) ChronoUnit.DAYS.between(start, end) + 1;
+	}
+
+	/**
+	 * Activity per day and finishes that one book added. Each day is one int,
+	 * the epoch day shifted above the activity count of that day, which covers
+	 * the years 1970 plus or minus 5700. A book is mostly read on from the day
+	 * it was last read on, so consecutive events share the last entry; a day
+	 * returned to later, or with more activity than the count holds, gets
+	 * another one.
+	 */
+	private static final class Contribution implements Serializable {
+		private static final int COUNT_BITS = 10;
+		private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+		private int[] days = new int[2];
+		private int dayCount;
+		private int[] finishedYears = new int[1];
+		private int finishedCount;
+
+		void addDay(LocalDate day) {
+			long epochDay = day.toEpochDay();
+			if (dayCount > 0) {
+				int last = days[dayCount - 1];
+				if (last >> COUNT_BITS == epochDay && (last & MAX_COUNT) < MAX_COUNT) {
+					days[dayCount - 1] = last + 1;
+					return;
+				}
+			}
+			if (dayCount == days.length) {
+				days = Arrays.copyOf(days, dayCount * 2);
+			}
+			days[dayCount++] = (int) (epochDay << COUNT_BITS) | 1;
+		}
+
+		void addFinished(int year) {
+			if (finishedCount == finishedYears.length) {
+				finishedYears = Arrays.copyOf(finishedYears, finishedCount * 2);
+			}
+			finishedYears[finishedCount++] = year;
+		}
+
+		LocalDate dayAt(int index) {
+			return LocalDate.ofEpochDay(days[index] >> COUNT_BITS);
+		}
+
+		int countAt(int index) {
+			return days[index] & MAX_COUNT;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ReadingCalendar{zone=" + zone + ", years=" + activityPerYear.keySet() + ", longestStreak="
+				+ longestStreak + "}";
+	}
+}
@@ -0,0 +1,64 @@
+package bookkeep.analytics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import bookkeep.enums.Genre;
+
+/**
+ * One sitting with a book: a run of progress updates and notes where no two
+ * consecutive ones are further apart than the sessionizer's idle gap.
+ */
+public final class ReadingSession {
+
+	private final UUID bookId;
+	private final Genre genre;
+	private final Instant start;
+	private final Instant end;
+	private final int pagesRead;
+	private final int eventCount;
+
+	public ReadingSession(UUID bookId, Genre genre, Instant start, Instant end, int pagesRead, int eventCount) {
+		this.bookId = bookId;
+		this.genre = genre;
+		this.start = start;
+		this.end = end;
+		this.pagesRead = pagesRead;
+		this.eventCount = eventCount;
+	}
+
+	public UUID getBookId() {
+		return bookId;
+	}
+
+	public Genre getGenre() {
+		return genre;
+	}
+
+	public Instant getStart() {
+		return start;
+	}
+
+	public Instant getEnd() {
+		return end;
+	}
+
+	public Duration getDuration() {
+		return Duration.between(start, end);
+	}
+
+	public int getPagesRead() {
+		return pagesRead;
+	}
+
+	public int getEventCount() {
+		return eventCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ReadingSession{bookId=" + bookId + ", start=" + start + ", end=" + end + ", pagesRead=" + pagesRead
+				+ "}";
+	}
+}
@@ -0,0 +1,55 @@
+package bookkeep.analytics;
+
+import java.time.Duration;
+
+/**
+ * Running totals over a group of closed sessions. Only sums are kept, so
+ * adding a session is O(1) and the averages are computed on demand.
+ */
+public final class SessionAggregate {
+
+	private int sessionCount;
+	private long totalSeconds;
+	private long pagesRead;
+	private long eventCount;
+
+	void add(ReadingSession session) {
+		sessionCount++;
+		totalSeconds += session.getDuration().getSeconds();
+		pagesRead += session.getPagesRead();
+		eventCount += session.getEventCount();
+	}
+
+	public int getSessionCount() {
+		return sessionCount;
+	}
+
+	public Duration getTotalDuration() {
+		return Duration.ofSeconds(totalSeconds);
+	}
+
+	public Duration getAverageDuration() {
+		return sessionCount == 0 ? Duration.ZERO : Duration.ofSeconds(totalSeconds / sessionCount);
+	}
+
+	public long getPagesRead() {
+		return pagesRead;
+	}
+
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Pages read per hour spent in sessions, 0 when no time has been recorded
+	 */
+	public double getPagesPerHour() {
+		return totalSeconds == 0 ? 0 : pagesRead * 3600.0 / totalSeconds;
+	}
+
+	@Override
+	public String toString() {
+		return "SessionAggregate{sessions=" + sessionCount + ", seconds=" + totalSeconds + ", pagesRead=" + pagesRead
+				+ "}";
+	}
+}
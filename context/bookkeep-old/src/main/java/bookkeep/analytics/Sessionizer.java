@@ -0,0 +1,291 @@
+package bookkeep.analytics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import bookkeep.enums.EventType;
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.ReadingProgress;
+
+/**
+ * Infers reading sessions from progress updates and notes as they happen. A
+ * session stays open while activity on the book keeps coming within the idle
+ * gap, and is closed as soon as an activity (on any book) shows it has been
+ * idle for longer. Closed sessions are folded into running aggregates per
+ * book, per genre and per day and then dropped, so the working state is only
+ * the open sessions.
+ *
+ * Attach it to a BookStorage as a LibraryListener to follow the library, and
+ * call backfill once beforehand to account for the existing histories. Like
+ * the BookStorage it is not thread safe.
+ */
+public class Sessionizer implements LibraryListener {
+
+	public static final Duration DEFAULT_IDLE_GAP = Duration.ofMinutes(30);
+
+	private final long idleGapSeconds;
+	private final ZoneId zone;
+	private final Map<UUID, OpenSession> openSessions = new HashMap<>();
+
+	private final Map<UUID, SessionAggregate> byBook = new HashMap<>();
+	private final Map<Genre, SessionAggregate> byGenre = new EnumMap<>(Genre.class);
+	private final NavigableMap<LocalDate, SessionAggregate> byDay = new TreeMap<>();
+	private final SessionAggregate total = new SessionAggregate();
+	private Consumer<ReadingSession> sessionListener;
+
+	/**
+	 * The mutable part of a session that has not been closed yet
+	 */
+	private static final class OpenSession {
+		private final UUID bookId;
+		private final Genre genre;
+		private final long startSecond;
+		private long lastSecond;
+		private int pagesRead;
+		private int eventCount;
+
+		private OpenSession(UUID bookId, Genre genre, long startSecond) {
+			this.bookId = bookId;
+			this.genre = genre;
+			this.startSecond = startSecond;
+			this.lastSecond = startSecond;
+		}
+	}
+
+	public Sessionizer() {
+		this(DEFAULT_IDLE_GAP, ZoneId.systemDefault());
+	}
+
+	/**
+	 * @param idleGap the longest pause that still counts as the same session
+	 * @param zone    the time zone sessions are assigned to a day in
+	 */
+	public Sessionizer(Duration idleGap, ZoneId zone) {
+		if (idleGap.isNegative() || idleGap.isZero()) {
+			throw new IllegalArgumentException("Idle gap must be positive");
+		}
+		this.idleGapSeconds = idleGap.getSeconds();
+		this.zone = zone;
+	}
+
+	/* ============================== Recording ============================== */
+
+	/**
+	 * Records one activity on a book. Sessions of other books that have been idle
+	 * for longer than the gap at this time are closed first.
+	 *
+	 * @param pagesRead pages advanced by this activity, 0 for notes
+	 */
+	public void record(UUID bookId, Genre genre, Instant timestamp, int pagesRead) {
+		long second = timestamp.getEpochSecond();
+		closeIdleSessions(second);
+		extend(bookId, genre, second, pagesRead);
+	}
+
+	/**
+	 * Closes every open session whose last activity is more than the idle gap
+	 * before the given time, for callers that want the aggregates to be current
+	 * without waiting for the next activity
+	 */
+	public void closeIdleSessions(Instant now) {
+		closeIdleSessions(now.getEpochSecond());
+	}
+
+	/**
+	 * Closes every open session regardless of how recent it is
+	 */
+	public void closeAll() {
+		for (OpenSession session : openSessions.values()) {
+			fold(session);
+		}
+		openSessions.clear();
+	}
+
+	/**
+	 * Replays the journal and progress series of every book in the library, book
+	 * by book. Each book's last session is closed at the end of its timeline.
+	 */
+	public void backfill(BookStorage storage) {
+		for (Book book : storage.getAllBooks()) {
+			backfill(book);
+		}
+	}
+
+	public void backfill(Book book) {
+		if (!(book instanceof OwnedBook ownedBook)) {
+			return;
+		}
+		UUID bookId = book.getUUID();
+		Genre genre = book.getGenre();
+		List<BookEvent> events = ownedBook.getJournal().getEvents();
+
+		// Merge the event log with the progress series, both already in order
+		int[] nextEvent = { 0 };
+		int[] previousPage = { 0 };
+		ownedBook.getProgress().forEach((second, page) -> {
+			while (nextEvent[0] < events.size()
+					&& events.get(nextEvent[0]).getTimestamp().getEpochSecond() <= second) {
+				backfillEvent(bookId, genre, events.get(nextEvent[0]++));
+			}
+			extend(bookId, genre, second, Math.max(0, page - previousPage[0]));
+			previousPage[0] = page;
+		});
+		while (nextEvent[0] < events.size()) {
+			backfillEvent(bookId, genre, events.get(nextEvent[0]++));
+		}
+
+		OpenSession last = openSessions.remove(bookId);
+		if (last != null) {
+			fold(last);
+		}
+	}
+
+	/**
+	 * Receives every closed session, for callers that want to keep or display
+	 * them. The sessionizer itself only keeps the aggregates.
+	 */
+	public void setSessionListener(Consumer<ReadingSession> sessionListener) {
+		this.sessionListener = sessionListener;
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		if (event.getType() == EventType.METADATA_CHANGE) {
+			return;
+		}
+		int pagesRead = 0;
+		if (event.getType() == EventType.PAGE_UPDATE && book instanceof OwnedBook ownedBook) {
+			ReadingProgress progress = ownedBook.getProgress();
+			pagesRead = Math.max(0, event.getPageNumber() - progress.getPreviousPage());
+		}
+		record(book.getUUID(), book.getGenre(), event.getTimestamp(), pagesRead);
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		OpenSession session = openSessions.remove(book.getUUID());
+		if (session != null) {
+			fold(session);
+		}
+	}
+
+	/* ================================ Queries ================================= */
+
+	/**
+	 * Aggregates over the closed sessions of a book, empty if it has none
+	 */
+	public SessionAggregate forBook(UUID bookId) {
+		return byBook.getOrDefault(bookId, new SessionAggregate());
+	}
+
+	public SessionAggregate forGenre(Genre genre) {
+		return byGenre.getOrDefault(genre, new SessionAggregate());
+	}
+
+	/**
+	 * Aggregates over the sessions that started on the given day
+	 */
+	public SessionAggregate forDay(LocalDate day) {
+		return byDay.getOrDefault(day, new SessionAggregate());
+	}
+
+	/**
+	 * Per day aggregates between the two days, both inclusive
+	 */
+	public NavigableMap<LocalDate, SessionAggregate> forDays(LocalDate from, LocalDate to) {
+		return Collections.unmodifiableNavigableMap(byDay.subMap(from, true, to, true));
+	}
+
+	public SessionAggregate getTotal() {
+		return total;
+	}
+
+	public int getOpenSessionCount() {
+		return openSessions.size();
+	}
+
+	/**
+	 * Snapshots of the sessions that are still open, as they would be if closed
+	 * now
+	 */
+	public List<ReadingSession> getOpenSessions() {
+		List<ReadingSession> sessions = new ArrayList<>(openSessions.size());
+		for (OpenSession session : openSessions.values()) {
+			sessions.add(toSession(session));
+		}
+		return sessions;
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void backfillEvent(UUID bookId, Genre genre, BookEvent event) {
+		if (event.getType() != EventType.METADATA_CHANGE) {
+			extend(bookId, genre, event.getTimestamp().getEpochSecond(), 0);
+		}
+	}
+
+	private void extend(UUID bookId, Genre genre, long second, int pagesRead) {
+		OpenSession session = openSessions.get(bookId);
+		if (session != null && second - session.lastSecond > idleGapSeconds) {
+			fold(session);
+			session = null;
+		}
+		if (session == null) {
+			session = new OpenSession(bookId, genre, second);
+			openSessions.put(bookId, session);
+		}
+		session.lastSecond = Math.max(session.lastSecond, second);
+		session.pagesRead += pagesRead;
+		session.eventCount++;
+	}
+
+	private void closeIdleSessions(long second) {
+		Iterator<OpenSession> iterator = openSessions.values().iterator();
+		while (iterator.hasNext()) {
+			OpenSession session = iterator.next();
+			if (second - session.lastSecond > idleGapSeconds) {
+				iterator.remove();
+				fold(session);
+			}
+		}
+	}
+
+	private void fold(OpenSession open) {
+		ReadingSession session = toSession(open);
+		byBook.computeIfAbsent(open.bookId, id -> new SessionAggregate()).add(session);
+		if (open.genre != null) {
+			byGenre.computeIfAbsent(open.genre, genre -> new SessionAggregate()).add(session);
+		}
+		LocalDate day = LocalDate.ofInstant(session.getStart(), zone);
+		byDay.computeIfAbsent(day, d -> new SessionAggregate()).add(session);
+		total.add(session);
+		if (sessionListener != null) {
+			sessionListener.accept(session);
+		}
+	}
+
+	private static ReadingSession toSession(OpenSession open) {
+		return new ReadingSession(open.bookId, open.genre, Instant.ofEpochSecond(open.startSecond),
+				Instant.ofEpochSecond(open.lastSecond), open.pagesRead, open.eventCount);
+	}
+}
@@ -0,0 +1,92 @@
+package bookkeep.analytics.sketch;
+
+import java.io.Serializable;
+
+/**
+ * Estimates how often each key was added in a fixed depth x width table of
+ * counters. Estimates never undercount, and with probability 1 - delta they
+ * overcount by at most epsilon times the total count, for width = e / epsilon
+ * and depth = ln(1 / delta).
+ *
+ * Sketches with the same dimensions merge by adding their counters.
+ */
+public class CountMinSketch implements Serializable {
+
+	private final int depth;
+	private final int width;
+	private final long[] counters;
+	private long totalCount;
+
+	/**
+	 * @param epsilon the overcount as a share of the total count
+	 * @param delta   the probability of overcounting by more than that
+	 */
+	public CountMinSketch(double epsilon, double delta) {
+		this((int) Math.ceil(Math.log(1 / delta)), (int) Math.ceil(Math.E / epsilon));
+	}
+
+	public CountMinSketch(int depth, int width) {
+		if (depth < 1 || width < 1) {
+			throw new IllegalArgumentException("Depth and width have to be positive");
+		}
+		this.depth = depth;
+		this.width = width;
+		this.counters = new long[depth * width];
+	}
+
+	public void add(Object key) {
+		add(key, 1);
+	}
+
+	public void add(Object key, long count) {
+		long hash = Hashing.hash(key);
+		for (int row = 0; row < depth; row++) {
+			counters[row * width + column(hash, row)] += count;
+		}
+		totalCount += count;
+	}
+
+	public long estimate(Object key) {
+		long hash = Hashing.hash(key);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters[row * width + column(hash, row)]);
+		}
+		return estimate;
+	}
+
+	public void merge(CountMinSketch other) {
+		if (other.depth != depth || other.width != width) {
+			throw new IllegalArgumentException("Can not merge sketches with different dimensions");
+		}
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] += other.counters[i];
+		}
+		totalCount += other.totalCount;
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * The overcount that holds with probability 1 - delta for this width
+	 */
+	public double getErrorBound() {
+		return Math.E / width * totalCount;
+	}
+
+	/**
+	 * Each row uses the key's hash remixed with the row number, which is as good
+	 * as independent hash functions for this purpose
+	 */
+	private int column(long hash, int row) {
+		long rowHash = Hashing.mix(hash + row * 0x9E3779B97F4A7C15L);
+		return (int) Long.remainderUnsigned(rowHash, width);
+	}
+
+	@Override
+	public String toString() {
+		return "CountMinSketch{depth=" + depth + ", width=" + width + ", total=" + totalCount + "}";
+	}
+}
@@ -0,0 +1,44 @@
+package bookkeep.analytics.sketch;
+
+/**
+ * 64-bit hashing shared by the sketches. Only hashes that are stable across
+ * JVM runs are used (the String and UUID hashCodes are specified), so a
+ * serialized sketch can still be merged with one built later.
+ */
+final class Hashing {
+
+	private Hashing() {
+	}
+
+	/**
+	 * FNV-1a over the characters followed by the MurmurHash3 finalizer, so
+	 * every input bit affects every output bit
+	 */
+	static long hash(CharSequence value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	static long hash(Object value) {
+		if (value instanceof CharSequence sequence) {
+			return hash(sequence);
+		}
+		return mix(value.hashCode());
+	}
+
+	/**
+	 * MurmurHash3 fmix64
+	 */
+	static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+}
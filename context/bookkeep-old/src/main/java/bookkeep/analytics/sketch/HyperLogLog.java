@@ -0,0 +1,104 @@
+package bookkeep.analytics.sketch;
+
+import java.io.Serializable;
+
+/**
+ * Estimates the number of distinct values added, in 2^precision bytes
+ * regardless of how many values there are. The relative standard error is
+ * about 1.04 / sqrt(2^precision), 1.6% at the default precision of 12.
+ *
+ * Sketches with the same precision merge into the sketch of the union of
+ * their inputs.
+ */
+public class HyperLogLog implements Serializable {
+
+	public static final int DEFAULT_PRECISION = 12;
+
+	private final int precision;
+	private final byte[] registers;
+
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	public HyperLogLog(int precision) {
+		if (precision < 4 || precision > 18) {
+			throw new IllegalArgumentException("Precision has to be between 4 and 18");
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	public void add(Object value) {
+		if (value != null) {
+			addHash(Hashing.hash(value));
+		}
+	}
+
+	/**
+	 * The first precision bits pick a register, which keeps the longest run of
+	 * leading zeros seen in the remaining bits
+	 */
+	private void addHash(long hash) {
+		int index = (int) (hash >>> (64 - precision));
+		long remaining = hash << precision;
+		int rank = Math.min(Long.numberOfLeadingZeros(remaining), 64 - precision) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			// Linear counting is more accurate while many registers are still empty
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Can not merge sketches with different precision");
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	/**
+	 * Relative standard error of the estimate
+	 */
+	public double getStandardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	private static double alpha(int m) {
+		return switch (m) {
+			case 16 -> 0.673;
+			case 32 -> 0.697;
+			case 64 -> 0.709;
+			default -> 0.7213 / (1 + 1.079 / m);
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "HyperLogLog{precision=" + precision + ", estimate=" + estimate() + "}";
+	}
+}
@@ -0,0 +1,263 @@
+package bookkeep.analytics.sketch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch: answers "what value is at rank q" and "what share of
+ * the values is below x" over a stream of doubles, keeping O(k log(n/k))
+ * values instead of all n.
+ *
+ * Values live in a stack of compactors. An item on level h stands for 2^h
+ * input values. When the sketch is over capacity, the lowest full level is
+ * sorted and every other item (starting at a random offset) is promoted to
+ * the level above, the rest are dropped. Level capacities shrink by a factor
+ * 2/3 going down from the top, so most of the space goes to the levels that
+ * carry the most weight. With k = 200 the rank error is around 1.5%.
+ *
+ * Sketches with the same k merge by concatenating their levels and
+ * compacting again.
+ */
+public class KllSketch implements Serializable {
+
+	public static final int DEFAULT_K = 200;
+	private static final int MIN_LEVEL_CAPACITY = 8;
+	private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+	private final int k;
+	private double[][] levels = new double[1][];
+	private int[] sizes = new int[1];
+	private long count;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+	private long randomState = 0x9E3779B97F4A7C15L;
+
+	public KllSketch() {
+		this(DEFAULT_K);
+	}
+
+	public KllSketch(int k) {
+		if (k < MIN_LEVEL_CAPACITY) {
+			throw new IllegalArgumentException("k has to be at least " + MIN_LEVEL_CAPACITY);
+		}
+		this.k = k;
+		this.levels[0] = new double[k];
+	}
+
+	public void update(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		append(0, value);
+		count++;
+		min = count == 1 ? value : Math.min(min, value);
+		max = count == 1 ? value : Math.max(max, value);
+		compress();
+	}
+
+	public void merge(KllSketch other) {
+		if (other.k != k) {
+			throw new IllegalArgumentException("Can not merge sketches with different k");
+		}
+		if (other.count == 0) {
+			return;
+		}
+		for (int level = 0; level < other.levels.length; level++) {
+			for (int i = 0; i < other.sizes[level]; i++) {
+				append(level, other.levels[level][i]);
+			}
+		}
+		min = count == 0 ? other.min : Math.min(min, other.min);
+		max = count == 0 ? other.max : Math.max(max, other.max);
+		count += other.count;
+		compress();
+	}
+
+	/* ================================ Queries ================================= */
+
+	public long getCount() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * The value at normalized rank q, e.g. 0.5 for the median. NaN when empty.
+	 */
+	public double getQuantile(double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("Quantile has to be between 0 and 1");
+		}
+		if (isEmpty()) {
+			return Double.NaN;
+		}
+		if (q == 0) {
+			return min;
+		}
+		if (q == 1) {
+			return max;
+		}
+		WeightedItems items = sortedItems();
+		long target = (long) Math.ceil(q * count);
+		long cumulative = 0;
+		for (int i = 0; i < items.size; i++) {
+			cumulative += items.weights[i];
+			if (cumulative >= target) {
+				return items.values[i];
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Estimated share of the values strictly below the given value
+	 */
+	public double getRank(double value) {
+		if (isEmpty()) {
+			return Double.NaN;
+		}
+		long below = 0;
+		for (int level = 0; level < levels.length; level++) {
+			for (int i = 0; i < sizes[level]; i++) {
+				if (levels[level][i] < value) {
+					below += 1L << level;
+				}
+			}
+		}
+		return (double) below / count;
+	}
+
+	/**
+	 * Number of values currently kept, which is what the sketch costs in memory
+	 */
+	public int getRetainedItems() {
+		int retained = 0;
+		for (int size : sizes) {
+			retained += size;
+		}
+		return retained;
+	}
+
+	/* ================================ Internals =============================== */
+
+	private static final class WeightedItems {
+		private final double[] values;
+		private final long[] weights;
+		private int size;
+
+		private WeightedItems(int capacity) {
+			values = new double[capacity];
+			weights = new long[capacity];
+		}
+	}
+
+	private WeightedItems sortedItems() {
+		int retained = getRetainedItems();
+		WeightedItems items = new WeightedItems(retained);
+		Integer[] order = new Integer[retained];
+		double[] values = new double[retained];
+		long[] weights = new long[retained];
+		int index = 0;
+		for (int level = 0; level < levels.length; level++) {
+			for (int i = 0; i < sizes[level]; i++) {
+				values[index] = levels[level][i];
+				weights[index] = 1L << level;
+				order[index] = index;
+				index++;
+			}
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+		for (int i = 0; i < retained; i++) {
+			items.values[i] = values[order[i]];
+			items.weights[i] = weights[order[i]];
+		}
+		items.size = retained;
+		return items;
+	}
+
+	private int capacity(int level) {
+		int depth = levels.length - 1 - level;
+		return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+	}
+
+	private int totalCapacity() {
+		int total = 0;
+		for (int level = 0; level < levels.length; level++) {
+			total += capacity(level);
+		}
+		return total;
+	}
+
+	private void append(int level, double value) {
+		if (level >= levels.length) {
+			int oldLength = levels.length;
+			levels = Arrays.copyOf(levels, level + 1);
+			sizes = Arrays.copyOf(sizes, level + 1);
+			for (int i = oldLength; i <= level; i++) {
+				levels[i] = new double[MIN_LEVEL_CAPACITY];
+			}
+		}
+		if (sizes[level] == levels[level].length) {
+			levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+		}
+		levels[level][sizes[level]++] = value;
+	}
+
+	private void compress() {
+		while (getRetainedItems() > totalCapacity()) {
+			for (int level = 0; level < levels.length; level++) {
+				if (sizes[level] >= capacity(level)) {
+					compact(level);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts the level and promotes every other item to the level above. With an
+	 * odd number of items the largest stays behind so the weights add up.
+	 */
+	private void compact(int level) {
+		double[] items = levels[level];
+		int size = sizes[level];
+		Arrays.sort(items, 0, size);
+		int pairs = size / 2;
+		int offset = nextRandomBit();
+		for (int i = 0; i < pairs; i++) {
+			append(level + 1, items[2 * i + offset]);
+		}
+		if (size % 2 == 1) {
+			levels[level][0] = items[size - 1];
+			sizes[level] = 1;
+		} else {
+			sizes[level] = 0;
+		}
+	}
+
+	/**
+	 * Xorshift, kept as a plain field so the sketch stays serializable and
+	 * reproducible
+	 */
+	private int nextRandomBit() {
+		randomState ^= randomState << 13;
+		randomState ^= randomState >>> 7;
+		randomState ^= randomState << 17;
+		return (int) (randomState >>> 63);
+	}
+
+	@Override
+	public String toString() {
+		return "KllSketch{k=" + k + ", count=" + count + ", retained=" + getRetainedItems() + "}";
+	}
+}
@@ -1,11 +1,19 @@
 package bookkeep.app;
 
+import bookkeep.cli.BatchCli;
 import bookkeep.models.collections.BookStorage;
 import bookkeep.ui.LibraryMenu;
 
 public class Main {
 
+	/**
+	 * With arguments it runs one headless command, see BatchCli, and without
+	 * them the interactive menu
+	 */
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			System.exit(new BatchCli(System.in, System.out, System.err).run(args));
+		}
 		BookStorage library = new BookStorage();
 		library.makeDummyLibrary();
 		LibraryMenu menu = new LibraryMenu(library);
@@ -0,0 +1,397 @@
+package bookkeep.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import bookkeep.json.Json;
+import bookkeep.json.Records;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.persistance.LibrarySerializer;
+import bookkeep.search.BookFilter;
+import bookkeep.search.SearchHit;
+import bookkeep.server.LibraryServer;
+import bookkeep.sync.LibrarySync;
+
+/**
+ * Headless commands against a saved library, for scripts and nightly jobs.
+ * Records are written as newline-delimited JSON, one line per book or hit as
+ * it is visited, so no result list is built up. Problems with single input
+ * lines go to the error stream as JSON too, and the exit code is 0 on success,
+ * 1 when a command failed and 2 for wrong usage.
+ *
+ * <pre>
+ * import    LIBRARY [FILE]      books from NDJSON lines, standard input without FILE. A line
+ *                               from export keeps its id and history, and a book whose id is
+ *                               already in the library is left as it is.
+ * export    LIBRARY             every book with its history
+ * query     LIBRARY [--title T] [--author A] [--year Y] [--genre G] [--state S] [--limit N]
+ * query     LIBRARY --text WORDS [--limit N]   full-text hits in comments, quotes and reviews
+ * stats     LIBRARY             the library statistics as one object
+ * add-event LIBRARY BOOK TYPE [TEXT] [--page N] [--rating N]
+ *                               TYPE is comment, quote, review, page or state; page needs --page.
+ *                               A comment on a finished book is kept as an afterthought.
+ * compact   LIBRARY             drops replaced and removed entries from the text index
+ * serve     LIBRARY [--port N]  the HTTP API on localhost until interrupted, saving on the way out
+ * </pre>
+ *
+ * BOOK is a book id or a title. With --sync DIR --instance NAME every command
+ * first applies what other instances logged to the shared directory DIR and
+ * logs its own changes there, see LibrarySync; serve keeps applying them while
+ * it runs.
+ */
+public class BatchCli {
+
+	public static final int OK = 0;
+	public static final int FAILED = 1;
+	public static final int USAGE = 2;
+
+	private static final String USAGE_TEXT = String.join(System.lineSeparator(),
+			"Usage: bookkeep COMMAND LIBRARY [ARGUMENTS]",
+			"  import    LIBRARY [FILE]",
+			"  export    LIBRARY",
+			"  query     LIBRARY [--title T] [--author A] [--year Y] [--genre G] [--state S] [--text WORDS] [--limit N]",
+			"  stats     LIBRARY",
+			"  add-event LIBRARY BOOK comment|quote|review|page|state [TEXT] [--page N] [--rating N]",
+			"  compact   LIBRARY",
+			"  serve     LIBRARY [--port N]",
+			"Every command also takes --sync DIR --instance NAME to share changes through DIR.");
+	private static final int DEFAULT_TEXT_LIMIT = 20;
+	private static final int DEFAULT_PORT = 8080;
+
+	private final LibrarySerializer serializer = new LibrarySerializer();
+	private final InputStream in;
+	private final PrintWriter out;
+	private final PrintWriter err;
+	private LibrarySync sync;
+
+	public BatchCli(InputStream in, OutputStream out, OutputStream err) {
+		this.in = in;
+		this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+		this.err = new PrintWriter(new OutputStreamWriter(err, StandardCharsets.UTF_8), true);
+	}
+
+	/**
+	 * Runs one command and returns the exit code
+	 */
+	public int run(String... args) {
+		try {
+			if (args.length < 2) {
+				err.println(USAGE_TEXT);
+				return USAGE;
+			}
+			Arguments arguments = Arguments.parse(args);
+			Path library = Path.of(args[1]);
+			return switch (args[0]) {
+				case "import" -> importBooks(library, arguments);
+				case "export" -> export(library, arguments);
+				case "query" -> query(library, arguments);
+				case "stats" -> stats(library, arguments);
+				case "add-event" -> addEvent(library, arguments);
+				case "compact" -> compact(library, arguments);
+				case "serve" -> serve(library, arguments);
+				default -> {
+					err.println("Unknown command " + args[0]);
+					err.println(USAGE_TEXT);
+					yield USAGE;
+				}
+			};
+		} catch (IllegalArgumentException e) {
+			err.println(new Json.Line().put("error", e.getMessage()));
+			return USAGE;
+		} catch (IOException | UncheckedIOException | IllegalStateException | UnsupportedOperationException e) {
+			err.println(new Json.Line().put("error", String.valueOf(e.getMessage())));
+			return FAILED;
+		} finally {
+			closeSync();
+			out.flush();
+		}
+	}
+
+	/* ================================ Commands ================================ */
+
+	private int importBooks(Path path, Arguments arguments) throws IOException {
+		BookStorage library = load(path, arguments);
+		String file = arguments.positional(2, null);
+		int imported = 0;
+		int existing = 0;
+		int skipped = 0;
+		try (BufferedReader reader = file == null || file.equals("-")
+				? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank()) {
+					continue;
+				}
+				try {
+					Map<String, Object> fields = Json.parseObject(line);
+					String id = Records.stringField(fields, "id");
+					UUID uuid = id == null ? null : UUID.fromString(id);
+					if (uuid != null && library.findBook(uuid) != null) {
+						existing++;
+						continue;
+					}
+					Book book = Records.bookFromJson(fields, uuid);
+					Consumer<OwnedBook> reading = Records.readingFromJson(fields);
+					library.addBook(book);
+					if (book instanceof OwnedBook owned) {
+						reading.accept(owned);
+					}
+					imported++;
+				} catch (IllegalArgumentException | IllegalStateException | ClassCastException | ArithmeticException e) {
+					skipped++;
+					err.println(new Json.Line().put("line", lineNumber).put("error", String.valueOf(e.getMessage())));
+				}
+			}
+		}
+		save(library, path);
+		out.println(new Json.Line().put("imported", imported).put("existing", existing).put("skipped", skipped)
+				.put("books", library.getStatistics().getBookCount()));
+		return OK;
+	}
+
+	private int export(Path path, Arguments arguments) throws IOException {
+		BookStorage library = load(path, arguments);
+		library.forEachBook(book -> out.println(Records.bookWithHistory(book)));
+		return OK;
+	}
+
+	private int query(Path path, Arguments arguments) throws IOException {
+		BookStorage library = load(path, arguments);
+		String text = arguments.option("text");
+		if (text != null) {
+			int limit = arguments.intOption("limit", DEFAULT_TEXT_LIMIT);
+			for (SearchHit hit : library.searchText(text, limit)) {
+				out.println(Records.hit(hit, library.findBook(hit.getBookId())));
+			}
+			return OK;
+		}
+
+		Predicate<Book> matches = book -> true;
+		for (String type : List.of(BookFilter.TITLE, BookFilter.AUTHOR, BookFilter.YEAR, BookFilter.GENRE)) {
+			String value = arguments.option(type.toLowerCase(Locale.ROOT));
+			if (value != null) {
+				matches = matches.and(BookFilter.matcher(type, value));
+			}
+		}
+		String state = arguments.option("state");
+		if (state != null) {
+			String stateName = Records.stateName(state);
+			matches = matches.and(book -> book instanceof OwnedBook && book.getStateName().equals(stateName));
+		}
+
+		Predicate<Book> filter = matches;
+		int limit = arguments.intOption("limit", Integer.MAX_VALUE);
+		int[] written = { 0 };
+		library.forEachBook(book -> {
+			if (written[0] < limit && filter.test(book)) {
+				out.println(Records.book(book));
+				written[0]++;
+			}
+		});
+		return OK;
+	}
+
+	private int stats(Path path, Arguments arguments) throws IOException {
+		out.println(Records.statistics(load(path, arguments).getStatistics()));
+		return OK;
+	}
+
+	private int addEvent(Path path, Arguments arguments) throws IOException {
+		BookStorage library = load(path, arguments);
+		String reference = arguments.positional(2, null);
+		String type = arguments.positional(3, null);
+		if (reference == null || type == null) {
+			throw new IllegalArgumentException("add-event needs a book and an event type");
+		}
+		Book book = findBook(library, reference);
+		if (!(book instanceof OwnedBook owned)) {
+			throw new IllegalArgumentException("Events can only be added to owned books");
+		}
+		if (type.equals("page") && arguments.option("page") == null) {
+			throw new IllegalArgumentException("add-event page needs --page");
+		}
+		Records.applyEvent(owned, type, arguments.positional(4, ""),
+				arguments.intOption("page", owned.getPageNumber()), arguments.intOption("rating", 0));
+		save(library, path);
+		out.println(Records.book(owned));
+		return OK;
+	}
+
+	private int compact(Path path, Arguments arguments) throws IOException {
+		BookStorage library = load(path, arguments);
+		int dropped = library.compact();
+		save(library, path);
+		out.println(new Json.Line().put("books", library.getStatistics().getBookCount())
+				.put("droppedIndexEntries", dropped));
+		return OK;
+	}
+
+	private int serve(Path path, Arguments arguments) throws IOException {
+		BookStorage library = serializer.load(path);
+		LibraryServer server = new LibraryServer(library,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), arguments.intOption("port", DEFAULT_PORT)));
+		// Remote changes are applied under the same lock as the API's writes
+		LibrarySync serverSync = createSync(library, arguments, change -> {
+			try {
+				server.write(() -> {
+					change.run();
+					return null;
+				});
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		if (serverSync != null) {
+			serverSync.start();
+		}
+		server.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(1);
+			try {
+				server.read(() -> {
+					serializer.save(library, path);
+					if (serverSync != null) {
+						serverSync.saveCursor();
+					}
+					return null;
+				});
+			} catch (IOException e) {
+				err.println(new Json.Line().put("error", "Could not save the library: " + e.getMessage()));
+			}
+		}, "library-saver"));
+		out.println(new Json.Line().put("listening", "http://localhost:" + server.getPort()));
+		out.flush();
+		server.awaitStop();
+		return OK;
+	}
+
+	/* ================================= Helpers ================================ */
+
+	/**
+	 * Loads the library and, with --sync, catches up with the other instances
+	 */
+	private BookStorage load(Path path, Arguments arguments) throws IOException {
+		BookStorage library = serializer.load(path);
+		LibrarySync opened = createSync(library, arguments, Runnable::run);
+		if (opened != null) {
+			opened.open();
+		}
+		return library;
+	}
+
+	/**
+	 * Saves the library and then how far it has caught up, so the changes in
+	 * it are not applied again next time
+	 */
+	private void save(BookStorage library, Path path) throws IOException {
+		serializer.save(library, path);
+		if (sync != null) {
+			sync.saveCursor();
+		}
+	}
+
+	private LibrarySync createSync(BookStorage library, Arguments arguments, Executor applier) {
+		String directory = arguments.option("sync");
+		if (directory == null) {
+			return null;
+		}
+		String instance = arguments.option("instance");
+		if (instance == null) {
+			throw new IllegalArgumentException("--sync needs an --instance name");
+		}
+		sync = new LibrarySync(library, Path.of(directory), instance, applier);
+		return sync;
+	}
+
+	private void closeSync() {
+		if (sync != null) {
+			try {
+				sync.close();
+			} catch (IOException e) {
+				err.println(new Json.Line().put("error", "Could not close the change log: " + e.getMessage()));
+			}
+			sync = null;
+		}
+	}
+
+	private static Book findBook(BookStorage library, String reference) {
+		try {
+			Book book = library.findBook(UUID.fromString(reference));
+			if (book != null) {
+				return book;
+			}
+		} catch (IllegalArgumentException e) {
+			// Not an id, so it is a title
+		}
+		return library.getBookByTitle(reference);
+	}
+
+	/**
+	 * Positional arguments and --name value options
+	 */
+	private static final class Arguments {
+		private final List<String> positional = new ArrayList<>();
+		private final Map<String, String> options = new HashMap<>();
+
+		static Arguments parse(String[] args) {
+			Arguments arguments = new Arguments();
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].startsWith("--") && args[i].length() > 2) {
+					if (i + 1 >= args.length) {
+						throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+					}
+					arguments.options.put(args[i].substring(2), args[++i]);
+				} else {
+					arguments.positional.add(args[i]);
+				}
+			}
+			return arguments;
+		}
+
+		String positional(int index, String fallback) {
+			return index < positional.size() ? positional.get(index) : fallback;
+		}
+
+		String option(String name) {
+			return options.get(name);
+		}
+
+		int intOption(String name, int fallback) {
+			String value = options.get(name);
+			if (value == null) {
+				return fallback;
+			}
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("--" + name + " must be a whole number");
+			}
+		}
+	}
+}
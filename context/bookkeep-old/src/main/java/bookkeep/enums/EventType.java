@@ -1,5 +1,5 @@
 package bookkeep.enums;
 
 public enum EventType {
-	COMMENT, AFTERTHOUGHT, QUOTE, STARTED_READING, FINISHED_READING, REVIEW
+	COMMENT, AFTERTHOUGHT, QUOTE, STARTED_READING, FINISHED_READING, REVIEW, PAGE_UPDATE, METADATA_CHANGE
 }
@@ -1,51 +1,147 @@
 package bookkeep.fxui;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
 import bookkeep.models.collections.BookStorage;
 import bookkeep.persistance.LibrarySerializer;
+import bookkeep.sync.LibrarySync;
+import bookkeep.util.PhaseTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+/**
+ * Shows the window before the library is loaded. The saved library is read on
+ * a background thread and then handed to the Controller, which fills the table
+ * a chunk at a time. The startup phases are printed once the library is fully
+ * shown, so time to first paint and time to interactive can be compared
+ * between releases.
+ *
+ * Launched with --sync=DIR --instance=NAME the library is kept in step with
+ * other instances through the shared directory DIR, see LibrarySync.
+ */
 public class App extends Application {
 	private final static String FXML_PATH = "/bookkeep/fxui/MainView.fxml";
 	private final static int SCENE_WIDTH = 1000;
 	private final static int SCENE_HEIGHT = 700;
 
-	private BookStorage library;
+	private final PhaseTimer startup = PhaseTimer.sinceJvmStart();
+
+	/**
+	 * Only set once the saved library is loaded, so an early close does not
+	 * save the placeholder over it
+	 */
+	private volatile BookStorage library;
+	private volatile LibrarySync sync;
 	private LibrarySerializer serializer;
+	private Controller controller;
 
 	@Override
 	public void start(Stage primaryStage) throws Exception {
+		startup.mark("toolkit started");
 		serializer = new LibrarySerializer();
 
-		try {
-			library = serializer.load();
-			if (library.getAllBooks().isEmpty()) {
-				library.makeDummyLibrary();
-			}
-		} catch (Exception e) {
-			library = new BookStorage();
-			library.makeDummyLibrary();
-		}
-
 		FXMLLoader loader = new FXMLLoader(getClass().getResource(FXML_PATH));
 		Parent root = loader.load();
 
-		Controller controller = loader.getController();
-		controller.initialize(library, serializer);
+		controller = loader.getController();
+		controller.initialize(new BookStorage(), serializer);
+		controller.setLoading(true);
+		startup.mark("view loaded");
 
 		primaryStage.setTitle("Librarium - Personal Library Tracker");
 		primaryStage.setScene(new Scene(root, SCENE_WIDTH, SCENE_HEIGHT));
+		primaryStage.setOnShown(event -> startup.mark("first paint"));
 		primaryStage.show();
+
+		Thread libraryLoader = new Thread(this::loadLibrary, "library-loader");
+		libraryLoader.setDaemon(true);
+		libraryLoader.start();
+	}
+
+	/**
+	 * Runs on the loader thread. Derived indexes are rebuilt while reading, and
+	 * the event timelines of the books are only rendered when a book is shown.
+	 */
+	private void loadLibrary() {
+		BookStorage loaded;
+		try {
+			loaded = serializer.load();
+			if (loaded.getAllBooks().isEmpty()) {
+				loaded.makeDummyLibrary();
+			}
+		} catch (Exception e) {
+			loaded = new BookStorage();
+			loaded.makeDummyLibrary();
+		}
+		startup.mark("library read");
+		// Started before the library is handed over, so its listener is in place first
+		LibrarySync started = startSync(loaded);
+
+		BookStorage ready = loaded;
+		Platform.runLater(() -> controller.showLoadedLibrary(ready, () -> {
+			library = ready;
+			if (started != null) {
+				sync = started;
+				controller.setSync(started);
+			}
+			controller.setLoading(false);
+			startup.mark("interactive");
+			startup.print("Startup phases (" + ready.getAllBooks().size() + " books):", System.out);
+		}));
+	}
+
+	/**
+	 * Catches up with the other instances and keeps applying their changes on
+	 * the application thread, where the library is changed. Null without
+	 * --sync, or when the directory cannot be used.
+	 */
+	private LibrarySync startSync(BookStorage loaded) {
+		Map<String, String> named = getParameters().getNamed();
+		String directory = named.get("sync");
+		if (directory == null) {
+			return null;
+		}
+		String instance = named.get("instance");
+		if (instance == null) {
+			System.err.println("--sync needs an --instance name, not syncing");
+			return null;
+		}
+		try {
+			LibrarySync started = new LibrarySync(loaded, Path.of(directory), instance, Platform::runLater);
+			started.start();
+			return started;
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Could not sync through " + directory + ": " + e.getMessage());
+			return null;
+		}
 	}
 
 	@Override
 	public void stop() {
+		controller.shutdown();
+		if (sync != null) {
+			try {
+				sync.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close the change log: " + e.getMessage());
+			}
+		}
+
 		// Save the library state when the application closes
+		if (library == null) {
+			return;
+		}
 		try {
 			serializer.save(library);
+			if (sync != null) {
+				sync.saveCursor();
+			}
 		} catch (Exception e) {
 			System.err.println("Failed to save library: " + e.getMessage());
 		}
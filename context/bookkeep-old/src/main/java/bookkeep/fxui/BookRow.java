@@ -0,0 +1,51 @@
+package bookkeep.fxui;
+
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+/**
+ * What a book table shows of one book, formatted once. The properties are
+ * read-only and handed out again on every render, so drawing a cell does not
+ * allocate. A changed book gets a new row from the BookRowCache instead of
+ * changing this one.
+ */
+public final class BookRow {
+
+	private static final String NO_STATE = "N/A";
+
+	private final ReadOnlyStringWrapper title;
+	private final ReadOnlyStringWrapper author;
+	private final ReadOnlyStringWrapper year;
+	private final ReadOnlyStringWrapper genre;
+	private final ReadOnlyStringWrapper state;
+
+	BookRow(Book book) {
+		this.title = new ReadOnlyStringWrapper(book.getTitle());
+		this.author = new ReadOnlyStringWrapper(book.getAuthorName());
+		this.year = new ReadOnlyStringWrapper(String.valueOf(book.getPublicationYear()));
+		this.genre = new ReadOnlyStringWrapper(book.getGenre() == null ? "" : book.getGenre().toString());
+		this.state = new ReadOnlyStringWrapper(book instanceof OwnedBook ? book.getStateName() : NO_STATE);
+	}
+
+	public ReadOnlyStringProperty titleProperty() {
+		return title.getReadOnlyProperty();
+	}
+
+	public ReadOnlyStringProperty authorProperty() {
+		return author.getReadOnlyProperty();
+	}
+
+	public ReadOnlyStringProperty yearProperty() {
+		return year.getReadOnlyProperty();
+	}
+
+	public ReadOnlyStringProperty genreProperty() {
+		return genre.getReadOnlyProperty();
+	}
+
+	public ReadOnlyStringProperty stateProperty() {
+		return state.getReadOnlyProperty();
+	}
+}
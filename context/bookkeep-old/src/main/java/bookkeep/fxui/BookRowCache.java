@@ -0,0 +1,51 @@
+package bookkeep.fxui;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import bookkeep.models.Book;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * One BookRow per book, made the first time the book is drawn. Rows are
+ * dropped when their book records an event or is removed, so the next render
+ * formats the book again.
+ *
+ * It has to be registered with the library before the BookTableModels, so a
+ * row is dropped before its model asks the table to draw it again.
+ */
+public class BookRowCache implements LibraryListener {
+
+	private final Map<UUID, BookRow> rows = new HashMap<>();
+
+	public BookRow get(Book book) {
+		BookRow row = rows.get(book.getUUID());
+		if (row == null) {
+			row = new BookRow(book);
+			rows.put(book.getUUID(), row);
+		}
+		return row;
+	}
+
+	public void clear() {
+		rows.clear();
+	}
+
+	public int size() {
+		return rows.size();
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookRemoved(Book book) {
+		rows.remove(book.getUUID());
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		rows.remove(book.getUUID());
+	}
+}
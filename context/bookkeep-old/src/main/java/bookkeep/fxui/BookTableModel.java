@@ -0,0 +1,152 @@
+package bookkeep.fxui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import bookkeep.models.Book;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * The rows of a book table, kept current from the BookStorage's change events
+ * so the table gets fine-grained changes instead of a new list: an added book
+ * is one appended row, a removed book one removed row, and a book with a new
+ * event has its row replaced in place, which re-renders that row only and
+ * keeps the selection.
+ *
+ * Rows are found through a map from book id to position, so updates do not
+ * scan the list. A model either follows the whole library and picks up new
+ * books, or holds a chosen set of books, like a shelf or search results, and
+ * only follows changes to and removals of those. In the library's model a
+ * removed row is taken by the last one, like BookStorage does with its books,
+ * so a removal costs the same however large the library is. A selection keeps
+ * its order, which for search results is the ranking, and renumbers the rows
+ * after the removed one.
+ *
+ * Like the table it feeds, it must only be used on the FX thread.
+ */
+public class BookTableModel implements LibraryListener {
+
+	private final ObservableList<Book> rows = FXCollections.observableArrayList();
+	private final Map<UUID, Integer> positions = new HashMap<>();
+	private final boolean followsNewBooks;
+
+	private BookTableModel(boolean followsNewBooks) {
+		this.followsNewBooks = followsNewBooks;
+	}
+
+	/**
+	 * A model of every book in the library, including the ones added later
+	 */
+	public static BookTableModel ofLibrary(Collection<? extends Book> books) {
+		BookTableModel model = new BookTableModel(true);
+		model.setAll(books);
+		return model;
+	}
+
+	/**
+	 * A model of a chosen set of books, filled with setAll and add
+	 */
+	public static BookTableModel ofSelection() {
+		return new BookTableModel(false);
+	}
+
+	public ObservableList<Book> getRows() {
+		return rows;
+	}
+
+	public boolean contains(Book book) {
+		return positions.containsKey(book.getUUID());
+	}
+
+	/* ================================= Changes ================================ */
+
+	/**
+	 * Replaces every row at once, for a new shelf or a new search result
+	 */
+	public void setAll(Collection<? extends Book> books) {
+		List<Book> distinct = new ArrayList<>(books.size());
+		positions.clear();
+		for (Book book : books) {
+			if (book != null && positions.putIfAbsent(book.getUUID(), distinct.size()) == null) {
+				distinct.add(book);
+			}
+		}
+		rows.setAll(distinct);
+	}
+
+	public void add(Book book) {
+		if (!contains(book)) {
+			positions.put(book.getUUID(), rows.size());
+			rows.add(book);
+		}
+	}
+
+	/**
+	 * Appends the books that have no row yet as one change, for filling the
+	 * table in chunks
+	 */
+	public void addAll(Collection<? extends Book> books) {
+		List<Book> added = new ArrayList<>(books.size());
+		for (Book book : books) {
+			if (positions.putIfAbsent(book.getUUID(), rows.size() + added.size()) == null) {
+				added.add(book);
+			}
+		}
+		rows.addAll(added);
+	}
+
+	public void remove(Book book) {
+		Integer position = positions.remove(book.getUUID());
+		if (position == null) {
+			return;
+		}
+		int last = rows.size() - 1;
+		if (followsNewBooks && position != last) {
+			Book moved = rows.get(last);
+			rows.set(position, moved);
+			positions.put(moved.getUUID(), position);
+			rows.remove(last);
+			return;
+		}
+		rows.remove(position.intValue());
+		for (int i = position; i < rows.size(); i++) {
+			positions.put(rows.get(i).getUUID(), i);
+		}
+	}
+
+	/**
+	 * Re-renders the book's row, if it has one
+	 */
+	public void update(Book book) {
+		Integer position = positions.get(book.getUUID());
+		if (position != null) {
+			rows.set(position, book);
+		}
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookAdded(Book book) {
+		if (followsNewBooks) {
+			add(book);
+		}
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		remove(book);
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		update(book);
+	}
+}
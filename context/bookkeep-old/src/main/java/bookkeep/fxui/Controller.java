@@ -1,9 +1,11 @@
 package bookkeep.fxui;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -16,13 +18,17 @@ import bookkeep.models.OwnedBook;
 import bookkeep.models.collections.BookStorage;
 import bookkeep.models.history.BookEvent;
 import bookkeep.models.history.BookHistory;
+import bookkeep.models.history.EventTimelineCache;
 import bookkeep.models.states.FinishedState;
 import bookkeep.models.states.InProgressState;
 import bookkeep.models.states.NotStartedState;
 import bookkeep.persistance.LibrarySerializer;
-import javafx.beans.property.SimpleStringProperty;
+import bookkeep.search.BookFilter;
+import bookkeep.search.DebouncedSearch;
+import bookkeep.sync.LibrarySync;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
@@ -76,6 +82,8 @@ public class Controller {
 	private TextField searchField;
 	@FXML
 	private ComboBox<String> searchTypeComboBox;
+	@FXML
+	private Label searchLatencyLabel;
 
 	// Book details pane
 	@FXML
@@ -135,6 +143,8 @@ public class Controller {
 	@FXML
 	private TableColumn<Book, String> shelfBookYearColumn;
 	@FXML
+	private Label shelfSummaryLabel;
+	@FXML
 	private Button addBookToShelfButton;
 	@FXML
 	private Button removeBookFromShelfButton;
@@ -172,8 +182,19 @@ public class Controller {
 	// Class variables
 	private BookStorage library;
 	private LibrarySerializer serializer;
+	private LibrarySync sync;
 	private Book selectedBook;
 	private String selectedShelf;
+	private DebouncedSearch<List<Book>> search;
+	private Book[] searchSnapshot;
+	private BookTableModel libraryModel;
+	private BookTableModel searchModel;
+	private BookTableModel shelfModel;
+	private final BookRowCache rowCache = new BookRowCache();
+	private final EventTimelineCache timelines = new EventTimelineCache(ZoneId.systemDefault());
+
+	private static final Duration SEARCH_DEBOUNCE = Duration.ofMillis(150);
+	private static final int FILL_CHUNK_SIZE = 500;
 
 	/**
 	 * Initialize the controller with necessary objects.
@@ -183,6 +204,13 @@ public class Controller {
 		this.library = library;
 		this.serializer = serializer;
 
+		// Table models follow the library's changes from here on
+		libraryModel = BookTableModel.ofLibrary(library.getAllBooks());
+		searchModel = BookTableModel.ofSelection();
+		shelfModel = BookTableModel.ofSelection();
+		libraryModel.getRows().addListener((ListChangeListener<Book>) change -> searchSnapshot = null);
+		attachModels();
+
 		// Initialize UI components
 		setupLibraryTab();
 		setupShelvesTab();
@@ -201,22 +229,16 @@ public class Controller {
 	 * Setup for the Library tab
 	 */
 	private void setupLibraryTab() {
-		// Configure table columns for book table
-		titleColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getTitle()));
-		authorColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getAuthorName()));
-		yearColumn.setCellValueFactory(
-				data -> new SimpleStringProperty(String.valueOf(data.getValue().getPublicationYear())));
-		genreColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getGenre().toString()));
-		stateColumn.setCellValueFactory(data -> {
-			if (data.getValue() instanceof OwnedBook) {
-				return new SimpleStringProperty(((OwnedBook) data.getValue()).getStateName());
-			}
-			return new SimpleStringProperty("N/A");
-		});
+		// Configure table columns for book table, from the cached rows so rendering does not allocate
+		titleColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).titleProperty());
+		authorColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).authorProperty());
+		yearColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).yearProperty());
+		genreColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).genreProperty());
+		stateColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).stateProperty());
 
 		// Configure search type combo box
 		searchTypeComboBox.setItems(FXCollections.observableArrayList(
-				"Title", "Author", "Year", "Genre"));
+				BookFilter.TITLE, BookFilter.AUTHOR, BookFilter.YEAR, BookFilter.GENRE));
 		searchTypeComboBox.getSelectionModel().selectFirst();
 
 		// Set up selection listener for book table
@@ -228,9 +250,17 @@ public class Controller {
 					}
 				});
 
-		// Set up search functionality
+		// Set up search functionality, run in the background once typing pauses
+		search = new DebouncedSearch<>(SEARCH_DEBOUNCE, Platform::runLater);
+		search.setResultListener((books, latency) -> {
+			searchModel.setAll(books);
+			bookTableView.setItems(searchModel.getRows());
+			searchLatencyLabel.setText(String.format("%d found in %.1f ms", books.size(), latency.toNanos() / 1e6));
+		});
 		searchField.textProperty()
 				.addListener((obs, oldText, newText) -> filterBooks(newText, searchTypeComboBox.getValue()));
+		searchTypeComboBox.valueProperty()
+				.addListener((obs, oldType, newType) -> filterBooks(searchField.getText(), newType));
 	}
 
 	/**
@@ -238,10 +268,9 @@ public class Controller {
 	 */
 	private void setupShelvesTab() {
 		// Configure table columns for shelf books table
-		shelfBookTitleColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getTitle()));
-		shelfBookAuthorColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getAuthorName()));
-		shelfBookYearColumn.setCellValueFactory(
-				data -> new SimpleStringProperty(String.valueOf(data.getValue().getPublicationYear())));
+		shelfBookTitleColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).titleProperty());
+		shelfBookAuthorColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).authorProperty());
+		shelfBookYearColumn.setCellValueFactory(data -> rowCache.get(data.getValue()).yearProperty());
 
 		// Set up selection listener for shelf selector
 		shelfSelector.getSelectionModel().selectedItemProperty().addListener(
@@ -295,11 +324,36 @@ public class Controller {
 	}
 
 	/**
-	 * Refresh the library view with all books
+	 * Registers the table models as listeners of the current library
+	 */
+	private void attachModels() {
+		// The row cache goes first, so rows are stale before the models redraw them
+		library.addListener(rowCache);
+		library.addListener(libraryModel);
+		library.addListener(searchModel);
+		library.addListener(shelfModel);
+		library.addListener(timelines);
+	}
+
+	private void detachModels() {
+		library.removeListener(libraryModel);
+		library.removeListener(searchModel);
+		library.removeListener(shelfModel);
+		library.removeListener(timelines);
+		library.removeListener(rowCache);
+		timelines.clear();
+		rowCache.clear();
+	}
+
+	/**
+	 * Show every book in the library table. The rows are kept current by the
+	 * library model, so this only switches back from search results.
 	 */
 	private void refreshLibraryView() {
-		List<Book> allBooks = library.getAllBooks();
-		bookTableView.setItems(FXCollections.observableArrayList(allBooks));
+		if (bookTableView.getItems() != libraryModel.getRows()) {
+			bookTableView.setItems(libraryModel.getRows());
+			searchModel.setAll(List.of());
+		}
 	}
 
 	/**
@@ -322,45 +376,101 @@ public class Controller {
 	 */
 	private void refreshShelfBooksView() {
 		if (selectedShelf != null) {
-			List<Book> shelfBooks = library.getBooksFromShelfName(selectedShelf);
-			shelfBooksTableView.setItems(FXCollections.observableArrayList(shelfBooks));
+			shelfModel.setAll(library.getBooksFromShelfName(selectedShelf));
+			shelfSummaryLabel.setText(library.getShelfSummary(selectedShelf).toString());
 		} else {
-			shelfBooksTableView.getItems().clear();
+			shelfModel.setAll(List.of());
+			shelfSummaryLabel.setText("");
+		}
+		if (shelfBooksTableView.getItems() != shelfModel.getRows()) {
+			shelfBooksTableView.setItems(shelfModel.getRows());
 		}
 	}
 
 	/**
-	 * Filter the book table based on search text and type
+	 * Filter the book table based on search text and type. The filtering runs
+	 * on the search thread over a snapshot of the library, which is taken again
+	 * whenever the library model changes.
 	 */
 	private void filterBooks(String searchText, String searchType) {
 		if (searchText == null || searchText.isEmpty()) {
+			search.cancel();
+			searchLatencyLabel.setText("");
 			refreshLibraryView();
 			return;
 		}
 
-		List<Book> filteredBooks = library.getAllBooks().stream()
-				.filter(book -> {
-					switch (searchType) {
-						case "Title":
-							return book.getTitle().toLowerCase().contains(searchText.toLowerCase());
-						case "Author":
-							return book.getAuthorName().toLowerCase().contains(searchText.toLowerCase());
-						case "Year":
-							try {
-								int year = Integer.parseInt(searchText);
-								return book.getPublicationYear() == year;
-							} catch (NumberFormatException e) {
-								return false;
-							}
-						case "Genre":
-							return book.getGenre().toString().toLowerCase().contains(searchText.toLowerCase());
-						default:
-							return true;
-					}
-				})
-				.collect(Collectors.toList());
+		if (searchSnapshot == null) {
+			searchSnapshot = libraryModel.getRows().toArray(new Book[0]);
+		}
+		Book[] books = searchSnapshot;
+		search.submit(cancelled -> BookFilter.filter(books, searchType, searchText, cancelled));
+	}
+
+	/**
+	 * Swaps in a library that was loaded in the background. The library table
+	 * fills one chunk of books per pulse, so the window stays responsive while
+	 * it does, and onFilled runs once every book is in it.
+	 */
+	public void showLoadedLibrary(BookStorage loaded, Runnable onFilled) {
+		detachModels();
+		library = loaded;
+		libraryModel.setAll(List.of());
+		attachModels();
+		refreshShelfSelector();
+		fillLibraryModel(library.getAllBooks(), 0, onFilled);
+	}
+
+	/**
+	 * Blocks the tabs that change the library while it is still loading, so
+	 * nothing is added to the placeholder library
+	 */
+	public void setLoading(boolean loading) {
+		addBookTab.setDisable(loading);
+		settingsTab.setDisable(loading);
+		bookTableView.setPlaceholder(new Label(loading ? "Loading library..." : "No books"));
+	}
+
+	/**
+	 * The model already follows the library while it fills, so a book removed
+	 * from it between two chunks, by the sync say, is left out of its chunk
+	 * instead of coming back as a row
+	 */
+	private void fillLibraryModel(List<Book> books, int from, Runnable onFilled) {
+		int to = Math.min(from + FILL_CHUNK_SIZE, books.size());
+		List<Book> chunk = new ArrayList<>(to - from);
+		for (Book book : books.subList(from, to)) {
+			if (library.findBook(book.getUUID()) == book) {
+				chunk.add(book);
+			}
+		}
+		libraryModel.addAll(chunk);
+		if (to < books.size()) {
+			Platform.runLater(() -> fillLibraryModel(books, to, onFilled));
+		} else {
+			filterBooks(searchField.getText(), searchTypeComboBox.getValue());
+			onFilled.run();
+		}
+	}
 
-		bookTableView.setItems(FXCollections.observableArrayList(filteredBooks));
+	/**
+	 * The sync that keeps the library in step with other instances, whose
+	 * cursor is saved along with the library. Called by App.java once the
+	 * library is loaded. The sync stays with that library, so loading another
+	 * one from disk is turned off.
+	 */
+	public void setSync(LibrarySync sync) {
+		this.sync = sync;
+		loadLibraryButton.setDisable(true);
+	}
+
+	/**
+	 * Stops the search thread, called by App.java when the application closes
+	 */
+	public void shutdown() {
+		if (search != null) {
+			search.close();
+		}
 	}
 
 	/**
@@ -454,51 +564,7 @@ public class Controller {
 	 * Load and display book events in the events list view
 	 */
 	private void loadBookEvents(OwnedBook book) {
-		BookHistory history = book.getHistory();
-		ObservableList<String> events = FXCollections.observableArrayList();
-
-		// Add reading state events
-		if (history.getStartedReading() != null) {
-			events.add(formatEvent(history.getStartedReading()));
-		}
-		if (history.getFinishedReading() != null) {
-			events.add(formatEvent(history.getFinishedReading()));
-		}
-
-		// Add comments
-		for (BookEvent event : history.getComments()) {
-			events.add(formatEvent(event));
-		}
-
-		// Add quotes
-		for (BookEvent event : history.getQuotes()) {
-			events.add(formatEvent(event));
-		}
-
-		// Add afterthoughts
-		for (BookEvent event : history.getAfterThoughts()) {
-			events.add(formatEvent(event));
-		}
-
-		// Sort events chronologically
-		events.sort((e1, e2) -> e1.compareTo(e2));
-
-		eventsListView.setItems(events);
-	}
-
-	/**
-	 * Format a book event for display
-	 */
-	private String formatEvent(BookEvent event) {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-		LocalDateTime dateTime = LocalDateTime.ofInstant(
-				event.getTimestamp(), ZoneId.systemDefault());
-
-		String formattedTime = dateTime.format(formatter);
-		String eventType = event.getType().toString();
-		String eventText = event.getText() != null ? event.getText() : "";
-
-		return formattedTime + " | " + eventType + (eventText.isEmpty() ? "" : " | " + eventText);
+		eventsListView.getItems().setAll(timelines.get(book).getLines());
 	}
 
 	/* --- BUTTON HANDLERS --- */
@@ -512,9 +578,8 @@ public class Controller {
 			OwnedBook book = (OwnedBook) selectedBook;
 			book.changeState();
 
-			// Refresh UI
+			// The table row follows through the table model
 			showBookDetails(book);
-			refreshLibraryView();
 		}
 	}
 
@@ -677,16 +742,9 @@ public class Controller {
 		// Create the book list view and add it to the dialog
 		ListView<Book> bookListView = new ListView<>();
 
-		// Only show books not already in the shelf
-		List<Book> booksNotInShelf = library.getAllBooks().stream()
-				.filter(book -> {
-					try {
-						List<Book> shelfBooks = library.getBooksFromShelfName(selectedShelf);
-						return !shelfBooks.contains(book);
-					} catch (Exception e) {
-						return true;
-					}
-				})
+		// Only show books not already in the shelf, the shelf model holds the selected shelf
+		List<Book> booksNotInShelf = libraryModel.getRows().stream()
+				.filter(book -> !shelfModel.contains(book))
 				.collect(Collectors.toList());
 
 		bookListView.setItems(FXCollections.observableArrayList(booksNotInShelf));
@@ -722,7 +780,8 @@ public class Controller {
 		Optional<Book> result = dialog.showAndWait();
 		result.ifPresent(book -> {
 			library.addBookToShelf(selectedShelf, book);
-			refreshShelfBooksView();
+			shelfModel.add(book);
+			shelfSummaryLabel.setText(library.getShelfSummary(selectedShelf).toString());
 		});
 	}
 
@@ -738,7 +797,8 @@ public class Controller {
 		Book book = shelfBooksTableView.getSelectionModel().getSelectedItem();
 		if (book != null) {
 			library.removeBookFromShelf(selectedShelf, book);
-			refreshShelfBooksView();
+			shelfModel.remove(book);
+			shelfSummaryLabel.setText(library.getShelfSummary(selectedShelf).toString());
 		}
 	}
 
@@ -817,6 +877,9 @@ public class Controller {
 	private void handleSaveLibrary() {
 		try {
 			serializer.save(library);
+			if (sync != null) {
+				sync.saveCursor();
+			}
 			lastSavedLabel.setText("Library last saved: " +
 					LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
 			showAlert(Alert.AlertType.INFORMATION, "Library Saved",
@@ -840,11 +903,8 @@ public class Controller {
 		Optional<ButtonType> result = alert.showAndWait();
 		if (result.isPresent() && result.get() == ButtonType.OK) {
 			try {
-				library = serializer.load();
-				refreshLibraryView();
-				refreshShelfSelector();
-				showAlert(Alert.AlertType.INFORMATION, "Library Loaded",
-						"Library has been loaded successfully");
+				showLoadedLibrary(serializer.load(), () -> showAlert(Alert.AlertType.INFORMATION,
+						"Library Loaded", "Library has been loaded successfully"));
 			} catch (Exception e) {
 				showAlert(Alert.AlertType.ERROR, "Load Error",
 						"Error loading library: " + e.getMessage());
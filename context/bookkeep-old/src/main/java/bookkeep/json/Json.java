@@ -0,0 +1,259 @@
+package bookkeep.json;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for newline-delimited records: a builder for one object on
+ * a single line, and a parser for objects whose values are strings, numbers,
+ * booleans, null, again objects or arrays of them. Arrays are only written as
+ * lists of objects, like the history of an exported book.
+ */
+public final class Json {
+
+	private Json() {
+	}
+
+	/**
+	 * One JSON object, written field by field into a single line
+	 */
+	public static final class Line {
+		private final StringBuilder text = new StringBuilder("{");
+
+		public Line put(String key, String value) {
+			field(key).append(value == null ? "null" : quote(value));
+			return this;
+		}
+
+		public Line put(String key, long value) {
+			field(key).append(value);
+			return this;
+		}
+
+		public Line put(String key, double value) {
+			field(key).append(Double.isFinite(value) ? String.valueOf(value) : "null");
+			return this;
+		}
+
+		public Line put(String key, boolean value) {
+			field(key).append(value);
+			return this;
+		}
+
+		public Line put(String key, Line value) {
+			field(key).append(value);
+			return this;
+		}
+
+		public Line put(String key, List<Line> values) {
+			StringBuilder array = field(key).append('[');
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					array.append(',');
+				}
+				array.append(values.get(i));
+			}
+			array.append(']');
+			return this;
+		}
+
+		private StringBuilder field(String key) {
+			if (text.length() > 1) {
+				text.append(',');
+			}
+			return text.append(quote(key)).append(':');
+		}
+
+		@Override
+		public String toString() {
+			return text + "}";
+		}
+	}
+
+	public static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"' -> quoted.append("\\\"");
+				case '\\' -> quoted.append("\\\\");
+				case '\n' -> quoted.append("\\n");
+				case '\r' -> quoted.append("\\r");
+				case '\t' -> quoted.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int) c));
+					} else {
+						quoted.append(c);
+					}
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Parses an object. Values come back as String, Long, Double, Boolean, null,
+	 * a Map for a nested object or a List for an array.
+	 *
+	 * @throws IllegalArgumentException if the text is not a JSON object
+	 */
+	public static Map<String, Object> parseObject(String text) {
+		Parser parser = new Parser(text);
+		Map<String, Object> object = parser.object();
+		if (parser.peek() != 0) {
+			throw parser.error("Unexpected text after the object");
+		}
+		return object;
+	}
+
+	private static final class Parser {
+		private final String text;
+		private int position;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Map<String, Object> object() {
+			Map<String, Object> fields = new LinkedHashMap<>();
+			expect('{');
+			if (peek() == '}') {
+				position++;
+			} else {
+				do {
+					String key = string();
+					expect(':');
+					fields.put(key, value());
+				} while (consume(','));
+				expect('}');
+			}
+			return fields;
+		}
+
+		private List<Object> array() {
+			List<Object> values = new ArrayList<>();
+			expect('[');
+			if (peek() == ']') {
+				position++;
+			} else {
+				do {
+					values.add(value());
+				} while (consume(','));
+				expect(']');
+			}
+			return values;
+		}
+
+		private Object value() {
+			char c = peek();
+			if (c == '"') {
+				return string();
+			}
+			if (c == '{') {
+				return object();
+			}
+			if (c == '[') {
+				return array();
+			}
+			if (text.startsWith("true", position)) {
+				position += 4;
+				return Boolean.TRUE;
+			}
+			if (text.startsWith("false", position)) {
+				position += 5;
+				return Boolean.FALSE;
+			}
+			if (text.startsWith("null", position)) {
+				position += 4;
+				return null;
+			}
+			if (c == '-' || Character.isDigit(c)) {
+				return number();
+			}
+			throw error("Expected a string, number, boolean, null, object or array");
+		}
+
+		private Object number() {
+			int start = position;
+			while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+				position++;
+			}
+			String number = text.substring(start, position);
+			try {
+				if (number.contains(".") || number.contains("e") || number.contains("E")) {
+					return Double.parseDouble(number);
+				}
+				return Long.parseLong(number);
+			} catch (NumberFormatException e) {
+				throw error("Invalid number " + number);
+			}
+		}
+
+		private String string() {
+			expect('"');
+			StringBuilder value = new StringBuilder();
+			while (position < text.length()) {
+				char c = text.charAt(position++);
+				if (c == '"') {
+					return value.toString();
+				}
+				if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				if (position >= text.length()) {
+					break;
+				}
+				char escaped = text.charAt(position++);
+				switch (escaped) {
+					case 'n' -> value.append('\n');
+					case 'r' -> value.append('\r');
+					case 't' -> value.append('\t');
+					case 'b' -> value.append('\b');
+					case 'f' -> value.append('\f');
+					case 'u' -> {
+						if (position + 4 > text.length()) {
+							throw error("Incomplete unicode escape");
+						}
+						try {
+							value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+						} catch (NumberFormatException e) {
+							throw error("Invalid unicode escape");
+						}
+						position += 4;
+					}
+					default -> value.append(escaped);
+				}
+			}
+			throw error("Unterminated string");
+		}
+
+		private char peek() {
+			while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+				position++;
+			}
+			return position < text.length() ? text.charAt(position) : 0;
+		}
+
+		private boolean consume(char c) {
+			if (peek() == c) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!consume(c)) {
+				throw error("Expected '" + c + "'");
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + position);
+		}
+	}
+}
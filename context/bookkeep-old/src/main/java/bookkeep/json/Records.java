@@ -0,0 +1,360 @@
+package bookkeep.json;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import bookkeep.analytics.LibraryStatistics;
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.EventType;
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.WishlistBook;
+import bookkeep.models.collections.ShelfSummary;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookEventBuilder;
+import bookkeep.models.history.BookHistory;
+import bookkeep.models.history.BookSnapshot;
+import bookkeep.models.history.ReadingProgress;
+import bookkeep.search.SearchHit;
+
+/**
+ * The JSON records books, events, hits and statistics are written as, shared
+ * by the batch commands, the HTTP server and the sync log so all of them speak
+ * the same format
+ */
+public final class Records {
+
+	private Records() {
+	}
+
+	/* ================================= Writing ================================ */
+
+	public static Json.Line book(Book book) {
+		return book(book, null);
+	}
+
+	/**
+	 * A book whose version is qualified by the epoch, as epoch-version, so a
+	 * version handed out before a restart cannot be mistaken for one of this run
+	 */
+	public static Json.Line book(Book book, String epoch) {
+		Json.Line line = new Json.Line().put("id", book.getUUID().toString());
+		if (epoch == null) {
+			line.put("version", book.getVersion());
+		} else {
+			line.put("version", epoch + '-' + book.getVersion());
+		}
+		line.put("type", book instanceof OwnedBook ? "owned" : "wishlist")
+				.put("title", book.getTitle())
+				.put("author", book.getAuthorName())
+				.put("year", book.getPublicationYear())
+				.put("pages", book.getPageCount())
+				.put("genre", book.getGenre() == null ? null : book.getGenre().name());
+		if (book instanceof OwnedBook owned) {
+			line.put("format", owned.getFormat() == null ? null : owned.getFormat().name())
+					.put("state", owned.getStateName())
+					.put("page", owned.getPageNumber());
+			BookHistory history = owned.getHistory();
+			if (history.hasReview()) {
+				line.put("review", history.getReview().getText())
+						.put("rating", history.getReview().getRating());
+			}
+		} else if (book instanceof WishlistBook wished) {
+			line.put("price", wished.getPrice());
+		}
+		return line;
+	}
+
+	/**
+	 * A book as Records.book writes it, with an owned book's history added as
+	 * events, each with its original time: the state changes, comments, quotes,
+	 * afterthoughts, review and every page update. Edits to the details are left
+	 * out, the record has the details as they are now.
+	 */
+	public static Json.Line bookWithHistory(Book book) {
+		Json.Line line = book(book);
+		if (book instanceof OwnedBook owned) {
+			line.put("events", history(owned));
+		}
+		return line;
+	}
+
+	/**
+	 * The journal's events and page updates merged into one list, in the order
+	 * the journal has them
+	 */
+	private static List<Json.Line> history(OwnedBook book) {
+		List<BookEvent> events = book.getJournal().getEvents();
+		ReadingProgress progress = book.getProgress();
+		long[] seconds = new long[progress.size()];
+		int[] pages = new int[progress.size()];
+		int[] count = { 0 };
+		progress.forEach((epochSecond, pageNumber) -> {
+			seconds[count[0]] = epochSecond;
+			pages[count[0]++] = pageNumber;
+		});
+
+		List<Json.Line> history = new ArrayList<>(events.size() + pages.length);
+		int page = 0;
+		for (BookEvent event : events) {
+			// Page updates are kept to the second, so one in the same second goes first
+			while (page < pages.length && seconds[page] <= event.getTimestamp().getEpochSecond()) {
+				history.add(pageUpdate(seconds[page], pages[page]));
+				page++;
+			}
+			if (event.getType() != EventType.METADATA_CHANGE) {
+				history.add(event(event));
+			}
+		}
+		for (; page < pages.length; page++) {
+			history.add(pageUpdate(seconds[page], pages[page]));
+		}
+		return history;
+	}
+
+	private static Json.Line pageUpdate(long epochSecond, int pageNumber) {
+		return event(BookEventBuilder.forPageUpdate(pageNumber).atTime(Instant.ofEpochSecond(epochSecond)).build());
+	}
+
+	public static Json.Line event(BookEvent event) {
+		return new Json.Line()
+				.put("timestamp", event.getTimestamp().toString())
+				.put("type", event.getType().name())
+				.put("text", event.getText())
+				.put("page", event.getPageNumber())
+				.put("rating", event.getRating());
+	}
+
+	/**
+	 * A search hit, with the title of its book if the book is still there
+	 */
+	public static Json.Line hit(SearchHit hit, Book book) {
+		return new Json.Line()
+				.put("book", hit.getBookId().toString())
+				.put("title", book == null ? null : book.getTitle())
+				.put("type", hit.getType().name())
+				.put("page", hit.getPageNumber())
+				.put("text", hit.getText())
+				.put("score", hit.getScore());
+	}
+
+	public static Json.Line shelf(String name, ShelfSummary summary) {
+		return new Json.Line()
+				.put("name", name)
+				.put("books", summary.getBookCount())
+				.put("finished", summary.getFinishedCount())
+				.put("pages", summary.getTotalPages())
+				.put("pagesRead", summary.getPagesRead())
+				.put("averageRating", summary.getAverageRating());
+	}
+
+	public static Json.Line statistics(LibraryStatistics statistics) {
+		Json.Line finished = new Json.Line();
+		statistics.getFinishedPerYear().forEach((year, count) -> finished.put(String.valueOf(year), count));
+		Json.Line genres = new Json.Line();
+		statistics.getGenreDistribution().forEach((genre, count) -> genres.put(genre.name(), count));
+		return new Json.Line()
+				.put("books", statistics.getBookCount())
+				.put("owned", statistics.getOwnedCount())
+				.put("wishlist", statistics.getWishlistCount())
+				.put("notStarted", statistics.getCountInState(BookSnapshot.NOT_STARTED))
+				.put("inProgress", statistics.getCountInState(BookSnapshot.IN_PROGRESS))
+				.put("finished", statistics.getCountInState(BookSnapshot.FINISHED))
+				.put("pagesRead", statistics.getPagesRead())
+				.put("reviews", statistics.getReviewCount())
+				.put("averageRating", statistics.getAverageRating())
+				.put("finishedPerYear", finished)
+				.put("genres", genres);
+	}
+
+	/* ================================= Reading ================================ */
+
+	/**
+	 * A book from a record. Title and author are required, the type is owned
+	 * unless it says wishlist.
+	 */
+	public static Book bookFromJson(Map<String, Object> fields) {
+		return bookFromJson(fields, null);
+	}
+
+	/**
+	 * A book from a record that keeps the given id, or gets a new one when it is
+	 * null
+	 */
+	public static Book bookFromJson(Map<String, Object> fields, UUID id) {
+		BookBuilder builder = new BookBuilder()
+				.withId(id)
+				.withTitle(stringField(fields, "title"))
+				.withAuthorName(stringField(fields, "author"))
+				.withPublicationYear(intField(fields, "year", 0))
+				.withPageCount(intField(fields, "pages", 0));
+		if (fields.get("genre") != null) {
+			builder.withGenre(Genre.valueOf(stringField(fields, "genre").toUpperCase(Locale.ROOT)));
+		}
+		if ("wishlist".equals(fields.get("type"))) {
+			return builder.withPrice(intField(fields, "price", 0)).buildWishlistBook();
+		}
+		if (fields.get("format") != null) {
+			builder.withFormat(BookFormat.valueOf(stringField(fields, "format").toUpperCase(Locale.ROOT)));
+		}
+		return builder.buildOwnedBook();
+	}
+
+	/**
+	 * The reading a record describes. A record from Records.bookWithHistory has
+	 * its events replayed at their original times, one from Records.book only
+	 * has its state, page and review, which are recorded as of now. Everything
+	 * is checked here, so applying it to the book, once the book is in the
+	 * library and its events reach the listeners, does not fail halfway.
+	 *
+	 * @throws IllegalArgumentException for an unknown state or event, a page out
+	 *                                  of range or a rating without its review
+	 */
+	public static Consumer<OwnedBook> readingFromJson(Map<String, Object> fields) {
+		if (fields.get("events") != null) {
+			return historyFromJson(fields);
+		}
+		String state = fields.get("state") == null ? BookSnapshot.NOT_STARTED : stateName(stringField(fields, "state"));
+		int page = intField(fields, "page", 0);
+		if (page < 0 || page > intField(fields, "pages", 0)) {
+			throw new IllegalArgumentException("Page number doesn't exist in the book");
+		}
+		if (page > 0 && state.equals(BookSnapshot.NOT_STARTED)) {
+			throw new IllegalArgumentException("A book that is not started has no page");
+		}
+		String review = stringField(fields, "review");
+		Integer rating = fields.get("rating") == null ? null : intField(fields, "rating", 0);
+		if (rating != null) {
+			if (!state.equals(BookSnapshot.FINISHED) || review == null) {
+				throw new IllegalArgumentException("A rating needs a finished book and its review");
+			}
+			BookEventBuilder.forReview(review, rating);
+		}
+		return book -> {
+			if (state.equals(BookSnapshot.NOT_STARTED)) {
+				return;
+			}
+			book.changeState();
+			book.incrementPageNumber(page - book.getPageNumber());
+			if (state.equals(BookSnapshot.FINISHED)) {
+				book.changeState();
+				if (rating != null) {
+					book.review(review, rating);
+				}
+			}
+		};
+	}
+
+	private static Consumer<OwnedBook> historyFromJson(Map<String, Object> fields) {
+		if (!(fields.get("events") instanceof List<?> records)) {
+			throw new IllegalArgumentException("events must be an array");
+		}
+		int pageCount = intField(fields, "pages", 0);
+		List<BookEvent> events = new ArrayList<>(records.size());
+		for (Object record : records) {
+			if (!(record instanceof Map<?, ?> event)) {
+				throw new IllegalArgumentException("Every event must be an object");
+			}
+			@SuppressWarnings("unchecked")
+			BookEvent parsed = eventFromJson((Map<String, Object>) event);
+			if (parsed.getType() == EventType.PAGE_UPDATE
+					&& (parsed.getPageNumber() < 0 || parsed.getPageNumber() > pageCount)) {
+				throw new IllegalArgumentException("Page number doesn't exist in the book");
+			}
+			events.add(parsed);
+		}
+		return book -> events.forEach(book::replay);
+	}
+
+	/**
+	 * An event from the record Records.event wrote, with its original time
+	 *
+	 * @throws IllegalArgumentException for a metadata change, which is not
+	 *                                  written as an event record
+	 */
+	public static BookEvent eventFromJson(Map<String, Object> fields) {
+		String typeName = stringField(fields, "type");
+		if (typeName == null) {
+			throw new IllegalArgumentException("An event needs a type");
+		}
+		EventType type = EventType.valueOf(typeName);
+		String text = stringField(fields, "text");
+		int page = intField(fields, "page", 0);
+		BookEventBuilder builder = switch (type) {
+			case STARTED_READING -> BookEventBuilder.forStartedReading();
+			case FINISHED_READING -> BookEventBuilder.forFinishedReading();
+			case COMMENT -> BookEventBuilder.forComment(text).atPage(page);
+			case QUOTE -> BookEventBuilder.forQuote(text).atPage(page);
+			case AFTERTHOUGHT -> BookEventBuilder.forAfterthought(text).atPage(page);
+			case REVIEW -> BookEventBuilder.forReview(text, intField(fields, "rating", 0));
+			case PAGE_UPDATE -> BookEventBuilder.forPageUpdate(page);
+			case METADATA_CHANGE -> throw new IllegalArgumentException("Metadata changes have no event record");
+		};
+		try {
+			return builder.atTime(Instant.parse(String.valueOf(stringField(fields, "timestamp")))).build();
+		} catch (DateTimeException e) {
+			throw new IllegalArgumentException("timestamp must be an instant", e);
+		}
+	}
+
+	/**
+	 * Records one event on the book. The type is comment, quote, review, page or
+	 * state; page is the page a quote is on or the page read up to, rating is
+	 * the rating of a review.
+	 *
+	 * @throws IllegalArgumentException      for an unknown type or a page out of
+	 *                                       range
+	 * @throws UnsupportedOperationException if the book's state does not allow
+	 *                                       the event
+	 */
+	public static void applyEvent(OwnedBook book, String type, String text, int page, int rating) {
+		switch (type) {
+			case "comment" -> book.addComment(text);
+			case "quote" -> book.addQuote(text, page);
+			case "review" -> book.review(text, rating);
+			case "page" -> book.incrementPageNumber(page - book.getPageNumber());
+			case "state" -> book.changeState();
+			default -> throw new IllegalArgumentException("Unknown event type " + type);
+		}
+	}
+
+	/**
+	 * The state name a state argument like not-started, IN_PROGRESS or the
+	 * FinishedState of a record stands for
+	 */
+	public static String stateName(String state) {
+		return switch (state.toLowerCase(Locale.ROOT).replace("-", "").replace("_", "")) {
+			case "notstarted", "notstartedstate" -> BookSnapshot.NOT_STARTED;
+			case "inprogress", "inprogressstate" -> BookSnapshot.IN_PROGRESS;
+			case "finished", "finishedstate" -> BookSnapshot.FINISHED;
+			default -> throw new IllegalArgumentException("Unknown state " + state);
+		};
+	}
+
+	public static int intField(Map<String, Object> fields, String key, int fallback) {
+		Object value = fields.get(key);
+		if (value == null) {
+			return fallback;
+		}
+		if (value instanceof Long number) {
+			return Math.toIntExact(number);
+		}
+		throw new IllegalArgumentException(key + " must be a whole number");
+	}
+
+	public static String stringField(Map<String, Object> fields, String key) {
+		Object value = fields.get(key);
+		if (value == null || value instanceof String) {
+			return (String) value;
+		}
+		throw new IllegalArgumentException(key + " must be a string");
+	}
+}
@@ -0,0 +1,104 @@
+package bookkeep.models;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * One author as identified by the AuthorRegistry: every spelling of the name
+ * that was recognized as this author, and the books written under any of
+ * them.
+ */
+public class Author implements Serializable {
+
+	private static final long serialVersionUID = -1782012257739335557L;
+
+	private final UUID id;
+	private String name;
+	private final List<String> givenNames;
+	private final Set<String> variants = new LinkedHashSet<>();
+	private final Set<UUID> bookIds = new LinkedHashSet<>();
+	private long pageCount;
+
+	Author(UUID id, String name, List<String> givenNames) {
+		this.id = id;
+		this.name = name;
+		this.givenNames = new ArrayList<>(givenNames);
+		this.variants.add(name);
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	/**
+	 * The most complete spelling seen so far, used for display
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public Set<String> getVariants() {
+		return Collections.unmodifiableSet(variants);
+	}
+
+	public Set<UUID> getBookIds() {
+		return Collections.unmodifiableSet(bookIds);
+	}
+
+	public int getBookCount() {
+		return bookIds.size();
+	}
+
+	/**
+	 * Pages over all of the author's books
+	 */
+	public long getPageCount() {
+		return pageCount;
+	}
+
+	/* ====================== Maintained by AuthorRegistry ====================== */
+
+	List<String> getGivenNames() {
+		return givenNames;
+	}
+
+	/**
+	 * Records a spelling, and takes it as the display name when it spells out
+	 * more of the given names than the current one
+	 */
+	void addVariant(String spelling, List<String> spellingGivenNames) {
+		variants.add(spelling);
+		int fullNames = 0;
+		for (int i = 0; i < givenNames.size(); i++) {
+			if (spellingGivenNames.get(i).length() > givenNames.get(i).length()) {
+				givenNames.set(i, spellingGivenNames.get(i));
+				fullNames++;
+			}
+		}
+		if (fullNames > 0) {
+			name = spelling;
+		}
+	}
+
+	void addBook(UUID bookId, int pages) {
+		if (bookIds.add(bookId)) {
+			pageCount += pages;
+		}
+	}
+
+	void removeBook(UUID bookId, int pages) {
+		if (bookIds.remove(bookId)) {
+			pageCount -= pages;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Author{name=" + name + ", books=" + bookIds.size() + ", variants=" + variants + "}";
+	}
+}
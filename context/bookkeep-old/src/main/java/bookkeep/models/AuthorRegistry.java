@@ -0,0 +1,271 @@
+package bookkeep.models;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import bookkeep.enums.EventType;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * Resolves the free-text author names of books to Author entities, so
+ * "J.R.R. Tolkien", "JRR Tolkien" and "Tolkien, J. R. R." are one author with
+ * one id, and keeps the books of every author.
+ *
+ * A name is parsed into a last name and a list of given names, after
+ * stripping accents, case and punctuation and turning "Last, First" around.
+ * Particles such as "le" or "van" are kept with the last name.
+ * An all capitals token of up to three letters, like "JRR", is read as
+ * initials. Names with the same last name and the same initials are
+ * candidates for the same author, and are merged when every given name is
+ * either equal or an initial of the other. "J. Smith" and "John Smith" are
+ * one author, "John Smith" and "Jane Smith" are two.
+ *
+ * The registry is kept up to date as a LibraryListener. Ids are derived from
+ * the first spelling seen, and the registry is saved with the library, so
+ * they stay the same between sessions.
+ */
+public class AuthorRegistry implements LibraryListener, Serializable {
+
+	private static final long serialVersionUID = 5425994340787069458L;
+
+	private static final Set<String> PARTICLES = Set.of("de", "da", "del", "der", "di", "du", "la", "le", "van",
+			"von");
+
+	private final Map<UUID, Author> authorsById = new HashMap<>();
+	private final Map<String, Author> authorsBySpelling = new HashMap<>();
+	private final Map<String, List<Author>> candidatesByKey = new HashMap<>();
+	private final Map<UUID, Author> authorOfBook = new HashMap<>();
+	private final Map<UUID, Integer> pagesOfBook = new HashMap<>();
+
+	/**
+	 * A name taken apart: the last name and the given names, each given name
+	 * either spelled out or a single letter initial
+	 */
+	static final class ParsedName {
+		private final String lastName;
+		private final List<String> givenNames;
+
+		ParsedName(String lastName, List<String> givenNames) {
+			this.lastName = lastName;
+			this.givenNames = givenNames;
+		}
+
+		/**
+		 * The last name and the initials, equal for every spelling that could be
+		 * the same author
+		 */
+		String clusterKey() {
+			StringBuilder key = new StringBuilder(lastName).append('|');
+			for (String given : givenNames) {
+				key.append(given.charAt(0));
+			}
+			return key.toString();
+		}
+
+		List<String> getGivenNames() {
+			return givenNames;
+		}
+	}
+
+	/* ================================ Lookups ================================= */
+
+	/**
+	 * The author for the given spelling, registering a new one if no known
+	 * author matches. Null for a blank name.
+	 */
+	public Author resolve(String name) {
+		if (name == null || name.isBlank()) {
+			return null;
+		}
+		String spelling = name.trim();
+		Author known = authorsBySpelling.get(spelling);
+		if (known != null) {
+			return known;
+		}
+
+		ParsedName parsed = parse(spelling);
+		String key = parsed.clusterKey();
+		List<Author> candidates = candidatesByKey.computeIfAbsent(key, k -> new ArrayList<>());
+		Author author = null;
+		for (Author candidate : candidates) {
+			if (compatible(candidate.getGivenNames(), parsed.getGivenNames())) {
+				author = candidate;
+				break;
+			}
+		}
+		if (author == null) {
+			UUID id = UUID.nameUUIDFromBytes((key + "#" + candidates.size()).getBytes(StandardCharsets.UTF_8));
+			author = new Author(id, spelling, parsed.getGivenNames());
+			candidates.add(author);
+			authorsById.put(id, author);
+		} else {
+			author.addVariant(spelling, parsed.getGivenNames());
+		}
+		authorsBySpelling.put(spelling, author);
+		return author;
+	}
+
+	/**
+	 * The known author for the given spelling, without registering anything
+	 */
+	public Author find(String name) {
+		if (name == null || name.isBlank()) {
+			return null;
+		}
+		Author known = authorsBySpelling.get(name.trim());
+		if (known != null) {
+			return known;
+		}
+		ParsedName parsed = parse(name.trim());
+		for (Author candidate : candidatesByKey.getOrDefault(parsed.clusterKey(), List.of())) {
+			if (compatible(candidate.getGivenNames(), parsed.getGivenNames())) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	public Author getAuthor(UUID id) {
+		return authorsById.get(id);
+	}
+
+	public Author getAuthorOf(Book book) {
+		return authorOfBook.get(book.getUUID());
+	}
+
+	/**
+	 * Authors with at least one book in the library
+	 */
+	public List<Author> getAuthors() {
+		List<Author> authors = new ArrayList<>();
+		for (Author author : authorsById.values()) {
+			if (author.getBookCount() > 0) {
+				authors.add(author);
+			}
+		}
+		return authors;
+	}
+
+	public Collection<Author> getAllAuthors() {
+		return Collections.unmodifiableCollection(authorsById.values());
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookAdded(Book book) {
+		assign(book);
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		unassign(book.getUUID());
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		if (event.getType() != EventType.METADATA_CHANGE) {
+			return;
+		}
+		if ("authorName".equals(event.getAttribute()) || "pageCount".equals(event.getAttribute())) {
+			unassign(book.getUUID());
+			assign(book);
+		}
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void assign(Book book) {
+		Author author = resolve(book.getAuthorName());
+		if (author != null) {
+			author.addBook(book.getUUID(), book.getPageCount());
+			authorOfBook.put(book.getUUID(), author);
+			pagesOfBook.put(book.getUUID(), book.getPageCount());
+		}
+	}
+
+	private void unassign(UUID bookId) {
+		Author author = authorOfBook.remove(bookId);
+		Integer pages = pagesOfBook.remove(bookId);
+		if (author != null) {
+			author.removeBook(bookId, pages);
+		}
+	}
+
+	/**
+	 * Every given name is either equal to the other's or a single letter, since
+	 * names with the same cluster key already have the same initials
+	 */
+	static boolean compatible(List<String> first, List<String> second) {
+		for (int i = 0; i < first.size(); i++) {
+			String a = first.get(i);
+			String b = second.get(i);
+			if (a.length() > 1 && b.length() > 1 && !a.equals(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static ParsedName parse(String name) {
+		String lastPart;
+		String givenPart;
+		int comma = name.indexOf(',');
+		if (comma >= 0) {
+			lastPart = name.substring(0, comma);
+			givenPart = name.substring(comma + 1);
+		} else {
+			// Particles in front of the last name belong to it, as in Le Guin
+			String[] tokens = name.trim().split("\\s+");
+			int lastStart = tokens.length - 1;
+			while (lastStart > 1 && PARTICLES.contains(tokens[lastStart - 1].toLowerCase())) {
+				lastStart--;
+			}
+			lastPart = String.join("", Arrays.copyOfRange(tokens, lastStart, tokens.length));
+			givenPart = String.join(" ", Arrays.copyOfRange(tokens, 0, lastStart));
+		}
+
+		List<String> givenNames = new ArrayList<>();
+		for (String token : givenPart.split("[\\s.\\-]+")) {
+			if (token.isEmpty()) {
+				continue;
+			}
+			if (token.length() <= 3 && token.equals(token.toUpperCase()) && token.chars().allMatch(Character::isLetter)) {
+				// Capitals run together, like JRR, are initials
+				for (char initial : token.toCharArray()) {
+					givenNames.add(simplify(String.valueOf(initial)));
+				}
+			} else {
+				String simplified = simplify(token);
+				if (!simplified.isEmpty()) {
+					givenNames.add(simplified);
+				}
+			}
+		}
+		return new ParsedName(simplify(lastPart), givenNames);
+	}
+
+	/**
+	 * Lower case letters and digits only, with accents removed
+	 */
+	private static String simplify(String text) {
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+		return decomposed.replaceAll("\\p{M}", "").toLowerCase().replaceAll("[^\\p{L}\\p{N}]", "");
+	}
+
+	@Override
+	public String toString() {
+		return "AuthorRegistry{authors=" + authorsById.size() + ", books=" + authorOfBook.size() + "}";
+	}
+}
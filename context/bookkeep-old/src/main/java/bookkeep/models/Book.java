@@ -1,19 +1,48 @@
 package bookkeep.models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import bookkeep.enums.Genre;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookEventBuilder;
 import bookkeep.models.history.BookHistory;
 import bookkeep.models.states.ReadingState;
+import bookkeep.util.StringPool;
 
 public abstract class Book implements Serializable {
+	// Pinned to the value it had before the class changed, so older saves still load
+	private static final long serialVersionUID = -7804009212473723307L;
+
 	protected String title;
 	protected String authorName;
 	protected int publicationYear;
 	protected int pageCount;
 	protected Genre genre;
 	protected UUID id;
+	private transient BookListener listener;
+	/*
+	 * Seqlock for readers that take no lock: odd while update runs, and two
+	 * higher after every change, so half of it is the version. It starts over
+	 * when the book is loaded.
+	 */
+	private transient volatile long stamp;
+
+	private static final int SPINS_BEFORE_YIELD = 64;
+	private static final VarHandle STAMP;
+	static {
+		try {
+			STAMP = MethodHandles.lookup().findVarHandle(Book.class, "stamp", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 
 	/**
 	 * Default constructor for debugging/flexibility
@@ -23,7 +52,7 @@ public abstract class Book implements Serializable {
 
 	public Book(String title, String authorName, int publicationYear, int pageCount, Genre genre) {
 		this.title = title;
-		this.authorName = authorName;
+		this.authorName = StringPool.intern(authorName);
 		this.publicationYear = publicationYear;
 		this.pageCount = pageCount;
 		this.genre = genre;
@@ -62,7 +91,8 @@ public abstract class Book implements Serializable {
 	}
 
 	public void setAuthorName(String authorName) {
-		this.authorName = authorName;
+		this.authorName = StringPool.intern(authorName);
+		onMetadataChange("authorName", authorName);
 	}
 
 	public int getPublicationYear() {
@@ -71,6 +101,7 @@ public abstract class Book implements Serializable {
 
 	public void setPublicationYear(int publicationYear) {
 		this.publicationYear = publicationYear;
+		onMetadataChange("publicationYear", publicationYear);
 	}
 
 	public int getPageCount() {
@@ -79,6 +110,7 @@ public abstract class Book implements Serializable {
 
 	public void setPageCount(int pageCount) {
 		this.pageCount = pageCount;
+		onMetadataChange("pageCount", pageCount);
 	}
 
 	public Genre getGenre() {
@@ -87,14 +119,120 @@ public abstract class Book implements Serializable {
 
 	public void setGenre(Genre genre) {
 		this.genre = genre;
+		onMetadataChange("genre", genre);
 	}
 
 	public UUID getUUID() {
 		return id;
 	}
 
+	public void setListener(BookListener listener) {
+		this.listener = listener;
+	}
+
 	// endregion
 
+	/* ========================== Optimistic Concurrency ======================== */
+
+	/**
+	 * Goes up by one with every update, and with every change made to the book
+	 * outside of one. Counted from zero when the book was created or loaded.
+	 */
+	public long getVersion() {
+		return stamp >>> 1;
+	}
+
+	/**
+	 * Applies the mutation if the book is still at the expected version, as one
+	 * change however many events it records. Updates of the same book run one
+	 * at a time. An update that records nothing leaves the version as it was.
+	 *
+	 * Threads that write the same book concurrently all have to go through
+	 * update, and for books in a library through BookStorage.update, which also
+	 * keeps the library's indexes consistent.
+	 *
+	 * @return The version after the mutation
+	 * @throws VersionConflictException if the book changed since expectedVersion
+	 */
+	public synchronized long update(long expectedVersion, Consumer<? super Book> mutation) {
+		long before = stamp;
+		if (before >>> 1 != expectedVersion) {
+			throw new VersionConflictException(id, expectedVersion, before >>> 1);
+		}
+		STAMP.getAndAdd(this, 1L);
+		try {
+			mutation.accept(this);
+		} finally {
+			stamp = stamp == before + 1 ? before : before + 2;
+		}
+		return getVersion();
+	}
+
+	/**
+	 * Runs the reader against the book without locking it. If an update changed
+	 * the book meanwhile the reader may have seen it half done, so it is run
+	 * again, which means it must not have side effects. Exceptions from such a
+	 * torn read are dropped as well.
+	 */
+	public <T> T read(Function<? super Book, T> reader) {
+		if (Thread.holdsLock(this)) {
+			// Called from inside an update of this book, which sees its own changes
+			return reader.apply(this);
+		}
+		for (int attempt = 1;; attempt++) {
+			long before = stamp;
+			if ((before & 1) == 0) {
+				try {
+					T result = reader.apply(this);
+					if (unchangedSince(before)) {
+						return result;
+					}
+				} catch (RuntimeException e) {
+					if (unchangedSince(before)) {
+						throw e;
+					}
+				}
+			}
+			if (attempt % SPINS_BEFORE_YIELD == 0) {
+				// The writer may be waiting for this very core
+				Thread.yield();
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	private boolean unchangedSince(long before) {
+		// Keeps the reads of the book from moving past the second look at the stamp
+		VarHandle.acquireFence();
+		return stamp == before;
+	}
+
+	/**
+	 * Called after a setter has changed the given attribute. Books without a
+	 * history only tell their listener, subclasses that keep track of edits
+	 * record the event as well.
+	 */
+	protected void onMetadataChange(String attribute, Object value) {
+		notifyListener(BookEventBuilder.forMetadataChange(attribute, value).build());
+	}
+
+	protected void notifyListener(BookEvent event) {
+		STAMP.getAndAdd(this, 2L);
+		if (listener != null) {
+			listener.eventRecorded(this, event);
+		}
+	}
+
+	/**
+	 * Deserialized books share author names through the pool instead of each
+	 * holding its own copy
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		authorName = StringPool.intern(authorName);
+	}
+
 	@Override
 	public String toString() {
 		return "authorName=" + authorName + ", publicationYear=" + publicationYear + ", pageCount=" + pageCount
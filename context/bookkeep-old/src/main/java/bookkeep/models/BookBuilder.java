@@ -1,5 +1,7 @@
 package bookkeep.models;
 
+import java.util.UUID;
+
 import bookkeep.enums.BookFormat;
 import bookkeep.enums.Genre;
 
@@ -15,6 +17,8 @@ public class BookBuilder {
 	private BookFormat format;
 	/* =========================== WishlistBook fields ========================== */
 	private int price = 0;
+	/* ================================ Identity ================================ */
+	private UUID id;
 
 	private void validateCommonFields() {
 		if (title == null || title.isEmpty()) {
@@ -60,14 +64,30 @@ public class BookBuilder {
 		return this;
 	}
 
+	/**
+	 * Keeps the id of a book that already exists elsewhere, such as in another
+	 * instance of the library. A new id is made up when this is not called.
+	 */
+	public BookBuilder withId(UUID id) {
+		this.id = id;
+		return this;
+	}
+
 	public OwnedBook buildOwnedBook() {
 		validateCommonFields();
-		return new OwnedBook(title, authorName, publicationYear, pageCount, genre, format);
+		return withIdentity(new OwnedBook(title, authorName, publicationYear, pageCount, genre, format));
 	}
 
 	public WishlistBook buildWishlistBook() {
 		validateCommonFields();
-		return new WishlistBook(title, authorName, publicationYear, pageCount, genre, price);
+		return withIdentity(new WishlistBook(title, authorName, publicationYear, pageCount, genre, price));
+	}
+
+	private <T extends Book> T withIdentity(T book) {
+		if (id != null) {
+			book.id = id;
+		}
+		return book;
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,13 @@
+package bookkeep.models;
+
+import bookkeep.models.history.BookEvent;
+
+/**
+ * Callback for the event recorded whenever a book changes. A book has at most
+ * one listener, normally the BookStorage that holds it.
+ */
+@FunctionalInterface
+public interface BookListener {
+
+	void eventRecorded(Book book, BookEvent event);
+}
@@ -1,23 +1,48 @@
 package bookkeep.models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import bookkeep.enums.BookFormat;
+import bookkeep.enums.EventType;
 import bookkeep.enums.Genre;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookEventBuilder;
 import bookkeep.models.history.BookHistory;
+import bookkeep.models.history.BookJournal;
+import bookkeep.models.history.BookSnapshot;
+import bookkeep.models.history.ReadingProgress;
+import bookkeep.models.states.FinishedState;
+import bookkeep.models.states.InProgressState;
 import bookkeep.models.states.NotStartedState;
 import bookkeep.models.states.ReadingState;
 
 public class OwnedBook extends Book {
 
+	// As computed before the journal was added, for saves that predate it
+	private static final long serialVersionUID = 1077309754208301867L;
+
 	private BookFormat format;
-	private ReadingState state;
-	public int pageNumber;
-	private final BookHistory history;
+	/*
+	 * The state and page number are derived from the journal, so they are not
+	 * serialized but rebuilt from the latest snapshot when the book is loaded
+	 */
+	private transient ReadingState state;
+	private transient int pageNumber;
+	// Not final, since readObject assigns them
+	private BookHistory history;
+	private BookJournal journal;
 
 	public OwnedBook() {
 		this.state = new NotStartedState(this);
 		this.history = new BookHistory();
+		this.journal = new BookJournal(BookSnapshot.initial(null, 0, 0, null, null));
 		this.pageNumber = 0;
 	}
 
@@ -27,6 +52,8 @@ public class OwnedBook extends Book {
 		this.format = format;
 		this.state = new NotStartedState(this);
 		this.history = new BookHistory();
+		this.journal = new BookJournal(
+				BookSnapshot.initial(this.authorName, publicationYear, pageCount, genre, format));
 		this.pageNumber = 0;
 	}
 
@@ -37,6 +64,7 @@ public class OwnedBook extends Book {
 
 	public void setFormat(BookFormat format) {
 		this.format = format;
+		onMetadataChange("format", format);
 	}
 
 	// This method should not be used in any applications, only for backend
@@ -45,7 +73,11 @@ public class OwnedBook extends Book {
 		if (0 > pageNumber || pageNumber > pageCount) {
 			throw new IllegalArgumentException("Page number doesn't exist in the book");
 		}
+		if (this.pageNumber == pageNumber) {
+			return;
+		}
 		this.pageNumber = pageNumber;
+		recordEvent(BookEventBuilder.forPageUpdate(pageNumber).build());
 	}
 
 	public int getPageNumber() {
@@ -67,8 +99,64 @@ public class OwnedBook extends Book {
 		return history;
 	}
 
+	public BookJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Every page change with its time, for reading speed and pages per day
+	 */
+	public ReadingProgress getProgress() {
+		return journal.getProgress();
+	}
+
 	// endregion
 
+	/**
+	 * Every mutation of the book ends up here: the event is added to the history
+	 * where it belongs, and always appended to the journal
+	 */
+	public void recordEvent(BookEvent event) {
+		if (event.getType() == EventType.REVIEW) {
+			history.setReview(event);
+		} else {
+			history.addEvent(event);
+		}
+		journal.append(event);
+		notifyListener(event);
+	}
+
+	/**
+	 * Records an event that was made to a copy of this book elsewhere, moving the
+	 * state or page along the way the event says without the checks the state
+	 * makes for a new one. Metadata changes go through the setters instead.
+	 */
+	public void replay(BookEvent event) {
+		switch (event.getType()) {
+			case STARTED_READING -> state = new InProgressState(this);
+			case FINISHED_READING -> state = new FinishedState(this);
+			case PAGE_UPDATE -> pageNumber = event.getPageNumber();
+			case METADATA_CHANGE -> throw new IllegalArgumentException("Metadata changes are replayed through the setters");
+			default -> {
+				// Comments, quotes, afterthoughts and reviews only add to the history
+			}
+		}
+		recordEvent(event);
+	}
+
+	/**
+	 * The state of this book as it was at the given instant, folded from the
+	 * journal
+	 */
+	public BookSnapshot stateAt(Instant instant) {
+		return journal.replayUntil(instant);
+	}
+
+	@Override
+	protected void onMetadataChange(String attribute, Object value) {
+		recordEvent(BookEventBuilder.forMetadataChange(attribute, value).build());
+	}
+
 	public Duration getReadingDuration() {
 		return state.handleReadingDuration();
 	}
@@ -103,4 +191,52 @@ public class OwnedBook extends Book {
 		return state.getStateName();
 	}
 
+	/**
+	 * Rebuilds the derived fields by replaying the journal tail after the latest
+	 * snapshot. Books saved before the journal existed get one rebuilt from their
+	 * history and the page number they were saved with.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		this.format = (BookFormat) fields.get("format", null);
+		this.history = (BookHistory) fields.get("history", null);
+		this.journal = (BookJournal) fields.get("journal", null);
+		if (history == null) {
+			history = new BookHistory();
+		}
+		if (journal == null) {
+			journal = journalFromHistory(fields.get("pageNumber", 0));
+		}
+		BookSnapshot current = journal.replay();
+		this.pageNumber = current.getPageNumber();
+		this.state = switch (current.getStateName()) {
+			case BookSnapshot.IN_PROGRESS -> new InProgressState(this);
+			case BookSnapshot.FINISHED -> new FinishedState(this);
+			default -> new NotStartedState(this);
+		};
+	}
+
+	/**
+	 * The journal of a book saved without one: its history in the order it
+	 * happened, then the page it was on as of its latest event
+	 */
+	private BookJournal journalFromHistory(int savedPageNumber) {
+		BookJournal rebuilt = new BookJournal(
+				BookSnapshot.initial(authorName, publicationYear, pageCount, genre, format));
+		List<BookEvent> events = new ArrayList<>(history.getListOfEvents());
+		for (BookEvent event : Arrays.asList(history.getStartedReading(), history.getFinishedReading(),
+				history.getReview())) {
+			if (event != null) {
+				events.add(event);
+			}
+		}
+		events.sort(Comparator.comparing(BookEvent::getTimestamp));
+		events.forEach(rebuilt::append);
+		if (savedPageNumber > 0) {
+			Instant reached = events.isEmpty() ? Instant.EPOCH : events.get(events.size() - 1).getTimestamp();
+			rebuilt.append(BookEventBuilder.forPageUpdate(savedPageNumber).atTime(reached).build());
+		}
+		return rebuilt;
+	}
+
 }
@@ -0,0 +1,34 @@
+package bookkeep.models;
+
+import java.util.UUID;
+
+/**
+ * An update expected a book at a version it is no longer at, because someone
+ * else changed it first. The caller reads the book again and decides whether
+ * its change still applies.
+ */
+public class VersionConflictException extends IllegalStateException {
+
+	private final UUID bookId;
+	private final long expectedVersion;
+	private final long actualVersion;
+
+	public VersionConflictException(UUID bookId, long expectedVersion, long actualVersion) {
+		super("Book " + bookId + " is at version " + actualVersion + ", not " + expectedVersion);
+		this.bookId = bookId;
+		this.expectedVersion = expectedVersion;
+		this.actualVersion = actualVersion;
+	}
+
+	public UUID getBookId() {
+		return bookId;
+	}
+
+	public long getExpectedVersion() {
+		return expectedVersion;
+	}
+
+	public long getActualVersion() {
+		return actualVersion;
+	}
+}
@@ -5,6 +5,8 @@ import bookkeep.models.history.BookHistory;
 import bookkeep.models.states.ReadingState;
 
 public class WishlistBook extends Book {
+	private static final long serialVersionUID = -2666098105957384683L;
+
 	private int price;
 
 	public WishlistBook() {
@@ -21,6 +23,7 @@ public class WishlistBook extends Book {
 
 	public void setPrice(int price) {
 		this.price = price;
+		onMetadataChange("price", price);
 	}
 
 	@Override
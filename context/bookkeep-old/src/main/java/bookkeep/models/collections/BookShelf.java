@@ -6,12 +6,20 @@ import java.util.List;
 import java.util.UUID;
 
 public class BookShelf implements Serializable {
+	private static final long serialVersionUID = -6423912678123480896L;
+
 	private String name;
 	private final List<UUID> bookUUIDs;
+	/*
+	 * Derived from the books on the shelf, so it is not serialized but rebuilt by
+	 * the BookStorage after loading
+	 */
+	private transient ShelfSummary summary;
 
 	public BookShelf(String name) {
 		this.name = name;
 		bookUUIDs = new ArrayList<>();
+		summary = new ShelfSummary();
 	}
 
 	public void addId(UUID id) {
@@ -38,6 +46,14 @@ public class BookShelf implements Serializable {
 		return bookUUIDs;
 	}
 
+	public ShelfSummary getSummary() {
+		return summary;
+	}
+
+	void resetSummary() {
+		summary = new ShelfSummary();
+	}
+
 	@Override
 	public String toString() {
 		return "{" + name + ", size=" + bookUUIDs.size() + "}";
@@ -1,24 +1,57 @@
 package bookkeep.models.collections;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import bookkeep.analytics.LibraryStatistics;
 import bookkeep.enums.BookFormat;
 import bookkeep.enums.Genre;
+import bookkeep.models.Author;
+import bookkeep.models.AuthorRegistry;
 import bookkeep.models.Book;
 import bookkeep.models.BookBuilder;
+import bookkeep.models.VersionConflictException;
+import bookkeep.models.history.BookEvent;
+import bookkeep.search.SearchHit;
+import bookkeep.search.TextIndex;
 
 public class BookStorage implements Serializable {
+	private static final long serialVersionUID = -6892511968260402254L;
 
 	private final Map<UUID, Book> bookRepository;
 	private final List<BookShelf> bookShelves;
+	private TextIndex textIndex;
+	private AuthorRegistry authorRegistry;
+	private transient LibraryStatistics statistics;
+	private transient List<LibraryListener> listeners;
+	private transient Map<UUID, List<BookShelf>> shelvesByBook;
+	private transient Map<UUID, ShelfContribution> shelfContributions;
+	// The books by position, so a view can page through them without a copy
+	private transient List<Book> bookOrder;
+	private transient Map<UUID, Integer> bookPositions;
+	// Counts changes since this instance was created or loaded
+	private transient long modificationCount;
+	// Taken by update, so the indexes only ever see one change at a time
+	private transient ReentrantLock updateLock;
+	// Created and added to the listeners when it is first asked for
+	private transient LibraryChangeFeed changeFeed;
 
 	private static final BiPredicate<Book, Object> filterByAuthor = (book, author) -> {
 		if (author instanceof String string) {
@@ -40,6 +73,18 @@ public class BookStorage implements Serializable {
 	public BookStorage() {
 		this.bookRepository = new HashMap<>();
 		this.bookShelves = new ArrayList<>();
+		this.listeners = new ArrayList<>();
+		this.textIndex = new TextIndex();
+		this.statistics = new LibraryStatistics();
+		this.authorRegistry = new AuthorRegistry();
+		this.listeners.add(textIndex);
+		this.listeners.add(statistics);
+		this.listeners.add(authorRegistry);
+		this.shelvesByBook = new HashMap<>();
+		this.shelfContributions = new HashMap<>();
+		this.bookOrder = new ArrayList<>();
+		this.bookPositions = new HashMap<>();
+		this.updateLock = new ReentrantLock();
 	}
 
 	/* ========================================================================== */
@@ -48,19 +93,154 @@ public class BookStorage implements Serializable {
 
 	/* ============================== Book Methods ============================== */
 	public void addBook(Book book) {
+		modificationCount++;
 		bookRepository.put(book.getUUID(), book);
+		placeBook(book);
+		book.setListener(this::bookEventRecorded);
+		for (LibraryListener listener : listeners) {
+			listener.bookAdded(book);
+		}
 	}
 
 	public void removeBook(Book book) {
 		UUID id = book.getUUID();
+		modificationCount++;
 		bookRepository.remove(id);
-		for (BookShelf shelf : bookShelves) {
+		unplaceBook(id);
+		List<BookShelf> shelves = shelvesByBook.getOrDefault(id, List.of());
+		for (BookShelf shelf : shelves) {
 			shelf.removeId(id);
+			shelf.getSummary().remove(shelfContributions.get(id));
+		}
+		shelvesByBook.remove(id);
+		shelfContributions.remove(id);
+		book.setListener(null);
+		for (BookShelf shelf : shelves) {
+			fireShelfMembershipChanged(shelf, book, false);
+		}
+		for (LibraryListener listener : listeners) {
+			listener.bookRemoved(book);
 		}
 	}
 
 	public List<Book> getAllBooks() {
-		return bookRepository.values().stream().collect(Collectors.toList());
+		return new ArrayList<>(bookRepository.values());
+	}
+
+	/**
+	 * Read-only view of the books by position, without copying the library. It
+	 * follows the library as it changes: a new book goes to the end, and a
+	 * removed one's place is taken by the last book.
+	 */
+	public List<Book> getBooksView() {
+		return Collections.unmodifiableList(bookOrder);
+	}
+
+	/**
+	 * Visits every book without copying the library into a list first
+	 */
+	public void forEachBook(Consumer<? super Book> action) {
+		bookRepository.values().forEach(action);
+	}
+
+	/**
+	 * Looks a book up by its id, null when it is not in the library
+	 */
+	public Book findBook(UUID id) {
+		return bookRepository.get(id);
+	}
+
+	/**
+	 * Changes the book with the given id if it is still at the expected
+	 * version, see Book.update. Safe to call from several threads at once, and
+	 * alongside read, as long as books are not added or removed meanwhile.
+	 * Updates run one at a time, since the indexes are kept current inside them.
+	 *
+	 * @return The book's version after the mutation
+	 * @throws NoSuchElementException   if no book has the id
+	 * @throws VersionConflictException if the book changed since expectedVersion
+	 */
+	public long update(UUID id, long expectedVersion, Consumer<? super Book> mutation) {
+		Book book = getExistingBook(id);
+		updateLock.lock();
+		try {
+			return book.update(expectedVersion, mutation);
+		} finally {
+			updateLock.unlock();
+		}
+	}
+
+	/**
+	 * Reads the book with the given id without waiting for updates, see
+	 * Book.read
+	 *
+	 * @throws NoSuchElementException if no book has the id
+	 */
+	public <T> T read(UUID id, Function<? super Book, T> reader) {
+		return getExistingBook(id).read(reader);
+	}
+
+	/**
+	 * Drops the documents of replaced reviews and removed books from the text
+	 * index right away, instead of when enough of them piled up. Returns how
+	 * many documents were dropped.
+	 */
+	public int compact() {
+		return textIndex.compact();
+	}
+
+	/**
+	 * Spliterator over a snapshot of the books. Unlike the map's own it splits
+	 * into exact halves, which keeps parallel work over the library balanced.
+	 */
+	public Spliterator<Book> spliterator() {
+		return Arrays.spliterator(bookRepository.values().toArray(new Book[0]));
+	}
+
+	/**
+	 * Goes up with every change to the books, their histories or the shelves,
+	 * so two equal counts of the same instance mean nothing changed in between.
+	 * It starts over at zero when a library is loaded.
+	 */
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
+	/* ============================ Listener Methods ============================ */
+
+	public void addListener(LibraryListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(LibraryListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * The changes to this library as one feed, which starts listening the first
+	 * time it is asked for
+	 */
+	public LibraryChangeFeed getChangeFeed() {
+		if (changeFeed == null) {
+			changeFeed = new LibraryChangeFeed();
+			listeners.add(changeFeed);
+		}
+		return changeFeed;
+	}
+
+	/**
+	 * Counters and histograms for the dashboard, kept current on every change
+	 */
+	public LibraryStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Authors with stable ids and the books of each, kept current on every
+	 * change
+	 */
+	public AuthorRegistry getAuthorRegistry() {
+		return authorRegistry;
 	}
 
 	/* ============================ BookShelf Methods =========================== */
@@ -68,10 +248,29 @@ public class BookStorage implements Serializable {
 	public void addShelf(String name) {
 		BookShelf shelf = new BookShelf(name);
 		bookShelves.add(shelf);
+		modificationCount++;
+		for (LibraryListener listener : listeners) {
+			listener.shelfAdded(name);
+		}
 	}
 
 	public void removeShelf(String name) {
-		bookShelves.removeIf(shelf -> shelf.getName().equals(name));
+		getShelfByName(name).ifPresent(shelf -> {
+			for (UUID id : shelf.getUUIDs()) {
+				unlinkShelf(shelf, id);
+			}
+			bookShelves.remove(shelf);
+			modificationCount++;
+			for (UUID id : shelf.getUUIDs()) {
+				Book book = bookRepository.get(id);
+				if (book != null) {
+					fireShelfMembershipChanged(shelf, book, false);
+				}
+			}
+			for (LibraryListener listener : listeners) {
+				listener.shelfRemoved(name);
+			}
+		});
 	}
 
 	public void addBookToShelf(String shelfName, Book book) {
@@ -80,15 +279,34 @@ public class BookStorage implements Serializable {
 			addBook(book);
 		}
 		// Add the book to the shelf if present
-		getShelfByName(shelfName)
-				.orElseThrow(() -> new IllegalArgumentException("Shelf not found"))
-				.addId(book.getUUID());
+		BookShelf shelf = getShelfByName(shelfName)
+				.orElseThrow(() -> new IllegalArgumentException("Shelf not found"));
+		if (!shelf.contains(book.getUUID())) {
+			shelf.addId(book.getUUID());
+			linkShelf(shelf, book);
+			modificationCount++;
+			fireShelfMembershipChanged(shelf, book, true);
+		}
 	}
 
 	public void removeBookFromShelf(String shelfName, Book book) {
-		getShelfByName(shelfName)
-				.orElseThrow(() -> new IllegalArgumentException("Shelf not found"))
-				.removeId(book.getUUID());
+		BookShelf shelf = getShelfByName(shelfName)
+				.orElseThrow(() -> new IllegalArgumentException("Shelf not found"));
+		if (shelf.contains(book.getUUID())) {
+			shelf.removeId(book.getUUID());
+			unlinkShelf(shelf, book.getUUID());
+			modificationCount++;
+			fireShelfMembershipChanged(shelf, book, false);
+		}
+	}
+
+	/**
+	 * Total pages, share finished and average rating of a shelf, read from its
+	 * materialized summary instead of its books
+	 */
+	public ShelfSummary getShelfSummary(String name) {
+		return getShelfByName(name).orElseThrow(() -> new IllegalArgumentException("Shelf not found"))
+				.getSummary();
 	}
 
 	public List<Book> getBooksFromShelfName(String name) {
@@ -96,6 +314,34 @@ public class BookStorage implements Serializable {
 		return getBooksFromShelf(shelf);
 	}
 
+	/**
+	 * Books of the library that are not on the shelf, in the order of
+	 * getBooksView
+	 */
+	public List<Book> getBooksNotInShelf(String name) {
+		Predicate<Book> notInShelf = notInShelf(name);
+		List<Book> books = new ArrayList<>();
+		for (Book book : bookOrder) {
+			if (notInShelf.test(book)) {
+				books.add(book);
+			}
+		}
+		return books;
+	}
+
+	/**
+	 * Whether a book is off the shelf, answered from the index of shelves by
+	 * book so the shelf's ids never have to be collected. For narrowing
+	 * getBooksView lazily instead of building the whole list.
+	 */
+	public Predicate<Book> notInShelf(String name) {
+		BookShelf shelf = getShelfByName(name).orElseThrow();
+		return book -> {
+			List<BookShelf> shelves = shelvesByBook.get(book.getUUID());
+			return shelves == null || !shelves.contains(shelf);
+		};
+	}
+
 	public List<String> getShelfNames() {
 		return bookShelves.stream()
 				.map(BookShelf::getName)
@@ -104,11 +350,35 @@ public class BookStorage implements Serializable {
 
 	/* ============================ Filtering methods =========================== */
 
+	/**
+	 * Books of the author with this name or any known spelling of it. Names
+	 * that match no author, like a partial name, fall back to a substring
+	 * search.
+	 */
 	public List<Book> getBooksByAuthor(String author) {
+		Author known = authorRegistry.find(author);
+		if (known != null) {
+			return getBooksByAuthor(known.getId());
+		}
 		List<UUID> UUIDsByAuthor = findUUIDsByAuthor(author);
 		return getBooksFromListOfUUIDs(UUIDsByAuthor);
 	}
 
+	public List<Book> getBooksByAuthor(UUID authorId) {
+		Author author = authorRegistry.getAuthor(authorId);
+		if (author == null) {
+			return new ArrayList<>();
+		}
+		return getBooksFromListOfUUIDs(new ArrayList<>(author.getBookIds()));
+	}
+
+	/**
+	 * Full-text search over comments, quotes, afterthoughts and reviews
+	 */
+	public List<SearchHit> searchText(String query, int limit) {
+		return textIndex.search(query, limit);
+	}
+
 	public Book getBookByTitle(String title) {
 		// Beware: Assuming only one book with said title.
 		List<UUID> UUIDsByTitle = findUUIDsByTitle(title);
@@ -140,6 +410,14 @@ public class BookStorage implements Serializable {
 		return bookRepository.get(id);
 	}
 
+	private Book getExistingBook(UUID id) {
+		Book book = bookRepository.get(id);
+		if (book == null) {
+			throw new NoSuchElementException("No book with id " + id);
+		}
+		return book;
+	}
+
 	private Optional<BookShelf> getShelfByName(String name) {
 		return bookShelves.stream()
 				.filter(shelf -> shelf.getName().equals(name))
@@ -154,6 +432,135 @@ public class BookStorage implements Serializable {
 		return UUIDs.stream().map(bookRepository::get).collect(Collectors.toList());
 	}
 
+	/* ================================ Positions =============================== */
+	private void placeBook(Book book) {
+		Integer position = bookPositions.putIfAbsent(book.getUUID(), bookOrder.size());
+		if (position == null) {
+			bookOrder.add(book);
+		} else {
+			bookOrder.set(position, book);
+		}
+	}
+
+	private void unplaceBook(UUID id) {
+		Integer position = bookPositions.remove(id);
+		if (position == null) {
+			return;
+		}
+		// The last book moves into the gap, so removing costs the same anywhere
+		Book last = bookOrder.remove(bookOrder.size() - 1);
+		if (position < bookOrder.size()) {
+			bookOrder.set(position, last);
+			bookPositions.put(last.getUUID(), position);
+		}
+	}
+
+	/* ================================ Listeners =============================== */
+	private void bookEventRecorded(Book book, BookEvent event) {
+		modificationCount++;
+		refreshShelfContribution(book);
+		for (LibraryListener listener : listeners) {
+			listener.eventRecorded(book, event);
+		}
+	}
+
+	private void fireShelfMembershipChanged(BookShelf shelf, Book book, boolean onShelf) {
+		for (LibraryListener listener : listeners) {
+			listener.shelfMembershipChanged(shelf.getName(), book, onShelf);
+		}
+	}
+
+	/* ============================ Shelf Summaries ============================= */
+	private void linkShelf(BookShelf shelf, Book book) {
+		UUID id = book.getUUID();
+		shelvesByBook.computeIfAbsent(id, key -> new ArrayList<>()).add(shelf);
+		ShelfContribution contribution = shelfContributions.computeIfAbsent(id,
+				key -> ShelfContribution.of(book));
+		shelf.getSummary().add(contribution);
+	}
+
+	private void unlinkShelf(BookShelf shelf, UUID id) {
+		List<BookShelf> shelves = shelvesByBook.get(id);
+		if (shelves == null || !shelves.remove(shelf)) {
+			return;
+		}
+		shelf.getSummary().remove(shelfContributions.get(id));
+		if (shelves.isEmpty()) {
+			shelvesByBook.remove(id);
+			shelfContributions.remove(id);
+		}
+	}
+
+	/**
+	 * Swaps the book's old contribution for its current one on every shelf it is
+	 * on, if anything the summaries count has changed
+	 */
+	private void refreshShelfContribution(Book book) {
+		List<BookShelf> shelves = shelvesByBook.get(book.getUUID());
+		if (shelves == null) {
+			return;
+		}
+		ShelfContribution current = ShelfContribution.of(book);
+		ShelfContribution previous = shelfContributions.put(book.getUUID(), current);
+		if (current.equals(previous)) {
+			return;
+		}
+		for (BookShelf shelf : shelves) {
+			shelf.getSummary().remove(previous);
+			shelf.getSummary().add(current);
+		}
+	}
+
+	/**
+	 * Recomputes every shelf summary and the index from books to shelves, for
+	 * shelves that were filled without going through addBookToShelf
+	 */
+	private void rebuildShelfSummaries() {
+		shelvesByBook = new HashMap<>();
+		shelfContributions = new HashMap<>();
+		for (BookShelf shelf : bookShelves) {
+			shelf.resetSummary();
+			for (UUID id : shelf.getUUIDs()) {
+				Book book = bookRepository.get(id);
+				if (book != null) {
+					linkShelf(shelf, book);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Listeners are not serialized, so they are re-attached to every book after
+	 * loading. Libraries saved before the text index or the author registry
+	 * existed get them built here, and the statistics and shelf summaries are
+	 * always recounted from the loaded books.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		listeners = new ArrayList<>();
+		updateLock = new ReentrantLock();
+		bookOrder = new ArrayList<>(bookRepository.size());
+		bookPositions = new HashMap<>();
+		bookRepository.values().forEach(this::placeBook);
+		if (textIndex == null) {
+			textIndex = new TextIndex();
+			bookRepository.values().forEach(textIndex::indexBook);
+		}
+		if (authorRegistry == null) {
+			authorRegistry = new AuthorRegistry();
+			bookRepository.values().forEach(authorRegistry::bookAdded);
+		}
+		statistics = new LibraryStatistics();
+		listeners.add(textIndex);
+		listeners.add(statistics);
+		listeners.add(authorRegistry);
+		for (Book book : bookRepository.values()) {
+			book.setListener(this::bookEventRecorded);
+			statistics.bookAdded(book);
+		}
+		rebuildShelfSummaries();
+	}
+
 	/* ================================ Filtering =============================== */
 	private List<UUID> findUUIDs(BiPredicate<Book, Object> condition, Object value) {
 		return bookRepository.values().stream()
@@ -249,6 +656,7 @@ public class BookStorage implements Serializable {
 		// Add shelves to storage
 		this.bookShelves.add(fictionShelf);
 		this.bookShelves.add(fantasyShelf);
+		rebuildShelfSummaries();
 	}
 
 	@Override
@@ -0,0 +1,61 @@
+package bookkeep.models.collections;
+
+import bookkeep.models.Book;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * One change to a library, as delivered by a LibraryChangeFeed. The kinds are
+ * closed, so a switch over them can cover every case.
+ */
+public sealed interface LibraryChange {
+
+	record BookAdded(Book book) implements LibraryChange {
+	}
+
+	record BookRemoved(Book book) implements LibraryChange {
+	}
+
+	/**
+	 * A setter changed the book's title, author, page count or another
+	 * attribute. The event holds the attribute's name and new value.
+	 */
+	record BookUpdated(Book book, BookEvent event) implements LibraryChange {
+
+		public String attribute() {
+			return event.getAttribute();
+		}
+	}
+
+	/**
+	 * The book was started or finished
+	 */
+	record StateTransitioned(Book book, BookEvent event) implements LibraryChange {
+	}
+
+	/**
+	 * A comment, quote, afterthought, review or page update was added to the
+	 * book's history
+	 */
+	record EventAppended(Book book, BookEvent event) implements LibraryChange {
+	}
+
+	record ShelfAdded(String shelfName) implements LibraryChange {
+	}
+
+	record ShelfRemoved(String shelfName) implements LibraryChange {
+	}
+
+	record ShelfMembershipChanged(String shelfName, Book book, boolean onShelf) implements LibraryChange {
+	}
+
+	/**
+	 * The change a recorded event stands for
+	 */
+	static LibraryChange of(Book book, BookEvent event) {
+		return switch (event.getType()) {
+			case METADATA_CHANGE -> new BookUpdated(book, event);
+			case STARTED_READING, FINISHED_READING -> new StateTransitioned(book, event);
+			default -> new EventAppended(book, event);
+		};
+	}
+}
@@ -0,0 +1,268 @@
+package bookkeep.models.collections;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import bookkeep.models.Book;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * Every change to a library as one stream of typed LibraryChanges, for
+ * subscribers that would rather handle a list of changes than each
+ * LibraryListener callback. BookStorage.getChangeFeed gives each library one,
+ * and a feed added to a BookStorage with addListener receives its changes as
+ * well.
+ *
+ * Synchronous subscribers are called on the thread that changed the library,
+ * before the change returns. One that throws does not keep the change from the
+ * others: the first exception is thrown once every subscriber had the change.
+ * Asynchronous ones each get a bounded queue and a
+ * virtual thread of their own: whatever piled up while the subscriber was busy
+ * is handed over as one list, and a full queue holds up the thread changing
+ * the library until the subscriber catches up, so a slow subscriber slows the
+ * writers down rather than letting the queue grow without end.
+ *
+ * Inside batch, changes are held back and delivered together once it ends, so
+ * a bulk import costs every subscriber one call instead of one per book.
+ */
+public class LibraryChangeFeed implements LibraryListener, AutoCloseable {
+
+	/**
+	 * Receives changes in the order they were made, never an empty list
+	 */
+	@FunctionalInterface
+	public interface Subscriber {
+		void changed(List<LibraryChange> changes);
+	}
+
+	/**
+	 * Stops the deliveries to one subscriber
+	 */
+	public interface Subscription extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	private interface Delivery {
+		void deliver(List<LibraryChange> changes);
+	}
+
+	private final List<Delivery> deliveries = new CopyOnWriteArrayList<>();
+	// Only touched by the thread changing the library, like BookStorage itself
+	private final List<LibraryChange> pending = new ArrayList<>();
+	private int batchDepth;
+
+	/* ============================== Subscribing =============================== */
+
+	/**
+	 * Calls the subscriber on the thread that made each change, or once at the
+	 * end of a batch
+	 */
+	public Subscription subscribe(Subscriber subscriber) {
+		Delivery delivery = subscriber::changed;
+		deliveries.add(delivery);
+		return () -> deliveries.remove(delivery);
+	}
+
+	/**
+	 * Calls the subscriber on a virtual thread of its own. At most capacity
+	 * changes wait for it, beyond that the thread changing the library waits
+	 * too. A batch larger than the capacity is still queued whole, once the
+	 * queue is empty. Closing the subscription delivers what is already queued
+	 * before it returns.
+	 *
+	 * An exception thrown by the subscriber goes to its thread's uncaught
+	 * exception handler, and the deliveries go on with the next changes.
+	 */
+	public Subscription subscribeAsync(Subscriber subscriber, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		QueuedDelivery delivery = new QueuedDelivery(subscriber, capacity);
+		deliveries.add(delivery);
+		return delivery;
+	}
+
+	/**
+	 * Closes every asynchronous subscription, after delivering what they have
+	 * queued
+	 */
+	@Override
+	public void close() {
+		for (Delivery delivery : deliveries) {
+			if (delivery instanceof QueuedDelivery queued) {
+				queued.close();
+			}
+		}
+	}
+
+	/* ================================ Batching ================================ */
+
+	/**
+	 * Runs the changes and delivers everything they changed as one list at the
+	 * end, also when they throw. Batches may be nested, only the outermost one
+	 * delivers.
+	 */
+	public void batch(Runnable changes) {
+		batchDepth++;
+		try {
+			changes.run();
+		} finally {
+			if (--batchDepth == 0 && !pending.isEmpty()) {
+				List<LibraryChange> batch = List.copyOf(pending);
+				pending.clear();
+				publish(batch);
+			}
+		}
+	}
+
+	/* ============================ Listener Methods ============================ */
+
+	@Override
+	public void bookAdded(Book book) {
+		publish(new LibraryChange.BookAdded(book));
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		publish(new LibraryChange.BookRemoved(book));
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		publish(LibraryChange.of(book, event));
+	}
+
+	@Override
+	public void shelfAdded(String shelfName) {
+		publish(new LibraryChange.ShelfAdded(shelfName));
+	}
+
+	@Override
+	public void shelfRemoved(String shelfName) {
+		publish(new LibraryChange.ShelfRemoved(shelfName));
+	}
+
+	@Override
+	public void shelfMembershipChanged(String shelfName, Book book, boolean onShelf) {
+		publish(new LibraryChange.ShelfMembershipChanged(shelfName, book, onShelf));
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void publish(LibraryChange change) {
+		if (batchDepth > 0) {
+			pending.add(change);
+		} else {
+			publish(List.of(change));
+		}
+	}
+
+	private void publish(List<LibraryChange> changes) {
+		RuntimeException failure = null;
+		for (Delivery delivery : deliveries) {
+			try {
+				delivery.deliver(changes);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * The queue of one asynchronous subscriber and the thread draining it
+	 */
+	private final class QueuedDelivery implements Delivery, Subscription {
+		private final Subscriber subscriber;
+		private final int capacity;
+		private final ArrayDeque<LibraryChange> queue = new ArrayDeque<>();
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notEmpty = lock.newCondition();
+		private final Condition notFull = lock.newCondition();
+		private final Thread worker;
+		private boolean closed;
+
+		QueuedDelivery(Subscriber subscriber, int capacity) {
+			this.subscriber = subscriber;
+			this.capacity = capacity;
+			this.worker = Thread.ofVirtual().name("library-changes").start(this::drain);
+		}
+
+		/**
+		 * Waits for room without giving up on interruption, since the change has
+		 * already been made and would otherwise never reach the subscriber
+		 */
+		@Override
+		public void deliver(List<LibraryChange> changes) {
+			lock.lock();
+			try {
+				while (!closed && !queue.isEmpty() && queue.size() + changes.size() > capacity) {
+					notFull.awaitUninterruptibly();
+				}
+				if (!closed) {
+					queue.addAll(changes);
+					notEmpty.signal();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void drain() {
+			while (true) {
+				List<LibraryChange> changes;
+				lock.lock();
+				try {
+					while (queue.isEmpty() && !closed) {
+						notEmpty.awaitUninterruptibly();
+					}
+					if (queue.isEmpty()) {
+						return;
+					}
+					changes = new ArrayList<>(queue);
+					queue.clear();
+					notFull.signalAll();
+				} finally {
+					lock.unlock();
+				}
+				try {
+					subscriber.changed(changes);
+				} catch (RuntimeException e) {
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			deliveries.remove(this);
+			lock.lock();
+			try {
+				closed = true;
+				notEmpty.signalAll();
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			if (Thread.currentThread() != worker) {
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
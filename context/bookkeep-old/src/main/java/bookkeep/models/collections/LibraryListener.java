@@ -0,0 +1,36 @@
+package bookkeep.models.collections;
+
+import bookkeep.models.Book;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * Receives changes made to a BookStorage and the books inside it, so derived
+ * structures can be kept up to date without rescanning the library.
+ */
+public interface LibraryListener {
+
+	default void bookAdded(Book book) {
+	}
+
+	default void bookRemoved(Book book) {
+	}
+
+	default void eventRecorded(Book book, BookEvent event) {
+	}
+
+	default void shelfAdded(String shelfName) {
+	}
+
+	/**
+	 * Called after the shelf's books were taken off it one by one
+	 */
+	default void shelfRemoved(String shelfName) {
+	}
+
+	/**
+	 * A book was put on the shelf, or taken off it when onShelf is false. A
+	 * book removed from the library leaves its shelves before bookRemoved.
+	 */
+	default void shelfMembershipChanged(String shelfName, Book book, boolean onShelf) {
+	}
+}
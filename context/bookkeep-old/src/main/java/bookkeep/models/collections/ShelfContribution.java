@@ -0,0 +1,71 @@
+package bookkeep.models.collections;
+
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.history.BookHistory;
+import bookkeep.models.history.BookSnapshot;
+
+/**
+ * What one book adds to the summary of every shelf it is on. The last one
+ * added is remembered per book, so it can be taken back out exactly when the
+ * book changes or leaves the shelf.
+ */
+final class ShelfContribution {
+
+	static final int NO_RATING = -1;
+
+	private final boolean owned;
+	private final int pageCount;
+	private final int pageNumber;
+	private final boolean finished;
+	private final int rating;
+
+	private ShelfContribution(boolean owned, int pageCount, int pageNumber, boolean finished, int rating) {
+		this.owned = owned;
+		this.pageCount = pageCount;
+		this.pageNumber = pageNumber;
+		this.finished = finished;
+		this.rating = rating;
+	}
+
+	static ShelfContribution of(Book book) {
+		if (!(book instanceof OwnedBook owned)) {
+			return new ShelfContribution(false, book.getPageCount(), 0, false, NO_RATING);
+		}
+		BookHistory history = owned.getHistory();
+		return new ShelfContribution(true, owned.getPageCount(), owned.getPageNumber(),
+				BookSnapshot.FINISHED.equals(owned.getStateName()),
+				history.hasReview() ? history.getReview().getRating() : NO_RATING);
+	}
+
+	boolean isOwned() {
+		return owned;
+	}
+
+	int getPageCount() {
+		return pageCount;
+	}
+
+	int getPageNumber() {
+		return pageNumber;
+	}
+
+	boolean isFinished() {
+		return finished;
+	}
+
+	int getRating() {
+		return rating;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ShelfContribution that && owned == that.owned && pageCount == that.pageCount
+				&& pageNumber == that.pageNumber && finished == that.finished && rating == that.rating;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((pageCount * 31 + pageNumber) * 31 + rating) * 4 + (owned ? 2 : 0) + (finished ? 1 : 0);
+	}
+}
@@ -0,0 +1,77 @@
+package bookkeep.models.collections;
+
+/**
+ * Summary figures of one shelf, kept up to date by the BookStorage as books
+ * are put on or taken off the shelf and as the books on it change, so a shelf
+ * can be summarized without resolving its books.
+ */
+public class ShelfSummary {
+
+	private int bookCount;
+	private int ownedCount;
+	private int finishedCount;
+	private long totalPages;
+	private long pagesRead;
+	private int ratingCount;
+	private long ratingSum;
+
+	void add(ShelfContribution contribution) {
+		apply(contribution, 1);
+	}
+
+	void remove(ShelfContribution contribution) {
+		apply(contribution, -1);
+	}
+
+	private void apply(ShelfContribution contribution, int sign) {
+		bookCount += sign;
+		totalPages += sign * contribution.getPageCount();
+		if (contribution.isOwned()) {
+			ownedCount += sign;
+			pagesRead += sign * contribution.getPageNumber();
+			if (contribution.isFinished()) {
+				finishedCount += sign;
+			}
+			if (contribution.getRating() != ShelfContribution.NO_RATING) {
+				ratingCount += sign;
+				ratingSum += sign * contribution.getRating();
+			}
+		}
+	}
+
+	public int getBookCount() {
+		return bookCount;
+	}
+
+	public int getFinishedCount() {
+		return finishedCount;
+	}
+
+	public long getTotalPages() {
+		return totalPages;
+	}
+
+	public long getPagesRead() {
+		return pagesRead;
+	}
+
+	/**
+	 * Share of the owned books on the shelf that are finished, from 0 to 100
+	 */
+	public double getPercentFinished() {
+		return ownedCount == 0 ? 0 : 100.0 * finishedCount / ownedCount;
+	}
+
+	/**
+	 * Average rating of the reviewed books on the shelf, 0 if none are reviewed
+	 */
+	public double getAverageRating() {
+		return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d books, %d pages, %.0f%% finished, average rating %.1f", bookCount, totalPages,
+				getPercentFinished(), getAverageRating());
+	}
+}
@@ -1,10 +1,13 @@
 package bookkeep.models.history;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 
 import bookkeep.enums.EventType;
+import bookkeep.util.StringPool;
 
 /**
  * Represents an event related to a book's history, such as starting, stopping,
@@ -26,15 +29,21 @@ import bookkeep.enums.EventType;
  * 
  * @param rating     A rating from 0 to 5.
  *                   Used only for REVIEW.
+ * 
+ * @param attribute  The name of the book attribute that changed.
+ *                   Used only for METADATA_CHANGE, where text holds the new
+ *                   value.
  */
 
 public class BookEvent implements Serializable {
+	private static final long serialVersionUID = -8012306250520095499L;
 
 	private Instant timestamp;
 	private EventType type;
 	private String text;
 	private int pageNumber;
 	private int rating;
+	private String attribute;
 
 	private static DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 	private static final int LOWEST_RATING = 0;
@@ -49,6 +58,7 @@ public class BookEvent implements Serializable {
 		this.text = builder.getText();
 		this.pageNumber = builder.getPageNumber();
 		this.rating = builder.getRating();
+		this.attribute = builder.getAttribute();
 	}
 
 	/**
@@ -78,6 +88,19 @@ public class BookEvent implements Serializable {
 		return rating;
 	}
 
+	public String getAttribute() {
+		return attribute;
+	}
+
+	/**
+	 * Comments and quotes repeat across re-reads, so deserialized text is shared
+	 * through the pool
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		text = StringPool.intern(text);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -86,6 +109,9 @@ public class BookEvent implements Serializable {
 		sb.append(", type=").append(type);
 		sb.append(", text=").append(text);
 		sb.append(", pageNumber=").append(pageNumber);
+		if (attribute != null) {
+			sb.append(", attribute=").append(attribute);
+		}
 		sb.append('}');
 		return sb.toString();
 	}
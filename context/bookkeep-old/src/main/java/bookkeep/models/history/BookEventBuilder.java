@@ -3,6 +3,7 @@ package bookkeep.models.history;
 import java.time.Instant;
 
 import bookkeep.enums.EventType;
+import bookkeep.util.StringPool;
 
 /**
  * Builder class for creating BookEvent objects with a fluent API.
@@ -14,6 +15,7 @@ public class BookEventBuilder {
     private String text;
     private int pageNumber;
     private int rating;
+    private String attribute;
     private Instant timestamp;
     
     private static final int LOWEST_RATING = 0;
@@ -50,7 +52,7 @@ public class BookEventBuilder {
         }
         BookEventBuilder builder = new BookEventBuilder();
         builder.type = EventType.COMMENT;
-        builder.text = comment;
+        builder.text = StringPool.intern(comment);
         return builder;
     }
     
@@ -63,7 +65,7 @@ public class BookEventBuilder {
         }
         BookEventBuilder builder = new BookEventBuilder();
         builder.type = EventType.QUOTE;
-        builder.text = quote;
+        builder.text = StringPool.intern(quote);
         return builder;
     }
     
@@ -76,7 +78,7 @@ public class BookEventBuilder {
         }
         BookEventBuilder builder = new BookEventBuilder();
         builder.type = EventType.AFTERTHOUGHT;
-        builder.text = afterthought;
+        builder.text = StringPool.intern(afterthought);
         return builder;
     }
     
@@ -92,16 +94,44 @@ public class BookEventBuilder {
         }
         BookEventBuilder builder = new BookEventBuilder();
         builder.type = EventType.REVIEW;
-        builder.text = reviewText;
+        builder.text = StringPool.intern(reviewText);
         builder.rating = rating;
         return builder;
     }
     
+    /**
+     * Creates a builder for a PAGE_UPDATE event
+     */
+    public static BookEventBuilder forPageUpdate(int pageNumber) {
+        if (pageNumber < 0) {
+            throw new IllegalArgumentException("Page number must be non-negative");
+        }
+        BookEventBuilder builder = new BookEventBuilder();
+        builder.type = EventType.PAGE_UPDATE;
+        builder.pageNumber = pageNumber;
+        return builder;
+    }
+    
+    /**
+     * Creates a builder for a METADATA_CHANGE event, the new value is kept as text
+     */
+    public static BookEventBuilder forMetadataChange(String attribute, Object value) {
+        if (attribute == null || attribute.trim().isEmpty()) {
+            throw new IllegalArgumentException("Attribute name cannot be null or empty");
+        }
+        BookEventBuilder builder = new BookEventBuilder();
+        builder.type = EventType.METADATA_CHANGE;
+        builder.attribute = attribute;
+        builder.text = value == null ? null : StringPool.intern(value.toString());
+        return builder;
+    }
+    
     /**
      * Sets the page number for events that support it (COMMENT, QUOTE, AFTERTHOUGHT)
      */
     public BookEventBuilder atPage(int pageNumber) {
-        if (type == EventType.STARTED_READING || type == EventType.FINISHED_READING) {
+        if (type == EventType.STARTED_READING || type == EventType.FINISHED_READING
+                || type == EventType.METADATA_CHANGE) {
             throw new IllegalArgumentException("Page number cannot be set for " + type + " events");
         }
         if (type == EventType.REVIEW) {
@@ -149,6 +179,10 @@ public class BookEventBuilder {
         return rating;
     }
     
+    String getAttribute() {
+        return attribute;
+    }
+    
     Instant getTimestamp() {
         return timestamp;
     }
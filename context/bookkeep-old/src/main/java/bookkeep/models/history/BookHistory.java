@@ -12,6 +12,8 @@ import java.util.function.Predicate;
 import bookkeep.enums.EventType;
 
 public class BookHistory implements Serializable {
+	private static final long serialVersionUID = -2173882480784118558L;
+
 	private final List<BookEvent> listOfEvents;
 	private BookEvent startedReading;
 	private BookEvent finishedReading;
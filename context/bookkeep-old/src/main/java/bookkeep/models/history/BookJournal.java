@@ -0,0 +1,134 @@
+package bookkeep.models.history;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import bookkeep.enums.EventType;
+
+/**
+ * Append-only log of every mutation made to an OwnedBook: state transitions,
+ * page updates, comments, quotes, reviews and metadata edits. The current
+ * state of the book is a fold over this log.
+ *
+ * Every SNAPSHOT_INTERVAL events the folded state is kept as a BookSnapshot,
+ * so rebuilding the current state (or the state at some earlier instant) only
+ * replays the events after the closest snapshot. The log is assumed to be in
+ * chronological order, which holds as long as events are appended as they
+ * happen.
+ *
+ * Page updates are by far the most frequent mutation, so they are not kept as
+ * BookEvent objects: they go into a compact ReadingProgress series, which is
+ * the page column of the log and is consulted when folding.
+ */
+public class BookJournal implements Serializable {
+
+	private static final long serialVersionUID = 1676955096077819131L;
+
+	static final int SNAPSHOT_INTERVAL = 64;
+
+	private final List<BookEvent> events;
+	private final List<BookSnapshot> snapshots;
+	private final ReadingProgress progress;
+
+	public BookJournal(BookSnapshot initial) {
+		this.events = new ArrayList<>();
+		this.snapshots = new ArrayList<>();
+		this.snapshots.add(initial);
+		this.progress = new ReadingProgress();
+	}
+
+	public void append(BookEvent event) {
+		if (event.getType() == EventType.PAGE_UPDATE) {
+			progress.append(event.getTimestamp(), event.getPageNumber());
+			return;
+		}
+		events.add(event);
+		BookSnapshot latest = latestSnapshot();
+		if (events.size() - latest.getJournalSize() >= SNAPSHOT_INTERVAL) {
+			snapshots.add(foldTail(latest, Instant.MAX));
+		}
+	}
+
+	/**
+	 * The current state of the book
+	 */
+	public BookSnapshot replay() {
+		return foldTail(latestSnapshot(), Instant.MAX);
+	}
+
+	/**
+	 * The state of the book as it was at the given instant, for questions like
+	 * "what page was I on last Tuesday"
+	 */
+	public BookSnapshot replayUntil(Instant instant) {
+		return foldTail(snapshotAtOrBefore(instant), instant);
+	}
+
+	public List<BookEvent> getEvents() {
+		return Collections.unmodifiableList(events);
+	}
+
+	public List<BookSnapshot> getSnapshots() {
+		return Collections.unmodifiableList(snapshots);
+	}
+
+	public ReadingProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Number of events kept in the log, page updates are counted by the
+	 * progress series instead
+	 */
+	public int size() {
+		return events.size();
+	}
+
+	/* ================================ Internals =============================== */
+
+	private BookSnapshot latestSnapshot() {
+		return snapshots.get(snapshots.size() - 1);
+	}
+
+	/**
+	 * Binary search for the last snapshot taken no later than the instant. The
+	 * initial snapshot is used for instants before the book existed.
+	 */
+	private BookSnapshot snapshotAtOrBefore(Instant instant) {
+		int low = 1;
+		int high = snapshots.size() - 1;
+		int found = 0;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (snapshots.get(mid).getTimestamp().isAfter(instant)) {
+				high = mid - 1;
+			} else {
+				found = mid;
+				low = mid + 1;
+			}
+		}
+		return snapshots.get(found);
+	}
+
+	private BookSnapshot foldTail(BookSnapshot base, Instant until) {
+		BookSnapshot state = base;
+		for (int i = base.getJournalSize(); i < events.size(); i++) {
+			BookEvent event = events.get(i);
+			if (event.getTimestamp().isAfter(until)) {
+				break;
+			}
+			state = state.apply(event);
+		}
+		// Every page change is in the progress series, so before its first sample
+		// the book is still on the page it was created with
+		return state.withPageNumber(progress.pageAt(until, snapshots.get(0).getPageNumber()));
+	}
+
+	@Override
+	public String toString() {
+		return "BookJournal{events=" + events.size() + ", snapshots=" + snapshots.size() + "}";
+	}
+}
@@ -0,0 +1,187 @@
+package bookkeep.models.history;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+
+/**
+ * Immutable picture of an OwnedBook's state after a number of journal events
+ * have been folded into it. The journal keeps one of these every so often so
+ * that rebuilding the current state only has to replay the tail of the log.
+ *
+ * Comments, quotes and afterthoughts do not change any of the fields here,
+ * they live in the BookHistory and are only counted by journalSize. Folding a
+ * PAGE_UPDATE event works, but the journal takes page numbers from its
+ * ReadingProgress series.
+ */
+public final class BookSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 2343397543939510915L;
+
+	public static final String NOT_STARTED = "NotStartedState";
+	public static final String IN_PROGRESS = "InProgressState";
+	public static final String FINISHED = "FinishedState";
+
+	private final int journalSize;
+	private final Instant timestamp;
+	private final String stateName;
+	private final int pageNumber;
+	private final String authorName;
+	private final int publicationYear;
+	private final int pageCount;
+	private final Genre genre;
+	private final BookFormat format;
+	private final BookEvent startedReading;
+	private final BookEvent finishedReading;
+	private final BookEvent review;
+
+	private BookSnapshot(int journalSize, Instant timestamp, String stateName, int pageNumber, String authorName,
+			int publicationYear, int pageCount, Genre genre, BookFormat format, BookEvent startedReading,
+			BookEvent finishedReading, BookEvent review) {
+		this.journalSize = journalSize;
+		this.timestamp = timestamp;
+		this.stateName = stateName;
+		this.pageNumber = pageNumber;
+		this.authorName = authorName;
+		this.publicationYear = publicationYear;
+		this.pageCount = pageCount;
+		this.genre = genre;
+		this.format = format;
+		this.startedReading = startedReading;
+		this.finishedReading = finishedReading;
+		this.review = review;
+	}
+
+	/**
+	 * The state of a freshly created book, before any event has happened
+	 */
+	public static BookSnapshot initial(String authorName, int publicationYear, int pageCount, Genre genre,
+			BookFormat format) {
+		return new BookSnapshot(0, Instant.now(), NOT_STARTED, 0, authorName, publicationYear, pageCount, genre,
+				format, null, null, null);
+	}
+
+	/**
+	 * Folds one event into this snapshot, returning the resulting state
+	 */
+	public BookSnapshot apply(BookEvent event) {
+		String stateName = this.stateName;
+		int pageNumber = this.pageNumber;
+		String authorName = this.authorName;
+		int publicationYear = this.publicationYear;
+		int pageCount = this.pageCount;
+		Genre genre = this.genre;
+		BookFormat format = this.format;
+		BookEvent startedReading = this.startedReading;
+		BookEvent finishedReading = this.finishedReading;
+		BookEvent review = this.review;
+
+		switch (event.getType()) {
+			case STARTED_READING -> {
+				stateName = IN_PROGRESS;
+				startedReading = event;
+			}
+			case FINISHED_READING -> {
+				stateName = FINISHED;
+				finishedReading = event;
+			}
+			case PAGE_UPDATE -> pageNumber = event.getPageNumber();
+			case REVIEW -> review = event;
+			case METADATA_CHANGE -> {
+				String value = event.getText();
+				switch (event.getAttribute()) {
+					case "authorName" -> authorName = value;
+					case "publicationYear" -> publicationYear = Integer.parseInt(value);
+					case "pageCount" -> pageCount = Integer.parseInt(value);
+					case "genre" -> genre = value == null ? null : Genre.valueOf(value);
+					case "format" -> format = value == null ? null : BookFormat.valueOf(value);
+					default -> {
+						// Unknown attributes are kept in the log but do not affect the state
+					}
+				}
+			}
+			default -> {
+				// COMMENT, QUOTE and AFTERTHOUGHT only add to the history
+			}
+		}
+
+		return new BookSnapshot(journalSize + 1, event.getTimestamp(), stateName, pageNumber, authorName,
+				publicationYear, pageCount, genre, format, startedReading, finishedReading, review);
+	}
+
+	/**
+	 * Copy with the page number taken from the progress series, which holds the
+	 * page updates instead of the event log
+	 */
+	public BookSnapshot withPageNumber(int pageNumber) {
+		if (pageNumber == this.pageNumber) {
+			return this;
+		}
+		return new BookSnapshot(journalSize, timestamp, stateName, pageNumber, authorName, publicationYear,
+				pageCount, genre, format, startedReading, finishedReading, review);
+	}
+
+	// region Getters
+	/**
+	 * Number of journal events folded into this snapshot
+	 */
+	public int getJournalSize() {
+		return journalSize;
+	}
+
+	/**
+	 * Time of the last folded event, or of creation for the initial snapshot
+	 */
+	public Instant getTimestamp() {
+		return timestamp;
+	}
+
+	public String getStateName() {
+		return stateName;
+	}
+
+	public int getPageNumber() {
+		return pageNumber;
+	}
+
+	public String getAuthorName() {
+		return authorName;
+	}
+
+	public int getPublicationYear() {
+		return publicationYear;
+	}
+
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	public Genre getGenre() {
+		return genre;
+	}
+
+	public BookFormat getFormat() {
+		return format;
+	}
+
+	public BookEvent getStartedReading() {
+		return startedReading;
+	}
+
+	public BookEvent getFinishedReading() {
+		return finishedReading;
+	}
+
+	public BookEvent getReview() {
+		return review;
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "BookSnapshot{journalSize=" + journalSize + ", timestamp=" + timestamp + ", state=" + stateName
+				+ ", pageNumber=" + pageNumber + "}";
+	}
+}
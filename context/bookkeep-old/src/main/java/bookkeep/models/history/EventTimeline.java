@@ -0,0 +1,103 @@
+package bookkeep.models.history;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import bookkeep.enums.EventType;
+
+/**
+ * The rendered lines of a book's timeline, oldest first: started and finished
+ * reading, comments, quotes and afterthoughts, as "yyyy-MM-dd HH:mm | TYPE |
+ * text".
+ *
+ * It is built by merging the history's columns, which are each already in
+ * time order, on their timestamps, and new events are appended or inserted at
+ * their place in time. Every event is formatted once, with one shared
+ * formatter.
+ */
+public class EventTimeline {
+
+	private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+	private final ZoneId zone;
+	private final List<Instant> timestamps = new ArrayList<>();
+	private final List<String> lines = new ArrayList<>();
+
+	public EventTimeline(BookHistory history, ZoneId zone) {
+		this.zone = zone;
+		List<BookEvent> transitions = new ArrayList<>(2);
+		if (history.getStartedReading() != null) {
+			transitions.add(history.getStartedReading());
+		}
+		if (history.getFinishedReading() != null) {
+			transitions.add(history.getFinishedReading());
+		}
+		List<BookEvent> entries = history.getListOfEvents();
+		if (!isChronological(entries)) {
+			entries = new ArrayList<>(entries);
+			entries.sort((e1, e2) -> e1.getTimestamp().compareTo(e2.getTimestamp()));
+		}
+
+		int t = 0;
+		int e = 0;
+		while (t < transitions.size() || e < entries.size()) {
+			boolean takeTransition = e == entries.size() || (t < transitions.size()
+					&& !transitions.get(t).getTimestamp().isAfter(entries.get(e).getTimestamp()));
+			add(lines.size(), takeTransition ? transitions.get(t++) : entries.get(e++));
+		}
+	}
+
+	public static boolean shows(EventType type) {
+		return switch (type) {
+			case STARTED_READING, FINISHED_READING, COMMENT, QUOTE, AFTERTHOUGHT -> true;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Adds a newly recorded event at its place in time, after any events with
+	 * the same timestamp. Events the timeline does not show are ignored.
+	 */
+	public void append(BookEvent event) {
+		if (!shows(event.getType())) {
+			return;
+		}
+		int position = lines.size();
+		while (position > 0 && timestamps.get(position - 1).isAfter(event.getTimestamp())) {
+			position--;
+		}
+		add(position, event);
+	}
+
+	public List<String> getLines() {
+		return Collections.unmodifiableList(lines);
+	}
+
+	public int size() {
+		return lines.size();
+	}
+
+	public String render(BookEvent event) {
+		String text = event.getText() != null ? event.getText() : "";
+		String time = FORMATTER.format(event.getTimestamp().atZone(zone));
+		return time + " | " + event.getType() + (text.isEmpty() ? "" : " | " + text);
+	}
+
+	private void add(int position, BookEvent event) {
+		timestamps.add(position, event.getTimestamp());
+		lines.add(position, render(event));
+	}
+
+	private static boolean isChronological(List<BookEvent> events) {
+		for (int i = 1; i < events.size(); i++) {
+			if (events.get(i).getTimestamp().isBefore(events.get(i - 1).getTimestamp())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
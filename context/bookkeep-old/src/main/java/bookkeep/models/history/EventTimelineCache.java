@@ -0,0 +1,47 @@
+package bookkeep.models.history;
+
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import bookkeep.models.Book;
+import bookkeep.models.collections.LibraryListener;
+
+/**
+ * Rendered timelines per book, built the first time a book is shown and then
+ * kept current as a LibraryListener: recorded events are appended to the
+ * cached timeline and removed books are dropped.
+ */
+public class EventTimelineCache implements LibraryListener {
+
+	private final ZoneId zone;
+	private final Map<UUID, EventTimeline> timelines = new HashMap<>();
+
+	public EventTimelineCache(ZoneId zone) {
+		this.zone = zone;
+	}
+
+	public EventTimeline get(Book book) {
+		return timelines.computeIfAbsent(book.getUUID(), id -> new EventTimeline(book.getHistory(), zone));
+	}
+
+	public void clear() {
+		timelines.clear();
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookRemoved(Book book) {
+		timelines.remove(book.getUUID());
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		EventTimeline timeline = timelines.get(book.getUUID());
+		if (timeline != null) {
+			timeline.append(event);
+		}
+	}
+}
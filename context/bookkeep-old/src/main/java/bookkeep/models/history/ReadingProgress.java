@@ -0,0 +1,290 @@
+package bookkeep.models.history;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Compact time series of page numbers for one book. Each sample is stored as
+ * two zigzag varints in a byte buffer: the delta in seconds from the previous
+ * sample and the delta in pages. A typical update a few minutes and a few
+ * pages after the previous one costs three to four bytes.
+ *
+ * Every CHECKPOINT_INTERVAL samples the buffer offset and the absolute values
+ * the next deltas are relative to are kept in small primitive arrays, so
+ * looking up the page at a given time only decodes from the closest
+ * checkpoint.
+ */
+public class ReadingProgress implements Serializable {
+
+	// As computed before append and writeObject were synchronized
+	private static final long serialVersionUID = 2524368353940167415L;
+
+	static final int CHECKPOINT_INTERVAL = 128;
+
+	private byte[] buffer = new byte[16];
+	private int byteSize;
+	private int sampleCount;
+	private long firstEpochSecond;
+	private long lastEpochSecond;
+	private int lastPage;
+	private int previousPage;
+
+	private int[] checkpointOffsets = new int[1];
+	private long[] checkpointSeconds = new long[1];
+	private int[] checkpointPages = new int[1];
+	private int checkpointCount;
+
+	/**
+	 * Receives decoded samples in order
+	 */
+	@FunctionalInterface
+	public interface SampleConsumer {
+		void accept(long epochSecond, int pageNumber);
+	}
+
+	/**
+	 * Downsampled points ready for plotting, in chronological order
+	 */
+	public static final class Points {
+		private final long[] epochSeconds;
+		private final int[] pageNumbers;
+
+		Points(long[] epochSeconds, int[] pageNumbers) {
+			this.epochSeconds = epochSeconds;
+			this.pageNumbers = pageNumbers;
+		}
+
+		public int size() {
+			return epochSeconds.length;
+		}
+
+		public long getEpochSecond(int index) {
+			return epochSeconds[index];
+		}
+
+		public int getPageNumber(int index) {
+			return pageNumbers[index];
+		}
+	}
+
+	/**
+	 * Synchronized with writeObject, so a save running on another thread
+	 * writes either all or nothing of a sample
+	 */
+	public synchronized void append(Instant timestamp, int pageNumber) {
+		long epochSecond = timestamp.getEpochSecond();
+		if (sampleCount == 0) {
+			firstEpochSecond = epochSecond;
+		}
+		if (sampleCount % CHECKPOINT_INTERVAL == 0) {
+			addCheckpoint();
+		}
+		writeVarLong(epochSecond - lastEpochSecond);
+		writeVarLong(pageNumber - lastPage);
+		lastEpochSecond = epochSecond;
+		previousPage = lastPage;
+		lastPage = pageNumber;
+		sampleCount++;
+	}
+
+	public int size() {
+		return sampleCount;
+	}
+
+	public boolean isEmpty() {
+		return sampleCount == 0;
+	}
+
+	/**
+	 * Bytes used by the encoded samples, not counting the checkpoints
+	 */
+	public int getByteSize() {
+		return byteSize;
+	}
+
+	public int getLastPage() {
+		return lastPage;
+	}
+
+	/**
+	 * The page before the last sample, so the size of the latest update is known
+	 * without decoding
+	 */
+	public int getPreviousPage() {
+		return previousPage;
+	}
+
+	public Instant getLastTimestamp() {
+		return isEmpty() ? null : Instant.ofEpochSecond(lastEpochSecond);
+	}
+
+	public void forEach(SampleConsumer consumer) {
+		decode(0, 0, 0, sampleCount, consumer);
+	}
+
+	/**
+	 * The page of the last sample at or before the instant, or defaultPage if
+	 * there was no sample yet
+	 */
+	public int pageAt(Instant instant, int defaultPage) {
+		long target = instant.getEpochSecond();
+		if (isEmpty() || firstEpochSecond > target) {
+			return defaultPage;
+		}
+		if (target >= lastEpochSecond) {
+			return lastPage;
+		}
+
+		// Samples before the checkpoint are all at or before its base time, and
+		// samples after the next checkpoint are all after the target
+		int checkpoint = lastCheckpointAtOrBefore(target);
+		int[] result = { checkpointPages[checkpoint] };
+		int count = Math.min(CHECKPOINT_INTERVAL, sampleCount - checkpoint * CHECKPOINT_INTERVAL);
+		decode(checkpointOffsets[checkpoint], checkpointSeconds[checkpoint], checkpointPages[checkpoint], count,
+				(second, page) -> {
+					if (second <= target) {
+						result[0] = page;
+					}
+				});
+		return result[0];
+	}
+
+	/**
+	 * Reduces the series to at most maxPoints by splitting the covered time span
+	 * into equal buckets and keeping the last sample in each bucket. Runs in one
+	 * decoding pass without materializing the full series.
+	 */
+	public Points downsample(int maxPoints) {
+		if (isEmpty() || maxPoints <= 0) {
+			return new Points(new long[0], new int[0]);
+		}
+		if (sampleCount <= maxPoints) {
+			long[] seconds = new long[sampleCount];
+			int[] pages = new int[sampleCount];
+			int[] index = { 0 };
+			forEach((second, page) -> {
+				seconds[index[0]] = second;
+				pages[index[0]] = page;
+				index[0]++;
+			});
+			return new Points(seconds, pages);
+		}
+
+		long start = firstEpochSecond;
+		long span = Math.max(1, lastEpochSecond - start + 1);
+		long[] seconds = new long[maxPoints];
+		int[] pages = new int[maxPoints];
+		boolean[] filled = new boolean[maxPoints];
+		forEach((second, page) -> {
+			int bucket = (int) Math.min(maxPoints - 1, Math.max(0, (second - start) * maxPoints / span));
+			seconds[bucket] = second;
+			pages[bucket] = page;
+			filled[bucket] = true;
+		});
+
+		int used = 0;
+		for (int i = 0; i < maxPoints; i++) {
+			if (filled[i]) {
+				seconds[used] = seconds[i];
+				pages[used] = pages[i];
+				used++;
+			}
+		}
+		return new Points(Arrays.copyOf(seconds, used), Arrays.copyOf(pages, used));
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void decode(int offset, long seconds, int page, int count, SampleConsumer consumer) {
+		int[] position = { offset };
+		for (int i = 0; i < count; i++) {
+			seconds += readVarLong(position);
+			page += (int) readVarLong(position);
+			consumer.accept(seconds, page);
+		}
+	}
+
+	private int lastCheckpointAtOrBefore(long epochSecond) {
+		int low = 0;
+		int high = checkpointCount - 1;
+		int found = 0;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (checkpointSeconds[mid] <= epochSecond) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	private void addCheckpoint() {
+		if (checkpointCount == checkpointOffsets.length) {
+			int newLength = checkpointCount * 2;
+			checkpointOffsets = Arrays.copyOf(checkpointOffsets, newLength);
+			checkpointSeconds = Arrays.copyOf(checkpointSeconds, newLength);
+			checkpointPages = Arrays.copyOf(checkpointPages, newLength);
+		}
+		checkpointOffsets[checkpointCount] = byteSize;
+		checkpointSeconds[checkpointCount] = lastEpochSecond;
+		checkpointPages[checkpointCount] = lastPage;
+		checkpointCount++;
+	}
+
+	private void writeVarLong(long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		if (byteSize + 10 > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, byteSize + 10));
+		}
+		while ((zigzag & ~0x7FL) != 0) {
+			buffer[byteSize++] = (byte) ((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		buffer[byteSize++] = (byte) zigzag;
+	}
+
+	private long readVarLong(int[] position) {
+		long zigzag = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer[position[0]++];
+			zigzag |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	/**
+	 * Writes the buffer trimmed to its used size. The trimmed copy only goes to
+	 * the stream, so the buffer keeps its room for the next appends. Holds the
+	 * same lock as append, so the counts and checkpoints written always match
+	 * the bytes.
+	 */
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		int size = byteSize;
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("buffer", Arrays.copyOf(buffer, size));
+		fields.put("byteSize", size);
+		fields.put("sampleCount", sampleCount);
+		fields.put("firstEpochSecond", firstEpochSecond);
+		fields.put("lastEpochSecond", lastEpochSecond);
+		fields.put("lastPage", lastPage);
+		fields.put("previousPage", previousPage);
+		fields.put("checkpointOffsets", checkpointOffsets);
+		fields.put("checkpointSeconds", checkpointSeconds);
+		fields.put("checkpointPages", checkpointPages);
+		fields.put("checkpointCount", checkpointCount);
+		out.writeFields();
+	}
+
+	@Override
+	public String toString() {
+		return "ReadingProgress{samples=" + sampleCount + ", bytes=" + byteSize + "}";
+	}
+}
@@ -9,6 +9,7 @@ import bookkeep.models.history.BookEvent;
 import bookkeep.models.history.BookEventBuilder;
 
 public class FinishedState extends ReadingState {
+	private static final long serialVersionUID = -6135751396727904777L;
 
 	public FinishedState(OwnedBook book) {
 		super(book);
@@ -33,13 +34,13 @@ public class FinishedState extends ReadingState {
 	public void handleComment(String comment) {
 		// A comment in FinishedState becomes an afterthought
 		BookEvent afterThoughtEvent = BookEventBuilder.forAfterthought(comment).atPage(book.getPageNumber()).build();
-		book.getHistory().addEvent(afterThoughtEvent);
+		book.recordEvent(afterThoughtEvent);
 	}
 
 	@Override
 	public void handleQuote(String quote, int quotePageNumber) {
 		BookEvent quoteEvent = BookEventBuilder.forQuote(quote).atPage(quotePageNumber).build();
-		book.getHistory().addEvent(quoteEvent);
+		book.recordEvent(quoteEvent);
 	}
 
 	@Override
@@ -51,7 +52,7 @@ public class FinishedState extends ReadingState {
 		}
 
 		BookEvent reviewEvent = BookEventBuilder.forReview(reviewText, rating).build();
-		book.getHistory().setReview(reviewEvent);
+		book.recordEvent(reviewEvent);
 	}
 
 	@Override
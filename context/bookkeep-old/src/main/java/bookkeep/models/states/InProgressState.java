@@ -9,6 +9,7 @@ import bookkeep.models.history.BookEvent;
 import bookkeep.models.history.BookEventBuilder;
 
 public class InProgressState extends ReadingState {
+	private static final long serialVersionUID = 6327572262819747288L;
 
 	public InProgressState(OwnedBook book) {
 		super(book);
@@ -23,7 +24,7 @@ public class InProgressState extends ReadingState {
 	public void stopReading() {
 		book.setState(new FinishedState(book));
 		BookEvent finishedReadingEvent = BookEventBuilder.forFinishedReading().build();
-		book.getHistory().addEvent(finishedReadingEvent);
+		book.recordEvent(finishedReadingEvent);
 	}
 
 	@Override
@@ -35,13 +36,13 @@ public class InProgressState extends ReadingState {
 	public void handleComment(String comment) {
 		BookEvent commentEvent = BookEventBuilder.forComment(comment).atPage(book.getPageNumber()).build();
 
-		book.getHistory().addEvent(commentEvent);
+		book.recordEvent(commentEvent);
 	}
 
 	@Override
 	public void handleQuote(String quote, int quotePageNumber) {
 		BookEvent quoteEvent = BookEventBuilder.forQuote(quote).atPage(quotePageNumber).build();
-		book.getHistory().addEvent(quoteEvent);
+		book.recordEvent(quoteEvent);
 	}
 
 	@Override
@@ -8,6 +8,7 @@ import bookkeep.models.history.BookEvent;
 import bookkeep.models.history.BookEventBuilder;
 
 public class NotStartedState extends ReadingState {
+	private static final long serialVersionUID = -411778271639627776L;
 
 	public NotStartedState(OwnedBook book) {
 		super(book);
@@ -17,7 +18,7 @@ public class NotStartedState extends ReadingState {
 	public void startReading() {
 		book.setState(new InProgressState(book));
 		BookEvent startedReadingEvent = BookEventBuilder.forStartedReading().build();
-		book.getHistory().addEvent(startedReadingEvent);
+		book.recordEvent(startedReadingEvent);
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import java.time.Duration;
 import bookkeep.models.OwnedBook;
 
 public abstract class ReadingState implements Serializable {
+	private static final long serialVersionUID = 107108170233119043L;
 
 	protected OwnedBook book;
 
@@ -5,6 +5,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 import bookkeep.models.collections.BookStorage;
 
@@ -41,6 +45,37 @@ public class LibrarySerializer {
 		}
 	}
 
+	/**
+	 * Loads the library saved at the given path. Unlike load() a damaged file is
+	 * an error, only a missing one gives an empty library.
+	 */
+	public BookStorage load(Path path) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(path))) {
+			return (BookStorage) in.readObject();
+		} catch (NoSuchFileException e) {
+			return new BookStorage();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException(path + " is not a saved library", e);
+		}
+	}
+
+	/**
+	 * Saves to a temporary file next to the path first and then moves it in
+	 * place, so a failed save leaves the previous library intact
+	 */
+	public void save(BookStorage library, Path path) throws IOException {
+		Path absolute = path.toAbsolutePath();
+		Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+		try {
+			try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(temporary))) {
+				out.writeObject(library);
+			}
+			Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
 	public void makeTestSerializer() {
 		isTestSerializer = true;
 	}
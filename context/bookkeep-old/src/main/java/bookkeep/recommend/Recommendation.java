@@ -0,0 +1,30 @@
+package bookkeep.recommend;
+
+import bookkeep.models.Book;
+
+/**
+ * A suggested book and its cosine similarity to the reader's taste
+ */
+public final class Recommendation {
+
+	private final Book book;
+	private final double score;
+
+	Recommendation(Book book, double score) {
+		this.book = book;
+		this.score = score;
+	}
+
+	public Book getBook() {
+		return book;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "Recommendation{title=" + book.getTitle() + ", score=" + String.format("%.3f", score) + "}";
+	}
+}
@@ -0,0 +1,472 @@
+package bookkeep.recommend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import bookkeep.enums.EventType;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookHistory;
+import bookkeep.models.history.BookSnapshot;
+
+/**
+ * Suggests wishlist and unread books that resemble the books the reader
+ * rated highly.
+ *
+ * Every book is a sparse vector over the features genre, author and decade
+ * of publication. The taste profile is the sum of the vectors of the finished
+ * books rated LIKED_RATING or more, each weighted by how far its rating is
+ * above the middle. Candidates are ranked by cosine similarity to the
+ * profile.
+ *
+ * Candidates are kept in an inverted index from feature to candidate ids,
+ * so scoring only visits candidates sharing a feature with the profile. The
+ * scores go into a dense array and a bounded min-heap picks the top K.
+ * A candidate that is changed is indexed again in its own slot, and one that
+ * is started or removed hands its slot to the last candidate, so the slots
+ * stay dense and the score array has one entry per live candidate. Every
+ * candidate remembers where it is in each of its posting lists, so taking it
+ * out or moving it never searches a list, however many candidates share a
+ * genre.
+ *
+ * The index and profile are kept current as a LibraryListener. Like the
+ * BookStorage it is not thread safe.
+ */
+public class Recommender implements LibraryListener {
+
+	static final int LIKED_RATING = 4;
+	private static final double NEUTRAL_RATING = 3;
+	private static final double GENRE_WEIGHT = 1.0;
+	private static final double AUTHOR_WEIGHT = 1.0;
+	private static final double DECADE_WEIGHT = 0.5;
+	private static final int INITIAL_CAPACITY = 64;
+
+	/* ================================ Features ================================ */
+	private final Map<String, Integer> featureIds = new HashMap<>();
+
+	/* =============================== Candidates =============================== */
+	private Book[] candidates = new Book[INITIAL_CAPACITY];
+	private Vector[] candidateVectors = new Vector[INITIAL_CAPACITY];
+	private double[] candidateNorms = new double[INITIAL_CAPACITY];
+	// Position of the candidate in the posting list of each of its features
+	private int[][] candidatePositions = new int[INITIAL_CAPACITY][];
+	private int candidateCount;
+	private final Map<UUID, Integer> candidateIds = new HashMap<>();
+	private final List<Postings> postings = new ArrayList<>();
+
+	/* ================================= Profile ================================ */
+	private final Map<Integer, Double> profile = new HashMap<>();
+	private final Map<UUID, Vector> likedContributions = new HashMap<>();
+
+	/**
+	 * Feature ids of a book and their weights, already scaled for the profile
+	 * when used as a contribution
+	 */
+	private static final class Vector {
+		private final int[] features;
+		private final double[] weights;
+
+		private Vector(int[] features, double[] weights) {
+			this.features = features;
+			this.weights = weights;
+		}
+
+		private double norm() {
+			double sum = 0;
+			for (double weight : weights) {
+				sum += weight * weight;
+			}
+			return Math.sqrt(sum);
+		}
+
+		private Vector scaled(double factor) {
+			double[] scaledWeights = weights.clone();
+			for (int i = 0; i < scaledWeights.length; i++) {
+				scaledWeights[i] *= factor;
+			}
+			return new Vector(features, scaledWeights);
+		}
+	}
+
+	/**
+	 * Adds every book already in the library
+	 */
+	public void indexLibrary(BookStorage storage) {
+		for (Book book : storage.getAllBooks()) {
+			bookAdded(book);
+		}
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookAdded(Book book) {
+		if (isCandidate(book)) {
+			addCandidate(book);
+		} else {
+			updateLiked(book);
+		}
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		removeCandidate(book.getUUID());
+		setLiked(book.getUUID(), null);
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		EventType type = event.getType();
+		if (type == EventType.STARTED_READING) {
+			removeCandidate(book.getUUID());
+		} else if (type == EventType.REVIEW) {
+			updateLiked(book);
+		} else if (type == EventType.METADATA_CHANGE) {
+			// The book's vector may have changed, so it is indexed again
+			if (candidateIds.containsKey(book.getUUID())) {
+				updateCandidate(book);
+			} else if (likedContributions.containsKey(book.getUUID())) {
+				updateLiked(book);
+			}
+		}
+	}
+
+	/* ================================= Queries ================================ */
+
+	/**
+	 * The limit candidates most similar to the taste profile, best first. Empty
+	 * when nothing has been rated highly yet.
+	 */
+	public List<Recommendation> recommend(int limit) {
+		if (profile.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+
+		double profileNorm = 0;
+		for (double weight : profile.values()) {
+			profileNorm += weight * weight;
+		}
+		profileNorm = Math.sqrt(profileNorm);
+
+		// Dot products with the profile, only touching candidates that share a feature
+		double[] dots = new double[candidateCount];
+		for (Map.Entry<Integer, Double> entry : profile.entrySet()) {
+			int feature = entry.getKey();
+			if (feature >= postings.size()) {
+				continue;
+			}
+			Postings list = postings.get(feature);
+			double profileWeight = entry.getValue();
+			for (int i = 0; i < list.size; i++) {
+				dots[list.docs[i]] += profileWeight * list.weights[i];
+			}
+		}
+
+		TopK top = new TopK(limit);
+		for (int doc = 0; doc < candidateCount; doc++) {
+			if (dots[doc] > 0) {
+				top.offer(doc, dots[doc] / (profileNorm * candidateNorms[doc]));
+			}
+		}
+		return top.toRecommendations(candidates);
+	}
+
+	public int getCandidateCount() {
+		return candidateIds.size();
+	}
+
+	/* ================================ Internals =============================== */
+
+	/**
+	 * Wishlist books and owned books that have not been started
+	 */
+	private static boolean isCandidate(Book book) {
+		return !(book instanceof OwnedBook) || BookSnapshot.NOT_STARTED.equals(book.getStateName());
+	}
+
+	private Vector vectorOf(Book book) {
+		List<Integer> features = new ArrayList<>(3);
+		List<Double> weights = new ArrayList<>(3);
+		if (book.getGenre() != null) {
+			features.add(featureId("genre:" + book.getGenre().name()));
+			weights.add(GENRE_WEIGHT);
+		}
+		if (book.getAuthorName() != null) {
+			features.add(featureId("author:" + book.getAuthorName().toLowerCase()));
+			weights.add(AUTHOR_WEIGHT);
+		}
+		if (book.getPublicationYear() != 0) {
+			features.add(featureId("decade:" + Math.floorDiv(book.getPublicationYear(), 10) * 10));
+			weights.add(DECADE_WEIGHT);
+		}
+		int[] featureArray = new int[features.size()];
+		double[] weightArray = new double[weights.size()];
+		for (int i = 0; i < featureArray.length; i++) {
+			featureArray[i] = features.get(i);
+			weightArray[i] = weights.get(i);
+		}
+		return new Vector(featureArray, weightArray);
+	}
+
+	private int featureId(String feature) {
+		Integer id = featureIds.get(feature);
+		if (id == null) {
+			id = featureIds.size();
+			featureIds.put(feature, id);
+			postings.add(new Postings());
+		}
+		return id;
+	}
+
+	private void addCandidate(Book book) {
+		Vector vector = vectorOf(book);
+		if (vector.features.length == 0) {
+			return;
+		}
+		int doc = candidateCount++;
+		ensureCapacity(candidateCount);
+		place(doc, book, vector);
+		candidateIds.put(book.getUUID(), doc);
+	}
+
+	private void updateCandidate(Book book) {
+		Vector vector = vectorOf(book);
+		if (vector.features.length == 0) {
+			removeCandidate(book.getUUID());
+			return;
+		}
+		int doc = candidateIds.get(book.getUUID());
+		unindex(doc);
+		place(doc, book, vector);
+	}
+
+	private void removeCandidate(UUID bookId) {
+		Integer doc = candidateIds.remove(bookId);
+		if (doc == null) {
+			return;
+		}
+		unindex(doc);
+		int last = --candidateCount;
+		if (doc != last) {
+			Vector moved = candidateVectors[last];
+			int[] positions = candidatePositions[last];
+			for (int i = 0; i < moved.features.length; i++) {
+				postings.get(moved.features[i]).docs[positions[i]] = doc;
+			}
+			candidates[doc] = candidates[last];
+			candidateVectors[doc] = moved;
+			candidateNorms[doc] = candidateNorms[last];
+			candidatePositions[doc] = positions;
+			candidateIds.put(candidates[doc].getUUID(), doc);
+		}
+		candidates[last] = null;
+		candidateVectors[last] = null;
+		candidatePositions[last] = null;
+	}
+
+	private void place(int doc, Book book, Vector vector) {
+		candidates[doc] = book;
+		candidateVectors[doc] = vector;
+		candidateNorms[doc] = vector.norm();
+		int[] positions = new int[vector.features.length];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = postings.get(vector.features[i]).add(doc, vector.weights[i]);
+		}
+		candidatePositions[doc] = positions;
+	}
+
+	private void unindex(int doc) {
+		int[] features = candidateVectors[doc].features;
+		for (int i = 0; i < features.length; i++) {
+			int position = candidatePositions[doc][i];
+			int moved = postings.get(features[i]).remove(position);
+			if (moved >= 0) {
+				moveInPostings(moved, features[i], position);
+			}
+		}
+	}
+
+	/**
+	 * Notes the new position of a candidate's entry in the posting list of the
+	 * feature, one of its at most three
+	 */
+	private void moveInPostings(int doc, int feature, int position) {
+		int[] features = candidateVectors[doc].features;
+		for (int i = 0; i < features.length; i++) {
+			if (features[i] == feature) {
+				candidatePositions[doc][i] = position;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Re-derives the book's contribution to the profile from its current review
+	 */
+	private void updateLiked(Book book) {
+		if (!(book instanceof OwnedBook)) {
+			return;
+		}
+		BookHistory history = book.getHistory();
+		if (history.hasReview() && history.getReview().getRating() >= LIKED_RATING) {
+			double factor = history.getReview().getRating() - NEUTRAL_RATING;
+			setLiked(book.getUUID(), vectorOf(book).scaled(factor));
+		} else {
+			setLiked(book.getUUID(), null);
+		}
+	}
+
+	private void setLiked(UUID bookId, Vector contribution) {
+		Vector previous = contribution == null ? likedContributions.remove(bookId)
+				: likedContributions.put(bookId, contribution);
+		if (previous != null) {
+			addToProfile(previous, -1);
+		}
+		if (contribution != null) {
+			addToProfile(contribution, 1);
+		}
+	}
+
+	private void addToProfile(Vector contribution, int sign) {
+		for (int i = 0; i < contribution.features.length; i++) {
+			double weight = profile.merge(contribution.features[i], sign * contribution.weights[i], Double::sum);
+			if (Math.abs(weight) < 1e-9) {
+				profile.remove(contribution.features[i]);
+			}
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > candidates.length) {
+			int newLength = Math.max(capacity, candidates.length * 2);
+			candidates = Arrays.copyOf(candidates, newLength);
+			candidateVectors = Arrays.copyOf(candidateVectors, newLength);
+			candidateNorms = Arrays.copyOf(candidateNorms, newLength);
+			candidatePositions = Arrays.copyOf(candidatePositions, newLength);
+		}
+	}
+
+	/**
+	 * Growable posting list of candidate ids and feature weights
+	 */
+	private static final class Postings {
+		private int[] docs = new int[4];
+		private double[] weights = new double[4];
+		private int size;
+
+		/**
+		 * Adds the entry at the end and returns its position
+		 */
+		int add(int doc, double weight) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			docs[size] = doc;
+			weights[size] = weight;
+			return size++;
+		}
+
+		/**
+		 * Moves the last entry into the place of the removed one, the order of
+		 * the entries does not matter for scoring. Returns the candidate whose
+		 * entry moved there, or -1 if the removed entry was the last.
+		 */
+		int remove(int position) {
+			size--;
+			if (position == size) {
+				return -1;
+			}
+			docs[position] = docs[size];
+			weights[position] = weights[size];
+			return docs[position];
+		}
+	}
+
+	/**
+	 * Bounded min-heap on primitive arrays, the root is the weakest of the best
+	 * candidates seen so far
+	 */
+	private static final class TopK {
+		private final int[] docs;
+		private final double[] scores;
+		private int size;
+
+		TopK(int limit) {
+			docs = new int[limit];
+			scores = new double[limit];
+		}
+
+		void offer(int doc, double score) {
+			if (size < docs.length) {
+				docs[size] = doc;
+				scores[size] = score;
+				siftUp(size++);
+			} else if (score > scores[0]) {
+				docs[0] = doc;
+				scores[0] = score;
+				siftDown(0);
+			}
+		}
+
+		List<Recommendation> toRecommendations(Book[] books) {
+			List<Recommendation> result = new ArrayList<>(size);
+			while (size > 0) {
+				result.add(new Recommendation(books[docs[0]], scores[0]));
+				size--;
+				docs[0] = docs[size];
+				scores[0] = scores[size];
+				siftDown(0);
+			}
+			Collections.reverse(result);
+			return result;
+		}
+
+		private void siftUp(int index) {
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (scores[parent] <= scores[index]) {
+					return;
+				}
+				swap(parent, index);
+				index = parent;
+			}
+		}
+
+		private void siftDown(int index) {
+			while (true) {
+				int smallest = index;
+				int left = 2 * index + 1;
+				int right = left + 1;
+				if (left < size && scores[left] < scores[smallest]) {
+					smallest = left;
+				}
+				if (right < size && scores[right] < scores[smallest]) {
+					smallest = right;
+				}
+				if (smallest == index) {
+					return;
+				}
+				swap(smallest, index);
+				index = smallest;
+			}
+		}
+
+		private void swap(int a, int b) {
+			int doc = docs[a];
+			docs[a] = docs[b];
+			docs[b] = doc;
+			double score = scores[a];
+			scores[a] = scores[b];
+			scores[b] = score;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package bookkeep.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import bookkeep.models.Book;
+
+/**
+ * The search of the library table: books whose title, author or genre contain
+ * the text, or that were published in the given year.
+ *
+ * It only reads the books it is given, so it can run off the FX thread on a
+ * snapshot of the library.
+ */
+public final class BookFilter {
+
+	public static final String TITLE = "Title";
+	public static final String AUTHOR = "Author";
+	public static final String YEAR = "Year";
+	public static final String GENRE = "Genre";
+
+	/**
+	 * How many books are checked between two looks at the cancellation flag
+	 */
+	private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+	private BookFilter() {
+	}
+
+	public static Predicate<Book> matcher(String searchType, String searchText) {
+		String text = searchText.toLowerCase();
+		switch (searchType) {
+			case TITLE:
+				return book -> book.getTitle().toLowerCase().contains(text);
+			case AUTHOR:
+				return book -> book.getAuthorName().toLowerCase().contains(text);
+			case YEAR:
+				try {
+					int year = Integer.parseInt(searchText.trim());
+					return book -> book.getPublicationYear() == year;
+				} catch (NumberFormatException e) {
+					return book -> false;
+				}
+			case GENRE:
+				return book -> book.getGenre() != null && book.getGenre().toString().toLowerCase().contains(text);
+			default:
+				return book -> true;
+		}
+	}
+
+	/**
+	 * The matching books in order, or null if cancelled was true at one of the
+	 * checks along the way
+	 */
+	public static List<Book> filter(Book[] books, String searchType, String searchText, BooleanSupplier cancelled) {
+		Predicate<Book> matcher = matcher(searchType, searchText);
+		List<Book> matches = new ArrayList<>();
+		for (int i = 0; i < books.length; i++) {
+			if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+				return null;
+			}
+			if (matcher.test(books[i])) {
+				matches.add(books[i]);
+			}
+		}
+		return matches;
+	}
+}
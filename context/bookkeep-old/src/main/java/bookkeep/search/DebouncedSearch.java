@@ -0,0 +1,111 @@
+package bookkeep.search;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs searches on a background thread as the user types.
+ *
+ * A search only starts once no newer one was submitted for the debounce delay.
+ * Every submission supersedes the earlier ones: a pending one is dropped, a
+ * running one sees its cancellation flag go up and should stop, and a finished
+ * one that was superseded before it got published is thrown away. Results are
+ * handed to the listener through the publisher, Platform::runLater for the
+ * UI, in a single call, so only the latest search ever shows.
+ */
+public class DebouncedSearch<T> implements AutoCloseable {
+
+	/**
+	 * The search itself. Returns null when it noticed the cancellation.
+	 */
+	@FunctionalInterface
+	public interface Search<T> {
+		T run(BooleanSupplier cancelled);
+	}
+
+	/**
+	 * Receives the result of the latest search and how long it took to run
+	 */
+	@FunctionalInterface
+	public interface ResultListener<T> {
+		void searchCompleted(T result, Duration latency);
+	}
+
+	private final ScheduledExecutorService scheduler;
+	private final Executor publisher;
+	private final Duration delay;
+	private final AtomicLong generation = new AtomicLong();
+	private ResultListener<T> listener;
+	private ScheduledFuture<?> pending;
+
+	public DebouncedSearch(Duration delay, Executor publisher) {
+		if (delay.isNegative()) {
+			throw new IllegalArgumentException("Debounce delay must not be negative");
+		}
+		this.delay = delay;
+		this.publisher = publisher;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "library-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void setResultListener(ResultListener<T> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Schedules the search after the debounce delay, superseding every earlier
+	 * one
+	 */
+	public synchronized void submit(Search<T> search) {
+		long id = generation.incrementAndGet();
+		if (pending != null) {
+			pending.cancel(false);
+		}
+		pending = scheduler.schedule(() -> execute(id, search), delay.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Drops every submitted search, nothing more gets published
+	 */
+	public synchronized void cancel() {
+		generation.incrementAndGet();
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		cancel();
+		scheduler.shutdownNow();
+	}
+
+	private void execute(long id, Search<T> search) {
+		BooleanSupplier cancelled = () -> generation.get() != id;
+		if (cancelled.getAsBoolean()) {
+			return;
+		}
+		long start = System.nanoTime();
+		T result = search.run(cancelled);
+		Duration latency = Duration.ofNanos(System.nanoTime() - start);
+		if (result == null || cancelled.getAsBoolean()) {
+			return;
+		}
+		publisher.execute(() -> {
+			// Checked again on the publishing thread, a newer search may have come in meanwhile
+			if (!cancelled.getAsBoolean() && listener != null) {
+				listener.searchCompleted(result, latency);
+			}
+		});
+	}
+}
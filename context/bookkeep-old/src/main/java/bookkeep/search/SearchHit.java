@@ -0,0 +1,53 @@
+package bookkeep.search;
+
+import java.util.UUID;
+
+import bookkeep.enums.EventType;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * One ranked match from a text search: the event that matched and the book it
+ * belongs to
+ */
+public final class SearchHit {
+
+	private final UUID bookId;
+	private final BookEvent event;
+	private final double score;
+
+	SearchHit(UUID bookId, BookEvent event, double score) {
+		this.bookId = bookId;
+		this.event = event;
+		this.score = score;
+	}
+
+	public UUID getBookId() {
+		return bookId;
+	}
+
+	public BookEvent getEvent() {
+		return event;
+	}
+
+	public EventType getType() {
+		return event.getType();
+	}
+
+	public int getPageNumber() {
+		return event.getPageNumber();
+	}
+
+	public String getText() {
+		return event.getText();
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchHit{bookId=" + bookId + ", type=" + getType() + ", pageNumber=" + getPageNumber()
+				+ ", score=" + String.format("%.3f", score) + "}";
+	}
+}
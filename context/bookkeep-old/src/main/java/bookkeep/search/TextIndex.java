@@ -0,0 +1,436 @@
+package bookkeep.search;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import bookkeep.enums.EventType;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookHistory;
+
+/**
+ * Inverted index over the text of comments, quotes, afterthoughts and reviews,
+ * ranked with BM25.
+ *
+ * Every indexed event is a document with an int id. Per document the index
+ * only keeps the event reference, an ordinal for its book and its length in
+ * terms; postings are parallel primitive arrays of document ids and term
+ * frequencies, appended in increasing id order. Replaced reviews and removed
+ * books are marked deleted and skipped while scoring. Once deleted documents
+ * make up COMPACT_SHARE of all, the live ones are renumbered and the deleted
+ * ones dropped, so the index does not grow with every edit and removal.
+ *
+ * The index is kept up to date as a LibraryListener and is not thread safe,
+ * like the BookStorage that feeds it.
+ */
+public class TextIndex implements LibraryListener, Serializable {
+
+	private static final long serialVersionUID = -7057356426435803542L;
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int INITIAL_CAPACITY = 64;
+	static final double COMPACT_SHARE = 0.25;
+	// Small indexes are not worth renumbering
+	private static final int COMPACT_MINIMUM = 256;
+
+	/* ================================ Documents =============================== */
+	private BookEvent[] docEvents = new BookEvent[INITIAL_CAPACITY];
+	private int[] docBooks = new int[INITIAL_CAPACITY];
+	private int[] docLengths = new int[INITIAL_CAPACITY];
+	private int docCount;
+	private final BitSet deleted = new BitSet();
+	private int liveDocs;
+	private long liveLength;
+
+	/* ================================== Books ================================= */
+	private final List<UUID> bookIds = new ArrayList<>();
+	private final Map<UUID, Integer> bookOrdinals = new HashMap<>();
+	private final Map<UUID, Integer> reviewDocs = new HashMap<>();
+	// The documents of each book by ordinal, so removing one does not scan all
+	private List<DocIds> bookDocs = new ArrayList<>();
+
+	/* ================================== Terms ================================= */
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	/**
+	 * Indexes the existing text of a book, used when building the index for a
+	 * library that was not indexed before
+	 */
+	public void indexBook(Book book) {
+		if (!(book instanceof OwnedBook)) {
+			return;
+		}
+		BookHistory history = book.getHistory();
+		for (BookEvent event : history.getListOfEvents()) {
+			add(book.getUUID(), event);
+		}
+		if (history.hasReview()) {
+			add(book.getUUID(), history.getReview());
+		}
+	}
+
+	/* ============================ LibraryListener ============================= */
+
+	@Override
+	public void bookAdded(Book book) {
+		indexBook(book);
+	}
+
+	@Override
+	public void bookRemoved(Book book) {
+		Integer ordinal = bookOrdinals.get(book.getUUID());
+		if (ordinal == null) {
+			return;
+		}
+		DocIds docs = bookDocs.get(ordinal);
+		for (int i = 0; i < docs.size; i++) {
+			delete(docs.ids[i]);
+		}
+		docs.clear();
+		reviewDocs.remove(book.getUUID());
+		compactIfWorthIt();
+	}
+
+	@Override
+	public void eventRecorded(Book book, BookEvent event) {
+		if (isIndexed(event)) {
+			add(book.getUUID(), event);
+		}
+	}
+
+	/* ================================= Queries ================================ */
+
+	/**
+	 * Returns up to limit events ranked by BM25 against the query terms. Any
+	 * event containing at least one of the terms is a candidate.
+	 */
+	public List<SearchHit> search(String query, int limit) {
+		List<String> terms = Tokenizer.tokenize(query);
+		if (terms.isEmpty() || limit <= 0 || liveDocs == 0) {
+			return Collections.emptyList();
+		}
+
+		double averageLength = (double) liveLength / liveDocs;
+		ScoreAccumulator scores = new ScoreAccumulator();
+		for (String term : terms) {
+			Postings list = postings.get(term);
+			if (list == null) {
+				continue;
+			}
+			double idf = Math.log(1 + (liveDocs - list.size + 0.5) / (list.size + 0.5));
+			for (int i = 0; i < list.size; i++) {
+				int doc = list.docs[i];
+				if (deleted.get(doc)) {
+					continue;
+				}
+				int tf = list.freqs[i];
+				double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+				scores.add(doc, idf * tf * (K1 + 1) / (tf + norm));
+			}
+		}
+		return topHits(scores, limit);
+	}
+
+	public int getDocumentCount() {
+		return liveDocs;
+	}
+
+	/**
+	 * Documents of replaced reviews and removed books that are still kept
+	 */
+	public int getDeletedCount() {
+		return docCount - liveDocs;
+	}
+
+	public int getTermCount() {
+		return postings.size();
+	}
+
+	/**
+	 * Drops the deleted documents and renumbers the live ones in their order.
+	 * Returns how many were dropped.
+	 */
+	public int compact() {
+		int dropped = docCount - liveDocs;
+		if (dropped == 0) {
+			return 0;
+		}
+		int[] renumbered = new int[docCount];
+		int live = 0;
+		for (int doc = 0; doc < docCount; doc++) {
+			if (deleted.get(doc)) {
+				renumbered[doc] = -1;
+			} else {
+				renumbered[doc] = live;
+				docEvents[live] = docEvents[doc];
+				docBooks[live] = docBooks[doc];
+				docLengths[live] = docLengths[doc];
+				live++;
+			}
+		}
+		Arrays.fill(docEvents, live, docCount, null);
+		docCount = live;
+		deleted.clear();
+
+		postings.values().removeIf(list -> list.retain(renumbered) == 0);
+		reviewDocs.replaceAll((bookId, doc) -> renumbered[doc]);
+		for (DocIds docs : bookDocs) {
+			docs.retain(renumbered);
+		}
+		return dropped;
+	}
+
+	/* ================================ Internals =============================== */
+
+	private static boolean isIndexed(BookEvent event) {
+		EventType type = event.getType();
+		return event.getText() != null && (type == EventType.COMMENT || type == EventType.QUOTE
+				|| type == EventType.AFTERTHOUGHT || type == EventType.REVIEW);
+	}
+
+	private void add(UUID bookId, BookEvent event) {
+		if (event.getType() == EventType.REVIEW) {
+			// A book has one review, a new one replaces the old in the index as well
+			Integer previous = reviewDocs.get(bookId);
+			if (previous != null) {
+				delete(previous);
+				compactIfWorthIt();
+			}
+		}
+
+		int doc = docCount++;
+		ensureDocCapacity(docCount);
+		List<String> terms = Tokenizer.tokenize(event.getText());
+		int ordinal = ordinalOf(bookId);
+		docEvents[doc] = event;
+		docBooks[doc] = ordinal;
+		bookDocs.get(ordinal).add(doc);
+		docLengths[doc] = terms.size();
+		liveDocs++;
+		liveLength += terms.size();
+		if (event.getType() == EventType.REVIEW) {
+			reviewDocs.put(bookId, doc);
+		}
+
+		Map<String, Integer> frequencies = new HashMap<>();
+		for (String term : terms) {
+			frequencies.merge(term, 1, Integer::sum);
+		}
+		frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, tf));
+	}
+
+	private void delete(int doc) {
+		if (!deleted.get(doc)) {
+			deleted.set(doc);
+			liveDocs--;
+			liveLength -= docLengths[doc];
+		}
+	}
+
+	private void compactIfWorthIt() {
+		int dead = docCount - liveDocs;
+		if (docCount >= COMPACT_MINIMUM && dead >= docCount * COMPACT_SHARE) {
+			compact();
+		}
+	}
+
+	private int ordinalOf(UUID bookId) {
+		Integer ordinal = bookOrdinals.get(bookId);
+		if (ordinal == null) {
+			ordinal = bookIds.size();
+			bookIds.add(bookId);
+			bookOrdinals.put(bookId, ordinal);
+			bookDocs.add(new DocIds());
+		}
+		return ordinal;
+	}
+
+	private void ensureDocCapacity(int capacity) {
+		if (capacity > docEvents.length) {
+			int newLength = Math.max(capacity, docEvents.length * 2);
+			docEvents = Arrays.copyOf(docEvents, newLength);
+			docBooks = Arrays.copyOf(docBooks, newLength);
+			docLengths = Arrays.copyOf(docLengths, newLength);
+		}
+	}
+
+	/**
+	 * Bounded min-heap over the accumulated scores, so only limit hits are ever
+	 * materialized
+	 */
+	private List<SearchHit> topHits(ScoreAccumulator scores, int limit) {
+		PriorityQueue<long[]> heap = new PriorityQueue<>(limit + 1,
+				(a, b) -> Double.compare(Double.longBitsToDouble(a[1]), Double.longBitsToDouble(b[1])));
+		for (int slot = 0; slot < scores.keys.length; slot++) {
+			if (scores.keys[slot] == ScoreAccumulator.EMPTY) {
+				continue;
+			}
+			double score = scores.values[slot];
+			if (heap.size() < limit) {
+				heap.add(new long[] { scores.keys[slot], Double.doubleToLongBits(score) });
+			} else if (score > Double.longBitsToDouble(heap.peek()[1])) {
+				heap.poll();
+				heap.add(new long[] { scores.keys[slot], Double.doubleToLongBits(score) });
+			}
+		}
+
+		List<SearchHit> hits = new ArrayList<>(heap.size());
+		while (!heap.isEmpty()) {
+			long[] entry = heap.poll();
+			int doc = (int) entry[0];
+			hits.add(new SearchHit(bookIds.get(docBooks[doc]), docEvents[doc], Double.longBitsToDouble(entry[1])));
+		}
+		Collections.reverse(hits);
+		return hits;
+	}
+
+	/**
+	 * Indexes saved before the documents were kept per book get the lists
+	 * rebuilt from the book of every document
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (bookDocs == null) {
+			bookDocs = new ArrayList<>();
+			for (int i = 0; i < bookIds.size(); i++) {
+				bookDocs.add(new DocIds());
+			}
+			for (int doc = 0; doc < docCount; doc++) {
+				if (!deleted.get(doc)) {
+					bookDocs.get(docBooks[doc]).add(doc);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable posting list as two parallel primitive arrays
+	 */
+	private static final class Postings implements Serializable {
+		private static final long serialVersionUID = -8863383099579948073L;
+
+		private int[] docs = new int[4];
+		private int[] freqs = new int[4];
+		private int size;
+
+		void add(int doc, int freq) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				freqs = Arrays.copyOf(freqs, size * 2);
+			}
+			docs[size] = doc;
+			freqs[size] = freq;
+			size++;
+		}
+
+		/**
+		 * Keeps the entries of live documents under their new ids, returns how
+		 * many are left
+		 */
+		int retain(int[] renumbered) {
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				int doc = renumbered[docs[i]];
+				if (doc >= 0) {
+					docs[kept] = doc;
+					freqs[kept] = freqs[i];
+					kept++;
+				}
+			}
+			size = kept;
+			return kept;
+		}
+	}
+
+	/**
+	 * Growable list of the document ids of one book
+	 */
+	private static final class DocIds implements Serializable {
+		private static final long serialVersionUID = 3250622625761949952L;
+
+		private int[] ids = new int[4];
+		private int size;
+
+		void add(int doc) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = doc;
+		}
+
+		void retain(int[] renumbered) {
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				int doc = renumbered[ids[i]];
+				if (doc >= 0) {
+					ids[kept++] = doc;
+				}
+			}
+			size = kept;
+		}
+
+		void clear() {
+			size = 0;
+		}
+	}
+
+	/**
+	 * Open addressing map from document id to score, avoids boxing while
+	 * accumulating over long posting lists
+	 */
+	private static final class ScoreAccumulator {
+		static final int EMPTY = -1;
+
+		int[] keys = newKeys(64);
+		double[] values = new double[64];
+		int size;
+
+		void add(int doc, double score) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+			}
+			int mask = keys.length - 1;
+			int slot = (doc * 0x9E3779B9) >>> 1 & mask;
+			while (keys[slot] != EMPTY && keys[slot] != doc) {
+				slot = (slot + 1) & mask;
+			}
+			if (keys[slot] == EMPTY) {
+				keys[slot] = doc;
+				size++;
+			}
+			values[slot] += score;
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			double[] oldValues = values;
+			keys = newKeys(oldKeys.length * 2);
+			values = new double[oldKeys.length * 2];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != EMPTY) {
+					add(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		private static int[] newKeys(int length) {
+			int[] keys = new int[length];
+			Arrays.fill(keys, EMPTY);
+			return keys;
+		}
+	}
+}
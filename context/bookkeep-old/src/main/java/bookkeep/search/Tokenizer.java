@@ -0,0 +1,88 @@
+package bookkeep.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits event text into index terms: lowercased runs of letters and digits,
+ * with common stop words dropped and a light suffix stemming so that
+ * "memories" and "memory" or "reading" and "read" end up as the same term.
+ */
+public final class Tokenizer {
+
+	private static final int MIN_TERM_LENGTH = 2;
+
+	private static final Set<String> STOP_WORDS = Set.of(
+			"a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have", "he", "her",
+			"his", "i", "in", "is", "it", "its", "me", "my", "not", "of", "on", "or", "she", "so", "that", "the",
+			"their", "them", "there", "they", "this", "to", "was", "we", "were", "what", "which", "with", "you");
+
+	private Tokenizer() {
+	}
+
+	public static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null) {
+			return terms;
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				addTerm(terms, lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	private static void addTerm(List<String> terms, String word) {
+		if (word.length() < MIN_TERM_LENGTH || STOP_WORDS.contains(word)) {
+			return;
+		}
+		terms.add(stem(word));
+	}
+
+	/**
+	 * Strips at most one common English suffix and then a trailing "e", so that
+	 * "love", "loved" and "loves" share a term. Deliberately conservative: it
+	 * only has to map inflections of a word to the same term, not produce the
+	 * dictionary form.
+	 */
+	static String stem(String word) {
+		String stem = stripSuffix(word);
+		if (stem.length() > 3 && stem.endsWith("e")) {
+			return stem.substring(0, stem.length() - 1);
+		}
+		return stem;
+	}
+
+	private static String stripSuffix(String word) {
+		int length = word.length();
+		if (length > 4 && word.endsWith("ies")) {
+			return word.substring(0, length - 3) + "y";
+		}
+		if (length > 5 && word.endsWith("ing")) {
+			return word.substring(0, length - 3);
+		}
+		if (length > 4 && word.endsWith("ed")) {
+			return word.substring(0, length - 2);
+		}
+		if (length > 4 && word.endsWith("ly")) {
+			return word.substring(0, length - 2);
+		}
+		if (length > 4 && (word.endsWith("ches") || word.endsWith("shes") || word.endsWith("sses")
+				|| word.endsWith("xes"))) {
+			return word.substring(0, length - 2);
+		}
+		if (length > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us")) {
+			return word.substring(0, length - 1);
+		}
+		return word;
+	}
+}
@@ -0,0 +1,230 @@
+package bookkeep.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import bookkeep.json.Json;
+
+/**
+ * One request to the library server, with the JSON answers it can get and the
+ * mapping from the library's exceptions to status codes: a missing book or
+ * shelf is 404, bad input 400, an event the book's state does not allow 409
+ * and anything else 500.
+ */
+final class JsonExchange {
+
+	@FunctionalInterface
+	interface Handler {
+		void handle(JsonExchange exchange) throws IOException;
+	}
+
+	private static final String JSON = "application/json; charset=utf-8";
+	private static final String NDJSON = "application/x-ndjson; charset=utf-8";
+	private static final int MAX_BODY_BYTES = 1 << 20;
+
+	private final HttpExchange exchange;
+	private Map<String, String> parameters;
+	private boolean responded;
+
+	JsonExchange(HttpExchange exchange) {
+		this.exchange = exchange;
+	}
+
+	/**
+	 * Runs the handler and answers with an error if it failed before answering
+	 */
+	void handle(Handler handler) {
+		try {
+			handler.handle(this);
+		} catch (NoSuchElementException e) {
+			sendError(404, e);
+		} catch (IllegalArgumentException | ArithmeticException e) {
+			sendError(400, e);
+		} catch (MethodNotAllowedException e) {
+			exchange.getResponseHeaders().set("Allow", e.getMessage());
+			sendError(405, e);
+		} catch (UnsupportedOperationException | IllegalStateException e) {
+			sendError(409, e);
+		} catch (RuntimeException e) {
+			sendError(500, e);
+		} catch (IOException e) {
+			// The client went away, there is no one left to tell
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/* ================================= Request ================================ */
+
+	boolean isPost() {
+		return exchange.getRequestMethod().equals("POST");
+	}
+
+	void requireGet() {
+		if (!exchange.getRequestMethod().equals("GET")) {
+			throw new MethodNotAllowedException("GET");
+		}
+	}
+
+	void requirePost() {
+		if (!isPost()) {
+			throw new MethodNotAllowedException("POST");
+		}
+	}
+
+	/**
+	 * The decoded segments of the path, the first being the resource
+	 */
+	List<String> pathSegments() {
+		List<String> segments = new ArrayList<>();
+		for (String segment : exchange.getRequestURI().getPath().split("/")) {
+			if (!segment.isEmpty()) {
+				segments.add(segment);
+			}
+		}
+		return segments;
+	}
+
+	String parameter(String name) {
+		if (parameters == null) {
+			parameters = new HashMap<>();
+			String query = exchange.getRequestURI().getRawQuery();
+			if (query != null) {
+				for (String pair : query.split("&")) {
+					int equals = pair.indexOf('=');
+					String key = equals < 0 ? pair : pair.substring(0, equals);
+					String value = equals < 0 ? "" : pair.substring(equals + 1);
+					parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+							URLDecoder.decode(value, StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return parameters.get(name);
+	}
+
+	int intParameter(String name, int fallback) {
+		String value = parameter(name);
+		if (value == null) {
+			return fallback;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " must be a whole number");
+		}
+	}
+
+	Map<String, Object> readObject() throws IOException {
+		try (InputStream body = exchange.getRequestBody()) {
+			byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+			if (bytes.length > MAX_BODY_BYTES) {
+				throw new IllegalArgumentException("Request body too large");
+			}
+			return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+		}
+	}
+
+	/* ================================= Response =============================== */
+
+	void setHeader(String name, String value) {
+		exchange.getResponseHeaders().set(name, value);
+	}
+
+	/**
+	 * Answers 304 if the client already has the representation with this tag.
+	 * Returns whether it did.
+	 */
+	boolean notModified(String tag) throws IOException {
+		String known = exchange.getRequestHeaders().getFirst("If-None-Match");
+		if (known == null || !exchange.getRequestMethod().equals("GET")) {
+			return false;
+		}
+		for (String candidate : known.split(",")) {
+			String trimmed = candidate.trim();
+			if (trimmed.equals(tag) || trimmed.equals("W/" + tag) || trimmed.equals("*")) {
+				exchange.getResponseHeaders().set("ETag", tag);
+				send(304, null, null);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void sendJson(int status, String body, String tag) throws IOException {
+		if (status == 200 && notModified(tag)) {
+			return;
+		}
+		exchange.getResponseHeaders().set("ETag", tag);
+		send(status, JSON, body + "\n");
+	}
+
+	/**
+	 * Answers with NDJSON that is already complete
+	 */
+	void sendLines(String lines, String tag) throws IOException {
+		if (notModified(tag)) {
+			return;
+		}
+		exchange.getResponseHeaders().set("ETag", tag);
+		send(200, NDJSON, lines);
+	}
+
+	/**
+	 * Starts an NDJSON answer of unknown length, sent in chunks as it is
+	 * written. Closing the writer ends it.
+	 */
+	Writer startStream(String tag) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", NDJSON);
+		exchange.getResponseHeaders().set("ETag", tag);
+		exchange.sendResponseHeaders(200, 0);
+		responded = true;
+		OutputStream body = exchange.getResponseBody();
+		return new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+	}
+
+	private void send(int status, String contentType, String body) throws IOException {
+		responded = true;
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private void sendError(int status, Exception e) {
+		if (responded) {
+			// Part of the answer is out already, closing cuts it short
+			return;
+		}
+		try {
+			String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+			send(status, JSON, new Json.Line().put("error", message) + "\n");
+		} catch (IOException ignored) {
+			// The client went away
+		}
+	}
+
+	private static final class MethodNotAllowedException extends RuntimeException {
+		MethodNotAllowedException(String allowed) {
+			super(allowed);
+		}
+	}
+}
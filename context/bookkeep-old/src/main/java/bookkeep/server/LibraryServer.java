@@ -0,0 +1,377 @@
+package bookkeep.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpServer;
+
+import bookkeep.json.Records;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookHistory;
+import bookkeep.search.SearchHit;
+
+/**
+ * The library over HTTP, for other tools on the same machine. Every request
+ * runs on its own virtual thread; reads share the library and writes take it
+ * for themselves.
+ *
+ * <pre>
+ * GET  /books[?offset=N&amp;limit=N]  every book, streamed as NDJSON
+ * POST /books                     adds the book in the body, answers with it
+ * GET  /books/ID                  one book
+ * GET  /books/ID/history          the events of an owned book, as NDJSON
+ * POST /books/ID/events           records {"type":..,"text":..,"page":..,"rating":..,"version":..}
+ * GET  /shelves                   the summary of every shelf, as NDJSON
+ * GET  /shelves/NAME              the books of a shelf, as NDJSON
+ * GET  /search?q=WORDS[&amp;limit=N]  full-text hits in comments, quotes and reviews
+ * GET  /stats                     the library statistics
+ * </pre>
+ *
+ * Every GET carries an ETag made of the library's modification count, so a
+ * client repeating it with If-None-Match gets 304 Not Modified until
+ * something in the library changes. Every book carries its version, and an
+ * event posted with the version it was based on is refused with 409 Conflict
+ * if another client changed the book first. Versions, like the tags, carry
+ * the epoch of the server run they were handed out by, and one from an
+ * earlier run is a conflict as well.
+ */
+public class LibraryServer {
+
+	/**
+	 * Work against the library that may fail with an IOException
+	 */
+	@FunctionalInterface
+	public interface LibraryTask<T> {
+		T run() throws IOException;
+	}
+
+	/**
+	 * A body together with the tag of the library it was read from
+	 */
+	private record Answer(String tag, String body) {
+	}
+
+	private record Snapshot(String tag, Book[] books) {
+	}
+
+	static {
+		/*
+		 * The JDK server writes the headers and the body of an answer separately.
+		 * With Nagle's algorithm on, the body then waits for the client's delayed
+		 * ack of the headers, about 40 ms per request. The setting is read once,
+		 * when the first server of the JVM is created.
+		 */
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private static final int DEFAULT_SEARCH_LIMIT = 20;
+	/**
+	 * How many books of a listing are written per turn on the read lock, so a
+	 * slow client never holds back writers for the whole listing
+	 */
+	private static final int STREAM_CHUNK = 256;
+
+	private final BookStorage library;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	/*
+	 * The modification count and the book versions start over with every loaded
+	 * library, so tags and versions from an earlier run must not match the
+	 * counts of this one
+	 */
+	private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	public LibraryServer(BookStorage library, InetSocketAddress address) throws IOException {
+		this.library = library;
+		this.server = HttpServer.create(address, 0);
+		server.setExecutor(executor);
+		server.createContext("/books", exchange -> new JsonExchange(exchange).handle(this::books));
+		server.createContext("/shelves", exchange -> new JsonExchange(exchange).handle(this::shelves));
+		server.createContext("/search", exchange -> new JsonExchange(exchange).handle(this::search));
+		server.createContext("/stats", exchange -> new JsonExchange(exchange).handle(this::stats));
+	}
+
+	/* ================================ Lifecycle =============================== */
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests and waits up to the given number of seconds for
+	 * the ones being answered
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.close();
+		stopped.countDown();
+	}
+
+	public void awaitStop() {
+		try {
+			stopped.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Runs the task while no request is changing the library
+	 */
+	public <T> T read(LibraryTask<T> task) throws IOException {
+		lock.readLock().lock();
+		try {
+			return task.run();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Runs the task while no other request is using the library
+	 */
+	public <T> T write(LibraryTask<T> task) throws IOException {
+		lock.writeLock().lock();
+		try {
+			return task.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private String tag() {
+		return '"' + epoch + '-' + library.getModificationCount() + '"';
+	}
+
+	/* ================================ Resources =============================== */
+
+	private void books(JsonExchange exchange) throws IOException {
+		List<String> path = exchange.pathSegments();
+		if (path.size() == 1) {
+			if (exchange.isPost()) {
+				addBook(exchange);
+			} else {
+				exchange.requireGet();
+				listBooks(exchange);
+			}
+			return;
+		}
+		UUID id = parseId(path.get(1));
+		if (path.size() == 2) {
+			exchange.requireGet();
+			Answer answer = read(() -> new Answer(tag(), Records.book(findBook(id), epoch).toString()));
+			exchange.sendJson(200, answer.body(), answer.tag());
+		} else if (path.size() == 3 && path.get(2).equals("history")) {
+			exchange.requireGet();
+			history(exchange, id);
+		} else if (path.size() == 3 && path.get(2).equals("events")) {
+			exchange.requirePost();
+			addEvent(exchange, id);
+		} else {
+			throw new NoSuchElementException("No such resource");
+		}
+	}
+
+	private void listBooks(JsonExchange exchange) throws IOException {
+		int offset = exchange.intParameter("offset", 0);
+		int limit = exchange.intParameter("limit", Integer.MAX_VALUE);
+		// An unchanged library is answered before anything is copied
+		if (exchange.notModified(read(this::tag))) {
+			return;
+		}
+		Snapshot snapshot = read(() -> {
+			List<Book> books = library.getBooksView();
+			int from = Math.min(Math.max(offset, 0), books.size());
+			int to = (int) Math.min((long) from + Math.max(limit, 0), books.size());
+			return new Snapshot(tag(), books.subList(from, to).toArray(new Book[0]));
+		});
+		Book[] books = snapshot.books();
+		try (Writer writer = exchange.startStream(snapshot.tag())) {
+			for (int start = 0; start < books.length; start += STREAM_CHUNK) {
+				Book[] chunk = Arrays.copyOfRange(books, start, Math.min(start + STREAM_CHUNK, books.length));
+				// Rendered while writers wait, written while they do not
+				String lines = read(() -> {
+					StringBuilder text = new StringBuilder();
+					for (Book book : chunk) {
+						text.append(Records.book(book, epoch)).append('\n');
+					}
+					return text.toString();
+				});
+				writer.write(lines);
+			}
+		}
+	}
+
+	private void addBook(JsonExchange exchange) throws IOException {
+		Book book;
+		try {
+			book = Records.bookFromJson(exchange.readObject());
+		} catch (IllegalStateException e) {
+			// The builder's complaint about a missing field is bad input here
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		Answer answer = write(() -> {
+			library.addBook(book);
+			return new Answer(tag(), Records.book(book, epoch).toString());
+		});
+		exchange.setHeader("Location", "/books/" + book.getUUID());
+		exchange.sendJson(201, answer.body(), answer.tag());
+	}
+
+	private void history(JsonExchange exchange, UUID id) throws IOException {
+		Answer answer = read(() -> {
+			if (!(findBook(id) instanceof OwnedBook owned)) {
+				throw new IllegalArgumentException("Only owned books have a history");
+			}
+			BookHistory history = owned.getHistory();
+			StringBuilder lines = new StringBuilder();
+			appendEvent(lines, history.getStartedReading());
+			for (BookEvent event : history.getListOfEvents()) {
+				appendEvent(lines, event);
+			}
+			appendEvent(lines, history.getFinishedReading());
+			appendEvent(lines, history.getReview());
+			return new Answer(tag(), lines.toString());
+		});
+		exchange.sendLines(answer.body(), answer.tag());
+	}
+
+	private static void appendEvent(StringBuilder lines, BookEvent event) {
+		if (event != null) {
+			lines.append(Records.event(event)).append('\n');
+		}
+	}
+
+	private void addEvent(JsonExchange exchange, UUID id) throws IOException {
+		Map<String, Object> fields = exchange.readObject();
+		String type = Records.stringField(fields, "type");
+		if (type == null) {
+			throw new IllegalArgumentException("An event needs a type");
+		}
+		if (type.equals("page") && fields.get("page") == null) {
+			throw new IllegalArgumentException("A page event needs a page");
+		}
+		String text = Records.stringField(fields, "text");
+		String versionField = Records.stringField(fields, "version");
+		boolean versioned = versionField != null;
+		long version = versioned ? version(versionField) : 0;
+		Answer answer = write(() -> {
+			if (!(findBook(id) instanceof OwnedBook owned)) {
+				throw new IllegalArgumentException("Events can only be added to owned books");
+			}
+			Consumer<Book> mutation = book -> Records.applyEvent(owned, type, text == null ? "" : text,
+					Records.intField(fields, "page", owned.getPageNumber()), Records.intField(fields, "rating", 0));
+			if (versioned) {
+				library.update(id, version, mutation);
+			} else {
+				mutation.accept(owned);
+			}
+			return new Answer(tag(), Records.book(owned, epoch).toString());
+		});
+		exchange.sendJson(200, answer.body(), answer.tag());
+	}
+
+	/**
+	 * The book version in a version this server handed out
+	 *
+	 * @throws IllegalStateException    for a version of an earlier run
+	 * @throws IllegalArgumentException for anything that is not a version
+	 */
+	private long version(String qualified) {
+		int dash = qualified.lastIndexOf('-');
+		if (dash < 0) {
+			throw new IllegalArgumentException("version must be one the server handed out");
+		}
+		if (!qualified.substring(0, dash).equals(epoch)) {
+			throw new IllegalStateException("Version " + qualified + " is from before the server restarted");
+		}
+		return Long.parseLong(qualified.substring(dash + 1));
+	}
+
+	private void shelves(JsonExchange exchange) throws IOException {
+		exchange.requireGet();
+		List<String> path = exchange.pathSegments();
+		if (path.size() > 2) {
+			throw new NoSuchElementException("No such resource");
+		}
+		Answer answer = read(() -> {
+			StringBuilder lines = new StringBuilder();
+			if (path.size() == 1) {
+				for (String name : library.getShelfNames()) {
+					lines.append(Records.shelf(name, library.getShelfSummary(name))).append('\n');
+				}
+			} else {
+				for (Book book : library.getBooksFromShelfName(path.get(1))) {
+					lines.append(Records.book(book, epoch)).append('\n');
+				}
+			}
+			return new Answer(tag(), lines.toString());
+		});
+		exchange.sendLines(answer.body(), answer.tag());
+	}
+
+	private void search(JsonExchange exchange) throws IOException {
+		exchange.requireGet();
+		String query = exchange.parameter("q");
+		if (query == null) {
+			throw new IllegalArgumentException("Search needs a q parameter");
+		}
+		int limit = exchange.intParameter("limit", DEFAULT_SEARCH_LIMIT);
+		Answer answer = read(() -> {
+			StringBuilder lines = new StringBuilder();
+			for (SearchHit hit : library.searchText(query, limit)) {
+				lines.append(Records.hit(hit, library.findBook(hit.getBookId()))).append('\n');
+			}
+			return new Answer(tag(), lines.toString());
+		});
+		exchange.sendLines(answer.body(), answer.tag());
+	}
+
+	private void stats(JsonExchange exchange) throws IOException {
+		exchange.requireGet();
+		Answer answer = read(() -> new Answer(tag(), Records.statistics(library.getStatistics()).toString()));
+		exchange.sendJson(200, answer.body(), answer.tag());
+	}
+
+	/* ================================= Helpers ================================ */
+
+	private Book findBook(UUID id) {
+		Book book = library.findBook(id);
+		if (book == null) {
+			throw new NoSuchElementException("No book with id " + id);
+		}
+		return book;
+	}
+
+	private static UUID parseId(String text) {
+		try {
+			return UUID.fromString(text);
+		} catch (IllegalArgumentException e) {
+			throw new NoSuchElementException("No book with id " + text);
+		}
+	}
+}
@@ -0,0 +1,644 @@
+package bookkeep.sync;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.EventType;
+import bookkeep.enums.Genre;
+import bookkeep.json.Json;
+import bookkeep.json.Records;
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.WishlistBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.collections.LibraryChange;
+import bookkeep.models.collections.LibraryChangeFeed;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookEventBuilder;
+import bookkeep.models.history.BookSnapshot;
+import bookkeep.models.states.InProgressState;
+import bookkeep.models.states.NotStartedState;
+
+/**
+ * Keeps copies of one library on several machines in step through a shared
+ * directory, local or on a network mount, without any server. Every instance
+ * appends the changes made to its library, as the library's change feed
+ * delivers them, to a log of its own in the directory, one JSON line per
+ * change, and tails the logs of the others, applying what they append to its
+ * library as it goes.
+ *
+ * Changes made on two instances at about the same time are merged instead of
+ * one save overwriting the other: comments, quotes and other history entries
+ * from both are kept, a start or finish is only applied to a book in the state
+ * before it, and for the page, the review and every metadata attribute the
+ * latest change wins, going by the clocks of the instances that made them.
+ * Who changed what last is saved with the cursor, so a restarted instance
+ * does not let an older remote change overwrite a newer one of its own.
+ *
+ * The directory is watched with a WatchService, which only hears about writes
+ * made on this machine, so the logs are also read every poll interval to pick
+ * up the writes of other machines on a network mount.
+ *
+ * Remote changes are applied through the executor, which has to run them
+ * wherever the library is changed: Platform::runLater for the JavaFX app, or
+ * Runnable::run when nothing else changes the library meanwhile. How far each
+ * log has been applied is kept in a cursor file next to the logs. Saving it
+ * with saveCursor right after the library was saved keeps a restarted instance
+ * from applying those changes twice, and in step with the saved library.
+ */
+public class LibrarySync implements AutoCloseable {
+
+	static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+	// A log is read this much at a time, however far behind this instance is
+	static final int CHUNK_BYTES = 1 << 20;
+
+	private static final Pattern INSTANCE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+	private static final String LOG_SUFFIX = ".log";
+	private static final String CURSOR_SUFFIX = ".cursor";
+	// Separates book and attribute in the cursor's keys, which no instance id contains
+	private static final char STAMP_KEY_SEPARATOR = '.';
+
+	/**
+	 * How many remote changes were applied and how long they took from being
+	 * logged to being applied here. Dropped changes no longer fit the library,
+	 * such as an edit of a book that was removed here in the meantime, or could
+	 * not be read at all.
+	 */
+	public record Convergence(long applied, long dropped, Duration mean, Duration max) {
+	}
+
+	/**
+	 * Who changed an attribute last, by the time of the change and then by the
+	 * instance, so every instance picks the same winner
+	 */
+	private record Stamp(long at, String instanceId) implements Comparable<Stamp> {
+
+		@Override
+		public int compareTo(Stamp other) {
+			int byTime = Long.compare(at, other.at);
+			return byTime != 0 ? byTime : instanceId.compareTo(other.instanceId);
+		}
+	}
+
+	private final BookStorage library;
+	private final Path directory;
+	private final String instanceId;
+	private final Executor applier;
+	private final Duration pollInterval;
+	// Microseconds since the epoch, comparable between machines
+	private final LongSupplier clock;
+
+	// How far poll has read each remote log, guarded by this object
+	private final Map<String, Long> readPositions = new HashMap<>();
+	// How far each remote log has been applied, written through the applier
+	private final Map<String, Long> appliedPositions = new ConcurrentHashMap<>();
+	// Who changed which attribute of a book last, only used where the library is changed
+	private final Map<UUID, Map<String, Stamp>> lastWriters = new HashMap<>();
+	private boolean applying;
+
+	// Separate from the lock of poll, which may wait for the applier
+	private final Object logLock = new Object();
+	private Writer log;
+	private LibraryChangeFeed.Subscription subscription;
+	private Thread watcher;
+	private volatile boolean running;
+
+	private final Object statistics = new Object();
+	private long applied;
+	private long dropped;
+	private long totalLatency;
+	private long maxLatency;
+
+	/**
+	 * @param directory  The shared directory with the logs of all instances
+	 * @param instanceId A name for this instance that no other one uses, 1 to 64
+	 *                   letters, digits, dashes or underscores
+	 * @param applier    Runs the remote changes where the library is changed
+	 */
+	public LibrarySync(BookStorage library, Path directory, String instanceId, Executor applier) {
+		this(library, directory, instanceId, applier, DEFAULT_POLL_INTERVAL);
+	}
+
+	public LibrarySync(BookStorage library, Path directory, String instanceId, Executor applier,
+			Duration pollInterval) {
+		this(library, directory, instanceId, applier, pollInterval, LibrarySync::nowMicros);
+	}
+
+	LibrarySync(BookStorage library, Path directory, String instanceId, Executor applier, Duration pollInterval,
+			LongSupplier clock) {
+		if (!INSTANCE_ID.matcher(instanceId).matches()) {
+			throw new IllegalArgumentException("Invalid instance id " + instanceId);
+		}
+		if (pollInterval.isNegative() || pollInterval.isZero()) {
+			throw new IllegalArgumentException("The poll interval must be positive");
+		}
+		this.library = library;
+		this.directory = directory;
+		this.instanceId = instanceId;
+		this.applier = applier;
+		this.pollInterval = pollInterval;
+		this.clock = clock;
+	}
+
+	/* ================================ Lifecycle =============================== */
+
+	/**
+	 * Starts logging the changes made to the library and catches up with what
+	 * the other instances logged since the cursor was last saved, without
+	 * watching for more. Enough for a command that runs once.
+	 */
+	public synchronized void open() throws IOException {
+		synchronized (logLock) {
+			if (log != null) {
+				throw new IllegalStateException("Already open");
+			}
+			Files.createDirectories(directory);
+			log = Files.newBufferedWriter(directory.resolve(instanceId + LOG_SUFFIX), StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+		readCursor();
+		readPositions.putAll(appliedPositions);
+		subscription = library.getChangeFeed().subscribe(this::logChanges);
+		poll();
+	}
+
+	/**
+	 * Opens and keeps applying the changes of the other instances as they come,
+	 * until closed
+	 */
+	public void start() throws IOException {
+		open();
+		running = true;
+		watcher = Thread.ofPlatform().name("library-sync").daemon().start(this::watch);
+	}
+
+	/**
+	 * Stops watching and logging. Changes already read are still applied.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		if (watcher != null) {
+			watcher.interrupt();
+			try {
+				watcher.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (subscription != null) {
+			subscription.close();
+			subscription = null;
+		}
+		synchronized (logLock) {
+			if (log != null) {
+				log.close();
+				log = null;
+			}
+		}
+	}
+
+	/**
+	 * Records how far every remote log has been applied and who changed which
+	 * attribute last. Called where the library is changed, right after it was
+	 * saved.
+	 */
+	public void saveCursor() throws IOException {
+		Properties cursor = new Properties();
+		appliedPositions.forEach((origin, position) -> cursor.setProperty(origin, Long.toString(position)));
+		lastWriters.forEach((id, stamps) -> stamps.forEach((attribute, stamp) -> cursor.setProperty(
+				id.toString() + STAMP_KEY_SEPARATOR + attribute, stamp.at() + " " + stamp.instanceId())));
+		Path path = directory.resolve(instanceId + CURSOR_SUFFIX);
+		Path temporary = Files.createTempFile(directory, instanceId, ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				cursor.store(writer, "How far the logs of the other instances are applied");
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	public Convergence getConvergence() {
+		synchronized (statistics) {
+			long measured = applied + dropped;
+			Duration mean = Duration.ofNanos(measured == 0 ? 0 : totalLatency / measured * 1_000);
+			return new Convergence(applied, dropped, mean, Duration.ofNanos(maxLatency * 1_000));
+		}
+	}
+
+	/* ================================= Tailing ================================ */
+
+	private void watch() {
+		WatchService service = null;
+		try {
+			service = directory.getFileSystem().newWatchService();
+			directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException | UnsupportedOperationException e) {
+			// Some network mounts cannot be watched, polling alone still works
+			service = null;
+		}
+		try {
+			while (running) {
+				if (service == null) {
+					Thread.sleep(pollInterval.toMillis());
+				} else {
+					WatchKey key = service.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+					if (key != null) {
+						key.pollEvents();
+						key.reset();
+					}
+				}
+				try {
+					poll();
+				} catch (IOException | RuntimeException e) {
+					// The next round tries again, the watcher must not die of it
+					if (running) {
+						System.err.println("Could not read the change logs: " + e.getMessage());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		} finally {
+			if (service != null) {
+				try {
+					service.close();
+				} catch (IOException e) {
+					// Nothing is left to watch either way
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads what the other instances appended since the last poll and hands it
+	 * to the applier, one batch per chunk of a log
+	 */
+	synchronized void poll() throws IOException {
+		try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+			for (Path path : logs) {
+				String name = path.getFileName().toString();
+				String origin = name.substring(0, name.length() - LOG_SUFFIX.length());
+				if (!origin.equals(instanceId) && INSTANCE_ID.matcher(origin).matches()) {
+					readAppended(origin, path);
+				}
+			}
+		}
+	}
+
+	private void readAppended(String origin, Path path) throws IOException {
+		long position = readPositions.getOrDefault(origin, 0L);
+		try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+			long size = channel.size();
+			if (size <= position) {
+				return;
+			}
+			channel.position(position);
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(CHUNK_BYTES, size - position));
+			while (true) {
+				int read = channel.read(buffer);
+				// A log still being written may end in part of a line, which waits for the next poll
+				int end = buffer.position();
+				while (end > 0 && buffer.get(end - 1) != '\n') {
+					end--;
+				}
+				if (end > 0) {
+					position += end;
+					handOver(origin, new String(buffer.array(), 0, end, StandardCharsets.UTF_8), position);
+					buffer.flip().position(end);
+					buffer.compact();
+				} else if (!buffer.hasRemaining()) {
+					// A single line longer than the buffer
+					buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+					continue;
+				}
+				if (read <= 0) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the complete lines read from a log and has them applied. A line
+	 * that cannot be parsed, such as one torn by a crash, counts as dropped.
+	 */
+	private void handOver(String origin, String lines, long next) {
+		List<Map<String, Object>> changes = new ArrayList<>();
+		int unreadable = 0;
+		for (String line : lines.split("\n")) {
+			if (line.isBlank()) {
+				continue;
+			}
+			try {
+				changes.add(Json.parseObject(line));
+			} catch (IllegalArgumentException e) {
+				unreadable++;
+			}
+		}
+		if (unreadable > 0) {
+			synchronized (statistics) {
+				dropped += unreadable;
+			}
+		}
+		readPositions.put(origin, next);
+		applier.execute(() -> apply(origin, changes, next));
+	}
+
+	/* ================================= Applying =============================== */
+
+	private void apply(String origin, List<Map<String, Object>> changes, long position) {
+		int droppedHere = 0;
+		applying = true;
+		try {
+			for (Map<String, Object> change : changes) {
+				try {
+					applyChange(origin, change);
+				} catch (RuntimeException e) {
+					droppedHere++;
+				}
+			}
+		} finally {
+			applying = false;
+		}
+		appliedPositions.put(origin, position);
+
+		long now = clock.getAsLong();
+		synchronized (statistics) {
+			for (Map<String, Object> change : changes) {
+				if (change.get("at") instanceof Long at) {
+					long latency = Math.max(0, now - at);
+					totalLatency += latency;
+					maxLatency = Math.max(maxLatency, latency);
+				}
+			}
+			applied += changes.size() - droppedHere;
+			dropped += droppedHere;
+		}
+	}
+
+	private void applyChange(String origin, Map<String, Object> change) {
+		Stamp stamp = new Stamp(longField(change, "at"), origin);
+		String op = Records.stringField(change, "op");
+		switch (op) {
+			case "add" -> addBook(object(change, "book"));
+			case "remove" -> library.removeBook(findBook(change));
+			case "edit" -> {
+				Book book = findBook(change);
+				String attribute = Records.stringField(change, "attribute");
+				if (wins(book, attribute, stamp)) {
+					edit(book, attribute, Records.stringField(change, "value"));
+				}
+			}
+			case "event" -> {
+				if (findBook(change) instanceof OwnedBook owned) {
+					replay(owned, Records.eventFromJson(object(change, "event")), stamp);
+				}
+			}
+			case "addShelf" -> {
+				String name = Records.stringField(change, "shelf");
+				if (!library.getShelfNames().contains(name)) {
+					library.addShelf(name);
+				}
+			}
+			case "removeShelf" -> library.removeShelf(Records.stringField(change, "shelf"));
+			case "shelve" -> library.addBookToShelf(Records.stringField(change, "shelf"), findBook(change));
+			case "unshelve" -> library.removeBookFromShelf(Records.stringField(change, "shelf"), findBook(change));
+			default -> throw new IllegalArgumentException("Unknown change " + op);
+		}
+	}
+
+	/**
+	 * Adds the book with the id, state and page it had where it was added. Its
+	 * history from before it joined that library stays there.
+	 */
+	private void addBook(Map<String, Object> fields) {
+		UUID id = UUID.fromString(Records.stringField(fields, "id"));
+		if (library.findBook(id) != null) {
+			return;
+		}
+		Book book = Records.bookFromJson(fields, id);
+		library.addBook(book);
+		if (book instanceof OwnedBook owned) {
+			String state = Records.stringField(fields, "state");
+			if (BookSnapshot.IN_PROGRESS.equals(state) || BookSnapshot.FINISHED.equals(state)) {
+				owned.replay(BookEventBuilder.forStartedReading().build());
+			}
+			if (BookSnapshot.FINISHED.equals(state)) {
+				owned.replay(BookEventBuilder.forFinishedReading().build());
+			}
+			int page = Records.intField(fields, "page", 0);
+			if (page > 0) {
+				owned.replay(BookEventBuilder.forPageUpdate(page).build());
+			}
+		}
+	}
+
+	private void replay(OwnedBook book, BookEvent event, Stamp stamp) {
+		boolean applies = switch (event.getType()) {
+			case STARTED_READING -> book.getState() instanceof NotStartedState;
+			case FINISHED_READING -> book.getState() instanceof InProgressState;
+			case PAGE_UPDATE -> wins(book, "page", stamp);
+			case REVIEW -> wins(book, "review", stamp);
+			default -> true;
+		};
+		if (applies) {
+			book.replay(event);
+		}
+	}
+
+	private static void edit(Book book, String attribute, String value) {
+		switch (attribute) {
+			case "authorName" -> book.setAuthorName(value);
+			case "publicationYear" -> book.setPublicationYear(Integer.parseInt(value));
+			case "pageCount" -> book.setPageCount(Integer.parseInt(value));
+			case "genre" -> book.setGenre(value == null ? null : Genre.valueOf(value));
+			case "format" -> ((OwnedBook) book).setFormat(value == null ? null : BookFormat.valueOf(value));
+			case "price" -> ((WishlistBook) book).setPrice(Integer.parseInt(value));
+			default -> throw new IllegalArgumentException("Unknown attribute " + attribute);
+		}
+	}
+
+	/**
+	 * Whether the change is later than the last one to the same attribute of
+	 * the book, remembering it if it is
+	 */
+	private boolean wins(Book book, String attribute, Stamp stamp) {
+		Map<String, Stamp> stamps = lastWriters.computeIfAbsent(book.getUUID(), id -> new HashMap<>());
+		Stamp last = stamps.get(attribute);
+		if (last != null && stamp.compareTo(last) <= 0) {
+			return false;
+		}
+		stamps.put(attribute, stamp);
+		return true;
+	}
+
+	private void stamp(Book book, String attribute, long at) {
+		lastWriters.computeIfAbsent(book.getUUID(), id -> new HashMap<>()).put(attribute, new Stamp(at, instanceId));
+	}
+
+	private Book findBook(Map<String, Object> change) {
+		Book book = library.findBook(UUID.fromString(Records.stringField(change, "id")));
+		if (book == null) {
+			throw new IllegalArgumentException("No book " + change.get("id"));
+		}
+		return book;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> object(Map<String, Object> change, String key) {
+		if (change.get(key) instanceof Map<?, ?> object) {
+			return (Map<String, Object>) object;
+		}
+		throw new IllegalArgumentException(key + " must be an object");
+	}
+
+	private static long longField(Map<String, Object> change, String key) {
+		if (change.get(key) instanceof Long number) {
+			return number;
+		}
+		throw new IllegalArgumentException(key + " must be a whole number");
+	}
+
+	/* ================================= Logging ================================ */
+
+	/**
+	 * Logs the changes the library's feed delivers, a whole batch with one
+	 * flush. Remote changes being applied are not logged again, but a removed
+	 * book's stamps go either way.
+	 */
+	private void logChanges(List<LibraryChange> changes) {
+		for (LibraryChange change : changes) {
+			if (change instanceof LibraryChange.BookRemoved removed) {
+				lastWriters.remove(removed.book().getUUID());
+			}
+		}
+		if (applying) {
+			return;
+		}
+		List<Json.Line> lines = new ArrayList<>(changes.size());
+		for (LibraryChange change : changes) {
+			lines.add(switch (change) {
+				case LibraryChange.BookAdded added -> change("add").put("book", Records.book(added.book()));
+				case LibraryChange.BookRemoved removed -> change("remove").put("id", removed.book().getUUID().toString());
+				case LibraryChange.BookUpdated updated -> {
+					long at = clock.getAsLong();
+					stamp(updated.book(), updated.attribute(), at);
+					yield change("edit", at).put("id", updated.book().getUUID().toString())
+							.put("attribute", updated.attribute()).put("value", updated.event().getText());
+				}
+				case LibraryChange.StateTransitioned transitioned -> event(transitioned.book(), transitioned.event());
+				case LibraryChange.EventAppended appended -> event(appended.book(), appended.event());
+				case LibraryChange.ShelfAdded added -> change("addShelf").put("shelf", added.shelfName());
+				case LibraryChange.ShelfRemoved removed -> change("removeShelf").put("shelf", removed.shelfName());
+				case LibraryChange.ShelfMembershipChanged membership -> change(
+						membership.onShelf() ? "shelve" : "unshelve").put("shelf", membership.shelfName())
+						.put("id", membership.book().getUUID().toString());
+			});
+		}
+		log(lines);
+	}
+
+	private Json.Line event(Book book, BookEvent event) {
+		long at = clock.getAsLong();
+		if (event.getType() == EventType.PAGE_UPDATE) {
+			stamp(book, "page", at);
+		} else if (event.getType() == EventType.REVIEW) {
+			stamp(book, "review", at);
+		}
+		return change("event", at).put("id", book.getUUID().toString()).put("event", Records.event(event));
+	}
+
+	private Json.Line change(String op) {
+		return change(op, clock.getAsLong());
+	}
+
+	private static Json.Line change(String op, long at) {
+		return new Json.Line().put("op", op).put("at", at);
+	}
+
+	/**
+	 * Appends the changes to this instance's log. Flushed right away, so the
+	 * others can see them.
+	 */
+	private void log(List<Json.Line> changes) {
+		try {
+			synchronized (logLock) {
+				if (log == null) {
+					return;
+				}
+				for (Json.Line change : changes) {
+					log.write(change.toString());
+					log.write('\n');
+				}
+				log.flush();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not log a change to " + directory, e);
+		}
+	}
+
+	private void readCursor() throws IOException {
+		Path path = directory.resolve(instanceId + CURSOR_SUFFIX);
+		if (!Files.exists(path)) {
+			return;
+		}
+		Properties cursor = new Properties();
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			cursor.load(reader);
+		}
+		try {
+			for (String key : cursor.stringPropertyNames()) {
+				String value = cursor.getProperty(key);
+				int separator = key.indexOf(STAMP_KEY_SEPARATOR);
+				if (separator < 0) {
+					appliedPositions.put(key, Long.parseLong(value));
+					continue;
+				}
+				int space = value.indexOf(' ');
+				if (space < 0) {
+					throw new IllegalArgumentException("No instance in " + value);
+				}
+				lastWriters.computeIfAbsent(UUID.fromString(key.substring(0, separator)), id -> new HashMap<>())
+						.put(key.substring(separator + 1),
+								new Stamp(Long.parseLong(value.substring(0, space)), value.substring(space + 1)));
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Unreadable cursor " + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static long nowMicros() {
+		Instant now = Instant.now();
+		return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+	}
+}
@@ -0,0 +1,434 @@
+package bookkeep.tenants;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import bookkeep.models.collections.BookStorage;
+import bookkeep.persistance.LibrarySerializer;
+
+/**
+ * Many users' libraries in one JVM. Each tenant's library lives in a snapshot
+ * file in a directory and is only read into memory when it is first used.
+ * At most maxActive libraries are in memory at once, and together they stay
+ * within a memory budget: when either limit is reached the least recently used
+ * library that nobody holds is saved to its snapshot and dropped.
+ *
+ * A library is used through a Lease, which keeps it in memory until closed.
+ * Leases on the same tenant share its BookStorage, so callers that lease the
+ * same tenant from several threads coordinate their access to it themselves.
+ * The manager only ever saves a library nobody holds, since it has no part in
+ * that coordination.
+ *
+ * Loading and saving happen outside the manager's lock, so a cold tenant
+ * never holds up requests to the warm ones.
+ */
+public class TenantManager implements AutoCloseable {
+
+	/*
+	 * The memory of a library is estimated from the size of its snapshot rather
+	 * than measured, which would mean walking the whole object graph. The
+	 * factors come from TenantManagerBenchmark, which compares the estimate to
+	 * the heap actually used.
+	 */
+	static final long EMPTY_LIBRARY_BYTES = 4_096;
+	static final double HEAP_BYTES_PER_SNAPSHOT_BYTE = 2.5;
+	static final long BYTES_PER_CHANGE = 512;
+
+	private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+	private static final String SNAPSHOT_SUFFIX = ".ser";
+
+	private enum State {
+		INACTIVE, LOADING, ACTIVE, SAVING
+	}
+
+	private static final class Tenant {
+		final String id;
+		final Path snapshot;
+		State state = State.INACTIVE;
+		BookStorage library;
+		int leases;
+		long lastUsed;
+		long snapshotBytes;
+		long savedModifications;
+		long estimatedBytes;
+		// Asked to be saved while it was leased
+		boolean saveWhenReleased;
+
+		Tenant(String id, Path snapshot) {
+			this.id = id;
+			this.snapshot = snapshot;
+		}
+	}
+
+	/**
+	 * One tenant's library, kept in memory until the lease is closed
+	 */
+	public final class Lease implements AutoCloseable {
+		private final Tenant tenant;
+		private boolean closed;
+
+		private Lease(Tenant tenant) {
+			this.tenant = tenant;
+		}
+
+		public String getTenantId() {
+			return tenant.id;
+		}
+
+		public BookStorage library() {
+			if (closed) {
+				throw new IllegalStateException("The lease on " + tenant.id + " is closed");
+			}
+			return tenant.library;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				release(tenant);
+			}
+		}
+	}
+
+	private final Path directory;
+	private final int maxActive;
+	private final long memoryBudget;
+	private final LongSupplier clock;
+	private final LibrarySerializer serializer = new LibrarySerializer();
+
+	private final ReentrantLock lock = new ReentrantLock();
+	// Signalled whenever a tenant changes state or is released
+	private final Condition changed = lock.newCondition();
+	private final Map<String, Tenant> tenants = new HashMap<>();
+	// Tenants in memory or being loaded, least recently used first
+	private final LinkedHashMap<String, Tenant> resident = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryUsed;
+
+	/**
+	 * @param directory    Where the snapshots are, one file per tenant
+	 * @param maxActive    How many libraries may be in memory at once
+	 * @param memoryBudget Estimated bytes all libraries in memory may use
+	 *                     together. A library larger than the whole budget is
+	 *                     still loaded, and dropped again when its last lease
+	 *                     is closed.
+	 */
+	public TenantManager(Path directory, int maxActive, long memoryBudget) {
+		this(directory, maxActive, memoryBudget, System::nanoTime);
+	}
+
+	TenantManager(Path directory, int maxActive, long memoryBudget, LongSupplier clock) {
+		if (maxActive < 1) {
+			throw new IllegalArgumentException("At least one tenant must be allowed in memory");
+		}
+		if (memoryBudget < 1) {
+			throw new IllegalArgumentException("The memory budget must be positive");
+		}
+		this.directory = directory;
+		this.maxActive = maxActive;
+		this.memoryBudget = memoryBudget;
+		this.clock = clock;
+	}
+
+	/* ================================= Leasing ================================ */
+
+	/**
+	 * The tenant's library, read from its snapshot if it is not in memory yet.
+	 * A tenant without a snapshot starts with an empty library. Waits while
+	 * maxActive libraries are in memory and all of them are leased.
+	 *
+	 * @throws IllegalArgumentException if the id is not 1 to 64 letters, digits,
+	 *                                  dashes or underscores
+	 * @throws IOException              if the snapshot could not be read, or an
+	 *                                  idle library could not be saved to make
+	 *                                  room
+	 */
+	public Lease acquire(String tenantId) throws IOException {
+		if (!TENANT_ID.matcher(tenantId).matches()) {
+			throw new IllegalArgumentException("Invalid tenant id " + tenantId);
+		}
+		lock.lock();
+		try {
+			Tenant tenant = tenants.computeIfAbsent(tenantId,
+					id -> new Tenant(id, directory.resolve(id + SNAPSHOT_SUFFIX)));
+			while (true) {
+				switch (tenant.state) {
+					case ACTIVE -> {
+						tenant.leases++;
+						resident.get(tenant.id);
+						try {
+							enforceBudget();
+						} catch (IOException e) {
+							tenant.leases--;
+							throw e;
+						}
+						return new Lease(tenant);
+					}
+					case LOADING, SAVING -> await();
+					case INACTIVE -> {
+						if (resident.size() < maxActive) {
+							load(tenant);
+						} else if (!evictLeastRecentlyUsed()) {
+							await();
+						}
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(Tenant tenant) throws IOException {
+		lock.lock();
+		try {
+			tenant.leases--;
+			tenant.lastUsed = clock.getAsLong();
+			// The library may have grown while it was leased
+			memoryUsed -= tenant.estimatedBytes;
+			tenant.estimatedBytes = estimate(tenant);
+			memoryUsed += tenant.estimatedBytes;
+			changed.signalAll();
+			if (tenant.leases == 0 && tenant.saveWhenReleased) {
+				tenant.saveWhenReleased = false;
+				if (isDirty(tenant)) {
+					save(tenant, false);
+				}
+			}
+			enforceBudget();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* ================================= Eviction =============================== */
+
+	/**
+	 * Saves and drops every library nobody has used for the given time. Returns
+	 * how many were dropped.
+	 */
+	public int evictIdle(Duration idle) throws IOException {
+		lock.lock();
+		try {
+			long cutoff = clock.getAsLong() - idle.toNanos();
+			List<Tenant> idleTenants = new ArrayList<>();
+			for (Tenant tenant : resident.values()) {
+				if (tenant.state == State.ACTIVE && tenant.leases == 0 && tenant.lastUsed - cutoff <= 0) {
+					idleTenants.add(tenant);
+				}
+			}
+			int evicted = 0;
+			for (Tenant tenant : idleTenants) {
+				// It may have been leased again while an earlier one was saved
+				if (tenant.state == State.ACTIVE && tenant.leases == 0) {
+					evict(tenant);
+					evicted++;
+				}
+			}
+			return evicted;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Saves every library in memory that changed since it was loaded or saved,
+	 * without dropping any. A library that is leased may be changing under its
+	 * holders, so it is saved when its last lease is closed instead.
+	 */
+	public void saveAll() throws IOException {
+		lock.lock();
+		try {
+			for (Tenant tenant : new ArrayList<>(resident.values())) {
+				if (tenant.state != State.ACTIVE) {
+					continue;
+				}
+				if (tenant.leases > 0) {
+					tenant.saveWhenReleased = true;
+				} else if (isDirty(tenant)) {
+					save(tenant, false);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		saveAll();
+	}
+
+	private void enforceBudget() throws IOException {
+		while (memoryUsed > memoryBudget && evictLeastRecentlyUsed()) {
+			// Each round saves one more idle library
+		}
+	}
+
+	/**
+	 * Evicts the least recently used library that nobody holds, if there is one
+	 */
+	private boolean evictLeastRecentlyUsed() throws IOException {
+		for (Tenant tenant : resident.values()) {
+			if (tenant.state == State.ACTIVE && tenant.leases == 0) {
+				evict(tenant);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void evict(Tenant tenant) throws IOException {
+		if (isDirty(tenant)) {
+			save(tenant, true);
+		}
+		tenant.library = null;
+		tenant.state = State.INACTIVE;
+		resident.remove(tenant.id);
+		memoryUsed -= tenant.estimatedBytes;
+		tenant.estimatedBytes = 0;
+		changed.signalAll();
+	}
+
+	/* ============================= Loading & Saving =========================== */
+
+	/**
+	 * Reads the tenant's snapshot with the lock released. Called with the lock
+	 * held, and returns with it held.
+	 */
+	private void load(Tenant tenant) throws IOException {
+		tenant.state = State.LOADING;
+		resident.put(tenant.id, tenant);
+		BookStorage library = null;
+		long size = 0;
+		lock.unlock();
+		try {
+			library = serializer.load(tenant.snapshot);
+			size = Files.exists(tenant.snapshot) ? Files.size(tenant.snapshot) : 0;
+		} finally {
+			lock.lock();
+			if (library == null) {
+				tenant.state = State.INACTIVE;
+				resident.remove(tenant.id);
+			} else {
+				tenant.library = library;
+				tenant.state = State.ACTIVE;
+				tenant.snapshotBytes = size;
+				tenant.savedModifications = library.getModificationCount();
+				tenant.lastUsed = clock.getAsLong();
+				tenant.estimatedBytes = estimate(tenant);
+				memoryUsed += tenant.estimatedBytes;
+			}
+			changed.signalAll();
+		}
+	}
+
+	/**
+	 * Writes the tenant's snapshot with the lock released, keeping others from
+	 * leasing it meanwhile. Called with the lock held, and returns with it held.
+	 * If saving fails the library stays in memory.
+	 */
+	private void save(Tenant tenant, boolean evicting) throws IOException {
+		tenant.state = State.SAVING;
+		BookStorage library = tenant.library;
+		long modifications = library.getModificationCount();
+		boolean saved = false;
+		long size = 0;
+		lock.unlock();
+		try {
+			serializer.save(library, tenant.snapshot);
+			size = Files.size(tenant.snapshot);
+			saved = true;
+		} finally {
+			lock.lock();
+			tenant.state = State.ACTIVE;
+			if (saved) {
+				tenant.snapshotBytes = size;
+				tenant.savedModifications = modifications;
+				if (!evicting) {
+					memoryUsed -= tenant.estimatedBytes;
+					tenant.estimatedBytes = estimate(tenant);
+					memoryUsed += tenant.estimatedBytes;
+				}
+			}
+			changed.signalAll();
+		}
+	}
+
+	private static boolean isDirty(Tenant tenant) {
+		return tenant.library.getModificationCount() != tenant.savedModifications;
+	}
+
+	private static long estimate(Tenant tenant) {
+		long changes = tenant.library.getModificationCount() - tenant.savedModifications;
+		return EMPTY_LIBRARY_BYTES + (long) (tenant.snapshotBytes * HEAP_BYTES_PER_SNAPSHOT_BYTE)
+				+ changes * BYTES_PER_CHANGE;
+	}
+
+	private void await() throws InterruptedIOException {
+		try {
+			changed.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a tenant");
+		}
+	}
+
+	/* ================================= Queries ================================ */
+
+	public boolean isActive(String tenantId) {
+		lock.lock();
+		try {
+			Tenant tenant = tenants.get(tenantId);
+			return tenant != null && tenant.state == State.ACTIVE;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getActiveCount() {
+		lock.lock();
+		try {
+			return resident.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Estimated bytes used by all libraries in memory
+	 */
+	public long getMemoryUsage() {
+		lock.lock();
+		try {
+			return memoryUsed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Estimated bytes used by the tenant's library, 0 if it is not in memory
+	 */
+	public long getMemoryUsage(String tenantId) {
+		lock.lock();
+		try {
+			Tenant tenant = tenants.get(tenantId);
+			return tenant == null ? 0 : tenant.estimatedBytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
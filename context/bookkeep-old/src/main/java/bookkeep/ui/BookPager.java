@@ -0,0 +1,232 @@
+package bookkeep.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+import bookkeep.models.Book;
+
+/**
+ * A page-by-page view of a list of books for the terminal menu, optionally
+ * limited to the books of a scope and narrowed by a filter on title and author.
+ *
+ * Pages are read by position, so showing one costs the size of the page and
+ * not of the list, which is why the menu hands in BookStorage.getBooksView
+ * rather than a copy. A scope or filter is applied lazily: the list is only
+ * scanned as far as the pages looked at so far need, and the positions of the
+ * matches found are kept for going back.
+ */
+public class BookPager {
+
+	public static final int DEFAULT_PAGE_SIZE = 20;
+
+	private final List<Book> books;
+	private final Predicate<? super Book> scope;
+	private final int pageSize;
+	private int page;
+
+	private String filter = "";
+	// Positions in books of the matches found so far, only used with a scope or filter
+	private int[] matches = new int[0];
+	private int matchCount;
+	// How far into books the filter has looked
+	private int scanned;
+
+	public BookPager(List<Book> books) {
+		this(books, DEFAULT_PAGE_SIZE);
+	}
+
+	public BookPager(List<Book> books, int pageSize) {
+		this(books, null, pageSize);
+	}
+
+	/**
+	 * Shows only the books the scope accepts, or every book when it is null
+	 */
+	public BookPager(List<Book> books, Predicate<? super Book> scope) {
+		this(books, scope, DEFAULT_PAGE_SIZE);
+	}
+
+	public BookPager(List<Book> books, Predicate<? super Book> scope, int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive");
+		}
+		// Paging reads by position, which has to be cheap
+		this.books = books instanceof RandomAccess ? books : new ArrayList<>(books);
+		this.scope = scope;
+		this.pageSize = pageSize;
+	}
+
+	/* ================================= Paging ================================= */
+
+	/**
+	 * The books of the current page
+	 */
+	public List<Book> getPage() {
+		int from = page * pageSize;
+		int to = from + pageSize;
+		if (!isNarrowed()) {
+			return books.subList(Math.min(from, books.size()), Math.min(to, books.size()));
+		}
+		scanUntil(to);
+		List<Book> pageBooks = new ArrayList<>(pageSize);
+		for (int i = from; i < Math.min(to, matchCount); i++) {
+			pageBooks.add(books.get(matches[i]));
+		}
+		return pageBooks;
+	}
+
+	/**
+	 * Position of the first book of the current page among all the books the
+	 * pager shows
+	 */
+	public int getOffset() {
+		return page * pageSize;
+	}
+
+	public int getPageNumber() {
+		return page + 1;
+	}
+
+	public boolean hasNext() {
+		int next = (page + 1) * pageSize;
+		if (!isNarrowed()) {
+			return next < books.size();
+		}
+		scanUntil(next + 1);
+		return next < matchCount;
+	}
+
+	public boolean hasPrevious() {
+		return page > 0;
+	}
+
+	public void next() {
+		if (hasNext()) {
+			page++;
+		}
+	}
+
+	public void previous() {
+		if (hasPrevious()) {
+			page--;
+		}
+	}
+
+	/**
+	 * Goes to the page with the given number, counted from one, or to the last
+	 * page if there are fewer
+	 */
+	public void jumpTo(int pageNumber) {
+		if (pageNumber < 1) {
+			throw new IllegalArgumentException("Page numbers start at 1");
+		}
+		page = 0;
+		while (page < pageNumber - 1 && hasNext()) {
+			page++;
+		}
+	}
+
+	/**
+	 * Number of pages, or -1 while a scope or filter has not yet looked at the
+	 * whole list
+	 */
+	public int getPageCount() {
+		if (isNarrowed() && scanned < books.size()) {
+			return -1;
+		}
+		int count = isNarrowed() ? matchCount : books.size();
+		return Math.max(1, (count + pageSize - 1) / pageSize);
+	}
+
+	/* ================================= Filter ================================= */
+
+	/**
+	 * Shows only the books whose title or author contain the text, ignoring case.
+	 * An empty text shows every book again. Either way paging starts over.
+	 */
+	public void setFilter(String text) {
+		String lowered = text.trim().toLowerCase();
+		// Every match of the longer text is a match of the shorter one
+		boolean narrower = !filter.isEmpty() && lowered.startsWith(filter);
+		if (narrower) {
+			narrowMatches(lowered);
+		} else {
+			matchCount = 0;
+			scanned = 0;
+		}
+		filter = lowered;
+		page = 0;
+	}
+
+	public String getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Forgets the matches found so far, for when the list changed underneath,
+	 * and stays on the current page if it still has books
+	 */
+	public void refresh() {
+		matchCount = 0;
+		scanned = 0;
+		int wanted = page;
+		page = 0;
+		while (page < wanted && hasNext()) {
+			page++;
+		}
+	}
+
+	private boolean isNarrowed() {
+		return scope != null || !filter.isEmpty();
+	}
+
+	private void narrowMatches(String text) {
+		int kept = 0;
+		for (int i = 0; i < matchCount; i++) {
+			if (matches(books.get(matches[i]), text)) {
+				matches[kept++] = matches[i];
+			}
+		}
+		matchCount = kept;
+	}
+
+	private void scanUntil(int wanted) {
+		while (matchCount < wanted && scanned < books.size()) {
+			if (matches(books.get(scanned), filter)) {
+				if (matchCount == matches.length) {
+					matches = Arrays.copyOf(matches, Math.max(pageSize, matchCount * 2));
+				}
+				matches[matchCount++] = scanned;
+			}
+			scanned++;
+		}
+	}
+
+	private boolean matches(Book book, String text) {
+		if (scope != null && !scope.test(book)) {
+			return false;
+		}
+		return text.isEmpty() || containsIgnoreCase(book.getTitle(), text)
+				|| containsIgnoreCase(book.getAuthorName(), text);
+	}
+
+	/**
+	 * Case-insensitive contains for an already lowercased needle, without
+	 * lowering a copy of the whole haystack
+	 */
+	private static boolean containsIgnoreCase(String haystack, String lowered) {
+		if (haystack == null) {
+			return false;
+		}
+		int last = haystack.length() - lowered.length();
+		for (int i = 0; i <= last; i++) {
+			if (haystack.regionMatches(true, i, lowered, 0, lowered.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
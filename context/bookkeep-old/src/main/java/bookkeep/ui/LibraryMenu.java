@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import bookkeep.enums.BookFormat;
 import bookkeep.enums.Genre;
@@ -25,6 +23,8 @@ public class LibraryMenu {
 	private static final String NO_BOOKS_MSG = "No books available.";
 	private static final String NO_SHELVES_MSG = "No shelves available. Please add a shelf first.";
 	private static final String LIBRARY_PERSISTENCE_HEADER = "===== Library Persistence =====";
+	private static final String PAGER_HELP = "n: next page, p: previous page, g<number>: go to page, /<text>: filter, /: clear filter";
+	private static final String CLEAR_SCREEN = "\033[H\033[2J";
 
 	/* ================================= FIELDS ================================= */
 	// Note: removed final from bookStorage so it can be updated on load.
@@ -47,7 +47,7 @@ public class LibraryMenu {
 	 * Clears the terminal screen using ANSI escape codes.
 	 */
 	private void clearScreen() {
-		System.out.print("\033[H\033[2J");
+		System.out.print(CLEAR_SCREEN);
 		System.out.flush();
 	}
 
@@ -115,59 +115,100 @@ public class LibraryMenu {
 
 	/**
 	 * Displays a list of books (with a header) and allows the user to select one to
-	 * view its details.
-	 * If the list is empty, a message is displayed.
+	 * view its details. Coming back from a book returns to the same page, with
+	 * the list as the book menu left it. If the list is empty, a message is
+	 * displayed.
 	 *
 	 * @param header The header text.
 	 * @param books  The list of books to display.
 	 */
 	private void listBooksAndSelect(String header, List<Book> books) {
-		boolean inListBooksAndSelectMenu = true;
-		while (inListBooksAndSelectMenu) {
-			clearScreen();
-			System.out.println(header);
-			if (books.isEmpty()) {
-				System.out.println(NO_BOOKS_MSG);
-				pressEnterToContinue();
-				return;
-			}
-			for (int i = 0; i < books.size(); i++) {
-				Book book = books.get(i);
-				System.out.println((i + 1) + ". " + book.getTitle() + " by " + book.getAuthorName() + " ("
-						+ book.getPublicationYear() + ")");
-			}
-			System.out.println("0. " + RETURN_LABEL);
-			int choice = getChoice(0, books.size());
-			if (choice != 0) {
-				bookMenu(books.get(choice - 1));
-			} else
-				inListBooksAndSelectMenu = false;
+		BookPager pager = new BookPager(books);
+		Book book;
+		while ((book = pickBook(header, pager)) != null) {
+			bookMenu(book);
+			pager.refresh();
 		}
 	}
 
 	/**
-	 * Displays a list of books (with a header) for selection without immediately
-	 * showing details. Returns the user's selection index (1-indexed) or 0 if
-	 * returning.
+	 * Displays a list of books (with a header) one page at a time and lets the
+	 * user page through it, filter it, and select a book from it.
 	 *
 	 * @param header The header text.
-	 * @param books  The list of books.
-	 * @return The selected index, or 0.
+	 * @param pager  The books, with the page and filter to start from.
+	 * @return The selected book, or null if returning.
 	 */
-	private int selectBook(String header, List<Book> books) {
-		clearScreen();
-		System.out.println(header);
-		if (books.isEmpty()) {
-			System.out.println(NO_BOOKS_MSG);
-			pressEnterToContinue();
-			return 0;
+	private Book pickBook(String header, BookPager pager) {
+		String status = null;
+		while (true) {
+			List<Book> page = pager.getPage();
+			// Every screen is written at once, and only the current page is formatted
+			StringBuilder screen = new StringBuilder(CLEAR_SCREEN).append(header).append('\n');
+			if (page.isEmpty() && pager.getFilter().isEmpty()) {
+				System.out.print(screen.append(NO_BOOKS_MSG).append('\n'));
+				pressEnterToContinue();
+				return null;
+			}
+			appendPage(screen, pager, page);
+			if (status != null) {
+				screen.append(status).append('\n');
+			}
+			screen.append("Enter choice: ");
+			System.out.print(screen);
+			System.out.flush();
+
+			String input = scanner.nextLine().trim();
+			status = null;
+			if (input.equals("0")) {
+				return null;
+			} else if (input.equalsIgnoreCase("n")) {
+				pager.next();
+			} else if (input.equalsIgnoreCase("p")) {
+				pager.previous();
+			} else if (input.startsWith("/")) {
+				pager.setFilter(input.substring(1));
+			} else if (input.toLowerCase().startsWith("g")) {
+				try {
+					pager.jumpTo(Integer.parseInt(input.substring(1).trim()));
+				} catch (IllegalArgumentException e) {
+					status = "Invalid page. Use g followed by a page number, e.g. g3.";
+				}
+			} else {
+				try {
+					int choice = Integer.parseInt(input) - pager.getOffset();
+					if (choice >= 1 && choice <= page.size()) {
+						return page.get(choice - 1);
+					}
+					status = "Invalid choice. Please pick a number shown on this page.";
+				} catch (NumberFormatException e) {
+					status = "Invalid input. Please enter a number or a command.";
+				}
+			}
 		}
-		for (int i = 0; i < books.size(); i++) {
-			Book book = books.get(i);
-			System.out.println((i + 1) + ". " + book.getTitle() + " by " + book.getAuthorName());
+	}
+
+	private void appendPage(StringBuilder screen, BookPager pager, List<Book> page) {
+		int number = pager.getOffset();
+		for (Book book : page) {
+			screen.append(++number).append(". ").append(book.getTitle())
+					.append(" by ").append(book.getAuthorName())
+					.append(" (").append(book.getPublicationYear()).append(")\n");
 		}
-		System.out.println("0. " + RETURN_LABEL);
-		return getChoice(0, books.size());
+		if (page.isEmpty()) {
+			screen.append("No books match '").append(pager.getFilter()).append("'.\n");
+		}
+		int pageCount = pager.getPageCount();
+		screen.append("-- Page ").append(pager.getPageNumber());
+		if (pageCount > 0) {
+			screen.append(" of ").append(pageCount);
+		}
+		if (!pager.getFilter().isEmpty()) {
+			screen.append(", filtered by '").append(pager.getFilter()).append('\'');
+		}
+		screen.append(" --\n");
+		screen.append("0. ").append(RETURN_LABEL).append('\n');
+		screen.append(PAGER_HELP).append('\n');
 	}
 
 	/* ================================ MAIN MENU =============================== */
@@ -208,7 +249,7 @@ public class LibraryMenu {
 		while (inBooksMenu) {
 			int choice = selectOption("===== Books Features Menu =====", options);
 			switch (choice) {
-				case 1 -> listBooksAndSelect("--- All Books in Library ---", bookStorage.getAllBooks());
+				case 1 -> listBooksAndSelect("--- All Books in Library ---", bookStorage.getBooksView());
 				case 2 -> showBooksByAuthor();
 				case 3 -> showBooksByYear();
 				case 4 -> showBooksByYearInterval();
@@ -320,28 +361,13 @@ public class LibraryMenu {
 		pressEnterToContinue();
 	}
 
-	/**
-	 * Returns a list of books in the library that are not already in the specified
-	 * shelf.
-	 */
-	private List<Book> getBooksNotInShelf(String shelfName) {
-		List<Book> allBooks = bookStorage.getAllBooks();
-		List<Book> shelfBooks = bookStorage.getBooksFromShelfName(shelfName);
-		Set<String> shelfUUIDs = shelfBooks.stream()
-				.map(book -> book.getUUID().toString())
-				.collect(Collectors.toSet());
-		return allBooks.stream()
-				.filter(book -> !shelfUUIDs.contains(book.getUUID().toString()))
-				.collect(Collectors.toList());
-	}
-
 	private void addBookToShelf(String shelfName) {
-		List<Book> availableBooks = getBooksNotInShelf(shelfName);
-		int choice = selectBook("Select a book to add to shelf '" + shelfName + "':", availableBooks);
-		if (choice == 0) {
+		// Pages through the library itself, skipping the books already on the shelf
+		Book selectedBook = pickBook("Select a book to add to shelf '" + shelfName + "':",
+				new BookPager(bookStorage.getBooksView(), bookStorage.notInShelf(shelfName)));
+		if (selectedBook == null) {
 			return;
 		}
-		Book selectedBook = availableBooks.get(choice - 1);
 		bookStorage.addBookToShelf(shelfName, selectedBook);
 		System.out.println("Book '" + selectedBook.getTitle() + "' added to shelf '" + shelfName + "'.");
 		pressEnterToContinue();
@@ -349,11 +375,11 @@ public class LibraryMenu {
 
 	private void removeBookFromShelf(String shelfName) {
 		List<Book> shelfBooks = bookStorage.getBooksFromShelfName(shelfName);
-		int choice = selectBook("Select a book to remove from shelf '" + shelfName + "':", shelfBooks);
-		if (choice == 0) {
+		Book selectedBook = pickBook("Select a book to remove from shelf '" + shelfName + "':",
+				new BookPager(shelfBooks));
+		if (selectedBook == null) {
 			return;
 		}
-		Book selectedBook = shelfBooks.get(choice - 1);
 		bookStorage.removeBookFromShelf(shelfName, selectedBook);
 		System.out.println("Book '" + selectedBook.getTitle() + "' removed from shelf '" + shelfName + "'.");
 		pressEnterToContinue();
@@ -361,7 +387,8 @@ public class LibraryMenu {
 
 	private void viewBooksInShelf(String shelfName) {
 		List<Book> shelfBooks = bookStorage.getBooksFromShelfName(shelfName);
-		listBooksAndSelect("Books in shelf '" + shelfName + "':", shelfBooks);
+		listBooksAndSelect("Books in shelf '" + shelfName + "' (" + bookStorage.getShelfSummary(shelfName) + "):",
+				shelfBooks);
 	}
 
 	/* ======================== LIBRARY PERSISTENCE MENU ======================== */
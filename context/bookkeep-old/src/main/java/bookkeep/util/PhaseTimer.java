@@ -0,0 +1,74 @@
+package bookkeep.util;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Named marks on the way through a multi-step process such as startup, each
+ * with the time since the origin and since the previous mark. Marks may come
+ * from any thread.
+ */
+public final class PhaseTimer {
+
+	/**
+	 * One mark: its name, when it happened after the origin and how long after
+	 * the previous mark
+	 */
+	public record Phase(String name, Duration sinceOrigin, Duration sincePrevious) {
+		@Override
+		public String toString() {
+			return String.format("%-20s %6d ms (+%d ms)", name, sinceOrigin.toMillis(), sincePrevious.toMillis());
+		}
+	}
+
+	private final LongSupplier clock;
+	private final long origin;
+	private final List<Phase> phases = new ArrayList<>();
+	private long previous;
+
+	/**
+	 * Times from the moment of construction
+	 */
+	public PhaseTimer() {
+		this(System::nanoTime, System.nanoTime());
+	}
+
+	PhaseTimer(LongSupplier clock, long origin) {
+		this.clock = clock;
+		this.origin = origin;
+		this.previous = origin;
+	}
+
+	/**
+	 * Times from the start of the JVM, so the first mark includes the JVM's own
+	 * startup and class loading
+	 */
+	public static PhaseTimer sinceJvmStart() {
+		long uptimeNanos = Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime()).toNanos();
+		return new PhaseTimer(System::nanoTime, System.nanoTime() - uptimeNanos);
+	}
+
+	public synchronized Phase mark(String name) {
+		long now = clock.getAsLong();
+		Phase phase = new Phase(name, Duration.ofNanos(now - origin), Duration.ofNanos(now - previous));
+		previous = now;
+		phases.add(phase);
+		return phase;
+	}
+
+	public synchronized List<Phase> getPhases() {
+		return Collections.unmodifiableList(new ArrayList<>(phases));
+	}
+
+	public synchronized void print(String title, PrintStream out) {
+		out.println(title);
+		for (Phase phase : phases) {
+			out.println("  " + phase);
+		}
+	}
+}
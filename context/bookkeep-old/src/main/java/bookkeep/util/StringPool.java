@@ -0,0 +1,167 @@
+package bookkeep.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonicalizing pool for strings that repeat across a library, such as author
+ * names and the text of comments and quotes that come back on re-reads.
+ * Equal strings passed through {@link #canonicalize(String)} come back as one
+ * shared instance, so the duplicate copy can be garbage collected.
+ *
+ * Entries are only weakly referenced: once no book or event uses a string
+ * anymore it is collected as usual and drops out of the pool.
+ */
+public final class StringPool {
+
+	private static final StringPool SHARED = new StringPool();
+
+	/**
+	 * Rough per-instance overhead of a String and its backing array on a 64-bit
+	 * JVM with compressed oops. Used for the bytes saved estimate only.
+	 */
+	private static final int STRING_OVERHEAD_BYTES = 24 + 16;
+
+	private final ConcurrentHashMap<WeakKey, WeakKey> entries = new ConcurrentHashMap<>();
+	private final ReferenceQueue<String> staleKeys = new ReferenceQueue<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+
+	/**
+	 * The pool shared by the models, builders and deserializers
+	 */
+	public static StringPool shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Shorthand for canonicalizing through the shared pool
+	 */
+	public static String intern(String value) {
+		return SHARED.canonicalize(value);
+	}
+
+	/**
+	 * Returns the pooled instance equal to the given string, adding it to the
+	 * pool if no such instance exists. Null is passed through unchanged.
+	 */
+	public String canonicalize(String value) {
+		if (value == null) {
+			return null;
+		}
+		expungeStaleEntries();
+
+		WeakKey probe = new WeakKey(value, null);
+		while (true) {
+			WeakKey existing = entries.get(probe);
+			if (existing == null) {
+				WeakKey fresh = new WeakKey(value, staleKeys);
+				existing = entries.putIfAbsent(fresh, fresh);
+				if (existing == null) {
+					misses.increment();
+					return value;
+				}
+			}
+			String canonical = existing.get();
+			if (canonical != null) {
+				if (canonical != value) {
+					hits.increment();
+					bytesSaved.add(estimateSize(canonical));
+				}
+				return canonical;
+			}
+			// Collected between lookup and get, drop it and try again
+			entries.remove(existing, existing);
+		}
+	}
+
+	/* ================================ Statistics ============================== */
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0.0 : (double) h / total;
+	}
+
+	/**
+	 * Estimated heap bytes no longer retained because a duplicate was replaced by
+	 * the pooled instance. Assumes compact (Latin-1) strings.
+	 */
+	public long getBytesSaved() {
+		return bytesSaved.sum();
+	}
+
+	public int size() {
+		expungeStaleEntries();
+		return entries.size();
+	}
+
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+		bytesSaved.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StringPool{size=%d, hits=%d, misses=%d, hitRate=%.2f, bytesSaved=%d}",
+				size(), getHits(), getMisses(), getHitRate(), getBytesSaved());
+	}
+
+	/* ================================ Internals =============================== */
+
+	private void expungeStaleEntries() {
+		Reference<? extends String> stale;
+		while ((stale = staleKeys.poll()) != null) {
+			entries.remove(stale);
+		}
+	}
+
+	private static long estimateSize(String value) {
+		long size = STRING_OVERHEAD_BYTES + value.length();
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * Weak reference that compares by the referenced string. The hash is cached
+	 * so a cleared key can still be located and removed.
+	 */
+	private static final class WeakKey extends WeakReference<String> {
+		private final int hash;
+
+		WeakKey(String value, ReferenceQueue<String> queue) {
+			super(value, queue);
+			this.hash = value.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof WeakKey key) || key.hash != hash) {
+				return false;
+			}
+			String value = get();
+			return value != null && value.equals(key.get());
+		}
+	}
+}
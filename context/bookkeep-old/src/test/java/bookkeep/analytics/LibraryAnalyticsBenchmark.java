@@ -0,0 +1,64 @@
+package bookkeep.analytics;
+
+import java.util.concurrent.ForkJoinPool;
+
+import bookkeep.models.collections.BookStorage;
+
+/**
+ * Compares the sequential report with the fork/join one at increasing
+ * parallelism, up to the number of cores. Not a unit test, run it by hand:
+ *
+ * java -cp target/classes:target/test-classes bookkeep.analytics.LibraryAnalyticsBenchmark [books]
+ *
+ * The best of several runs is reported for each configuration, after a few
+ * warmup runs so the JIT has compiled the hot path.
+ */
+public class LibraryAnalyticsBenchmark {
+
+	private static final int WARMUP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("Building a library of " + size + " books...");
+		BookStorage storage = LibraryAnalyticsTest.libraryOf(size);
+
+		long sequential = bestOf(() -> LibraryAnalytics.reportSequential(storage).getElapsed().toNanos());
+		System.out.printf("sequential      %8.1f ms%n", sequential / 1e6);
+
+		for (int parallelism = 1; parallelism <= cores; parallelism = nextParallelism(parallelism, cores)) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			LibraryAnalytics analytics = new LibraryAnalytics(pool);
+			long parallel = bestOf(() -> analytics.report(storage).getElapsed().toNanos());
+			pool.shutdown();
+			System.out.printf("parallelism %2d  %8.1f ms  speedup %.2fx%n", parallelism, parallel / 1e6,
+					(double) sequential / parallel);
+		}
+	}
+
+	/**
+	 * Powers of two, ending with the core count itself
+	 */
+	private static int nextParallelism(int parallelism, int cores) {
+		if (parallelism == cores) {
+			return cores + 1;
+		}
+		return Math.min(parallelism * 2, cores);
+	}
+
+	private interface Run {
+		long nanos();
+	}
+
+	private static long bestOf(Run run) {
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			run.nanos();
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			best = Math.min(best, run.nanos());
+		}
+		return best;
+	}
+}
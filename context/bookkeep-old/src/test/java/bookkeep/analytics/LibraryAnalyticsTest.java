@@ -0,0 +1,91 @@
+package bookkeep.analytics;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+class LibraryAnalyticsTest {
+
+	private static final int BOOKS = 10 * LibraryAnalytics.MIN_LEAF_SIZE;
+
+	private BookStorage storage;
+	private ForkJoinPool pool;
+
+	@BeforeEach
+	void setUp() {
+		storage = libraryOf(BOOKS);
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Every third book is finished, authors and years repeat
+	 */
+	static BookStorage libraryOf(int size) {
+		BookStorage storage = new BookStorage();
+		for (int i = 0; i < size; i++) {
+			OwnedBook book = new BookBuilder()
+					.withTitle("Book " + i)
+					.withAuthorName("Author " + (i % 97))
+					.withPublicationYear(1900 + i % 120)
+					.withPageCount(100 + i % 400)
+					.withGenre(Genre.values()[i % Genre.values().length])
+					.withFormat(BookFormat.DIGITAL)
+					.buildOwnedBook();
+			if (i % 3 == 0) {
+				book.changeState();
+				book.changeState();
+			}
+			storage.addBook(book);
+		}
+		return storage;
+	}
+
+	/* ============================ PARALLEL RESULTS ============================ */
+
+	@Test
+	void testParallelReportMatchesSequential() {
+		LibraryReport sequential = LibraryAnalytics.reportSequential(storage);
+		LibraryReport parallel = new LibraryAnalytics(pool).report(storage);
+
+		assertEquals(BOOKS, parallel.getBookCount());
+		assertEquals(sequential.getFinishedCount(), parallel.getFinishedCount());
+		assertArrayEquals(sequential.getDurationHistogram(), parallel.getDurationHistogram());
+		assertEquals(sequential.getPagesPerDecade(), parallel.getPagesPerDecade());
+		assertEquals(97, parallel.getAuthorTotals().size());
+		for (String author : sequential.getAuthorTotals().keySet()) {
+			assertEquals(sequential.getAuthorTotals(author).getPages(), parallel.getAuthorTotals(author).getPages());
+			assertEquals(sequential.getAuthorTotals(author).getFinished(),
+					parallel.getAuthorTotals(author).getFinished());
+		}
+	}
+
+	@Test
+	void testReportTotals() {
+		LibraryReport report = new LibraryAnalytics(pool).report(storage);
+
+		assertEquals((BOOKS + 2) / 3, report.getFinishedCount());
+		assertEquals((BOOKS + 2) / 3, report.getDurationHistogram()[0], "Books finished right away take under a day");
+		long pages = report.getPagesPerDecade().values().stream().mapToLong(Long::longValue).sum();
+		long expected = 0;
+		for (int i = 0; i < BOOKS; i++) {
+			expected += 100 + i % 400;
+		}
+		assertEquals(expected, pages);
+		assertEquals(4, report.getParallelism());
+	}
+}
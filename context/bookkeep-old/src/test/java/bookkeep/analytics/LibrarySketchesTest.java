@@ -0,0 +1,62 @@
+package bookkeep.analytics;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+class LibrarySketchesTest {
+
+	private static OwnedBook book(String title, String author, Genre genre, int pages) {
+		return new BookBuilder().withTitle(title).withAuthorName(author).withPageCount(pages).withGenre(genre)
+				.withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+	}
+
+	@Test
+	void testFollowsLibraryChanges() {
+		BookStorage storage = new BookStorage();
+		LibrarySketches sketches = new LibrarySketches();
+		storage.addListener(sketches);
+
+		OwnedBook quoted = book("Quoted", "First Author", Genre.DRAMA, 200);
+		OwnedBook other = book("Other", "Second Author", Genre.HUMOR, 400);
+		storage.addBook(quoted);
+		storage.addBook(other);
+		for (OwnedBook book : List.of(quoted, other)) {
+			book.changeState();
+		}
+		for (int i = 0; i < 5; i++) {
+			quoted.addQuote("Quote " + i, i + 1);
+		}
+		other.addQuote("Only one", 3);
+		quoted.changeState();
+		other.changeState();
+
+		int year = LocalDate.now().getYear();
+		assertEquals(2, sketches.getDistinctAuthors());
+		assertEquals(2, sketches.getDistinctAuthorsRead(year));
+		assertEquals(2, sketches.getDistinctGenresRead(year));
+		assertEquals(5, sketches.getQuoteCount(quoted.getUUID()));
+		assertEquals(List.of(quoted.getUUID(), other.getUUID()), sketches.getMostQuoted(2));
+	}
+
+	@Test
+	void testShelfSketchesMerge() {
+		OwnedBook first = book("First", "Shared Author", Genre.FANTASY, 100);
+		OwnedBook second = book("Second", "Shared Author", Genre.FANTASY, 300);
+		OwnedBook third = book("Third", "Another Author", Genre.FANTASY, 500);
+
+		LibrarySketches shelf = LibrarySketches.of(List.of(first, second));
+		shelf.merge(LibrarySketches.of(List.of(third)));
+
+		assertEquals(2, shelf.getDistinctAuthors());
+		assertEquals(300.0, shelf.getPageCountQuantile(0.5));
+	}
+}
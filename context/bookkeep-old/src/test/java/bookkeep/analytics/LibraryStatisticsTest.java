@@ -0,0 +1,124 @@
+package bookkeep.analytics;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.WishlistBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.history.BookSnapshot;
+
+class LibraryStatisticsTest {
+
+	private BookStorage storage;
+	private LibraryStatistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		storage = new BookStorage();
+		statistics = storage.getStatistics();
+	}
+
+	private static OwnedBook book(String title, Genre genre) {
+		return new BookBuilder().withTitle(title).withAuthorName("Author").withPageCount(300).withGenre(genre)
+				.withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+	}
+
+	/* ============================ STATE TRANSITIONS =========================== */
+
+	@Test
+	void testStateCountersFollowTransitions() {
+		OwnedBook first = book("First", Genre.FANTASY);
+		OwnedBook second = book("Second", Genre.FANTASY);
+		storage.addBook(first);
+		storage.addBook(second);
+		assertEquals(2, statistics.getCountInState(BookSnapshot.NOT_STARTED));
+
+		first.changeState();
+		first.incrementPageNumber(300);
+		first.changeState();
+		second.changeState();
+		second.incrementPageNumber(40);
+
+		assertEquals(0, statistics.getCountInState(BookSnapshot.NOT_STARTED));
+		assertEquals(1, statistics.getCountInState(BookSnapshot.IN_PROGRESS));
+		assertEquals(1, statistics.getCountInState(BookSnapshot.FINISHED));
+		assertEquals(1, statistics.getFinishedInYear(LocalDate.now().getYear()));
+		assertEquals(340, statistics.getPagesRead());
+	}
+
+	/* ================================= REVIEWS ================================ */
+
+	@Test
+	void testAverageRatingReplacesEarlierReview() {
+		OwnedBook first = book("First", Genre.FICTION);
+		OwnedBook second = book("Second", Genre.FICTION);
+		storage.addBook(first);
+		storage.addBook(second);
+		for (OwnedBook book : new OwnedBook[] { first, second }) {
+			book.changeState();
+			book.changeState();
+		}
+
+		first.review("Fine", 2);
+		second.review("Great", 5);
+		first.review("Better on second thought", 4);
+
+		assertEquals(2, statistics.getReviewCount());
+		assertEquals(4.5, statistics.getAverageRating(), 1e-9);
+		assertEquals(0, statistics.getRatingHistogram()[2]);
+		assertEquals(1, statistics.getRatingHistogram()[4]);
+	}
+
+	/* ========================= ADDITIONS AND REMOVALS ========================= */
+
+	@Test
+	void testGenreDistributionFollowsEditsAndRemovals() {
+		OwnedBook first = book("First", Genre.MYSTERY);
+		OwnedBook second = book("Second", Genre.MYSTERY);
+		storage.addBook(first);
+		storage.addBook(second);
+		second.setGenre(Genre.THRILLER);
+		assertEquals(Map.of(Genre.MYSTERY, 1, Genre.THRILLER, 1), statistics.getGenreDistribution());
+
+		first.changeState();
+		first.incrementPageNumber(25);
+		storage.removeBook(first);
+		assertEquals(Map.of(Genre.THRILLER, 1), statistics.getGenreDistribution());
+		assertEquals(0, statistics.getPagesRead(), "Pages of removed books should no longer count");
+		assertEquals(1, statistics.getBookCount());
+	}
+
+	@Test
+	void testWishlistGenreEditsAreFollowed() {
+		WishlistBook wished = new BookBuilder().withTitle("Wished").withAuthorName("Author").withPageCount(200)
+				.withGenre(Genre.MYSTERY).buildWishlistBook();
+		storage.addBook(wished);
+		wished.setGenre(Genre.POETRY);
+		assertEquals(Map.of(Genre.POETRY, 1), statistics.getGenreDistribution());
+
+		storage.removeBook(wished);
+		assertEquals(Map.of(), statistics.getGenreDistribution());
+	}
+
+	@Test
+	void testBooksAddedWithHistoryAreCounted() {
+		OwnedBook finished = book("Finished", Genre.POETRY);
+		finished.changeState();
+		finished.incrementPageNumber(120);
+		finished.changeState();
+		finished.review("Lovely", 3);
+
+		storage.addBook(finished);
+		assertEquals(1, statistics.getCountInState(BookSnapshot.FINISHED));
+		assertEquals(120, statistics.getPagesRead());
+		assertEquals(3.0, statistics.getAverageRating(), 1e-9);
+	}
+}
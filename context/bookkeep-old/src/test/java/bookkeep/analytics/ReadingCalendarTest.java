@@ -0,0 +1,175 @@
+package bookkeep.analytics;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.history.BookEventBuilder;
+
+class ReadingCalendarTest {
+
+	/**
+	 * Noon on the 1st of July 2024, day 183 of a 366 day year
+	 */
+	private static final Instant NOW = Instant.parse("2024-07-01T12:00:00Z");
+
+	private ReadingCalendar calendar;
+
+	@BeforeEach
+	void setUp() {
+		calendar = new ReadingCalendar(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	private static Instant daysAgo(int days) {
+		return NOW.minusSeconds(days * 86_400L);
+	}
+
+	/* ================================= STREAKS ================================ */
+
+	@Test
+	void testCurrentAndLongestStreak() {
+		for (int day = 20; day >= 11; day--) {
+			calendar.recordActivity(daysAgo(day));
+		}
+		for (int day = 3; day >= 1; day--) {
+			calendar.recordActivity(daysAgo(day));
+		}
+
+		assertEquals(3, calendar.getCurrentStreak(), "Nothing today yet, so the streak up to yesterday counts");
+		calendar.recordActivity(NOW);
+		assertEquals(4, calendar.getCurrentStreak());
+		assertEquals(10, calendar.getLongestStreak());
+	}
+
+	@Test
+	void testFillingAGapJoinsStreaks() {
+		for (int day = 9; day >= 1; day--) {
+			if (day != 5) {
+				calendar.recordActivity(daysAgo(day));
+			}
+		}
+		assertEquals(4, calendar.getLongestStreak());
+		calendar.recordActivity(daysAgo(5));
+		assertEquals(9, calendar.getLongestStreak());
+	}
+
+	@Test
+	void testStreakAcrossNewYear() {
+		ReadingCalendar january = new ReadingCalendar(Clock.fixed(Instant.parse("2024-01-02T12:00:00Z"),
+				ZoneOffset.UTC));
+		january.recordActivity(Instant.parse("2023-12-30T20:00:00Z"));
+		january.recordActivity(Instant.parse("2023-12-31T20:00:00Z"));
+		january.recordActivity(Instant.parse("2024-01-01T20:00:00Z"));
+		january.recordActivity(Instant.parse("2024-01-02T08:00:00Z"));
+		assertEquals(4, january.getCurrentStreak());
+	}
+
+	/* ================================ TIME ZONES ============================== */
+
+	@Test
+	void testEventsKeepTheDateOfTheZoneTheyHappenedIn() {
+		Instant lateEvening = Instant.parse("2024-06-20T22:30:00Z");
+		calendar.setZone(ZoneId.of("Europe/Oslo"));
+		calendar.recordActivity(lateEvening);
+		assertTrue(calendar.isActive(LocalDate.of(2024, 6, 21)), "Half past midnight in Oslo is the next day");
+
+		calendar.setZone(ZoneId.of("America/New_York"));
+		calendar.recordActivity(lateEvening.plusSeconds(86_400));
+		assertTrue(calendar.isActive(LocalDate.of(2024, 6, 21)), "Half past six in New York is the same day");
+		assertFalse(calendar.isActive(LocalDate.of(2024, 6, 20)), "Days already recorded should not move");
+		assertEquals(2, calendar.getActivity(LocalDate.of(2024, 6, 21)));
+	}
+
+	/* ================================== GOALS ================================= */
+
+	@Test
+	void testGoalProjection() {
+		for (int i = 0; i < 12; i++) {
+			calendar.recordFinished(daysAgo(i * 10));
+		}
+		assertEquals(12, calendar.getFinishedInYear(2024));
+		assertEquals(24, calendar.getProjectedFinishedThisYear());
+		assertTrue(calendar.isOnPace(24));
+		assertFalse(calendar.isOnPace(30));
+	}
+
+	@Test
+	void testFollowsLibrary() {
+		ReadingCalendar live = new ReadingCalendar();
+		BookStorage storage = new BookStorage();
+		storage.addListener(live);
+		OwnedBook book = new BookBuilder().withTitle("Today").withAuthorName("Author").withPageCount(100)
+				.withGenre(Genre.HUMOR).withFormat(BookFormat.DIGITAL).buildOwnedBook();
+		storage.addBook(book);
+		book.changeState();
+		book.incrementPageNumber(100);
+		book.changeState();
+
+		assertEquals(1, live.getCurrentStreak());
+		assertEquals(1, live.getFinishedInYear(LocalDate.now().getYear()));
+	}
+
+	@Test
+	void testRemovedBookIsTakenBack() {
+		ReadingCalendar live = new ReadingCalendar();
+		BookStorage storage = new BookStorage();
+		storage.addListener(live);
+		OwnedBook book = new BookBuilder().withTitle("Today").withAuthorName("Author").withPageCount(100)
+				.buildOwnedBook();
+		storage.addBook(book);
+		book.changeState();
+		book.incrementPageNumber(100);
+		book.changeState();
+		LocalDate today = LocalDate.now();
+		int activity = live.getActivity(today);
+
+		storage.removeBook(book);
+		assertEquals(0, live.getActivity(today));
+		assertEquals(0, live.getFinishedInYear(today.getYear()));
+		assertEquals(0, live.getLongestStreak());
+
+		storage.addBook(book);
+		assertEquals(activity, live.getActivity(today), "Adding it back counts it once");
+		assertEquals(1, live.getFinishedInYear(today.getYear()));
+		assertEquals(1, live.getLongestStreak());
+	}
+
+	@Test
+	void testRemovalTakesBackOnlyThatBooksDays() {
+		BookStorage storage = new BookStorage();
+		storage.addListener(calendar);
+		OwnedBook removed = new BookBuilder().withTitle("Removed").withAuthorName("Author").withPageCount(2000)
+				.buildOwnedBook();
+		OwnedBook kept = new BookBuilder().withTitle("Kept").withAuthorName("Author").withPageCount(100)
+				.buildOwnedBook();
+		storage.addBook(removed);
+		storage.addBook(kept);
+		removed.replay(BookEventBuilder.forStartedReading().atTime(daysAgo(3)).build());
+		for (int page = 1; page <= 1500; page++) {
+			removed.replay(BookEventBuilder.forPageUpdate(page).atTime(daysAgo(2)).build());
+		}
+		removed.replay(BookEventBuilder.forPageUpdate(1600).atTime(daysAgo(1)).build());
+		removed.replay(BookEventBuilder.forPageUpdate(1700).atTime(daysAgo(2)).build());
+		kept.replay(BookEventBuilder.forStartedReading().atTime(daysAgo(2)).build());
+		assertEquals(1502, calendar.getActivity(LocalDate.ofInstant(daysAgo(2), ZoneOffset.UTC)));
+
+		storage.removeBook(removed);
+		assertEquals(1, calendar.getActivity(LocalDate.ofInstant(daysAgo(2), ZoneOffset.UTC)));
+		assertEquals(0, calendar.getActivity(LocalDate.ofInstant(daysAgo(1), ZoneOffset.UTC)));
+		assertEquals(0, calendar.getActivity(LocalDate.ofInstant(daysAgo(3), ZoneOffset.UTC)));
+		assertEquals(1, calendar.getLongestStreak());
+	}
+}
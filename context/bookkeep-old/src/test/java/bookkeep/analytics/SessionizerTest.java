@@ -0,0 +1,121 @@
+package bookkeep.analytics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.history.BookEventBuilder;
+
+class SessionizerTest {
+
+	private static final Instant EVENING = Instant.parse("2024-05-01T19:00:00Z");
+
+	private Sessionizer sessionizer;
+	private List<ReadingSession> closed;
+
+	@BeforeEach
+	void setUp() {
+		sessionizer = new Sessionizer(Duration.ofMinutes(30), ZoneOffset.UTC);
+		closed = new ArrayList<>();
+		sessionizer.setSessionListener(closed::add);
+	}
+
+	/* =============================== STREAMING ================================ */
+
+	@Test
+	void testIdleGapSplitsSessions() {
+		UUID book = UUID.randomUUID();
+		sessionizer.record(book, Genre.FICTION, EVENING, 10);
+		sessionizer.record(book, Genre.FICTION, EVENING.plusSeconds(20 * 60), 15);
+		sessionizer.record(book, Genre.FICTION, EVENING.plusSeconds(45 * 60), 5);
+		assertEquals(0, closed.size(), "Pauses under the gap keep the session open");
+
+		sessionizer.record(book, Genre.FICTION, EVENING.plusSeconds(3 * 3600), 8);
+		assertEquals(1, closed.size());
+		ReadingSession first = closed.get(0);
+		assertEquals(Duration.ofMinutes(45), first.getDuration());
+		assertEquals(30, first.getPagesRead());
+		assertEquals(3, first.getEventCount());
+		assertEquals(40.0, sessionizer.forBook(book).getPagesPerHour(), 1e-9);
+	}
+
+	@Test
+	void testOnlyOpenSessionsAreKept() {
+		for (int i = 0; i < 100; i++) {
+			sessionizer.record(UUID.randomUUID(), Genre.MYSTERY, EVENING.plusSeconds(i * 3600L), 20);
+		}
+		assertEquals(1, sessionizer.getOpenSessionCount(), "Sessions idle longer than the gap should be closed");
+		assertEquals(99, sessionizer.getTotal().getSessionCount());
+	}
+
+	@Test
+	void testAggregatesPerGenreAndDay() {
+		UUID fantasy = UUID.randomUUID();
+		UUID history = UUID.randomUUID();
+		sessionizer.record(fantasy, Genre.FANTASY, EVENING, 10);
+		sessionizer.record(history, Genre.HISTORY, EVENING.plusSeconds(60), 4);
+		sessionizer.record(fantasy, Genre.FANTASY, EVENING.plusSeconds(86_400), 30);
+		sessionizer.closeAll();
+
+		assertEquals(2, sessionizer.forGenre(Genre.FANTASY).getSessionCount());
+		assertEquals(40, sessionizer.forGenre(Genre.FANTASY).getPagesRead());
+		assertEquals(1, sessionizer.forGenre(Genre.HISTORY).getSessionCount());
+		assertEquals(2, sessionizer.forDay(LocalDate.of(2024, 5, 1)).getSessionCount());
+		assertEquals(2, sessionizer.forDays(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 2)).size());
+	}
+
+	/* ================================ BACKFILL ================================ */
+
+	@Test
+	void testBackfillMatchesStreaming() {
+		OwnedBook book = new BookBuilder().withTitle("Sessions").withAuthorName("Author").withPageCount(500)
+				.withGenre(Genre.DRAMA).withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+		book.recordEvent(BookEventBuilder.forStartedReading().atTime(EVENING).build());
+		book.recordEvent(BookEventBuilder.forPageUpdate(25).atTime(EVENING.plusSeconds(15 * 60)).build());
+		book.recordEvent(BookEventBuilder.forComment("Slow start").atTime(EVENING.plusSeconds(20 * 60)).build());
+		book.recordEvent(BookEventBuilder.forPageUpdate(60).atTime(EVENING.plusSeconds(50 * 60)).build());
+		book.recordEvent(BookEventBuilder.forPageUpdate(90).atTime(EVENING.plusSeconds(26 * 3600)).build());
+
+		BookStorage storage = new BookStorage();
+		storage.addBook(book);
+		sessionizer.backfill(storage);
+
+		assertEquals(2, closed.size());
+		assertEquals(60, closed.get(0).getPagesRead());
+		assertEquals(4, closed.get(0).getEventCount());
+		assertEquals(Duration.ofMinutes(50), closed.get(0).getDuration());
+		assertEquals(30, closed.get(1).getPagesRead());
+		assertEquals(0, sessionizer.getOpenSessionCount());
+	}
+
+	@Test
+	void testFollowsLibraryAsListener() {
+		BookStorage storage = new BookStorage();
+		storage.addListener(sessionizer);
+		OwnedBook book = new BookBuilder().withTitle("Live").withAuthorName("Author").withPageCount(300)
+				.withGenre(Genre.POETRY).withFormat(BookFormat.DIGITAL).buildOwnedBook();
+		storage.addBook(book);
+
+		book.changeState();
+		book.incrementPageNumber(12);
+		book.incrementPageNumber(8);
+		book.setGenre(Genre.DRAMA);
+
+		assertEquals(1, sessionizer.getOpenSessionCount());
+		assertEquals(20, sessionizer.getOpenSessions().get(0).getPagesRead());
+		assertEquals(3, sessionizer.getOpenSessions().get(0).getEventCount(), "Metadata edits are not reading");
+	}
+}
@@ -0,0 +1,53 @@
+package bookkeep.analytics.sketch;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class CountMinSketchTest {
+
+	private static final double EPSILON = 0.001;
+	private static final double DELTA = 0.01;
+
+	/* ================================ ACCURACY ================================ */
+
+	@Test
+	void testEstimatesNeverUndercountAndRarelyOvercount() {
+		CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+		int keys = 5_000;
+		UUID[] ids = new UUID[keys];
+		long[] counts = new long[keys];
+		for (int i = 0; i < keys; i++) {
+			ids[i] = new UUID(i, i * 31L);
+			// Skewed like real quoting: a few books get most of the quotes
+			counts[i] = 1 + 10_000 / (i + 1);
+			sketch.add(ids[i], counts[i]);
+		}
+
+		double bound = EPSILON * sketch.getTotalCount();
+		int overBound = 0;
+		for (int i = 0; i < keys; i++) {
+			long estimate = sketch.estimate(ids[i]);
+			assertTrue(estimate >= counts[i], "Count-min must never undercount");
+			if (estimate - counts[i] > bound) {
+				overBound++;
+			}
+		}
+		assertTrue(overBound <= 2 * DELTA * keys, overBound + " keys overcounted by more than the bound");
+	}
+
+	@Test
+	void testMergeAddsCounts() {
+		CountMinSketch first = new CountMinSketch(EPSILON, DELTA);
+		CountMinSketch second = new CountMinSketch(EPSILON, DELTA);
+		UUID book = UUID.randomUUID();
+		first.add(book, 7);
+		second.add(book, 5);
+		first.merge(second);
+
+		assertEquals(12, first.estimate(book));
+		assertEquals(12, first.getTotalCount());
+	}
+}
@@ -0,0 +1,71 @@
+package bookkeep.analytics.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+	/**
+	 * Allowed error in standard errors, wide enough that the fixed inputs below
+	 * can not fail by bad luck
+	 */
+	private static final double SIGMAS = 3;
+
+	private static void assertWithinBound(HyperLogLog sketch, long actual) {
+		double error = Math.abs(sketch.estimate() - actual) / (double) actual;
+		assertTrue(error <= SIGMAS * sketch.getStandardError(),
+				"Estimate " + sketch.estimate() + " for " + actual + " is off by " + error);
+	}
+
+	/* ================================ ACCURACY ================================ */
+
+	@Test
+	void testEstimateWithinErrorBoundAtSeveralSizes() {
+		for (int size : new int[] { 100, 1_000, 10_000, 100_000, 1_000_000 }) {
+			HyperLogLog sketch = new HyperLogLog();
+			for (int i = 0; i < size; i++) {
+				sketch.add("Author " + i);
+			}
+			assertWithinBound(sketch, size);
+		}
+	}
+
+	@Test
+	void testDuplicatesAreNotCounted() {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int repeat = 0; repeat < 20; repeat++) {
+			for (int i = 0; i < 500; i++) {
+				sketch.add("Author " + i);
+			}
+		}
+		assertWithinBound(sketch, 500);
+	}
+
+	/* ================================= MERGING ================================ */
+
+	@Test
+	void testMergeEstimatesTheUnion() {
+		HyperLogLog first = new HyperLogLog();
+		HyperLogLog second = new HyperLogLog();
+		for (int i = 0; i < 60_000; i++) {
+			first.add("Author " + i);
+		}
+		for (int i = 40_000; i < 100_000; i++) {
+			second.add("Author " + i);
+		}
+		first.merge(second);
+		assertWithinBound(first, 100_000);
+	}
+
+	@Test
+	void testMergeRequiresSamePrecision() {
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).merge(new HyperLogLog(12)));
+	}
+
+	@Test
+	void testEmptySketchEstimatesZero() {
+		assertEquals(0, new HyperLogLog().estimate());
+	}
+}
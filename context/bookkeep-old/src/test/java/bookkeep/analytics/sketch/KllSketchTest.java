@@ -0,0 +1,113 @@
+package bookkeep.analytics.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class KllSketchTest {
+
+	/**
+	 * Allowed normalized rank error for the default k, about twice the expected
+	 * error so the fixed inputs below can not fail by bad luck
+	 */
+	private static final double RANK_ERROR = 0.03;
+	private static final double[] QUANTILES = { 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99 };
+
+	/**
+	 * The values 0 to n - 1 in shuffled order, so the value at rank q is q * n
+	 */
+	private static double[] shuffledRange(int n, long seed) {
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i;
+		}
+		Random random = new Random(seed);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			double swap = values[i];
+			values[i] = values[j];
+			values[j] = swap;
+		}
+		return values;
+	}
+
+	private static void assertQuantilesWithinBound(KllSketch sketch, int n) {
+		for (double q : QUANTILES) {
+			double rank = sketch.getQuantile(q) / n;
+			assertTrue(Math.abs(rank - q) <= RANK_ERROR, "Quantile " + q + " came out at rank " + rank);
+		}
+	}
+
+	/* ================================ ACCURACY ================================ */
+
+	@Test
+	void testQuantilesWithinRankError() {
+		int n = 1_000_000;
+		KllSketch sketch = new KllSketch();
+		for (double value : shuffledRange(n, 1)) {
+			sketch.update(value);
+		}
+
+		assertQuantilesWithinBound(sketch, n);
+		assertEquals(0.0, sketch.getMin());
+		assertEquals(n - 1.0, sketch.getMax());
+		assertTrue(sketch.getRetainedItems() < 2_000, "Sketch should stay small but kept " + sketch.getRetainedItems());
+	}
+
+	@Test
+	void testRankWithinError() {
+		int n = 200_000;
+		KllSketch sketch = new KllSketch();
+		for (double value : shuffledRange(n, 2)) {
+			sketch.update(value);
+		}
+		for (double q : QUANTILES) {
+			assertEquals(q, sketch.getRank(q * n), RANK_ERROR);
+		}
+	}
+
+	@Test
+	void testSmallInputIsExact() {
+		KllSketch sketch = new KllSketch();
+		for (int i = 1; i <= 100; i++) {
+			sketch.update(i);
+		}
+		assertEquals(50.0, sketch.getQuantile(0.5));
+		assertEquals(100, sketch.getRetainedItems());
+	}
+
+	/* ========================= MERGING AND PERSISTENCE ======================== */
+
+	@Test
+	void testMergedSketchesWithinRankError() throws Exception {
+		int n = 400_000;
+		double[] values = shuffledRange(n, 3);
+		KllSketch merged = new KllSketch();
+		for (int part = 0; part < 4; part++) {
+			KllSketch sketch = new KllSketch();
+			for (int i = part * n / 4; i < (part + 1) * n / 4; i++) {
+				sketch.update(values[i]);
+			}
+			merged.merge(roundTrip(sketch));
+		}
+
+		assertEquals(n, merged.getCount());
+		assertQuantilesWithinBound(merged, n);
+	}
+
+	private static KllSketch roundTrip(KllSketch sketch) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(sketch);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (KllSketch) in.readObject();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package bookkeep.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import bookkeep.models.Book;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+/**
+ * Training run for the class data sharing archive built by the appcds profile
+ * in the pom. It goes through what a launch goes through without waiting for
+ * input: building a library, saving and loading it, searching and reading the
+ * statistics, so those classes end up in the archive. The classes of the
+ * JavaFX UI are loaded but not initialized, since that needs a display.
+ * The profile launches it from this source file, it is not part of the product.
+ */
+public class CdsTraining {
+
+	private static final List<String> UI_CLASSES = List.of(
+			"bookkeep.ui.LibraryMenu",
+			"bookkeep.fxui.App",
+			"bookkeep.fxui.Controller",
+			"bookkeep.fxui.BookTableModel",
+			"bookkeep.fxui.BookRow",
+			"bookkeep.fxui.BookRowCache",
+			"javafx.application.Application",
+			"javafx.application.Platform",
+			"javafx.fxml.FXMLLoader",
+			"javafx.scene.Scene",
+			"javafx.scene.control.TableView",
+			"javafx.scene.control.TableColumn",
+			"javafx.scene.control.ListView",
+			"javafx.scene.control.TabPane",
+			"javafx.scene.control.ComboBox",
+			"javafx.scene.control.TextField",
+			"javafx.scene.control.Label",
+			"javafx.collections.FXCollections",
+			"javafx.beans.property.ReadOnlyStringWrapper");
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		BookStorage library = new BookStorage();
+		library.makeDummyLibrary();
+		for (Book book : library.getAllBooks()) {
+			if (book instanceof OwnedBook owned) {
+				owned.changeState();
+				owned.incrementPageNumber(1);
+				owned.addComment("Training run");
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(library);
+		}
+		BookStorage loaded;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			loaded = (BookStorage) in.readObject();
+		}
+		loaded.searchText("training", 10);
+		loaded.getBooksByAuthor("Tolkien");
+		loaded.getStatistics().toString();
+
+		ClassLoader loader = CdsTraining.class.getClassLoader();
+		int loadedClasses = 0;
+		for (String name : UI_CLASSES) {
+			try {
+				Class.forName(name, false, loader);
+				loadedClasses++;
+			} catch (ClassNotFoundException | LinkageError e) {
+				// JavaFX is not on every classpath, the archive then covers the rest
+			}
+		}
+		System.out.println("Training run done: " + loaded.getAllBooks().size() + " books, " + loadedClasses + " of "
+				+ UI_CLASSES.size() + " UI classes loaded");
+	}
+}
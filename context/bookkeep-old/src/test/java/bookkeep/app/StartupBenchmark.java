@@ -0,0 +1,76 @@
+package bookkeep.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cold start of the terminal launcher, from process start until it has shown
+ * the menu and quit again, without class data sharing, with the JDK's default
+ * archive and with the application archive built by the appcds profile. Not a
+ * unit test, run it by hand after mvn -Pappcds package:
+ *
+ * java -cp target/test-classes bookkeep.app.StartupBenchmark "target/bookkeep-1.0.jar:$(cat target/appcds.classpath)" target/bookkeep.jsa [runs]
+ *
+ * The archive is only used with the exact classpath it was trained on, so it
+ * has to be the classpath of the profile's training run.
+ */
+public class StartupBenchmark {
+
+	private static final String MAIN_CLASS = "bookkeep.app.Main";
+	// Quit from the main menu and confirm
+	private static final String INPUT = "0\n\n";
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: StartupBenchmark <classpath> <archive> [runs]");
+			return;
+		}
+		String classpath = args[0];
+		String archive = args[1];
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		if (!new File(archive).isFile()) {
+			System.err.println("No archive at " + archive + ", build it with mvn -Pappcds package");
+			return;
+		}
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		measure("no class data sharing", runs, java, "-Xshare:off", "-cp", classpath, MAIN_CLASS);
+		measure("JDK archive only", runs, java, "-cp", classpath, MAIN_CLASS);
+		measure("application archive", runs, java, "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off",
+				"-cp", classpath, MAIN_CLASS);
+	}
+
+	private static void measure(String label, int runs, String... command) throws IOException, InterruptedException {
+		// One run to warm the file system cache, which is not what is measured
+		launch(command);
+		long[] millis = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			millis[i] = launch(command);
+		}
+		Arrays.sort(millis);
+		System.out.printf("%-24s best %5d ms  median %5d ms%n", label, millis[0], millis[runs / 2]);
+	}
+
+	private static long launch(String... command) throws IOException, InterruptedException {
+		List<String> arguments = new ArrayList<>(Arrays.asList(command));
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(arguments)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		try (OutputStream in = process.getOutputStream()) {
+			in.write(INPUT.getBytes(StandardCharsets.UTF_8));
+		}
+		int exit = process.waitFor();
+		long elapsed = (System.nanoTime() - start) / 1_000_000;
+		if (exit != 0) {
+			throw new IllegalStateException("Launch failed with exit code " + exit + ": " + arguments);
+		}
+		return elapsed;
+	}
+}
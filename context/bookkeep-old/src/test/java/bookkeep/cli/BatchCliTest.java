@@ -0,0 +1,248 @@
+package bookkeep.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.json.Json;
+
+class BatchCliTest {
+
+	private static final String BOOKS = String.join("\n",
+			"{\"title\":\"The Hobbit\",\"author\":\"J.R.R. Tolkien\",\"year\":1937,\"pages\":310,\"genre\":\"fantasy\",\"format\":\"PHYSICAL\"}",
+			"{\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"year\":1965,\"pages\":600,\"genre\":\"SCIENCE_FICTION\"}",
+			"",
+			"{\"title\":\"Wanted\",\"author\":\"Someone\",\"type\":\"wishlist\",\"price\":20}",
+			"{\"title\":\"No author\"}",
+			"not json");
+
+	private Path directory;
+	private Path library;
+	private String output;
+	private String errors;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = Files.createTempDirectory("bookkeep-cli");
+		library = directory.resolve("library.ser");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		try (var files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	private int run(String input, String... args) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		int code = new BatchCli(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, err).run(args);
+		output = out.toString(StandardCharsets.UTF_8);
+		errors = err.toString(StandardCharsets.UTF_8);
+		return code;
+	}
+
+	private List<Map<String, Object>> records() {
+		return output.lines().map(Json::parseObject).toList();
+	}
+
+	/* ============================= IMPORT / EXPORT ============================ */
+
+	@Test
+	void testImportsLinesAndReportsBadOnes() {
+		assertEquals(BatchCli.OK, run(BOOKS, "import", library.toString()));
+		Map<String, Object> summary = records().get(0);
+		assertEquals(3L, summary.get("imported"));
+		assertEquals(2L, summary.get("skipped"));
+		assertEquals(2, errors.lines().count());
+		assertTrue(errors.contains("\"line\":5"), errors);
+
+		assertEquals(BatchCli.OK, run("", "export", library.toString()));
+		List<Map<String, Object>> books = records();
+		assertEquals(3, books.size());
+		Map<String, Object> wished = books.stream().filter(b -> "wishlist".equals(b.get("type"))).findFirst().get();
+		assertEquals(20L, wished.get("price"));
+	}
+
+	@Test
+	void testExportImportsBackWithoutDuplicates() {
+		run(BOOKS, "import", library.toString());
+		run("", "add-event", library.toString(), "Dune", "state");
+		run("", "add-event", library.toString(), "Dune", "page", "--page", "600");
+		run("", "add-event", library.toString(), "Dune", "state");
+		run("", "add-event", library.toString(), "Dune", "review", "Vast", "--rating", "5");
+		run("", "add-event", library.toString(), "The Hobbit", "state");
+		run("", "add-event", library.toString(), "The Hobbit", "page", "--page", "42");
+		run("", "export", library.toString());
+		String exported = output;
+		List<Map<String, Object>> before = records();
+
+		String other = directory.resolve("other.ser").toString();
+		assertEquals(BatchCli.OK, run(exported, "import", other));
+		assertEquals(3L, records().get(0).get("imported"));
+		run("", "export", other);
+		List<Map<String, Object>> after = records();
+		for (Map<String, Object> book : before) {
+			Map<String, Object> copy = after.stream().filter(b -> b.get("id").equals(book.get("id"))).findFirst().get();
+			for (String key : List.of("title", "state", "page", "review", "rating", "price", "events")) {
+				assertEquals(book.get(key), copy.get(key), key + " of " + book.get("title"));
+			}
+		}
+
+		assertEquals(BatchCli.OK, run(exported, "import", other));
+		assertEquals(0L, records().get(0).get("imported"));
+		assertEquals(3L, records().get(0).get("existing"));
+		assertEquals(3L, records().get(0).get("books"), "Importing an export again adds nothing");
+	}
+
+	@Test
+	void testExportedHistoryKeepsItsTimes() {
+		String read = "{\"title\":\"Emma\",\"author\":\"Jane Austen\",\"pages\":400,\"events\":["
+				+ "{\"timestamp\":\"2019-03-01T10:00:00Z\",\"type\":\"STARTED_READING\"},"
+				+ "{\"timestamp\":\"2019-03-02T10:00:00Z\",\"type\":\"PAGE_UPDATE\",\"page\":120},"
+				+ "{\"timestamp\":\"2019-03-03T10:00:00Z\",\"type\":\"COMMENT\",\"text\":\"Sharp\",\"page\":120},"
+				+ "{\"timestamp\":\"2019-03-09T10:00:00Z\",\"type\":\"PAGE_UPDATE\",\"page\":400},"
+				+ "{\"timestamp\":\"2019-03-09T12:00:00Z\",\"type\":\"FINISHED_READING\"},"
+				+ "{\"timestamp\":\"2019-03-10T10:00:00Z\",\"type\":\"REVIEW\",\"text\":\"Lovely\",\"rating\":4}]}";
+		assertEquals(BatchCli.OK, run(read, "import", library.toString()));
+		assertEquals(1L, records().get(0).get("imported"), errors);
+		run("", "stats", library.toString());
+		assertEquals(Map.of("2019", 1L), records().get(0).get("finishedPerYear"));
+
+		run("", "export", library.toString());
+		Map<String, Object> exported = records().get(0);
+		assertEquals("FinishedState", exported.get("state"));
+		assertEquals("Lovely", exported.get("review"));
+		List<?> events = (List<?>) exported.get("events");
+		assertEquals(6, events.size());
+		for (Object event : events) {
+			assertTrue(((Map<?, ?>) event).get("timestamp").toString().startsWith("2019-03-"), event.toString());
+		}
+
+		String other = directory.resolve("other.ser").toString();
+		String line = output;
+		run(line, "import", other);
+		run("", "export", other);
+		assertEquals(line, output, "A second round trip changes nothing");
+	}
+
+	@Test
+	void testHistoryWithABadEventIsSkipped() {
+		String bad = "{\"title\":\"Emma\",\"author\":\"Jane Austen\",\"pages\":400,\"events\":["
+				+ "{\"timestamp\":\"2019-03-01T10:00:00Z\",\"type\":\"STARTED_READING\"},"
+				+ "{\"timestamp\":\"yesterday\",\"type\":\"PAGE_UPDATE\",\"page\":12}]}";
+		assertEquals(BatchCli.OK, run(bad, "import", library.toString()));
+		assertEquals(0L, records().get(0).get("imported"));
+		assertEquals(1L, records().get(0).get("skipped"));
+		assertEquals(0L, records().get(0).get("books"), "Nothing of the book is added");
+	}
+
+	/* ================================= QUERIES ================================ */
+
+	@Test
+	void testQueriesFilterAndLimit() {
+		run(BOOKS, "import", library.toString());
+
+		run("", "query", library.toString(), "--author", "tolkien");
+		assertEquals(List.of("The Hobbit"), records().stream().map(b -> b.get("title")).toList());
+
+		run("", "query", library.toString(), "--state", "not-started", "--year", "1965");
+		assertEquals(List.of("Dune"), records().stream().map(b -> b.get("title")).toList());
+
+		run("", "query", library.toString(), "--limit", "1");
+		assertEquals(1, records().size());
+	}
+
+	@Test
+	void testEventsAreSavedAndSearchable() {
+		run(BOOKS, "import", library.toString());
+		assertEquals(BatchCli.OK, run("", "add-event", library.toString(), "Dune", "state"));
+		assertEquals(BatchCli.OK, run("", "add-event", library.toString(), "Dune", "page", "--page", "120"));
+		assertEquals(BatchCli.OK, run("", "add-event", library.toString(), "Dune", "comment", "The spice must flow"));
+		Map<String, Object> dune = records().get(0);
+		assertEquals("InProgressState", dune.get("state"));
+		assertEquals(120L, dune.get("page"));
+
+		run("", "query", library.toString(), "--text", "spice");
+		assertEquals("Dune", records().get(0).get("title"));
+		assertEquals("COMMENT", records().get(0).get("type"));
+
+		run("", "stats", library.toString());
+		Map<String, Object> stats = records().get(0);
+		assertEquals(3L, stats.get("books"));
+		assertEquals(1L, stats.get("inProgress"));
+	}
+
+	@Test
+	void testCompactDropsReplacedReviews() {
+		run(BOOKS, "import", library.toString());
+		run("", "add-event", library.toString(), "Dune", "state");
+		run("", "add-event", library.toString(), "Dune", "state");
+		run("", "add-event", library.toString(), "Dune", "review", "Good", "--rating", "4");
+		run("", "add-event", library.toString(), "Dune", "review", "Great", "--rating", "5");
+
+		assertEquals(BatchCli.OK, run("", "compact", library.toString()));
+		assertEquals(1L, records().get(0).get("droppedIndexEntries"));
+		run("", "compact", library.toString());
+		assertEquals(0L, records().get(0).get("droppedIndexEntries"));
+	}
+
+	/* ================================== SYNC ================================== */
+
+	@Test
+	void testSyncedLibrariesShareChanges() {
+		String other = directory.resolve("other.ser").toString();
+		String sync = directory.toString();
+		assertEquals(BatchCli.OK, run(BOOKS, "import", library.toString(), "--sync", sync, "--instance", "laptop"));
+		assertEquals(BatchCli.OK, run("", "add-event", other, "Dune", "state", "--sync", sync, "--instance", "desktop"));
+		assertEquals(BatchCli.OK, run("", "add-event", other, "Dune", "page", "--page", "120",
+				"--sync", sync, "--instance", "desktop"));
+
+		run("", "query", library.toString(), "--title", "Dune", "--sync", sync, "--instance", "laptop");
+		Map<String, Object> dune = records().get(0);
+		assertEquals("InProgressState", dune.get("state"));
+		assertEquals(120L, dune.get("page"));
+		run("", "export", other, "--sync", sync, "--instance", "desktop");
+		assertEquals(3, records().size(), "The imported books reached the other library");
+
+		assertEquals(BatchCli.USAGE, run("", "export", other, "--sync", sync));
+	}
+
+	/* ================================= ERRORS ================================= */
+
+	@Test
+	void testUsageErrors() {
+		assertEquals(BatchCli.USAGE, run("", "export"));
+		assertEquals(BatchCli.USAGE, run("", "shuffle", library.toString()));
+		assertEquals(BatchCli.USAGE, run("", "query", library.toString(), "--state", "lost"));
+		assertEquals(BatchCli.USAGE, run("", "query", library.toString(), "--limit"));
+		assertFalse(errors.isEmpty());
+	}
+
+	@Test
+	void testPageEventNeedsAPage() {
+		run(BOOKS, "import", library.toString());
+		run("", "add-event", library.toString(), "Dune", "state");
+		run("", "add-event", library.toString(), "Dune", "page", "--page", "120");
+		assertEquals(BatchCli.USAGE, run("", "add-event", library.toString(), "Dune", "page"));
+
+		run("", "query", library.toString(), "--title", "Dune");
+		assertEquals(120L, records().get(0).get("page"), "The page should be left alone");
+	}
+}
@@ -0,0 +1,80 @@
+package bookkeep.fxui;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Function;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ObservableValue;
+
+/**
+ * Scrolls a simulated library table one row per frame from top to bottom and
+ * reports the time and the bytes allocated per frame, for the old cell value
+ * factories that made a property per cell and for the cached BookRows. It only
+ * needs javafx.base, not a running toolkit. Not a unit test, run it by hand:
+ *
+ * java -cp target/classes:target/test-classes:javafx-base.jar bookkeep.fxui.BookRowScrollBenchmark [rows]
+ */
+public class BookRowScrollBenchmark {
+
+	private static final int VISIBLE_ROWS = 40;
+	private static final int PASSES = 3;
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		Genre[] genres = Genre.values();
+		Book[] books = new Book[size];
+		for (int i = 0; i < size; i++) {
+			books[i] = new BookBuilder()
+					.withTitle("Book " + i)
+					.withAuthorName("Author " + i % 5_000)
+					.withPublicationYear(1800 + i % 220)
+					.withPageCount(300)
+					.withGenre(genres[i % genres.length])
+					.buildOwnedBook();
+		}
+
+		List<Function<Book, ObservableValue<String>>> perCell = List.of(
+				book -> new SimpleStringProperty(book.getTitle()),
+				book -> new SimpleStringProperty(book.getAuthorName()),
+				book -> new SimpleStringProperty(String.valueOf(book.getPublicationYear())),
+				book -> new SimpleStringProperty(book.getGenre().toString()),
+				book -> new SimpleStringProperty(book.getStateName()));
+		BookRowCache cache = new BookRowCache();
+		List<Function<Book, ObservableValue<String>>> cached = List.of(
+				book -> cache.get(book).titleProperty(),
+				book -> cache.get(book).authorProperty(),
+				book -> cache.get(book).yearProperty(),
+				book -> cache.get(book).genreProperty(),
+				book -> cache.get(book).stateProperty());
+
+		// The first pass over the cached rows builds them, the later ones measure scrolling back over them
+		for (int pass = 1; pass <= PASSES; pass++) {
+			report("per-cell properties, pass " + pass, books, perCell);
+			report("cached rows, pass " + pass, books, cached);
+		}
+	}
+
+	private static void report(String label, Book[] books, List<Function<Book, ObservableValue<String>>> columns) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		int frames = books.length - VISIBLE_ROWS + 1;
+		long checksum = 0;
+		long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		for (int top = 0; top < frames; top++) {
+			for (int row = top; row < top + VISIBLE_ROWS; row++) {
+				for (Function<Book, ObservableValue<String>> column : columns) {
+					checksum += column.apply(books[row]).getValue().length();
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		System.out.printf("%-32s %8.3f us/frame %10.1f bytes/frame (checksum %d)%n", label,
+				elapsed / 1e3 / frames, (double) allocated / frames, checksum);
+	}
+}
@@ -0,0 +1,71 @@
+package bookkeep.fxui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+
+class BookTableModelTest {
+
+	private static List<Book> books(int count) {
+		List<Book> books = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			books.add(new BookBuilder().withTitle("Book " + i).withAuthorName("Author").withPageCount(100)
+					.buildOwnedBook());
+		}
+		return books;
+	}
+
+	/* ================================= REMOVAL ================================ */
+
+	@Test
+	void testLibraryRowIsTakenByTheLast() {
+		List<Book> books = books(5);
+		BookTableModel model = BookTableModel.ofLibrary(books);
+		model.remove(books.get(1));
+
+		assertEquals(List.of(books.get(0), books.get(4), books.get(2), books.get(3)), model.getRows());
+		model.remove(books.get(3));
+		model.remove(books.get(4));
+		assertEquals(List.of(books.get(0), books.get(2)), model.getRows());
+		assertFalse(model.contains(books.get(4)));
+	}
+
+	@Test
+	void testSelectionKeepsItsOrder() {
+		List<Book> books = books(4);
+		BookTableModel model = BookTableModel.ofSelection();
+		model.setAll(books);
+		model.remove(books.get(0));
+		model.remove(books.get(2));
+
+		assertEquals(List.of(books.get(1), books.get(3)), model.getRows());
+	}
+
+	@Test
+	void testRowsAreFoundAfterManyRemovals() {
+		List<Book> books = books(200);
+		BookTableModel model = BookTableModel.ofLibrary(books);
+		for (int i = 0; i < books.size(); i += 2) {
+			model.remove(books.get(i));
+		}
+		OwnedBook edited = (OwnedBook) books.get(51);
+		edited.changeState();
+		model.update(edited);
+
+		assertEquals(100, model.getRows().size());
+		for (int i = 1; i < books.size(); i += 2) {
+			assertTrue(model.contains(books.get(i)));
+		}
+		model.remove(edited);
+		assertFalse(model.getRows().contains(edited), "Its position was still known after the others moved");
+		assertEquals(99, model.getRows().size());
+	}
+}
@@ -0,0 +1,38 @@
+package bookkeep.json;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+
+	/* ================================ ROUND TRIP ============================== */
+
+	@Test
+	void testJsonRoundTrip() {
+		String line = new Json.Line().put("text", "Quote \"inside\"\n\ttab \\ é").put("n", -3).put("x", 1.5)
+				.put("none", (String) null).put("ok", true).toString();
+		Map<String, Object> parsed = Json.parseObject(line);
+		assertEquals("Quote \"inside\"\n\ttab \\ é", parsed.get("text"));
+		assertEquals(-3L, parsed.get("n"));
+		assertEquals(1.5, (Double) parsed.get("x"), 0.0);
+		assertTrue(parsed.containsKey("none"));
+		assertEquals(Boolean.TRUE, parsed.get("ok"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":1"));
+	}
+
+	@Test
+	void testArraysOfObjectsRoundTrip() {
+		String line = new Json.Line().put("items", List.of(new Json.Line().put("n", 1), new Json.Line().put("n", 2)))
+				.put("none", List.of()).toString();
+		Map<String, Object> parsed = Json.parseObject(line);
+		assertEquals(List.of(Map.of("n", 1L), Map.of("n", 2L)), parsed.get("items"));
+		assertEquals(List.of(), parsed.get("none"));
+		assertEquals(List.of("a", 3L), Json.parseObject("{\"mixed\": [ \"a\" , 3 ]}").get("mixed"));
+		assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\":[1,}"));
+	}
+}
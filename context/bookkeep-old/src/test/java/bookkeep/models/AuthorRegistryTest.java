@@ -0,0 +1,124 @@
+package bookkeep.models;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.collections.BookStorage;
+
+class AuthorRegistryTest {
+
+	private BookStorage storage;
+	private AuthorRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		storage = new BookStorage();
+		registry = storage.getAuthorRegistry();
+	}
+
+	private OwnedBook addBook(String title, String author, int pages) {
+		OwnedBook book = new BookBuilder().withTitle(title).withAuthorName(author).withPageCount(pages)
+				.withPublicationYear(1954).withGenre(Genre.FANTASY).withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+		storage.addBook(book);
+		return book;
+	}
+
+	/* ============================= NORMALIZATION ============================== */
+
+	@Test
+	void testSpellingsOfOneNameResolveToOneAuthor() {
+		Author author = registry.resolve("J.R.R. Tolkien");
+		assertEquals(author, registry.resolve("JRR Tolkien"));
+		assertEquals(author, registry.resolve("Tolkien, J. R. R."));
+		assertEquals(author, registry.resolve("  j.r.r. TOLKIEN "));
+		assertEquals(1, registry.getAllAuthors().size());
+	}
+
+	@Test
+	void testInitialsMergeButDifferentGivenNamesDoNot() {
+		Author john = registry.resolve("John Smith");
+		Author jane = registry.resolve("Jane Smith");
+		assertNotEquals(john.getId(), jane.getId());
+		assertEquals(john, registry.resolve("Smith, John"));
+		assertEquals(john, registry.resolve("J. Smith"));
+		assertNotEquals(john, registry.resolve("John A. Smith"));
+	}
+
+	@Test
+	void testAccentsAndParticlesAreNormalized() {
+		Author garcia = registry.resolve("Gabriel García Márquez");
+		assertEquals(garcia, registry.resolve("Gabriel Garcia Marquez"));
+		Author leGuin = registry.resolve("Ursula K. Le Guin");
+		assertEquals(leGuin, registry.resolve("Le Guin, Ursula K."));
+	}
+
+	@Test
+	void testDisplayNameTakesTheFullestSpelling() {
+		Author author = registry.resolve("J. Austen");
+		registry.resolve("Jane Austen");
+		assertEquals("Jane Austen", author.getName());
+		assertEquals(2, author.getVariants().size());
+	}
+
+	@Test
+	void testIdsAreStableAcrossRegistries() {
+		assertEquals(registry.resolve("Terry Pratchett").getId(),
+				new AuthorRegistry().resolve("Pratchett, Terry").getId());
+	}
+
+	@Test
+	void testFindDoesNotRegister() {
+		assertNull(registry.find("Nobody Here"));
+		assertTrue(registry.getAllAuthors().isEmpty());
+		assertNull(registry.resolve(" "));
+	}
+
+	/* ============================== POSTING LISTS ============================= */
+
+	@Test
+	void testCountsBooksAndPagesPerAuthor() {
+		OwnedBook hobbit = addBook("The Hobbit", "J.R.R. Tolkien", 300);
+		addBook("The Silmarillion", "Tolkien, J. R. R.", 400);
+		addBook("Emma", "Jane Austen", 500);
+
+		Author tolkien = registry.getAuthorOf(hobbit);
+		assertEquals(2, tolkien.getBookCount());
+		assertEquals(700, tolkien.getPageCount());
+		assertEquals(2, registry.getAuthors().size());
+	}
+
+	@Test
+	void testFollowsRenamesAndRemovals() {
+		OwnedBook book = addBook("Emma", "Jane Austen", 500);
+		Author austen = registry.getAuthorOf(book);
+
+		book.setAuthorName("Charlotte Bronte");
+		assertEquals(0, austen.getBookCount());
+		assertEquals("Charlotte Bronte", registry.getAuthorOf(book).getName());
+		assertEquals(1, registry.getAuthors().size());
+
+		storage.removeBook(book);
+		assertNull(registry.getAuthorOf(book));
+		assertTrue(registry.getAuthors().isEmpty());
+	}
+
+	@Test
+	void testBooksByAuthorUseTheRegistry() {
+		OwnedBook hobbit = addBook("The Hobbit", "J.R.R. Tolkien", 300);
+		OwnedBook silmarillion = addBook("The Silmarillion", "JRR Tolkien", 400);
+		addBook("Emma", "Jane Austen", 500);
+
+		assertEquals(2, storage.getBooksByAuthor("Tolkien, J. R. R.").size());
+		assertTrue(storage.getBooksByAuthor(registry.getAuthorOf(hobbit).getId()).contains(silmarillion));
+		// A partial name is not an author, so it is still a substring search
+		assertEquals(List.of("Emma"), storage.getBooksByAuthor("austen").stream().map(Book::getTitle).toList());
+	}
+}
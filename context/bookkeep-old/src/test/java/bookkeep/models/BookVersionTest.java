@@ -0,0 +1,124 @@
+package bookkeep.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.models.collections.BookStorage;
+
+class BookVersionTest {
+
+	private BookStorage storage;
+	private OwnedBook book;
+
+	@BeforeEach
+	void setUp() {
+		storage = new BookStorage();
+		book = new BookBuilder().withTitle("Dune").withAuthorName("Frank Herbert").withPageCount(1_000)
+				.buildOwnedBook();
+		storage.addBook(book);
+	}
+
+	private static OwnedBook owned(Book book) {
+		return (OwnedBook) book;
+	}
+
+	/* ================================ VERSIONS ================================ */
+
+	@Test
+	void testVersionCountsChanges() {
+		assertEquals(0, book.getVersion());
+		book.setPageCount(900);
+		assertEquals(1, book.getVersion(), "A change outside an update counts too");
+
+		long version = storage.update(book.getUUID(), 1, b -> {
+			b.changeState();
+			owned(b).setPageNumber(10);
+		});
+		assertEquals(2, version, "An update is one change however many events it records");
+		assertEquals(2, book.getVersion());
+
+		assertEquals(2, book.update(2, b -> owned(b).setPageNumber(10)), "Nothing changed, so neither does the version");
+	}
+
+	@Test
+	void testStaleVersionIsRefused() {
+		book.setPageNumber(5);
+		VersionConflictException conflict = assertThrows(VersionConflictException.class,
+				() -> storage.update(book.getUUID(), 0, b -> owned(b).setPageNumber(50)));
+		assertEquals(0, conflict.getExpectedVersion());
+		assertEquals(1, conflict.getActualVersion());
+		assertEquals(book.getUUID(), conflict.getBookId());
+		assertEquals(5, book.getPageNumber(), "A refused update must not change the book");
+
+		assertThrows(NoSuchElementException.class, () -> storage.update(UUID.randomUUID(), 0, b -> {
+		}));
+	}
+
+	@Test
+	void testFailedMutationKeepsWhatItRecorded() {
+		assertThrows(IllegalArgumentException.class, () -> book.update(0, b -> {
+			owned(b).setPageNumber(10);
+			owned(b).setPageNumber(5_000);
+		}));
+		assertEquals(10, book.getPageNumber());
+		assertEquals(1, book.getVersion());
+	}
+
+	/* ================================= READING ================================ */
+
+	@Test
+	void testReaderNeverSeesAnUpdateHalfDone() throws Exception {
+		List<CompletableFuture<Integer>> readers = new ArrayList<>();
+		book.update(0, b -> {
+			owned(b).setPageNumber(10);
+			readers.add(CompletableFuture.supplyAsync(() -> storage.read(book.getUUID(), Book::getPageNumber)));
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			assertFalse(readers.get(0).isDone(), "The reader should wait out the update");
+			assertEquals(10, (int) b.read(Book::getPageNumber), "The update sees its own changes");
+			owned(b).setPageNumber(20);
+		});
+		assertEquals(20, (int) readers.get(0).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testConcurrentUpdatesLoseNothing() throws Exception {
+		int threads = 4;
+		int increments = 200;
+		List<CompletableFuture<Void>> writers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			writers.add(CompletableFuture.runAsync(() -> {
+				for (int i = 0; i < increments; i++) {
+					while (true) {
+						long version = storage.read(book.getUUID(), Book::getVersion);
+						int page = storage.read(book.getUUID(), Book::getPageNumber);
+						try {
+							storage.update(book.getUUID(), version, b -> owned(b).setPageNumber(page + 1));
+							break;
+						} catch (VersionConflictException e) {
+							// Someone else got there first, so read again
+						}
+					}
+				}
+			}));
+		}
+		for (CompletableFuture<Void> writer : writers) {
+			writer.get(30, TimeUnit.SECONDS);
+		}
+		assertEquals(threads * increments, book.getPageNumber());
+		assertEquals(threads * increments, book.getVersion());
+	}
+}
@@ -0,0 +1,180 @@
+package bookkeep.models.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.VersionConflictException;
+
+/**
+ * Throughput of threads reading and changing the same few books, once with
+ * every access behind one lock, once behind a read-write lock like the server
+ * uses, and once with optimistic reads and versioned updates. Not a unit test,
+ * run it by hand:
+ *
+ * java -cp target/classes:target/test-classes bookkeep.models.collections.BookContentionBenchmark [threads] [write percent] [seconds]
+ */
+public class BookContentionBenchmark {
+
+	private static final int BOOKS = 64;
+	private static final int PAGES = 1_000;
+
+	private interface Access {
+		int read(UUID id);
+
+		/**
+		 * Returns how many times the write was refused before it went through
+		 */
+		int write(UUID id, int page);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int writePercent = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		System.out.println(threads + " threads, " + writePercent + "% writes on " + BOOKS + " books, "
+				+ seconds + " s each");
+
+		for (String mode : List.of("coarse lock", "read-write lock", "optimistic")) {
+			BookStorage library = new BookStorage();
+			UUID[] ids = fill(library);
+			Access access = access(mode, library);
+			// Warm up the same way before measuring
+			run(access, ids, threads, writePercent, 1);
+			Result result = run(access, ids, threads, writePercent, seconds);
+			System.out.printf("%-16s %,12.0f reads/s %,10.0f writes/s %,10d conflicts%n", mode,
+					result.reads / (double) seconds, result.writes / (double) seconds, result.conflicts);
+		}
+	}
+
+	private static UUID[] fill(BookStorage library) {
+		Genre[] genres = Genre.values();
+		UUID[] ids = new UUID[BOOKS];
+		for (int i = 0; i < BOOKS; i++) {
+			OwnedBook book = new BookBuilder()
+					.withTitle("Book " + i)
+					.withAuthorName("Author " + i % 10)
+					.withPageCount(PAGES)
+					.withGenre(genres[i % genres.length])
+					.buildOwnedBook();
+			library.addBook(book);
+			book.changeState();
+			ids[i] = book.getUUID();
+		}
+		return ids;
+	}
+
+	/**
+	 * What a reader looks at: enough of the book that a torn read would show
+	 */
+	private static int look(Book book) {
+		return book.getPageNumber() + book.getStateName().length() + book.getHistory().getListOfEvents().size();
+	}
+
+	private static Access access(String mode, BookStorage library) {
+		return switch (mode) {
+			case "coarse lock" -> locked(library, new ReentrantLock(), null);
+			case "read-write lock" -> {
+				ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+				yield locked(library, lock.writeLock(), lock.readLock());
+			}
+			default -> new Access() {
+				@Override
+				public int read(UUID id) {
+					return library.read(id, BookContentionBenchmark::look);
+				}
+
+				@Override
+				public int write(UUID id, int page) {
+					int refused = 0;
+					while (true) {
+						long version = library.read(id, Book::getVersion);
+						try {
+							library.update(id, version, book -> ((OwnedBook) book).setPageNumber(page));
+							return refused;
+						} catch (VersionConflictException e) {
+							refused++;
+						}
+					}
+				}
+			};
+		};
+	}
+
+	private static Access locked(BookStorage library, Lock writeLock, Lock readLock) {
+		Lock reads = readLock == null ? writeLock : readLock;
+		return new Access() {
+			@Override
+			public int read(UUID id) {
+				reads.lock();
+				try {
+					return look(library.findBook(id));
+				} finally {
+					reads.unlock();
+				}
+			}
+
+			@Override
+			public int write(UUID id, int page) {
+				writeLock.lock();
+				try {
+					((OwnedBook) library.findBook(id)).setPageNumber(page);
+					return 0;
+				} finally {
+					writeLock.unlock();
+				}
+			}
+		};
+	}
+
+	private static final class Result {
+		final LongAdder readCount = new LongAdder();
+		final LongAdder writeCount = new LongAdder();
+		final LongAdder conflictCount = new LongAdder();
+		long reads;
+		long writes;
+		long conflicts;
+	}
+
+	private static Result run(Access access, UUID[] ids, int threads, int writePercent, int seconds)
+			throws InterruptedException {
+		Result result = new Result();
+		long end = System.nanoTime() + seconds * 1_000_000_000L;
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			workers.add(Thread.ofPlatform().start(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long sink = 0;
+				while (System.nanoTime() < end) {
+					UUID id = ids[random.nextInt(ids.length)];
+					if (random.nextInt(100) < writePercent) {
+						result.conflictCount.add(access.write(id, random.nextInt(PAGES + 1)));
+						result.writeCount.increment();
+					} else {
+						sink += access.read(id);
+						result.readCount.increment();
+					}
+				}
+				if (sink == 42) {
+					System.out.print("");
+				}
+			}));
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		result.reads = result.readCount.sum();
+		result.writes = result.writeCount.sum();
+		result.conflicts = result.conflictCount.sum();
+		return result;
+	}
+}
@@ -0,0 +1,240 @@
+package bookkeep.models.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.WishlistBook;
+import bookkeep.models.collections.LibraryChange.BookAdded;
+import bookkeep.models.collections.LibraryChange.BookRemoved;
+import bookkeep.models.collections.LibraryChange.BookUpdated;
+import bookkeep.models.collections.LibraryChange.EventAppended;
+import bookkeep.models.collections.LibraryChange.ShelfAdded;
+import bookkeep.models.collections.LibraryChange.ShelfMembershipChanged;
+import bookkeep.models.collections.LibraryChange.ShelfRemoved;
+import bookkeep.models.collections.LibraryChange.StateTransitioned;
+
+class LibraryChangeFeedTest {
+
+	private BookStorage storage;
+	private LibraryChangeFeed feed;
+	private List<List<LibraryChange>> deliveries;
+
+	@BeforeEach
+	void setUp() {
+		storage = new BookStorage();
+		feed = new LibraryChangeFeed();
+		storage.addListener(feed);
+		deliveries = new ArrayList<>();
+		feed.subscribe(deliveries::add);
+	}
+
+	private static OwnedBook book(String title) {
+		return new BookBuilder().withTitle(title).withAuthorName("Author").withPageCount(300)
+				.withGenre(Genre.CLASSIC).buildOwnedBook();
+	}
+
+	private List<LibraryChange> changes() {
+		List<LibraryChange> changes = new ArrayList<>();
+		deliveries.forEach(changes::addAll);
+		return changes;
+	}
+
+	/* ================================== TYPES ================================= */
+
+	@Test
+	void testBookChangesAreTyped() {
+		OwnedBook book = book("Emma");
+		storage.addBook(book);
+		book.changeState();
+		book.setPageNumber(40);
+		book.addComment("Sharp");
+		book.setPageCount(320);
+		storage.removeBook(book);
+
+		List<LibraryChange> changes = changes();
+		assertEquals(6, changes.size());
+		assertEquals(new BookAdded(book), changes.get(0));
+		assertTrue(changes.get(1) instanceof StateTransitioned);
+		assertTrue(changes.get(2) instanceof EventAppended);
+		assertTrue(changes.get(3) instanceof EventAppended);
+		assertEquals("pageCount", ((BookUpdated) changes.get(4)).attribute());
+		assertEquals(new BookRemoved(book), changes.get(5));
+	}
+
+	@Test
+	void testWishlistEditsAreAnnounced() {
+		WishlistBook wish = new BookBuilder().withTitle("Dune").withAuthorName("Herbert").withPageCount(600)
+				.withPrice(20).buildWishlistBook();
+		storage.addBook(wish);
+		wish.setPrice(15);
+
+		BookUpdated updated = (BookUpdated) changes().get(1);
+		assertEquals("price", updated.attribute());
+		assertEquals("15", updated.event().getText());
+	}
+
+	@Test
+	void testShelfChanges() {
+		OwnedBook first = book("First");
+		OwnedBook second = book("Second");
+		storage.addShelf("Favourites");
+		storage.addBookToShelf("Favourites", first);
+		storage.addBookToShelf("Favourites", second);
+		storage.addBookToShelf("Favourites", second);
+		deliveries.clear();
+
+		storage.removeBook(first);
+		storage.removeShelf("Favourites");
+
+		assertEquals(List.of(
+				new ShelfMembershipChanged("Favourites", first, false),
+				new BookRemoved(first),
+				new ShelfMembershipChanged("Favourites", second, false),
+				new ShelfRemoved("Favourites")), changes());
+	}
+
+	@Test
+	void testFailingSubscriberDoesNotKeepTheChangeFromTheOthers() {
+		List<LibraryChange> after = new ArrayList<>();
+		feed.subscribe(changes -> {
+			throw new IllegalStateException("First failure");
+		});
+		feed.subscribe(changes -> {
+			throw new IllegalStateException("Second failure");
+		});
+		feed.subscribe(after::addAll);
+
+		IllegalStateException failure = assertThrows(IllegalStateException.class,
+				() -> storage.addBook(book("Emma")));
+		assertEquals("First failure", failure.getMessage());
+		assertEquals(1, failure.getSuppressed().length);
+		assertEquals(1, changes().size());
+		assertEquals(1, after.size(), "Subscribers after the failing ones still get the change");
+	}
+
+	@Test
+	void testLibraryHasOneFeed() {
+		BookStorage library = new BookStorage();
+		List<LibraryChange> received = new ArrayList<>();
+		library.getChangeFeed().subscribe(received::addAll);
+		library.addShelf("Favourites");
+
+		assertSame(library.getChangeFeed(), library.getChangeFeed());
+		assertEquals(List.of(new ShelfAdded("Favourites")), received);
+	}
+
+	/* ================================ BATCHING ================================ */
+
+	@Test
+	void testBatchIsDeliveredOnce() {
+		feed.batch(() -> {
+			storage.addShelf("Imported");
+			for (int i = 0; i < 10; i++) {
+				storage.addBookToShelf("Imported", book("Book " + i));
+			}
+			feed.batch(() -> storage.addBook(book("Nested")));
+			assertTrue(deliveries.isEmpty(), "Nothing should be delivered before the batch ends");
+		});
+
+		assertEquals(1, deliveries.size());
+		assertEquals(22, deliveries.get(0).size());
+		assertEquals(new ShelfAdded("Imported"), deliveries.get(0).get(0));
+	}
+
+	@Test
+	void testFailedBatchStillDeliversItsChanges() {
+		assertThrows(IllegalArgumentException.class, () -> feed.batch(() -> {
+			storage.addBook(book("Emma"));
+			storage.addBookToShelf("Missing", book("Dune"));
+		}));
+		assertEquals(2, changes().size(), "Dune is added to the library before the shelf is looked up");
+
+		storage.addBook(book("After"));
+		assertEquals(2, deliveries.size(), "Changes after the batch are delivered on their own again");
+	}
+
+	/* ============================ ASYNC SUBSCRIBERS =========================== */
+
+	@Test
+	void testAsyncSubscriberSeesEveryChangeInOrder() {
+		List<LibraryChange> received = Collections.synchronizedList(new ArrayList<>());
+		LibraryChangeFeed.Subscription subscription = feed.subscribeAsync(received::addAll, 16);
+		List<OwnedBook> books = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			OwnedBook book = book("Book " + i);
+			books.add(book);
+			storage.addBook(book);
+		}
+		subscription.close();
+
+		assertEquals(100, received.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(new BookAdded(books.get(i)), received.get(i));
+		}
+		storage.addBook(book("Late"));
+		assertEquals(100, received.size(), "A closed subscription receives nothing");
+	}
+
+	@Test
+	void testFullQueueHoldsUpTheWriter() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		LibraryChangeFeed.Subscription subscription = feed.subscribeAsync(changes -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 2);
+
+		Thread writer = Thread.ofVirtual().start(() -> {
+			// The stuck subscriber holds at most two and the queue two more
+			for (int i = 0; i < 5; i++) {
+				storage.addBook(book("Book " + i));
+			}
+		});
+		writer.join(300);
+		assertTrue(writer.isAlive(), "The writer should wait for room in the queue");
+
+		release.countDown();
+		writer.join(5_000);
+		assertFalse(writer.isAlive());
+		subscription.close();
+	}
+
+	@Test
+	void testFailingAsyncSubscriberKeepsReceiving() {
+		List<LibraryChange> received = Collections.synchronizedList(new ArrayList<>());
+		List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<>());
+		Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+		// The subscriber's thread has no handler of its own, so its failures end up here
+		Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+		try {
+			LibraryChangeFeed.Subscription subscription = feed.subscribeAsync(changes -> {
+				received.addAll(changes);
+				throw new IllegalStateException("Subscriber failure");
+			}, 1);
+			storage.addBook(book("First"));
+			storage.addBook(book("Second"));
+			subscription.close();
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(previous);
+		}
+
+		assertEquals(2, received.size());
+		assertFalse(uncaught.isEmpty());
+		assertTrue(uncaught.stream().allMatch(IllegalStateException.class::isInstance));
+	}
+}
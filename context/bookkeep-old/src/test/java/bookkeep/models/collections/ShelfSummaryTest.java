@@ -0,0 +1,113 @@
+package bookkeep.models.collections;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+
+class ShelfSummaryTest {
+
+	private BookStorage storage;
+	private OwnedBook first;
+	private OwnedBook second;
+
+	@BeforeEach
+	void setUp() {
+		storage = new BookStorage();
+		storage.addShelf("Favourites");
+		first = book("First", 200);
+		second = book("Second", 300);
+		storage.addBookToShelf("Favourites", first);
+		storage.addBookToShelf("Favourites", second);
+	}
+
+	private static OwnedBook book(String title, int pages) {
+		return new BookBuilder().withTitle(title).withAuthorName("Author").withPageCount(pages)
+				.withGenre(Genre.CLASSIC).withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+	}
+
+	/* ============================ MEMBERSHIP CHANGES ========================== */
+
+	@Test
+	void testAddingAndRemovingBooks() {
+		ShelfSummary summary = storage.getShelfSummary("Favourites");
+		assertEquals(2, summary.getBookCount());
+		assertEquals(500, summary.getTotalPages());
+
+		storage.addBookToShelf("Favourites", first);
+		assertEquals(2, summary.getBookCount(), "Adding a book twice should not count it twice");
+
+		storage.removeBookFromShelf("Favourites", first);
+		assertEquals(1, summary.getBookCount());
+		assertEquals(300, summary.getTotalPages());
+
+		storage.removeBook(second);
+		assertEquals(0, summary.getBookCount());
+		assertEquals(0, summary.getTotalPages());
+	}
+
+	/* ============================== BOOK CHANGES ============================== */
+
+	@Test
+	void testStateChangesAndReviewsOfMembers() {
+		ShelfSummary summary = storage.getShelfSummary("Favourites");
+		first.changeState();
+		first.incrementPageNumber(200);
+		first.changeState();
+		first.review("Loved it", 5);
+		second.changeState();
+		second.incrementPageNumber(50);
+
+		assertEquals(50.0, summary.getPercentFinished(), 1e-9);
+		assertEquals(5.0, summary.getAverageRating(), 1e-9);
+		assertEquals(250, summary.getPagesRead());
+
+		first.review("Less on a second read", 3);
+		assertEquals(3.0, summary.getAverageRating(), 1e-9);
+	}
+
+	@Test
+	void testBookOnSeveralShelves() {
+		storage.addShelf("Classics");
+		storage.addBookToShelf("Classics", first);
+		first.setPageCount(250);
+
+		assertEquals(550, storage.getShelfSummary("Favourites").getTotalPages());
+		assertEquals(250, storage.getShelfSummary("Classics").getTotalPages());
+
+		storage.removeShelf("Classics");
+		first.setPageCount(200);
+		assertEquals(500, storage.getShelfSummary("Favourites").getTotalPages());
+	}
+
+	/* =============================== PERSISTENCE ============================== */
+
+	@Test
+	void testSummariesAreRebuiltAfterLoading() throws Exception {
+		first.changeState();
+		first.changeState();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(storage);
+		}
+		BookStorage loaded;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			loaded = (BookStorage) in.readObject();
+		}
+
+		ShelfSummary summary = loaded.getShelfSummary("Favourites");
+		assertEquals(2, summary.getBookCount());
+		assertEquals(500, summary.getTotalPages());
+		assertEquals(1, summary.getFinishedCount());
+	}
+}
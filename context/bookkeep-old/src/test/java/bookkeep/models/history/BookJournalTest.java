@@ -0,0 +1,173 @@
+package bookkeep.models.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.EventType;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.states.FinishedState;
+import bookkeep.models.states.InProgressState;
+
+class BookJournalTest {
+
+	private OwnedBook book;
+
+	@BeforeEach
+	void setUp() {
+		book = new BookBuilder()
+				.withTitle("Journal Book")
+				.withAuthorName("Journal Author")
+				.withPublicationYear(1999)
+				.withPageCount(400)
+				.withGenre(Genre.HISTORY)
+				.withFormat(BookFormat.PHYSICAL)
+				.buildOwnedBook();
+	}
+
+	/* ============================ EVERY MUTATION LOGGED ======================= */
+
+	@Test
+	void testEveryMutationIsAppended() {
+		book.changeState();
+		book.incrementPageNumber(30);
+		book.addComment("A comment");
+		book.addQuote("A quote", 12);
+		book.setGenre(Genre.FICTION);
+		book.changeState();
+		book.review("Good", 4);
+
+		assertEquals(6, book.getJournal().size(), "Each mutation other than a page update should be one event");
+		assertEquals(1, book.getJournal().getProgress().size(), "The page update should be in the progress series");
+		assertEquals(EventType.STARTED_READING, book.getJournal().getEvents().get(0).getType());
+		assertEquals(EventType.METADATA_CHANGE, book.getJournal().getEvents().get(3).getType());
+		assertEquals(EventType.REVIEW, book.getJournal().getEvents().get(5).getType());
+	}
+
+	@Test
+	void testReplayMatchesLiveState() {
+		book.changeState();
+		book.incrementPageNumber(120);
+		book.setAuthorName("Renamed Author");
+		book.setPageCount(420);
+		book.changeState();
+		book.review("Great", 5);
+
+		BookSnapshot replayed = book.getJournal().replay();
+		assertEquals(book.getStateName(), replayed.getStateName());
+		assertEquals(book.getPageNumber(), replayed.getPageNumber());
+		assertEquals("Renamed Author", replayed.getAuthorName());
+		assertEquals(420, replayed.getPageCount());
+		assertEquals(book.getHistory().getReview(), replayed.getReview());
+		assertEquals(book.getHistory().getFinishedReading(), replayed.getFinishedReading());
+	}
+
+	/* ================================ SNAPSHOTS =============================== */
+
+	@Test
+	void testSnapshotsAreTakenPeriodically() {
+		book.changeState();
+		for (int i = 0; i < 2 * BookJournal.SNAPSHOT_INTERVAL; i++) {
+			book.addComment("Comment " + i);
+		}
+
+		assertEquals(3, book.getJournal().getSnapshots().size(), "Initial snapshot plus one per interval");
+		BookSnapshot latest = book.getJournal().getSnapshots().get(2);
+		assertEquals(2 * BookJournal.SNAPSHOT_INTERVAL, latest.getJournalSize());
+		assertEquals(BookSnapshot.IN_PROGRESS, latest.getStateName());
+	}
+
+	/* =============================== TIME TRAVEL ============================== */
+
+	@Test
+	void testReplayUntilAnswersPastPageNumber() {
+		Instant monday = Instant.parse("2024-03-04T20:00:00Z");
+		BookJournal journal = new BookJournal(
+				BookSnapshot.initial("Author", 2000, 500, Genre.FICTION, BookFormat.DIGITAL));
+		journal.append(BookEventBuilder.forStartedReading().atTime(monday).build());
+		for (int day = 0; day < 100; day++) {
+			Instant evening = monday.plus(day, ChronoUnit.DAYS);
+			journal.append(BookEventBuilder.forPageUpdate(day * 5).atTime(evening).build());
+		}
+
+		Instant tuesdayNoon = monday.plus(1, ChronoUnit.DAYS).plus(16, ChronoUnit.HOURS);
+		assertEquals(5, journal.replayUntil(tuesdayNoon).getPageNumber(), "Page on the day after start");
+
+		Instant farLater = monday.plus(70, ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS);
+		assertEquals(350, journal.replayUntil(farLater).getPageNumber(), "Page after several snapshots");
+
+		BookSnapshot beforeStart = journal.replayUntil(monday.minus(1, ChronoUnit.DAYS));
+		assertEquals(BookSnapshot.NOT_STARTED, beforeStart.getStateName());
+		assertNull(beforeStart.getStartedReading());
+	}
+
+	/* ============================== PERSISTENCE =============================== */
+
+	@Test
+	void testDeserializedBookRebuildsStateFromJournal() throws Exception {
+		book.changeState();
+		book.incrementPageNumber(80);
+
+		OwnedBook loaded = roundTrip(book);
+		assertTrue(loaded.getState() instanceof InProgressState, "State should be rebuilt from the journal");
+		assertEquals(80, loaded.getPageNumber(), "Page number should be rebuilt from the journal");
+
+		loaded.changeState();
+		assertTrue(loaded.getState() instanceof FinishedState, "The rebuilt state should be usable");
+		assertNotNull(loaded.getHistory().getFinishedReading());
+	}
+
+	/**
+	 * The fixture was saved by the version before the journal: Dune in progress
+	 * on page 120 with a comment and a quote, Emma finished and reviewed, and a
+	 * wishlist book, with Dune on the Favourites shelf
+	 */
+	@Test
+	void testLibrarySavedBeforeTheJournalLoads() throws Exception {
+		BookStorage library;
+		try (ObjectInputStream in = new ObjectInputStream(
+				BookJournalTest.class.getResourceAsStream("library-before-journal.bin"))) {
+			library = (BookStorage) in.readObject();
+		}
+		assertEquals(3, library.getAllBooks().size());
+
+		OwnedBook dune = (OwnedBook) library.getBookByTitle("Dune");
+		assertTrue(dune.getState() instanceof InProgressState);
+		assertEquals(120, dune.getPageNumber());
+		assertEquals(3, dune.getJournal().size(), "The start, the comment and the quote");
+		assertEquals(120, dune.getProgress().getLastPage());
+		assertEquals(1, library.getBooksFromShelfName("Favourites").size());
+		assertEquals(1, library.searchText("spice", 5).size(), "The text index is built on load");
+
+		OwnedBook emma = (OwnedBook) library.getBookByTitle("Emma");
+		assertTrue(emma.getState() instanceof FinishedState);
+		assertTrue(emma.getHistory().hasReview());
+
+		dune.addComment("Still usable");
+		assertEquals(4, dune.getJournal().size());
+	}
+
+	private static OwnedBook roundTrip(OwnedBook book) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(book);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (OwnedBook) in.readObject();
+		}
+	}
+}
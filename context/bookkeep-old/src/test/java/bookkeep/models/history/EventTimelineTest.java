@@ -0,0 +1,106 @@
+package bookkeep.models.history;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+class EventTimelineTest {
+
+	private static final Instant START = Instant.parse("2024-03-01T09:00:00Z");
+
+	private BookHistory history;
+
+	@BeforeEach
+	void setUp() {
+		history = new BookHistory();
+	}
+
+	private static Instant minutes(int minutes) {
+		return START.plusSeconds(60L * minutes);
+	}
+
+	/* ================================== MERGE ================================= */
+
+	@Test
+	void testMergesTransitionsIntoEntriesByTime() {
+		history.addEvent(BookEventBuilder.forComment("Before starting").atTime(minutes(0)).build());
+		history.addEvent(BookEventBuilder.forStartedReading().atTime(minutes(5)).build());
+		history.addEvent(BookEventBuilder.forQuote("Quoted").atTime(minutes(10)).build());
+		history.addEvent(BookEventBuilder.forAfterthought("Later").atTime(minutes(30)).build());
+		history.addEvent(BookEventBuilder.forFinishedReading().atTime(minutes(20)).build());
+
+		assertEquals(List.of(
+				"2024-03-01 09:00 | COMMENT | Before starting",
+				"2024-03-01 09:05 | STARTED_READING",
+				"2024-03-01 09:10 | QUOTE | Quoted",
+				"2024-03-01 09:20 | FINISHED_READING",
+				"2024-03-01 09:30 | AFTERTHOUGHT | Later"),
+				new EventTimeline(history, ZoneOffset.UTC).getLines());
+	}
+
+	@Test
+	void testOrdersByTimeNotByRenderedText() {
+		// In the same minute, but the comment is later, which the text order would get wrong
+		history.addEvent(BookEventBuilder.forQuote("Zebra").atTime(START.plusSeconds(10)).build());
+		history.addEvent(BookEventBuilder.forComment("Aardvark").atTime(START.plusSeconds(50)).build());
+
+		List<String> lines = new EventTimeline(history, ZoneOffset.UTC).getLines();
+		assertEquals("2024-03-01 09:00 | QUOTE | Zebra", lines.get(0));
+		assertEquals("2024-03-01 09:00 | COMMENT | Aardvark", lines.get(1));
+	}
+
+	@Test
+	void testRendersInTheGivenZone() {
+		history.addEvent(BookEventBuilder.forComment("Hi").atTime(START).build());
+		assertEquals("2024-03-01 11:00 | COMMENT | Hi",
+				new EventTimeline(history, ZoneOffset.ofHours(2)).getLines().get(0));
+	}
+
+	/* ================================= APPENDS ================================ */
+
+	@Test
+	void testAppendsAtThePlaceInTime() {
+		history.addEvent(BookEventBuilder.forComment("First").atTime(minutes(0)).build());
+		history.addEvent(BookEventBuilder.forComment("Third").atTime(minutes(20)).build());
+		EventTimeline timeline = new EventTimeline(history, ZoneOffset.UTC);
+
+		timeline.append(BookEventBuilder.forComment("Fourth").atTime(minutes(30)).build());
+		timeline.append(BookEventBuilder.forQuote("Second").atTime(minutes(10)).build());
+		timeline.append(BookEventBuilder.forPageUpdate(40).atTime(minutes(40)).build());
+
+		assertEquals(4, timeline.size());
+		assertEquals("2024-03-01 09:10 | QUOTE | Second", timeline.getLines().get(1));
+		assertEquals("2024-03-01 09:30 | COMMENT | Fourth", timeline.getLines().get(3));
+	}
+
+	@Test
+	void testCacheFollowsTheLibrary() {
+		BookStorage storage = new BookStorage();
+		EventTimelineCache cache = new EventTimelineCache(ZoneOffset.UTC);
+		storage.addListener(cache);
+		OwnedBook book = new BookBuilder().withTitle("Dune").withAuthorName("Frank Herbert").withPageCount(600)
+				.buildOwnedBook();
+		storage.addBook(book);
+
+		EventTimeline timeline = cache.get(book);
+		assertSame(timeline, cache.get(book));
+		book.changeState();
+		book.addComment("Spice");
+		book.incrementPageNumber(10);
+		assertEquals(2, timeline.size());
+		assertEquals(new EventTimeline(book.getHistory(), ZoneOffset.UTC).getLines(), timeline.getLines());
+
+		storage.removeBook(book);
+		assertNotSame(timeline, cache.get(book));
+	}
+}
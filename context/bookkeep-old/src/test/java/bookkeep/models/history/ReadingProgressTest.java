@@ -0,0 +1,156 @@
+package bookkeep.models.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+
+class ReadingProgressTest {
+
+	private static final Instant START = Instant.parse("2024-01-01T08:00:00Z");
+
+	private ReadingProgress progress;
+
+	@BeforeEach
+	void setUp() {
+		progress = new ReadingProgress();
+	}
+
+	/* ================================ ENCODING ================================ */
+
+	@Test
+	void testSamplesDecodeInOrder() {
+		progress.append(START, 10);
+		progress.append(START.plusSeconds(600), 25);
+		progress.append(START.plusSeconds(900), 20); // Went back a few pages
+
+		List<Long> seconds = new ArrayList<>();
+		List<Integer> pages = new ArrayList<>();
+		progress.forEach((second, page) -> {
+			seconds.add(second);
+			pages.add(page);
+		});
+
+		assertEquals(List.of(START.getEpochSecond(), START.getEpochSecond() + 600, START.getEpochSecond() + 900),
+				seconds);
+		assertEquals(List.of(10, 25, 20), pages);
+		assertEquals(20, progress.getLastPage());
+	}
+
+	@Test
+	void testFrequentUpdatesCostOnlyAFewBytes() {
+		for (int i = 0; i < 10_000; i++) {
+			progress.append(START.plusSeconds(i * 300L), i % 1000);
+		}
+		double bytesPerSample = (double) progress.getByteSize() / progress.size();
+		assertTrue(bytesPerSample < 4.5, "Expected a few bytes per sample but got " + bytesPerSample);
+	}
+
+	@Test
+	void testWritingLeavesTheSeriesAlone() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			progress.append(START.plusSeconds(i * 60L), i);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(progress);
+		}
+		progress.append(START.plusSeconds(200 * 60L), 200);
+
+		ReadingProgress loaded;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			loaded = (ReadingProgress) in.readObject();
+		}
+		assertEquals(200, loaded.size());
+		assertEquals(199, loaded.getLastPage());
+		assertEquals(150, loaded.pageAt(START.plusSeconds(150 * 60L), -1));
+		assertEquals(201, progress.size());
+		assertEquals(200, progress.pageAt(START.plusSeconds(200 * 60L), -1));
+	}
+
+	@Test
+	void testWritingDuringAppendsKeepsSamplesWhole() throws Exception {
+		int samples = 2000 * ReadingProgress.CHECKPOINT_INTERVAL;
+		Thread appender = new Thread(() -> {
+			for (int i = 0; i < samples; i++) {
+				progress.append(START.plusSeconds(i * 60L), i);
+			}
+		});
+		appender.start();
+		while (appender.isAlive()) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(progress);
+			}
+			ReadingProgress loaded;
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				loaded = (ReadingProgress) in.readObject();
+			}
+			int[] decoded = { 0 };
+			loaded.forEach((second, page) -> assertEquals(decoded[0]++, page));
+			assertEquals(loaded.size(), decoded[0]);
+			assertEquals(loaded.size() - 1, loaded.pageAt(Instant.MAX, -1));
+		}
+		appender.join();
+	}
+
+	/* ================================= LOOKUP ================================= */
+
+	@Test
+	void testPageAtAcrossCheckpoints() {
+		int samples = 3 * ReadingProgress.CHECKPOINT_INTERVAL + 7;
+		for (int i = 0; i < samples; i++) {
+			progress.append(START.plusSeconds(i * 3600L), i * 2);
+		}
+
+		assertEquals(-1, progress.pageAt(START.minusSeconds(1), -1), "No sample before the first one");
+		assertEquals(0, progress.pageAt(START, -1));
+		assertEquals(2 * 200, progress.pageAt(START.plusSeconds(200 * 3600L + 1800), -1));
+		assertEquals(2 * 128, progress.pageAt(START.plusSeconds(128 * 3600L), -1), "Exactly on a checkpoint");
+		assertEquals(2 * (samples - 1), progress.pageAt(Instant.MAX, -1));
+	}
+
+	/* =============================== DOWNSAMPLING ============================= */
+
+	@Test
+	void testDownsampleKeepsLastSampleOfEachBucket() {
+		for (int i = 0; i < 1000; i++) {
+			progress.append(START.plusSeconds(i * 60L), i);
+		}
+
+		ReadingProgress.Points points = progress.downsample(10);
+		assertEquals(10, points.size());
+		assertEquals(999, points.getPageNumber(points.size() - 1), "The latest page should always be kept");
+		for (int i = 1; i < points.size(); i++) {
+			assertTrue(points.getEpochSecond(i) > points.getEpochSecond(i - 1), "Points should be in order");
+		}
+	}
+
+	/* ============================== INTEGRATION =============================== */
+
+	@Test
+	void testPageUpdatesOfABookAreRecorded() {
+		OwnedBook book = new BookBuilder().withTitle("Progress").withAuthorName("Author").withPageCount(300)
+				.withGenre(Genre.FICTION).withFormat(BookFormat.DIGITAL).buildOwnedBook();
+		book.changeState();
+		book.incrementPageNumber(40);
+		book.incrementPageNumber(35);
+
+		assertEquals(2, book.getProgress().size());
+		assertEquals(75, book.getProgress().getLastPage());
+		assertEquals(75, book.getJournal().replay().getPageNumber());
+	}
+}
@@ -0,0 +1,65 @@
+package bookkeep.recommend;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+/**
+ * Times recommend(10) over a large number of candidates. Not a unit test, run
+ * it by hand:
+ *
+ * java -cp target/classes:target/test-classes bookkeep.recommend.RecommenderBenchmark [candidates]
+ */
+public class RecommenderBenchmark {
+
+	private static final int WARMUP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Genre[] genres = Genre.values();
+		System.out.println("Indexing " + size + " candidates...");
+		Recommender recommender = new Recommender();
+		for (int i = 0; i < size; i++) {
+			recommender.bookAdded(new BookBuilder()
+					.withTitle("Candidate " + i)
+					.withAuthorName("Author " + i % 50_000)
+					.withPublicationYear(1800 + i % 220)
+					.withPageCount(300)
+					.withGenre(genres[i % genres.length])
+					.buildWishlistBook());
+		}
+
+		// A reader with broad taste, so the profile touches a large share of the candidates
+		BookStorage storage = new BookStorage();
+		storage.addListener(recommender);
+		for (int i = 0; i < 40; i++) {
+			OwnedBook liked = new BookBuilder()
+					.withTitle("Liked " + i)
+					.withAuthorName("Author " + i * 997)
+					.withPublicationYear(1850 + i * 4)
+					.withPageCount(300)
+					.withGenre(genres[i % 8])
+					.withFormat(BookFormat.DIGITAL)
+					.buildOwnedBook();
+			storage.addBook(liked);
+			liked.changeState();
+			liked.changeState();
+			liked.review("Liked it", 4 + i % 2);
+		}
+
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			recommender.recommend(10);
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			long start = System.nanoTime();
+			recommender.recommend(10);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.printf("recommend(10) over %d candidates: %.1f ms%n", size, best / 1e6);
+		System.out.println(recommender.recommend(3));
+	}
+}
@@ -0,0 +1,166 @@
+package bookkeep.recommend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.WishlistBook;
+import bookkeep.models.collections.BookStorage;
+
+class RecommenderTest {
+
+	private BookStorage storage;
+	private Recommender recommender;
+
+	@BeforeEach
+	void setUp() {
+		storage = new BookStorage();
+		recommender = new Recommender();
+		storage.addListener(recommender);
+	}
+
+	private static BookBuilder builder(String title, String author, Genre genre, int year) {
+		return new BookBuilder().withTitle(title).withAuthorName(author).withGenre(genre).withPublicationYear(year)
+				.withPageCount(300).withFormat(BookFormat.PHYSICAL);
+	}
+
+	private OwnedBook finishAndRate(OwnedBook book, int rating) {
+		storage.addBook(book);
+		book.changeState();
+		book.changeState();
+		book.review("Review", rating);
+		return book;
+	}
+
+	private static List<String> titles(List<Recommendation> recommendations) {
+		return recommendations.stream().map(r -> r.getBook().getTitle()).toList();
+	}
+
+	private static Map<String, Double> scores(List<Recommendation> recommendations) {
+		return recommendations.stream().collect(Collectors.toMap(r -> r.getBook().getTitle(), Recommendation::getScore));
+	}
+
+	/* ================================= RANKING ================================ */
+
+	@Test
+	void testRanksCandidatesBySimilarityToLikedBooks() {
+		storage.addBook(builder("Same Author And Genre", "Ursula Le Guin", Genre.FANTASY, 1972).buildWishlistBook());
+		storage.addBook(builder("Same Genre", "Someone Else", Genre.FANTASY, 2001).buildOwnedBook());
+		storage.addBook(builder("Same Decade Only", "Third Author", Genre.HISTORY, 1975).buildOwnedBook());
+		storage.addBook(builder("Nothing In Common", "Fourth Author", Genre.HORROR, 2015).buildOwnedBook());
+		assertTrue(recommender.recommend(5).isEmpty(), "Nothing is rated yet");
+
+		finishAndRate(builder("Earthsea", "Ursula Le Guin", Genre.FANTASY, 1971).buildOwnedBook(), 5);
+
+		assertEquals(List.of("Same Author And Genre", "Same Genre", "Same Decade Only"),
+				titles(recommender.recommend(5)));
+		assertEquals(List.of("Same Author And Genre"), titles(recommender.recommend(1)));
+	}
+
+	@Test
+	void testLowRatingsDoNotShapeTheProfile() {
+		storage.addBook(builder("Horror Candidate", "Anyone", Genre.HORROR, 1990).buildWishlistBook());
+		finishAndRate(builder("Disliked", "Other", Genre.HORROR, 1995).buildOwnedBook(), 2);
+		assertTrue(recommender.recommend(5).isEmpty());
+	}
+
+	/* ========================== INCREMENTAL UPDATES =========================== */
+
+	@Test
+	void testProfileFollowsChangedReviews() {
+		storage.addBook(builder("Mystery Candidate", "A", Genre.MYSTERY, 1950).buildWishlistBook());
+		storage.addBook(builder("Poetry Candidate", "B", Genre.POETRY, 1850).buildWishlistBook());
+		OwnedBook mystery = finishAndRate(builder("Mystery", "C", Genre.MYSTERY, 2000).buildOwnedBook(), 5);
+		finishAndRate(builder("Poetry", "D", Genre.POETRY, 2000).buildOwnedBook(), 4);
+		assertEquals("Mystery Candidate", recommender.recommend(1).get(0).getBook().getTitle());
+
+		mystery.review("Did not hold up", 1);
+		assertEquals(List.of("Poetry Candidate"), titles(recommender.recommend(5)));
+	}
+
+	@Test
+	void testStartedAndRemovedBooksAreNoLongerSuggested() {
+		OwnedBook unread = builder("Unread", "Same", Genre.DRAMA, 2000).buildOwnedBook();
+		WishlistBook wished = builder("Wished", "Same", Genre.DRAMA, 2000).buildWishlistBook();
+		storage.addBook(unread);
+		storage.addBook(wished);
+		finishAndRate(builder("Liked", "Same", Genre.DRAMA, 2000).buildOwnedBook(), 5);
+		assertEquals(2, recommender.recommend(5).size());
+
+		unread.changeState();
+		storage.removeBook(wished);
+		assertTrue(recommender.recommend(5).isEmpty());
+		assertEquals(0, recommender.getCandidateCount());
+	}
+
+	@Test
+	void testEditedCandidateIsReindexed() {
+		OwnedBook candidate = builder("Candidate", "X", Genre.ROMANCE, 1900).buildOwnedBook();
+		storage.addBook(candidate);
+		finishAndRate(builder("Liked", "Y", Genre.ADVENTURE, 2010).buildOwnedBook(), 5);
+		assertTrue(recommender.recommend(5).isEmpty());
+
+		candidate.setGenre(Genre.ADVENTURE);
+		List<Book> books = recommender.recommend(5).stream().map(Recommendation::getBook).toList();
+		assertEquals(List.of(candidate), books);
+	}
+
+	@Test
+	void testRemovalHandsTheSlotToAnotherCandidate() {
+		OwnedBook first = builder("First", "A", Genre.MYSTERY, 1990).buildOwnedBook();
+		OwnedBook second = builder("Second", "B", Genre.MYSTERY, 1990).buildOwnedBook();
+		OwnedBook last = builder("Last", "C", Genre.MYSTERY, 1990).buildOwnedBook();
+		storage.addBook(first);
+		storage.addBook(second);
+		storage.addBook(last);
+		finishAndRate(builder("Liked", "D", Genre.MYSTERY, 1990).buildOwnedBook(), 5);
+
+		storage.removeBook(first);
+		for (int year = 1900; year < 2000; year++) {
+			second.setPublicationYear(year);
+		}
+		second.setGenre(Genre.HORROR);
+
+		assertEquals(List.of("Last", "Second"), titles(recommender.recommend(5)),
+				"The moved candidate keeps its features, the edited one only has its decade left");
+		assertEquals(2, recommender.getCandidateCount());
+		storage.removeBook(last);
+		assertEquals(List.of("Second"), titles(recommender.recommend(5)));
+	}
+
+	@Test
+	void testSharedPostingsStayConsistentThroughRemovals() {
+		List<OwnedBook> candidates = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			OwnedBook candidate = builder("Candidate " + i, "Author " + i % 7, Genre.FANTASY, 1900 + i * 3)
+					.buildOwnedBook();
+			candidates.add(candidate);
+			storage.addBook(candidate);
+		}
+		finishAndRate(builder("Liked", "Author 3", Genre.FANTASY, 1960).buildOwnedBook(), 5);
+		for (int i = 0; i < candidates.size(); i += 3) {
+			storage.removeBook(candidates.get(i));
+		}
+		for (int i = 1; i < candidates.size(); i += 5) {
+			candidates.get(i).changeState();
+			candidates.get(i + 1).setGenre(Genre.HORROR);
+		}
+
+		Recommender rebuilt = new Recommender();
+		rebuilt.indexLibrary(storage);
+		assertEquals(rebuilt.getCandidateCount(), recommender.getCandidateCount());
+		assertEquals(scores(rebuilt.recommend(100)), scores(recommender.recommend(100)),
+				"Kept up to date, the index scores like one built from scratch");
+	}
+}
@@ -0,0 +1,105 @@
+package bookkeep.search;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+
+class DebouncedSearchTest {
+
+	private DebouncedSearch<String> search;
+	private List<String> published;
+
+	@BeforeEach
+	void setUp() {
+		search = new DebouncedSearch<>(Duration.ofMillis(50), Runnable::run);
+		published = new CopyOnWriteArrayList<>();
+		search.setResultListener((result, latency) -> published.add(result));
+	}
+
+	@AfterEach
+	void tearDown() {
+		search.close();
+	}
+
+	/** Waits until every search submitted so far has run */
+	private void settle() throws InterruptedException {
+		Thread.sleep(150);
+		CountDownLatch done = new CountDownLatch(1);
+		search.submit(cancelled -> {
+			done.countDown();
+			return null;
+		});
+		assertTrue(done.await(2, TimeUnit.SECONDS));
+	}
+
+	/* ================================ DEBOUNCING ============================== */
+
+	@Test
+	void testOnlyTheLastOfQuickSubmissionsRuns() throws InterruptedException {
+		List<String> ran = new CopyOnWriteArrayList<>();
+		for (String query : List.of("t", "to", "tol", "tolk")) {
+			search.submit(cancelled -> {
+				ran.add(query);
+				return query;
+			});
+		}
+		settle();
+		assertEquals(List.of("tolk"), ran);
+		assertEquals(List.of("tolk"), published);
+	}
+
+	@Test
+	void testCancelDropsPendingSearch() throws InterruptedException {
+		search.submit(cancelled -> "dropped");
+		search.cancel();
+		settle();
+		assertTrue(published.isEmpty());
+	}
+
+	/* =============================== CANCELLATION ============================= */
+
+	@Test
+	void testRunningSearchIsCancelledAndNotPublished() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch stopped = new CountDownLatch(1);
+		search.submit(cancelled -> {
+			started.countDown();
+			while (!cancelled.getAsBoolean()) {
+				Thread.onSpinWait();
+			}
+			stopped.countDown();
+			return "stale";
+		});
+		assertTrue(started.await(2, TimeUnit.SECONDS));
+		search.submit(cancelled -> "fresh");
+		assertTrue(stopped.await(2, TimeUnit.SECONDS), "The running search should see the newer one");
+		settle();
+		assertEquals(List.of("fresh"), published);
+	}
+
+	@Test
+	void testFilterStopsWhenCancelled() {
+		Book[] books = new Book[5000];
+		for (int i = 0; i < books.length; i++) {
+			books[i] = new BookBuilder().withTitle("Book " + i).withAuthorName("Author").withPublicationYear(2000 + i % 3)
+					.withGenre(Genre.FICTION).buildOwnedBook();
+		}
+		assertNull(BookFilter.filter(books, BookFilter.TITLE, "book", () -> true));
+		assertEquals(5000, BookFilter.filter(books, BookFilter.TITLE, "BOOK", () -> false).size());
+		assertEquals(1667, BookFilter.filter(books, BookFilter.YEAR, "2001", () -> false).size());
+		assertTrue(BookFilter.filter(books, BookFilter.YEAR, "soon", () -> false).isEmpty());
+	}
+}
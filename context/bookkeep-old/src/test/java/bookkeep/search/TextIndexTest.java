@@ -0,0 +1,154 @@
+package bookkeep.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.EventType;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+class TextIndexTest {
+
+	private BookStorage library;
+	private OwnedBook book;
+
+	@BeforeEach
+	void setUp() {
+		library = new BookStorage();
+		book = new BookBuilder()
+				.withTitle("Speak, Memory")
+				.withAuthorName("Vladimir Nabokov")
+				.withPublicationYear(1951)
+				.withPageCount(320)
+				.withGenre(Genre.BIOGRAPHY)
+				.withFormat(BookFormat.PHYSICAL)
+				.buildOwnedBook();
+		library.addBook(book);
+		book.changeState();
+	}
+
+	/* ============================== TOKENIZATION ============================== */
+
+	@Test
+	void testTokenizerStemsAndDropsStopWords() {
+		assertEquals(List.of("memory", "fad"), Tokenizer.tokenize("The memories fade"));
+		assertEquals(Tokenizer.tokenize("loved reading"), Tokenizer.tokenize("love reads"));
+	}
+
+	/* ========================= INCREMENTAL INDEXING =========================== */
+
+	@Test
+	void testQuoteIsFoundWithBookAndPage() {
+		book.addQuote("The cradle rocks above an abyss", 19);
+		book.addComment("Lovely passage about memory and time");
+
+		List<SearchHit> hits = library.searchText("memories", 10);
+		assertEquals(1, hits.size());
+		assertEquals(book.getUUID(), hits.get(0).getBookId());
+		assertEquals(EventType.COMMENT, hits.get(0).getType());
+
+		hits = library.searchText("abyss", 10);
+		assertEquals(1, hits.size());
+		assertEquals(19, hits.get(0).getPageNumber());
+	}
+
+	@Test
+	void testBm25RanksDenserMatchesFirst() {
+		book.addComment("memory memory memory");
+		book.addComment("a long comment about many things that happens to mention memory once in passing");
+
+		List<SearchHit> hits = library.searchText("memory", 10);
+		assertEquals(2, hits.size());
+		assertEquals("memory memory memory", hits.get(0).getText());
+		assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+	}
+
+	@Test
+	void testReplacedReviewIsNoLongerFound() {
+		book.changeState();
+		book.review("Dazzling prose", 5);
+		book.review("Still dazzling, but slow", 4);
+
+		List<SearchHit> hits = library.searchText("prose", 10);
+		assertTrue(hits.isEmpty(), "The first review should be gone from the index");
+		assertEquals(1, library.searchText("slow", 10).size());
+	}
+
+	@Test
+	void testRemovedBookIsNoLongerFound() {
+		book.addComment("Butterflies everywhere");
+		library.removeBook(book);
+
+		assertTrue(library.searchText("butterfly", 10).isEmpty());
+	}
+
+	@Test
+	void testRemovalsAreCompactedAlongTheWay() {
+		TextIndex index = new TextIndex();
+		BookStorage other = new BookStorage();
+		other.addListener(index);
+		List<OwnedBook> books = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			OwnedBook whale = new BookBuilder().withTitle("Whales " + i).withAuthorName("Melville")
+					.withPageCount(100).buildOwnedBook();
+			other.addBook(whale);
+			whale.changeState();
+			whale.addComment("Chapter " + i + " about whales");
+			books.add(whale);
+		}
+		OwnedBook kept = books.get(399);
+		kept.changeState();
+		kept.review("Too many whales", 3);
+		for (OwnedBook whale : books.subList(0, 300)) {
+			other.removeBook(whale);
+		}
+
+		assertTrue(index.getDeletedCount() < 300, "Deleted documents should not all be kept");
+		assertEquals(101, index.getDocumentCount());
+		List<SearchHit> hits = index.search("whales", 1_000);
+		assertEquals(101, hits.size());
+		assertTrue(hits.stream().allMatch(hit -> other.findBook(hit.getBookId()) != null));
+
+		index.compact();
+		assertEquals(0, index.getDeletedCount());
+		kept.review("Just enough whales", 4);
+		assertTrue(index.search("many", 10).isEmpty(), "The replaced review is found under its new id");
+		assertEquals(kept.getUUID(), index.search("enough", 10).get(0).getBookId());
+	}
+
+	/* ============================== PERSISTENCE =============================== */
+
+	@Test
+	void testIndexIsSavedAndKeptUpToDateAfterLoading() throws Exception {
+		book.addComment("Chess problems and butterflies");
+
+		BookStorage loaded = roundTrip(library);
+		assertEquals(1, loaded.searchText("chess", 10).size(), "Index should be loaded with the library");
+
+		OwnedBook loadedBook = (OwnedBook) loaded.getAllBooks().get(0);
+		loadedBook.addComment("More chess");
+		assertEquals(2, loaded.searchText("chess", 10).size(), "Loaded index should keep updating");
+	}
+
+	private static BookStorage roundTrip(BookStorage library) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(library);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (BookStorage) in.readObject();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package bookkeep.server;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+
+/**
+ * Load on the library server from many concurrent clients: mostly single
+ * books, some of them conditional, with searches, statistics and a few
+ * events in between. Reports throughput and latency percentiles. Not a unit
+ * test, run it by hand:
+ *
+ * java -cp target/classes:target/test-classes bookkeep.server.LibraryServerBenchmark [books] [clients] [seconds]
+ */
+public class LibraryServerBenchmark {
+
+	private static final int WARMUP_SECONDS = 3;
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		System.out.println("Filling a library of " + size + " books...");
+		BookStorage library = new BookStorage();
+		Genre[] genres = Genre.values();
+		UUID[] ids = new UUID[size];
+		for (int i = 0; i < size; i++) {
+			OwnedBook book = new BookBuilder()
+					.withTitle("Book " + i)
+					.withAuthorName("Author " + i % 5_000)
+					.withPublicationYear(1900 + i % 120)
+					.withPageCount(300)
+					.withGenre(genres[i % genres.length])
+					.buildOwnedBook();
+			library.addBook(book);
+			ids[i] = book.getUUID();
+			if (i % 10 == 0) {
+				book.changeState();
+				book.addComment("Notes on chapter " + i % 40 + " of the saga");
+			}
+		}
+
+		LibraryServer server = new LibraryServer(library, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+		String base = "http://localhost:" + server.getPort();
+		try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+			run(client, base, ids, clients, WARMUP_SECONDS);
+			Result result = run(client, base, ids, clients, seconds);
+			System.out.printf("%d clients, %d s: %d requests, %.0f requests/s%n", clients, seconds,
+					result.latencies.length, result.latencies.length / (double) seconds);
+			System.out.printf("latency p50 %.2f ms  p99 %.2f ms  max %.2f ms  errors %d%n",
+					percentile(result.latencies, 0.50), percentile(result.latencies, 0.99),
+					percentile(result.latencies, 1.0), result.errors);
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private record Result(long[] latencies, long errors) {
+	}
+
+	private static Result run(HttpClient client, String base, UUID[] ids, int clients, int seconds)
+			throws Exception {
+		long end = System.nanoTime() + seconds * 1_000_000_000L;
+		AtomicLong errors = new AtomicLong();
+		List<Future<long[]>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int c = 0; c < clients; c++) {
+				futures.add(executor.submit(() -> client(client, base, ids, end, errors)));
+			}
+		}
+		List<long[]> perClient = new ArrayList<>();
+		int total = 0;
+		for (Future<long[]> future : futures) {
+			long[] some = future.get();
+			perClient.add(some);
+			total += some.length;
+		}
+		long[] latencies = new long[total];
+		int at = 0;
+		for (long[] some : perClient) {
+			System.arraycopy(some, 0, latencies, at, some.length);
+			at += some.length;
+		}
+		Arrays.sort(latencies);
+		return new Result(latencies, errors.get());
+	}
+
+	/**
+	 * One client sending requests back to back until the end, returning the
+	 * latency of each
+	 */
+	private static long[] client(HttpClient client, String base, UUID[] ids, long end, AtomicLong errors) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long[] latencies = new long[1024];
+		int count = 0;
+		String statsTag = null;
+		while (System.nanoTime() < end) {
+			int pick = random.nextInt(100);
+			HttpRequest.Builder request;
+			if (pick < 70) {
+				request = HttpRequest.newBuilder(URI.create(base + "/books/" + ids[random.nextInt(ids.length)]));
+			} else if (pick < 85) {
+				request = HttpRequest.newBuilder(URI.create(base + "/stats"));
+				if (statsTag != null) {
+					request.header("If-None-Match", statsTag);
+				}
+			} else if (pick < 97) {
+				request = HttpRequest.newBuilder(URI.create(base + "/search?q=chapter+" + random.nextInt(40) + "&limit=10"));
+			} else {
+				// Books that were started take page updates
+				UUID id = ids[random.nextInt(ids.length / 10) * 10];
+				request = HttpRequest.newBuilder(URI.create(base + "/books/" + id + "/events"))
+						.POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"page\",\"page\":" + random.nextInt(1, 300) + "}"));
+			}
+			long start = System.nanoTime();
+			try {
+				HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+				// An event may be refused, for a page below the current one for example
+				boolean refusal = pick >= 97 && response.statusCode() < 500;
+				if (response.statusCode() >= 400 && !refusal) {
+					errors.incrementAndGet();
+				}
+				if (pick >= 70 && pick < 85) {
+					statsTag = response.headers().firstValue("ETag").orElse(null);
+				}
+			} catch (Exception e) {
+				errors.incrementAndGet();
+				continue;
+			}
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = System.nanoTime() - start;
+		}
+		return Arrays.copyOf(latencies, count);
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+	}
+}
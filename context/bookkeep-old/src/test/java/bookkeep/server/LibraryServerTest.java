@@ -0,0 +1,180 @@
+package bookkeep.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.json.Json;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.history.BookSnapshot;
+
+class LibraryServerTest {
+
+	private final HttpClient client = HttpClient.newHttpClient();
+	private BookStorage library;
+	private LibraryServer server;
+	private OwnedBook dune;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		library = new BookStorage();
+		for (int i = 0; i < 600; i++) {
+			library.addBook(new BookBuilder().withTitle("Book " + i).withAuthorName("Author").buildOwnedBook());
+		}
+		dune = new BookBuilder().withTitle("Dune").withAuthorName("Frank Herbert").withPageCount(600).buildOwnedBook();
+		library.addBook(dune);
+		library.addShelf("Favourites");
+		library.addBookToShelf("Favourites", dune);
+		server = new LibraryServer(library, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	private HttpResponse<String> get(String path, String... headers) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).GET();
+		if (headers.length > 0) {
+			request.headers(headers);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> post(String path, String body) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + server.getPort() + path);
+	}
+
+	private static List<Map<String, Object>> records(HttpResponse<String> response) {
+		return response.body().lines().map(Json::parseObject).toList();
+	}
+
+	/* ================================= READING ================================ */
+
+	@Test
+	void testStreamsEveryBook() throws Exception {
+		HttpResponse<String> response = get("/books");
+		assertEquals(200, response.statusCode());
+		assertEquals(601, records(response).size());
+
+		assertEquals(6, records(get("/books?offset=595&limit=10")).size());
+	}
+
+	@Test
+	void testReadsOneBookShelvesAndStats() throws Exception {
+		Map<String, Object> book = Json.parseObject(get("/books/" + dune.getUUID()).body());
+		assertEquals("Dune", book.get("title"));
+
+		Map<String, Object> shelf = records(get("/shelves")).get(0);
+		assertEquals("Favourites", shelf.get("name"));
+		assertEquals(600L, shelf.get("pages"));
+		assertEquals("Dune", records(get("/shelves/Favourites")).get(0).get("title"));
+
+		assertEquals(601L, Json.parseObject(get("/stats").body()).get("books"));
+	}
+
+	@Test
+	void testConditionalGets() throws Exception {
+		HttpResponse<String> first = get("/stats");
+		String tag = first.headers().firstValue("ETag").orElseThrow();
+		assertEquals(304, get("/stats", "If-None-Match", tag).statusCode());
+		assertEquals(304, get("/books", "If-None-Match", tag).statusCode(), "The tag is the library's");
+
+		post("/books/" + dune.getUUID() + "/events", "{\"type\":\"state\"}");
+		HttpResponse<String> after = get("/stats", "If-None-Match", tag);
+		assertEquals(200, after.statusCode());
+		assertNotEquals(tag, after.headers().firstValue("ETag").orElseThrow());
+	}
+
+	/* ================================= WRITING ================================ */
+
+	@Test
+	void testEventsAreRecordedAndSearchable() throws Exception {
+		String events = "/books/" + dune.getUUID() + "/events";
+		assertEquals(200, post(events, "{\"type\":\"state\"}").statusCode());
+		assertEquals(200, post(events, "{\"type\":\"page\",\"page\":120}").statusCode());
+		HttpResponse<String> comment = post(events, "{\"type\":\"comment\",\"text\":\"The spice must flow\"}");
+		assertEquals(120L, Json.parseObject(comment.body()).get("page"));
+
+		List<Map<String, Object>> history = records(get("/books/" + dune.getUUID() + "/history"));
+		assertTrue(history.stream().anyMatch(event -> "COMMENT".equals(event.get("type"))), history.toString());
+
+		Map<String, Object> hit = records(get("/search?q=spice")).get(0);
+		assertEquals("Dune", hit.get("title"));
+	}
+
+	@Test
+	void testAddsBooks() throws Exception {
+		HttpResponse<String> response = post("/books", "{\"title\":\"Emma\",\"author\":\"Jane Austen\",\"year\":1815}");
+		assertEquals(201, response.statusCode());
+		String location = response.headers().firstValue("Location").orElseThrow();
+		assertEquals("Emma", Json.parseObject(get(location).body()).get("title"));
+		assertEquals(602, library.getStatistics().getBookCount());
+	}
+
+	@Test
+	void testStaleVersionIsAConflict() throws Exception {
+		String events = "/books/" + dune.getUUID() + "/events";
+		String version = (String) Json.parseObject(get("/books/" + dune.getUUID()).body()).get("version");
+		HttpResponse<String> started = post(events, "{\"type\":\"state\",\"version\":\"" + version + "\"}");
+		assertEquals(200, started.statusCode());
+		String next = (String) Json.parseObject(started.body()).get("version");
+		assertEquals(dune.getVersion(), Long.parseLong(next.substring(next.lastIndexOf('-') + 1)));
+
+		// A second client still holding the old version
+		HttpResponse<String> stale = post(events, "{\"type\":\"page\",\"page\":40,\"version\":\"" + version + "\"}");
+		assertEquals(409, stale.statusCode());
+		assertEquals(0, dune.getPageNumber());
+	}
+
+	@Test
+	void testVersionOfAnEarlierRunIsAConflict() throws Exception {
+		String events = "/books/" + dune.getUUID() + "/events";
+		String version = (String) Json.parseObject(get("/books/" + dune.getUUID()).body()).get("version");
+		String number = version.substring(version.lastIndexOf('-') + 1);
+
+		// The same count handed out by a server that has since restarted
+		HttpResponse<String> earlier = post(events, "{\"type\":\"state\",\"version\":\"0-" + number + "\"}");
+		assertEquals(409, earlier.statusCode());
+		assertEquals(400, post(events, "{\"type\":\"state\",\"version\":" + number + "}").statusCode());
+		assertEquals(BookSnapshot.NOT_STARTED, dune.getStateName());
+	}
+
+	/* ================================= ERRORS ================================= */
+
+	@Test
+	void testErrorsMapToStatusCodes() throws Exception {
+		assertEquals(404, get("/books/not-an-id").statusCode());
+		assertEquals(404, get("/shelves/Missing").statusCode());
+		assertEquals(400, get("/search").statusCode());
+		assertEquals(400, post("/books", "{\"title\":\"No author\"}").statusCode());
+		assertEquals(400, post("/books", "not json").statusCode());
+		assertEquals(405, post("/stats", "{}").statusCode());
+		assertEquals(400, post("/books/" + dune.getUUID() + "/events", "{\"type\":\"page\"}").statusCode());
+		// A book that was never started cannot be commented on
+		HttpResponse<String> refused = post("/books/" + dune.getUUID() + "/events", "{\"type\":\"comment\",\"text\":\"x\"}");
+		assertEquals(409, refused.statusCode());
+		assertTrue(Json.parseObject(refused.body()).containsKey("error"));
+	}
+}
@@ -0,0 +1,114 @@
+package bookkeep.sync;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import bookkeep.enums.EventType;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookEvent;
+
+/**
+ * How long a page update made on one instance takes to show up on another
+ * through a shared directory, with each library confined to a thread of its
+ * own like the JavaFX app confines it to the application thread. Not a unit
+ * test, run it by hand:
+ *
+ * java -cp target/classes:target/test-classes bookkeep.sync.LibrarySyncBenchmark [updates] [interval ms] [directory]
+ */
+public class LibrarySyncBenchmark {
+
+	private static final int PAGES = 100_000;
+
+	public static void main(String[] args) throws Exception {
+		int updates = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int intervalMillis = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		Path directory = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("bookkeep-sync");
+		System.out.println(updates + " page updates, one every " + intervalMillis + " ms, through " + directory);
+
+		ExecutorService writerThread = Executors.newSingleThreadExecutor();
+		ExecutorService readerThread = Executors.newSingleThreadExecutor();
+		BookStorage writer = new BookStorage();
+		BookStorage reader = new BookStorage();
+		long[] sent = new long[PAGES + 1];
+		long[] received = new long[PAGES + 1];
+		CountDownLatch arrived = new CountDownLatch(updates + 1);
+		reader.addListener(new LibraryListener() {
+			@Override
+			public void bookAdded(Book book) {
+				arrived.countDown();
+			}
+
+			@Override
+			public void eventRecorded(Book book, BookEvent event) {
+				if (event.getType() == EventType.PAGE_UPDATE) {
+					received[event.getPageNumber()] = System.nanoTime();
+					arrived.countDown();
+				}
+			}
+		});
+
+		try (LibrarySync writerSync = new LibrarySync(writer, directory, "writer", writerThread::execute);
+				LibrarySync readerSync = new LibrarySync(reader, directory, "reader", readerThread::execute)) {
+			writerSync.start();
+			readerSync.start();
+
+			OwnedBook book = new BookBuilder().withTitle("Benchmark").withAuthorName("Author").withPageCount(PAGES)
+					.buildOwnedBook();
+			UUID id = book.getUUID();
+			writerThread.submit(() -> {
+				writer.addBook(book);
+				book.changeState();
+			}).get();
+			for (int i = 1; i <= updates; i++) {
+				int page = i;
+				writerThread.submit(() -> {
+					sent[page] = System.nanoTime();
+					((OwnedBook) writer.findBook(id)).setPageNumber(page);
+				}).get();
+				Thread.sleep(intervalMillis);
+			}
+			if (!arrived.await(30, TimeUnit.SECONDS)) {
+				System.out.println("Only " + (updates + 1 - arrived.getCount()) + " changes arrived in time");
+			}
+
+			long[] latencies = new long[updates];
+			int count = 0;
+			for (int page = 1; page <= updates; page++) {
+				if (received[page] != 0) {
+					latencies[count++] = received[page] - sent[page];
+				}
+			}
+			Arrays.sort(latencies, 0, count);
+			if (count > 0) {
+				System.out.printf("p50 %.2f ms, p99 %.2f ms, max %.2f ms over %d updates%n",
+						latencies[count / 2] / 1e6, latencies[Math.min(count - 1, count * 99 / 100)] / 1e6,
+						latencies[count - 1] / 1e6, count);
+			}
+			LibrarySync.Convergence convergence = readerSync.getConvergence();
+			System.out.println("Reader applied " + convergence.applied() + ", dropped " + convergence.dropped()
+					+ ", mean " + convergence.mean().toNanos() / 1e6 + " ms, max "
+					+ convergence.max().toNanos() / 1e6 + " ms");
+		} finally {
+			writerThread.shutdown();
+			readerThread.shutdown();
+			if (args.length <= 2) {
+				try (var files = Files.walk(directory)) {
+					for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+						Files.delete(file);
+					}
+				}
+			}
+		}
+	}
+}
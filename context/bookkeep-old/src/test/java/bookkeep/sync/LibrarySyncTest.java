@@ -0,0 +1,247 @@
+package bookkeep.sync;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.models.collections.LibraryListener;
+import bookkeep.models.history.BookSnapshot;
+import bookkeep.persistance.LibrarySerializer;
+
+class LibrarySyncTest {
+
+	private Path directory;
+	private AtomicLong clock;
+	private BookStorage first;
+	private BookStorage second;
+	private LibrarySync firstSync;
+	private LibrarySync secondSync;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = Files.createTempDirectory("bookkeep-sync");
+		clock = new AtomicLong(1_000);
+		first = new BookStorage();
+		second = new BookStorage();
+		firstSync = open(first, "first");
+		secondSync = open(second, "second");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		firstSync.close();
+		secondSync.close();
+		try (var files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	private LibrarySync open(BookStorage library, String instanceId) throws IOException {
+		LibrarySync sync = new LibrarySync(library, directory, instanceId, Runnable::run, Duration.ofSeconds(1),
+				clock::incrementAndGet);
+		sync.open();
+		return sync;
+	}
+
+	private static OwnedBook book(String title) {
+		return new BookBuilder().withTitle(title).withAuthorName("Author").withPageCount(300)
+				.withGenre(Genre.CLASSIC).buildOwnedBook();
+	}
+
+	private OwnedBook copy(OwnedBook book) {
+		return (OwnedBook) second.findBook(book.getUUID());
+	}
+
+	/* ================================ APPLYING ================================ */
+
+	@Test
+	void testChangesReachTheOtherInstance() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		first.addShelf("Favourites");
+		first.addBookToShelf("Favourites", book);
+		book.changeState();
+		book.setPageNumber(120);
+		book.addComment("Sharp");
+		book.setPageCount(320);
+		secondSync.poll();
+
+		OwnedBook copy = copy(book);
+		assertNotNull(copy, "The book should keep its id");
+		assertEquals(BookSnapshot.IN_PROGRESS, copy.getStateName());
+		assertEquals(120, copy.getPageNumber());
+		assertEquals(320, copy.getPageCount());
+		assertEquals(book.getHistory().getListOfEvents().size(), copy.getHistory().getListOfEvents().size());
+		assertEquals(copy, second.getBooksFromShelfName("Favourites").get(0));
+		assertEquals(0, Files.size(directory.resolve("second.log")), "Applied changes must not be logged again");
+
+		first.removeBook(book);
+		secondSync.poll();
+		assertNull(second.findBook(book.getUUID()));
+		assertTrue(second.getBooksFromShelfName("Favourites").isEmpty());
+		assertEquals(9, secondSync.getConvergence().applied());
+	}
+
+	@Test
+	void testChangeThatNoLongerFitsIsDropped() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		book.changeState();
+		secondSync.poll();
+		second.removeBook(copy(book));
+		book.addComment("Too late");
+		secondSync.poll();
+
+		assertEquals(2, secondSync.getConvergence().applied());
+		assertEquals(1, secondSync.getConvergence().dropped());
+		assertNull(second.findBook(book.getUUID()), "A removed book is not brought back");
+	}
+
+	@Test
+	void testUnreadableLineIsDroppedAndSkipped() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		book.changeState();
+		Files.writeString(directory.resolve("first.log"), "{\"op\":\"event\",\"at\":\n",
+				StandardOpenOption.APPEND);
+		String longComment = "x".repeat(LibrarySync.CHUNK_BYTES + 10);
+		book.addComment(longComment);
+		secondSync.poll();
+
+		assertEquals(BookSnapshot.IN_PROGRESS, copy(book).getStateName());
+		assertEquals(longComment, copy(book).getHistory().getComments().get(0).getText(),
+				"A line longer than a chunk is still read whole");
+		assertEquals(3, secondSync.getConvergence().applied());
+		assertEquals(1, secondSync.getConvergence().dropped());
+	}
+
+	/* ================================= MERGING ================================ */
+
+	@Test
+	void testLatestPageWins() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		book.changeState();
+		secondSync.poll();
+
+		book.setPageNumber(50);
+		copy(book).setPageNumber(80);
+		firstSync.poll();
+		secondSync.poll();
+
+		assertEquals(80, book.getPageNumber(), "The later change should win here");
+		assertEquals(80, copy(book).getPageNumber(), "and not be overwritten by the earlier one there");
+	}
+
+	@Test
+	void testConcurrentStartsDoNotFinishTheBook() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		secondSync.poll();
+
+		book.changeState();
+		copy(book).changeState();
+		book.addComment("From the first");
+		copy(book).addComment("From the second");
+		firstSync.poll();
+		secondSync.poll();
+
+		assertEquals(BookSnapshot.IN_PROGRESS, book.getStateName());
+		assertEquals(BookSnapshot.IN_PROGRESS, copy(book).getStateName());
+		assertEquals(2, book.getHistory().getComments().size(), "Comments from both are kept");
+		assertEquals(2, copy(book).getHistory().getComments().size());
+	}
+
+	/* ================================= CURSOR ================================= */
+
+	@Test
+	void testSavedCursorSkipsAppliedChanges() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		book.changeState();
+		book.addComment("Once");
+		secondSync.poll();
+
+		Path saved = directory.resolve("second.ser");
+		LibrarySerializer serializer = new LibrarySerializer();
+		serializer.save(second, saved);
+		secondSync.saveCursor();
+		secondSync.close();
+
+		book.addComment("Twice");
+		second = serializer.load(saved);
+		secondSync = open(second, "second");
+
+		assertEquals(2, copy(book).getHistory().getComments().size(), "Only the new comment is applied");
+	}
+
+	@Test
+	void testRestartedInstanceKeepsItsLaterChange() throws IOException {
+		OwnedBook book = book("Emma");
+		first.addBook(book);
+		book.changeState();
+		secondSync.poll();
+
+		book.setPageNumber(50);
+		copy(book).setPageNumber(80);
+		Path saved = directory.resolve("second.ser");
+		LibrarySerializer serializer = new LibrarySerializer();
+		serializer.save(second, saved);
+		secondSync.saveCursor();
+		secondSync.close();
+
+		// The earlier page arrives only after the restart
+		second = serializer.load(saved);
+		secondSync = open(second, "second");
+		assertEquals(80, copy(book).getPageNumber(), "The earlier remote page must not win after a restart");
+		firstSync.poll();
+		assertEquals(80, book.getPageNumber());
+	}
+
+	@Test
+	void testInstanceIdMustBeAFileName() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new LibrarySync(first, directory, "../elsewhere", Runnable::run));
+	}
+
+	/* ================================= TAILING ================================ */
+
+	@Test
+	void testStartedInstanceTailsTheOthers() throws Exception {
+		secondSync.close();
+		CountDownLatch added = new CountDownLatch(1);
+		second.addListener(new LibraryListener() {
+			@Override
+			public void bookAdded(Book book) {
+				added.countDown();
+			}
+		});
+		secondSync = new LibrarySync(second, directory, "second", Runnable::run, Duration.ofMillis(200));
+		secondSync.start();
+
+		first.addBook(book("Emma"));
+		assertTrue(added.await(10, TimeUnit.SECONDS), "The book should arrive without polling by hand");
+	}
+}
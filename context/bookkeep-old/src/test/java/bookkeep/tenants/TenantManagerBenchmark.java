@@ -0,0 +1,130 @@
+package bookkeep.tenants;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.collections.BookStorage;
+import bookkeep.persistance.LibrarySerializer;
+
+/**
+ * How many tenants fit in a gigabyte of heap, how close the manager's memory
+ * estimate comes to the heap really used, and how long leasing a tenant takes
+ * when its library is already in memory and when it has to be read from its
+ * snapshot. Not a unit test, run it by hand:
+ *
+ * java -cp target/classes:target/test-classes bookkeep.tenants.TenantManagerBenchmark [tenants] [books per tenant]
+ */
+public class TenantManagerBenchmark {
+
+	private static final int LEASES = 2_000;
+
+	public static void main(String[] args) throws IOException {
+		int tenants = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int books = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		Path directory = Files.createTempDirectory("bookkeep-tenants");
+		try {
+			System.out.println("Writing " + tenants + " snapshots of " + books + " books...");
+			writeSnapshots(directory, tenants, books);
+			measureFootprint(directory, tenants);
+			measureLatency(directory, tenants);
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	private static void writeSnapshots(Path directory, int tenants, int books) throws IOException {
+		LibrarySerializer serializer = new LibrarySerializer();
+		Genre[] genres = Genre.values();
+		for (int t = 0; t < tenants; t++) {
+			BookStorage library = new BookStorage();
+			for (int i = 0; i < books; i++) {
+				OwnedBook book = new BookBuilder()
+						.withTitle("Book " + t + "-" + i)
+						.withAuthorName("Author " + i % 60)
+						.withPublicationYear(1900 + i % 120)
+						.withPageCount(300)
+						.withGenre(genres[i % genres.length])
+						.buildOwnedBook();
+				library.addBook(book);
+				if (i % 4 == 0) {
+					book.changeState();
+					book.setPageNumber(120);
+					book.addComment("Thoughts on chapter " + i % 30 + " and where the story goes");
+				}
+			}
+			serializer.save(library, directory.resolve("tenant-" + t + ".ser"));
+		}
+	}
+
+	/**
+	 * Every tenant in memory at once, with the heap measured before and after
+	 */
+	private static void measureFootprint(Path directory, int tenants) throws IOException {
+		TenantManager manager = new TenantManager(directory, tenants, Long.MAX_VALUE);
+		long before = usedHeap();
+		for (int t = 0; t < tenants; t++) {
+			manager.acquire("tenant-" + t).close();
+		}
+		long after = usedHeap();
+		double measured = (after - before) / (double) tenants;
+		double estimated = manager.getMemoryUsage() / (double) tenants;
+		System.out.printf("heap per tenant %.0f KiB, estimated %.0f KiB (%.2fx), %.0f tenants per GiB%n",
+				measured / 1024, estimated / 1024, estimated / measured, (1L << 30) / measured);
+		manager.close();
+	}
+
+	/**
+	 * Leases on a small hot set that stays in memory, then on tenants that were
+	 * evicted and have to be read again
+	 */
+	private static void measureLatency(Path directory, int tenants) throws IOException {
+		int active = Math.max(2, tenants / 10);
+		TenantManager manager = new TenantManager(directory, active, Long.MAX_VALUE);
+		for (int t = 0; t < active / 2; t++) {
+			manager.acquire("tenant-" + t).close();
+		}
+		long[] warm = new long[LEASES];
+		for (int i = 0; i < LEASES; i++) {
+			String id = "tenant-" + i % (active / 2);
+			long start = System.nanoTime();
+			manager.acquire(id).close();
+			warm[i] = System.nanoTime() - start;
+		}
+		long[] cold = new long[Math.min(LEASES, tenants - active)];
+		for (int i = 0; i < cold.length; i++) {
+			// Tenants past the hot set, each one evicting the least recently used
+			String id = "tenant-" + (active + i);
+			long start = System.nanoTime();
+			manager.acquire(id).close();
+			cold[i] = System.nanoTime() - start;
+		}
+		report("warm", warm);
+		report("cold", cold);
+		manager.close();
+	}
+
+	private static void report(String label, long[] nanos) {
+		Arrays.sort(nanos);
+		System.out.printf("%s lease  p50 %8.3f ms  p99 %8.3f ms%n", label,
+				nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,185 @@
+package bookkeep.tenants;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.models.BookBuilder;
+import bookkeep.tenants.TenantManager.Lease;
+
+class TenantManagerTest {
+
+	private Path directory;
+	private long now;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = Files.createTempDirectory("bookkeep-tenants");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	private TenantManager manager(int maxActive, long memoryBudget) {
+		return new TenantManager(directory, maxActive, memoryBudget, () -> now);
+	}
+
+	private static void addBook(Lease lease, String title) {
+		lease.library().addBook(new BookBuilder().withTitle(title).withAuthorName("Author").buildOwnedBook());
+	}
+
+	private static int bookCount(TenantManager manager, String tenant) throws IOException {
+		try (Lease lease = manager.acquire(tenant)) {
+			return lease.library().getAllBooks().size();
+		}
+	}
+
+	/* =============================== ACTIVATION =============================== */
+
+	@Test
+	void testTenantsAreLoadedOnFirstLease() throws IOException {
+		TenantManager manager = manager(4, Long.MAX_VALUE);
+		assertFalse(manager.isActive("alice"));
+		assertEquals(0, manager.getActiveCount());
+
+		try (Lease lease = manager.acquire("alice")) {
+			assertTrue(lease.library().getAllBooks().isEmpty(), "A new tenant starts with an empty library");
+			assertTrue(manager.isActive("alice"));
+		}
+		assertEquals(1, manager.getActiveCount());
+		assertFalse(Files.exists(directory.resolve("alice.ser")), "Nothing was changed, so nothing is written");
+	}
+
+	@Test
+	void testRejectsInvalidIds() {
+		TenantManager manager = manager(1, Long.MAX_VALUE);
+		assertThrows(IllegalArgumentException.class, () -> manager.acquire("../etc"));
+		assertThrows(IllegalArgumentException.class, () -> manager.acquire(""));
+		assertThrows(IllegalArgumentException.class, () -> new TenantManager(directory, 0, 1));
+	}
+
+	/* ================================ EVICTION ================================ */
+
+	@Test
+	void testLeastRecentlyUsedIsSavedAndDropped() throws IOException {
+		TenantManager manager = manager(2, Long.MAX_VALUE);
+		try (Lease alice = manager.acquire("alice")) {
+			addBook(alice, "Emma");
+		}
+		manager.acquire("bob").close();
+		// Alice is used again, so Bob is now the least recently used
+		manager.acquire("alice").close();
+		manager.acquire("carol").close();
+
+		assertTrue(manager.isActive("alice"));
+		assertFalse(manager.isActive("bob"));
+		assertEquals(2, manager.getActiveCount());
+
+		manager.acquire("dave").close();
+		assertFalse(manager.isActive("alice"));
+		assertTrue(Files.exists(directory.resolve("alice.ser")));
+		assertEquals(1, bookCount(manager, "alice"), "The book should survive eviction");
+	}
+
+	@Test
+	void testMemoryBudgetEvictsIdleTenants() throws IOException {
+		long oneLibrary = TenantManager.EMPTY_LIBRARY_BYTES;
+		TenantManager manager = manager(10, oneLibrary * 2);
+		manager.acquire("alice").close();
+		manager.acquire("bob").close();
+		assertEquals(2, manager.getActiveCount());
+		assertEquals(oneLibrary * 2, manager.getMemoryUsage());
+
+		try (Lease bob = manager.acquire("bob")) {
+			addBook(bob, "Dune");
+		}
+		assertFalse(manager.isActive("alice"), "Bob's growth should have pushed Alice out");
+		assertTrue(manager.getMemoryUsage("bob") > oneLibrary);
+		assertEquals(manager.getMemoryUsage("bob"), manager.getMemoryUsage());
+	}
+
+	@Test
+	void testIdleTenantsAreEvicted() throws IOException {
+		TenantManager manager = manager(10, Long.MAX_VALUE);
+		manager.acquire("alice").close();
+		now += Duration.ofMinutes(10).toNanos();
+		Lease bob = manager.acquire("bob");
+		bob.close();
+		Lease held = manager.acquire("carol");
+		now += Duration.ofMinutes(10).toNanos();
+
+		assertEquals(1, manager.evictIdle(Duration.ofMinutes(15)));
+		assertFalse(manager.isActive("alice"));
+		assertEquals(1, manager.evictIdle(Duration.ofMinutes(5)));
+		assertTrue(manager.isActive("carol"), "A leased tenant is never evicted");
+		held.close();
+		assertThrows(IllegalStateException.class, held::library);
+	}
+
+	/* ================================== CAP =================================== */
+
+	@Test
+	void testWaitsForAFreeSlotWhenAllAreLeased() throws Exception {
+		TenantManager manager = manager(1, Long.MAX_VALUE);
+		Lease alice = manager.acquire("alice");
+		addBook(alice, "Emma");
+
+		CompletableFuture<Integer> bob = CompletableFuture.supplyAsync(() -> {
+			try {
+				return bookCount(manager, "bob");
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(100);
+		assertFalse(bob.isDone(), "Bob has to wait while Alice holds the only slot");
+
+		alice.close();
+		assertEquals(0, (int) bob.get(5, TimeUnit.SECONDS));
+		assertFalse(manager.isActive("alice"));
+		assertEquals(1, bookCount(manager, "alice"));
+	}
+
+	@Test
+	void testCloseSavesChangedTenants() throws IOException {
+		TenantManager manager = manager(10, Long.MAX_VALUE);
+		try (Lease alice = manager.acquire("alice")) {
+			addBook(alice, "Emma");
+		}
+		manager.close();
+
+		assertEquals(1, bookCount(manager(10, Long.MAX_VALUE), "alice"));
+	}
+
+	@Test
+	void testLeasedTenantIsSavedOnceReleased() throws IOException {
+		TenantManager manager = manager(10, Long.MAX_VALUE);
+		Lease alice = manager.acquire("alice");
+		addBook(alice, "Emma");
+		manager.close();
+		assertFalse(Files.exists(directory.resolve("alice.ser")), "A leased library is not saved under its holder");
+
+		addBook(alice, "Persuasion");
+		alice.close();
+		assertEquals(2, bookCount(manager(10, Long.MAX_VALUE), "alice"), "It is saved when the lease is closed");
+	}
+}
@@ -0,0 +1,144 @@
+package bookkeep.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.collections.BookStorage;
+
+class BookPagerTest {
+
+	private static List<Book> books(int count) {
+		List<Book> books = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			String author = i % 10 == 0 ? "Ursula K. Le Guin" : "Author " + i;
+			books.add(new BookBuilder().withTitle("Book " + i).withAuthorName(author).buildOwnedBook());
+		}
+		return books;
+	}
+
+	private static List<String> titles(List<Book> books) {
+		return books.stream().map(Book::getTitle).toList();
+	}
+
+	/* ================================= PAGING ================================= */
+
+	@Test
+	void testPagesThroughTheList() {
+		BookPager pager = new BookPager(books(25), 10);
+		assertEquals(3, pager.getPageCount());
+		assertEquals("Book 0", pager.getPage().get(0).getTitle());
+		assertFalse(pager.hasPrevious());
+
+		pager.next();
+		pager.next();
+		assertEquals(3, pager.getPageNumber());
+		assertEquals(20, pager.getOffset());
+		assertEquals(List.of("Book 20", "Book 21", "Book 22", "Book 23", "Book 24"), titles(pager.getPage()));
+		assertFalse(pager.hasNext());
+
+		pager.next();
+		assertEquals(3, pager.getPageNumber(), "Going past the last page should stay on it");
+		pager.previous();
+		assertEquals(2, pager.getPageNumber());
+	}
+
+	@Test
+	void testJumpsToPage() {
+		BookPager pager = new BookPager(books(25), 10);
+		pager.jumpTo(2);
+		assertEquals("Book 10", pager.getPage().get(0).getTitle());
+		pager.jumpTo(99);
+		assertEquals(3, pager.getPageNumber());
+		assertThrows(IllegalArgumentException.class, () -> pager.jumpTo(0));
+	}
+
+	@Test
+	void testEmptyList() {
+		BookPager pager = new BookPager(new LinkedList<>());
+		assertTrue(pager.getPage().isEmpty());
+		assertEquals(1, pager.getPageCount());
+		assertFalse(pager.hasNext());
+	}
+
+	/* ================================= FILTER ================================= */
+
+	@Test
+	void testFilterMatchesTitleOrAuthorIgnoringCase() {
+		BookPager pager = new BookPager(books(100), 3);
+		pager.next();
+		pager.setFilter("LE GUIN");
+		assertEquals(1, pager.getPageNumber(), "A new filter should start from the first page");
+		assertEquals(List.of("Book 0", "Book 10", "Book 20"), titles(pager.getPage()));
+		assertEquals(-1, pager.getPageCount(), "The page count is unknown until the filter has seen every book");
+
+		pager.jumpTo(4);
+		assertEquals(List.of("Book 90"), titles(pager.getPage()));
+		assertEquals(4, pager.getPageCount());
+
+		pager.setFilter("book 9");
+		assertEquals(List.of("Book 9", "Book 90", "Book 91"), titles(pager.getPage()));
+	}
+
+	@Test
+	void testNarrowingAndClearingTheFilter() {
+		BookPager pager = new BookPager(books(100), 5);
+		pager.setFilter("book 1");
+		assertEquals(List.of("Book 1", "Book 10", "Book 11", "Book 12", "Book 13"), titles(pager.getPage()));
+
+		// Typing on keeps only earlier matches that still match, then scans on
+		pager.setFilter("book 15");
+		assertEquals(List.of("Book 15"), titles(pager.getPage()));
+		pager.setFilter("book 15x");
+		assertTrue(pager.getPage().isEmpty());
+
+		pager.setFilter("");
+		assertEquals(20, pager.getPageCount());
+	}
+
+	/* ================================== SCOPE ================================= */
+
+	@Test
+	void testScopeOnlyLooksAsFarAsThePage() {
+		List<Book> books = books(1000);
+		int[] tested = { 0 };
+		BookPager pager = new BookPager(books, book -> {
+			tested[0]++;
+			return book.getAuthorName().startsWith("Ursula");
+		}, 5);
+		assertEquals(List.of("Book 0", "Book 10", "Book 20", "Book 30", "Book 40"), titles(pager.getPage()));
+		assertTrue(tested[0] <= 60, "Only the books up to the page and the next match are looked at");
+
+		pager.setFilter("book 1");
+		assertEquals(List.of("Book 10", "Book 100", "Book 110", "Book 120", "Book 130"), titles(pager.getPage()));
+	}
+
+	@Test
+	void testPagesThroughTheLibraryWithoutTheShelf() {
+		BookStorage library = new BookStorage();
+		books(30).forEach(library::addBook);
+		library.addShelf("Favourites");
+		List<Book> view = library.getBooksView();
+		library.addBookToShelf("Favourites", view.get(3));
+
+		BookPager pager = new BookPager(view, library.notInShelf("Favourites"), 10);
+		pager.jumpTo(3);
+		assertEquals(library.getBooksNotInShelf("Favourites").subList(20, 29), pager.getPage());
+		assertEquals(3, pager.getPageCount());
+
+		// The last book takes the removed one's place in the view
+		library.removeBook(view.get(0));
+		pager.refresh();
+		assertEquals(3, pager.getPageNumber());
+		assertEquals(library.getBooksNotInShelf("Favourites").subList(20, 28), pager.getPage());
+		assertEquals(29, view.size());
+	}
+}
@@ -14,6 +14,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import bookkeep.models.Book;
+import bookkeep.models.BookBuilder;
 import bookkeep.models.collections.BookStorage;
 
 class LibraryMenuTest {
@@ -128,4 +129,46 @@ class LibraryMenuTest {
 		assertTrue(output.contains("Library saved successfully."),
 				"Output should confirm that the library was saved");
 	}
+
+	@Test
+	void testAddBookToShelfFromSecondPage() {
+		for (int i = 1; i <= 30; i++) {
+			bookStorage.addBook(new BookBuilder().withTitle("Book " + i).withAuthorName("Author").buildOwnedBook());
+		}
+		Book onShelf = bookStorage.getAllBooks().get(0);
+		bookStorage.addShelf("Favourites");
+		bookStorage.addBookToShelf("Favourites", onShelf);
+		Book expected = bookStorage.getBooksNotInShelf("Favourites").get(20);
+
+		/*
+		 * Simulated flow:
+		 * 1. Shelf Management, Select a Shelf, the first shelf, Add Book to Shelf.
+		 * 2. Go to the next page and pick the first book on it.
+		 * 3. Press Enter, then return all the way out and exit.
+		 */
+		String simulatedInput = String.join("\n",
+				"2", // Main menu: Shelf Management.
+				"1", // Select a Shelf.
+				"1", // The first shelf.
+				"1", // Add Book to Shelf.
+				"n", // Next page.
+				"21", // The first book on the second page.
+				"", // Press Enter to continue.
+				"0", // Leave the shelf.
+				"0", // Leave Shelf Management.
+				"0", // Main menu: Exit.
+				"" // Final pressEnterToContinue.
+		) + "\n";
+		System.setIn(new ByteArrayInputStream(simulatedInput.getBytes(StandardCharsets.UTF_8)));
+
+		LibraryMenu menu = new LibraryMenu(bookStorage);
+		menu.makeTestMenu();
+		menu.start();
+
+		assertEquals(List.of(onShelf, expected), bookStorage.getBooksFromShelfName("Favourites"));
+		assertEquals(28, bookStorage.getBooksNotInShelf("Favourites").size());
+
+		String output = outContent.toString();
+		assertTrue(output.contains("-- Page 2 of 2 --"), "Output should show the second page");
+	}
 }
@@ -0,0 +1,52 @@
+package bookkeep.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class PhaseTimerTest {
+
+	private long now;
+
+	@Test
+	void testMarksTimeSinceOriginAndPreviousMark() {
+		now = 1_000_000_000L;
+		PhaseTimer timer = new PhaseTimer(() -> now, now);
+
+		now += 40_000_000L;
+		timer.mark("stage shown");
+		now += 10_000_000L;
+		timer.mark("library read");
+
+		List<PhaseTimer.Phase> phases = timer.getPhases();
+		assertEquals(2, phases.size());
+		assertEquals(Duration.ofMillis(40), phases.get(0).sinceOrigin());
+		assertEquals(Duration.ofMillis(50), phases.get(1).sinceOrigin());
+		assertEquals(Duration.ofMillis(10), phases.get(1).sincePrevious());
+	}
+
+	@Test
+	void testPrintsEveryPhase() {
+		now = 0;
+		PhaseTimer timer = new PhaseTimer(() -> now, 0);
+		now = 7_000_000L;
+		timer.mark("interactive");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		timer.print("Startup", new PrintStream(bytes, true));
+		String printed = bytes.toString();
+		assertTrue(printed.startsWith("Startup"));
+		assertTrue(printed.contains("interactive") && printed.contains("7 ms"), printed);
+	}
+
+	@Test
+	void testJvmOriginIsBeforeConstruction() {
+		PhaseTimer timer = PhaseTimer.sinceJvmStart();
+		assertTrue(timer.mark("now").sinceOrigin().toNanos() > 0);
+	}
+}
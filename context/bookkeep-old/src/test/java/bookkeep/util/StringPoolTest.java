@@ -0,0 +1,116 @@
+package bookkeep.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bookkeep.enums.BookFormat;
+import bookkeep.enums.Genre;
+import bookkeep.models.BookBuilder;
+import bookkeep.models.OwnedBook;
+import bookkeep.models.history.BookEvent;
+import bookkeep.models.history.BookEventBuilder;
+
+class StringPoolTest {
+
+	private StringPool pool;
+
+	@BeforeEach
+	void setUp() {
+		pool = new StringPool();
+	}
+
+	/* ============================ CANONICALIZATION ============================ */
+
+	@Test
+	void testEqualStringsShareOneInstance() {
+		String first = new String("Ursula K. Le Guin");
+		String second = new String("Ursula K. Le Guin");
+		assertNotSame(first, second);
+
+		String pooledFirst = pool.canonicalize(first);
+		String pooledSecond = pool.canonicalize(second);
+		assertSame(pooledFirst, pooledSecond, "Equal strings should map to the same instance");
+		assertSame(first, pooledSecond, "The first string seen should become the canonical instance");
+	}
+
+	@Test
+	void testNullIsPassedThrough() {
+		assertNull(pool.canonicalize(null));
+		assertEquals(0, pool.size());
+	}
+
+	/* ================================ STATISTICS ============================== */
+
+	@Test
+	void testHitRateAndBytesSaved() {
+		pool.canonicalize(new String("Terry Pratchett"));
+		pool.canonicalize(new String("Terry Pratchett"));
+		pool.canonicalize(new String("Terry Pratchett"));
+		pool.canonicalize(new String("Neil Gaiman"));
+
+		assertEquals(2, pool.getHits(), "Two duplicates should be hits");
+		assertEquals(2, pool.getMisses(), "Two distinct strings should be misses");
+		assertEquals(0.5, pool.getHitRate(), 1e-9);
+		assertTrue(pool.getBytesSaved() > 2 * "Terry Pratchett".length(),
+				"Bytes saved should include the String and array overhead");
+		assertEquals(2, pool.size());
+	}
+
+	/* ============================== INTEGRATIONS ============================== */
+
+	@Test
+	void testBuilderSharesAuthorNames() {
+		OwnedBook first = new BookBuilder().withTitle("Guards! Guards!")
+				.withAuthorName(new String("Terry Pratchett"))
+				.withGenre(Genre.FANTASY).withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+		OwnedBook second = new BookBuilder().withTitle("Mort")
+				.withAuthorName(new String("Terry Pratchett"))
+				.withGenre(Genre.FANTASY).withFormat(BookFormat.PHYSICAL).buildOwnedBook();
+
+		assertSame(first.getAuthorName(), second.getAuthorName());
+	}
+
+	@Test
+	void testEventBuilderSharesText() {
+		BookEvent first = BookEventBuilder.forQuote(new String("So it goes.")).atPage(10).build();
+		BookEvent second = BookEventBuilder.forQuote(new String("So it goes.")).atPage(10).build();
+
+		assertSame(first.getText(), second.getText());
+	}
+
+	@Test
+	void testDeserializedBooksShareAuthorNames() throws Exception {
+		List<OwnedBook> books = new ArrayList<>();
+		books.add(new BookBuilder().withTitle("Dune").withAuthorName("Frank Herbert").buildOwnedBook());
+		books.add(new BookBuilder().withTitle("Dune Messiah").withAuthorName("Frank Herbert").buildOwnedBook());
+
+		// Two separate streams give two separate copies of the author name
+		OwnedBook first = (OwnedBook) roundTrip(books.get(0));
+		OwnedBook second = (OwnedBook) roundTrip(books.get(1));
+
+		assertSame(first.getAuthorName(), second.getAuthorName(),
+				"Books loaded from separate streams should share the author name");
+	}
+
+	private static Object roundTrip(Object object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+}